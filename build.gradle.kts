@@ -44,9 +44,20 @@ dependencies {
     implementation("software.amazon.awssdk:sts")
     implementation("io.jsonwebtoken:jjwt-api:0.12.6")
     implementation("com.bucket4j:bucket4j-core:8.10.1")
+    implementation("com.bucket4j:bucket4j-postgresql:8.10.1")
     implementation("com.github.ben-manes.caffeine:caffeine:3.2.2")
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.8.13")
 
+    // Embedded search backend (search.engine=lucene)
+    implementation("org.apache.lucene:lucene-core:9.12.1")
+    implementation("org.apache.lucene:lucene-analysis-common:9.12.1")
+    implementation("org.apache.lucene:lucene-queryparser:9.12.1")
+    implementation("org.apache.lucene:lucene-highlighter:9.12.1")
+
+    // Local embedding model for semantic search (ai.embedding.provider=onnx)
+    implementation("com.microsoft.onnxruntime:onnxruntime:1.20.0")
+    implementation("ai.djl.huggingface:tokenizers:0.31.1")
+
     // OCR and PDF processing
     // Using tess4j 5.9.0 which is compatible with Leptonica 1.82.0 (Ubuntu 22.04 default)
     // Newer versions (5.10.0+) require Leptonica 1.84.0+ which isn't available in Ubuntu repos
@@ -54,6 +65,9 @@ dependencies {
     implementation("org.apache.pdfbox:pdfbox:3.0.6")
     implementation("net.java.dev.jna:jna:5.18.1")
 
+    // Language detection of extracted text (character n-gram profiles)
+    implementation("com.optimaize.languagedetector:language-detector:0.6")
+
     annotationProcessor("org.projectlombok:lombok")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -19,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -122,9 +123,13 @@ class FileControllerIT extends BaseIntegrationTest {
 
         MockMultipartFile file =
                 new MockMultipartFile("file", "hello.txt", MediaType.TEXT_PLAIN_VALUE, "hi".getBytes());
-        mockMvc
-                .perform(
-                        multipart("/api/v1/files/upload").file(file).header("Authorization", "Bearer " + token))
-                .andExpect(status().isOk());
+        // Upload runs on the upload bulkhead (async servlet processing)
+        MvcResult uploadRes =
+                mockMvc
+                        .perform(
+                                multipart("/api/v1/files/upload").file(file).header("Authorization", "Bearer " + token))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        mockMvc.perform(asyncDispatch(uploadRes)).andExpect(status().isOk());
     }
 }
@@ -84,14 +84,16 @@ class FileControllerS3IT extends BaseIntegrationTest {
         // Upload
         MockMultipartFile file =
                 new MockMultipartFile("file", "hello.txt", MediaType.TEXT_PLAIN_VALUE, "hi".getBytes());
-        MvcResult uploadRes =
+        MvcResult asyncUpload =
                 mockMvc
                         .perform(
                                 multipart("/api/v1/files/upload")
                                         .file(file)
                                         .header("Authorization", "Bearer " + token))
-                        .andExpect(status().isOk())
+                        .andExpect(request().asyncStarted())
                         .andReturn();
+        MvcResult uploadRes =
+                mockMvc.perform(asyncDispatch(asyncUpload)).andExpect(status().isOk()).andReturn();
 
         String uploadBody = uploadRes.getResponse().getContentAsString();
 
@@ -165,10 +167,13 @@ class FileControllerS3IT extends BaseIntegrationTest {
                 new MockMultipartFile(
                         "file", internationalFilename, "application/pdf", "dummy pdf content".getBytes());
 
-        mockMvc
-                .perform(
-                        multipart("/api/v1/files/upload").file(file).header("Authorization", "Bearer " + token))
-                .andExpect(status().isOk());
+        MvcResult asyncUpload =
+                mockMvc
+                        .perform(
+                                multipart("/api/v1/files/upload").file(file).header("Authorization", "Bearer " + token))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        mockMvc.perform(asyncDispatch(asyncUpload)).andExpect(status().isOk());
 
         // Get the uploaded file ID
         MvcResult listRes =
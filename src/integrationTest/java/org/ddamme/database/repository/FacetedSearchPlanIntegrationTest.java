@@ -0,0 +1,98 @@
+package org.ddamme.database.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plan shape of the faceted search: one scan of the user-scoped search index feeds the
+ * page, the total and the facet aggregate.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class FacetedSearchPlanIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = userRepository.save(User.builder()
+                .username("planuser")
+                .email("plan@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+        jdbcTemplate.update("""
+                INSERT INTO file_metadata (user_id, original_filename, storage_key, size, content_type, file_text)
+                SELECT ?, 'doc-' || g || '.txt', 'plan-' || g, 100, 'text/plain', 'quarterly invoice ' || g
+                FROM generate_series(1, 200) AS g
+                """, user.getId());
+        jdbcTemplate.execute("ANALYZE file_metadata");
+    }
+
+    @Test
+    void searchIndexIsScannedOnce() throws Exception {
+        JsonNode plan = explain(5, 10);
+
+        List<String> searchIndexes = jdbcTemplate.queryForList(
+                "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = 'idx_files_user_search'::regclass",
+                String.class);
+        List<String> indexScans = plan.findValuesAsText("Index Name");
+        List<String> fileScans = plan.findValuesAsText("Relation Name").stream()
+                .filter(relation -> relation.startsWith("file_metadata"))
+                .toList();
+
+        assertThat(indexScans).hasSize(1);
+        assertThat(searchIndexes).contains(indexScans.get(0));
+        assertThat(fileScans).hasSize(1);
+    }
+
+    private JsonNode explain(int limit, int exactLimit) throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String json = transaction.execute(status -> {
+            // 200 rows fit a sequential scan; the plan shape is the point here, not its cost
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + FileQueryRepository.FACETED_SEARCH,
+                    String.class, "english", "invoice", user.getId(), exactLimit, limit);
+        });
+        return objectMapper.readTree(json).get(0).get("Plan");
+    }
+}
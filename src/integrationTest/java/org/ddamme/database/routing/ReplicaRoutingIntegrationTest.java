@@ -0,0 +1,142 @@
+package org.ddamme.database.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.service.SearchService;
+import org.ddamme.service.TagService;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read-replica routing with a "replica" pool on the same database, told apart from the
+ * primary by the db.routing.count metric.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "datasource.replica.enabled=true"
+})
+class ReplicaRoutingIntegrationTest extends BaseIntegrationTest {
+
+    private static final String REPLICA = "replica-1";
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        // ReplicaRoutingConfig builds the primary pool from spring.datasource itself
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("datasource.replica.pools[0].name", () -> REPLICA);
+        registry.add("datasource.replica.pools[0].url", POSTGRES::getJdbcUrl);
+        registry.add("datasource.replica.pools[0].username", POSTGRES::getUsername);
+        registry.add("datasource.replica.pools[0].password", POSTGRES::getPassword);
+        registry.add("datasource.replica.pools[0].maximum-pool-size", () -> "2");
+        registry.add("datasource.replica.pools[0].minimum-idle", () -> "0");
+    }
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        lagMonitor.checkLag();
+        assertThat(lagMonitor.isUsable(REPLICA)).isTrue();
+
+        String name = "routing-" + System.nanoTime();
+        user = userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    @DisplayName("A repository call outside any transaction reads from the primary")
+    void repositoryCallOutsideTransactionUsesPrimary() {
+        double before = replicaReads();
+
+        // SimpleJpaRepository runs these in its own read-only transaction
+        assertThat(userRepository.findById(user.getId())).isPresent();
+        metadataRepository.count();
+
+        assertThat(replicaReads()).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("A plain read-only TransactionTemplate reads from the primary")
+    void plainReadOnlyTemplateUsesPrimary() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        double before = replicaReads();
+
+        readOnly.execute(status -> userRepository.findById(user.getId()));
+
+        assertThat(replicaReads()).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("A service's read-only transaction, or a replica template, reads from a replica")
+    void readOnlyServiceTransactionUsesReplica() {
+        double before = replicaReads();
+
+        tagService.facets(user, FileFilter.builder().build(), 10);
+        ReplicaReads.readOnlyTemplate(transactionManager)
+                .execute(status -> userRepository.findById(user.getId()));
+
+        assertThat(replicaReads()).isEqualTo(before + 2);
+    }
+
+    @Test
+    @DisplayName("A search page that will be cached reads from the primary")
+    void cachedSearchUsesPrimary() {
+        double before = replicaReads();
+
+        searchService.searchTextWithPagination(user, "invoice", null, null, 20, SnippetMode.NONE, true);
+
+        assertThat(replicaReads()).isEqualTo(before);
+    }
+
+    private double replicaReads() {
+        return meterRegistry.get("db.routing.count").tag("target", REPLICA).tag("reason", "read_only")
+                .counter().count();
+    }
+}
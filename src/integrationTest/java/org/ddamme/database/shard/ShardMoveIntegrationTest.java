@@ -0,0 +1,209 @@
+package org.ddamme.database.shard;
+
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Moves users between two real shards: the test container's database (shard 0) and a
+ * second database in the same container (shard 1), both migrated by the application.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "sharding.enabled=true",
+        "sharding.placement[0]=0",
+        // Routes are never cached, so source rows are due for cleanup right after the flip
+        "sharding.directory-cache-ttl=0s",
+        "sharding.move-drain=10s"
+})
+class ShardMoveIntegrationTest extends BaseIntegrationTest {
+
+    private static final String SHARD_1_DATABASE = "file_system_it_shard1";
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        // ShardingConfig builds shard 0's pool from spring.datasource itself
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("sharding.shards[0].id", () -> "1");
+        registry.add("sharding.shards[0].url", ShardMoveIntegrationTest::shard1Url);
+        registry.add("sharding.shards[0].username", POSTGRES::getUsername);
+        registry.add("sharding.shards[0].password", POSTGRES::getPassword);
+        registry.add("sharding.shards[0].maximum-pool-size", () -> "2");
+        registry.add("sharding.shards[0].minimum-idle", () -> "0");
+    }
+
+    @Autowired
+    private ShardDirectory directory;
+
+    @Autowired
+    private ShardMover mover;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private JdbcTemplate shard0;
+    private JdbcTemplate shard1;
+
+    @BeforeEach
+    void setUp() {
+        shard0 = directory.shard(0);
+        shard1 = directory.shard(1);
+        for (JdbcTemplate shard : new JdbcTemplate[]{shard0, shard1}) {
+            shard.update("DELETE FROM shard_move_fences");
+            shard.update("DELETE FROM shard_move_cleanups");
+            shard.update("DELETE FROM shard_directory");
+            shard.update("DELETE FROM file_metadata");
+        }
+        shard1.update("DELETE FROM users");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void movesRowsAndDeletesThemFromTheSourceAfterTheFlip() {
+        User user = placedUser("mover");
+        seed(user.getId(), 3);
+        shard0.update("""
+                INSERT INTO ai_jobs (user_id, file_id, job_type, job_status)
+                SELECT user_id, id, 'OCR', 'DONE' FROM file_metadata WHERE user_id = ?
+                """, user.getId());
+
+        ShardMover.MoveResult result = mover.move(user.getId(), 1);
+
+        assertThat(result.filesMoved()).isEqualTo(3);
+        assertThat(result.jobsMoved()).isEqualTo(3);
+        assertThat(directory.shardFor(user.getId())).isEqualTo(1);
+        assertThat(files(shard1, user.getId())).isEqualTo(3);
+        assertThat(shard1.queryForObject("SELECT COUNT(*) FROM ai_jobs WHERE user_id = ?", Integer.class, user.getId()))
+                .isEqualTo(3);
+
+        // Left behind, fenced, and queued for deletion until the sweep runs
+        assertThat(files(shard0, user.getId())).isEqualTo(3);
+        assertThat(directory.cleanupPending(user.getId(), 0)).isTrue();
+        assertThatThrownBy(() -> shard0.update("UPDATE file_metadata SET tags = '{stale}' WHERE user_id = ?",
+                user.getId()))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("being moved");
+
+        assertThat(mover.cleanUpMovedRows()).isEqualTo(1);
+
+        assertThat(files(shard0, user.getId())).isZero();
+        assertThat(directory.cleanupPending(user.getId(), 0)).isFalse();
+        assertThat(shard0.queryForObject("SELECT COUNT(*) FROM shard_move_fences", Integer.class)).isZero();
+        assertThat(files(shard1, user.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void copyWaitsForTransactionsStillWritingOnTheSource() throws Exception {
+        User user = placedUser("writer");
+        seed(user.getId(), 2);
+
+        try (Connection writer = DriverManager.getConnection(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())) {
+            writer.setAutoCommit(false);
+            try (PreparedStatement update = writer.prepareStatement(
+                    "UPDATE file_metadata SET tags = '{late}' WHERE user_id = ?")) {
+                update.setLong(1, user.getId());
+                update.executeUpdate();
+            }
+
+            CompletableFuture<ShardMover.MoveResult> move =
+                    CompletableFuture.supplyAsync(() -> mover.move(user.getId(), 1));
+            Thread.sleep(1000);
+            assertThat(move).isNotDone();
+            assertThat(files(shard1, user.getId())).isZero();
+
+            writer.commit();
+            assertThat(move.get(15, TimeUnit.SECONDS).filesMoved()).isEqualTo(2);
+        }
+
+        assertThat(shard1.queryForList("SELECT DISTINCT array_to_string(tags, ',') FROM file_metadata WHERE user_id = ?",
+                String.class, user.getId())).containsExactly("late");
+        mover.cleanUpMovedRows();
+    }
+
+    @Test
+    void failedMoveLiftsTheFence() {
+        User user = placedUser("unlucky");
+        seed(user.getId(), 1);
+        // The target already holds the same ids: the copy fails before the flip
+        shard1.update("INSERT INTO users (id, username, email, password, role) VALUES (?, 'unlucky', ?, '!', 'USER')",
+                user.getId(), "unlucky-stub@example.com");
+        shard1.update("""
+                INSERT INTO file_metadata (id, user_id, original_filename, storage_key, size, content_type)
+                VALUES (?, ?, 'stale.txt', 'stale', 100, 'text/plain')
+                """, shard0.queryForObject("SELECT MIN(id) FROM file_metadata WHERE user_id = ?", Long.class, user.getId()),
+                user.getId());
+
+        assertThatThrownBy(() -> mover.move(user.getId(), 1)).isInstanceOf(DataAccessException.class);
+
+        assertThat(directory.shardFor(user.getId())).isZero();
+        assertThat(shard0.queryForObject("SELECT COUNT(*) FROM shard_move_fences", Integer.class)).isZero();
+        shard0.update("UPDATE file_metadata SET tags = '{kept}' WHERE user_id = ?", user.getId());
+    }
+
+    private User placedUser(String name) {
+        User user = userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+        assertThat(directory.shardFor(user.getId())).isZero();
+        return user;
+    }
+
+    private void seed(long userId, int files) {
+        shard0.update("""
+                INSERT INTO file_metadata (user_id, original_filename, storage_key, size, content_type, file_text)
+                SELECT ?, 'doc-' || g || '.txt', 'move-' || ? || '-' || g, 100, 'text/plain', 'moved text ' || g
+                FROM generate_series(1, ?) AS g
+                """, userId, userId, files);
+    }
+
+    private static int files(JdbcTemplate shard, long userId) {
+        Integer count = shard.queryForObject("SELECT COUNT(*) FROM file_metadata WHERE user_id = ?", Integer.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    private static String shard1Url() {
+        try (Connection admin = DriverManager.getConnection(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             PreparedStatement exists = admin.prepareStatement("SELECT 1 FROM pg_database WHERE datname = ?")) {
+            exists.setString(1, SHARD_1_DATABASE);
+            try (ResultSet rs = exists.executeQuery()) {
+                if (!rs.next()) {
+                    admin.createStatement().execute("CREATE DATABASE " + SHARD_1_DATABASE);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the second shard database", e);
+        }
+        return POSTGRES.getJdbcUrl().replace("/" + POSTGRES.getDatabaseName(), "/" + SHARD_1_DATABASE);
+    }
+}
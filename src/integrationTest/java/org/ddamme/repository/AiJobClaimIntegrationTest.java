@@ -38,7 +38,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  * Key behaviors tested:
  * - Immediate claiming of jobs with NULL next_attempt_at
  * - Deferred job claiming based on next_attempt_at timestamp
- * - Dependency gating (jobs wait for parent completion)
+ * - Dependency gating (jobs wait for parent completion, and fail with a DLQ parent)
  * - Attempts counter increments on each claim
  * - Concurrent worker safety (SKIP LOCKED prevents double-claiming)
  */
@@ -194,6 +194,52 @@ class AiJobClaimIntegrationTest extends BaseIntegrationTest {
         assertThat(claimed.getAttempts()).isEqualTo(1);
     }
 
+    @Test
+    @DisplayName("Should move dependents of a DLQ job to DLQ, one level per call")
+    void shouldFailJobsWhoseDependencyFailed() {
+        // Given: OCR ended in DLQ, EMBED waits on it and SUMMARIZE waits on EMBED
+        AiJob parentJob = createJob(JobType.OCR, null);
+        parentJob.setJobStatus(JobStatus.DLQ);
+        parentJob = jobRepository.save(parentJob);
+
+        AiJob childJob = createJob(JobType.EMBED, null);
+        childJob.setDependsOnJobId(parentJob.getId());
+        childJob = jobRepository.save(childJob);
+
+        AiJob grandchildJob = createJob(JobType.SUMMARIZE, null);
+        grandchildJob.setDependsOnJobId(childJob.getId());
+        grandchildJob = jobRepository.save(grandchildJob);
+
+        // When: Failing dependents until nothing is left
+        assertThat(jobRepository.failJobsWithFailedDependency()).containsExactly(childJob.getId());
+        assertThat(jobRepository.failJobsWithFailedDependency()).containsExactly(grandchildJob.getId());
+        assertThat(jobRepository.failJobsWithFailedDependency()).isEmpty();
+
+        // Then: Both are in DLQ with the reason, and nothing is left to claim
+        AiJob child = jobRepository.findById(childJob.getId()).orElseThrow();
+        assertThat(child.getJobStatus()).isEqualTo(JobStatus.DLQ);
+        assertThat(child.getErrorMessage()).startsWith("DEPENDENCY_FAILED:");
+        assertThat(child.getOutputData()).containsEntry("error_code", "DEPENDENCY_FAILED");
+        assertThat(jobRepository.findById(grandchildJob.getId()).orElseThrow().getJobStatus())
+                .isEqualTo(JobStatus.DLQ);
+        assertThat(jobRepository.claimJobIds(10, "worker-1")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should leave dependents of a pending or retrying job alone")
+    void shouldNotFailJobsWhoseDependencyIsPending() {
+        AiJob parentJob = createJob(JobType.OCR, Instant.now().plus(5, ChronoUnit.MINUTES));
+        parentJob = jobRepository.save(parentJob);
+
+        AiJob childJob = createJob(JobType.EMBED, null);
+        childJob.setDependsOnJobId(parentJob.getId());
+        childJob = jobRepository.save(childJob);
+
+        assertThat(jobRepository.failJobsWithFailedDependency()).isEmpty();
+        assertThat(jobRepository.findById(childJob.getId()).orElseThrow().getJobStatus())
+                .isEqualTo(JobStatus.PENDING);
+    }
+
     @Test
     @DisplayName("Should increment attempts counter on each claim")
     void shouldIncrementAttemptsOnClaim() {
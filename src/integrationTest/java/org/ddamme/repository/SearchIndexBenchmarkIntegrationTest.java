@@ -0,0 +1,231 @@
+package org.ddamme.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.LanguageProperties;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark for the user-scoped search index (V14) over a seeded multi-tenant corpus.
+ *
+ * Runs the paginated search query for a small tenant before and after large tenants in the
+ * same hash partition upload tens of thousands of documents with the same terms, and
+ * compares buffers read (deterministic, unlike wall time; timings are logged).
+ *
+ * Each plan is taken in a rolled-back transaction where the search index under test is the
+ * only non-unique index on file_metadata and sequential scans are off, so the plan is the
+ * one that index gives, never a user_id btree walk: either V14's composite index or the
+ * global GIN index on search_vector it replaced.
+ */
+@Slf4j
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class SearchIndexBenchmarkIntegrationTest extends BaseIntegrationTest {
+
+    private static final int PARTITIONS = 8;
+    private static final int LARGE_TENANTS = 3;
+    private static final int DOCS_PER_LARGE_TENANT = 10_000;
+
+    private static final String USER_SCOPED_INDEX = "idx_files_user_search";
+    private static final String GLOBAL_INDEX = "idx_files_search_vector";
+
+    /**
+     * Same shape as MetadataRepository.searchTextWithCursor (first page, no snippets),
+     * parsing the query with every configured language as production does
+     */
+    private static final String SEARCH = """
+            SELECT r.id FROM (
+                SELECT f.id, ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) AS rank
+                FROM file_metadata f, search_query(?, ?) AS q(query)
+                WHERE f.user_id = ? AND f.search_vector @@ q.query
+            ) r
+            ORDER BY r.rank DESC, r.id ASC
+            LIMIT 21
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LanguageProperties languageProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void indexExistsOnEveryPartition() {
+        Integer attached = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'idx_files_user_search'::regclass", Integer.class);
+
+        assertThat(attached).isEqualTo(PARTITIONS);
+    }
+
+    @Test
+    void searchCostTracksTheTenantsOwnMatches() throws Exception {
+        User small = user("small");
+        seed(small.getId(), 20);
+        int remainder = partitionOf(small.getId());
+        analyze();
+
+        Plan before = explain(USER_SCOPED_INDEX, "quarterly invoice", small.getId());
+
+        User large = null;
+        for (int i = 0; i < LARGE_TENANTS; i++) {
+            large = userInPartition("large" + i, remainder);
+            seed(large.getId(), DOCS_PER_LARGE_TENANT);
+        }
+        analyze();
+
+        Plan after = explain(USER_SCOPED_INDEX, "quarterly invoice", small.getId());
+        Plan globalAfter = explain(GLOBAL_INDEX, "quarterly invoice", small.getId());
+        Plan largeScoped = explain(USER_SCOPED_INDEX, "quarterly invoice", large.getId());
+        Plan largeGlobal = explain(GLOBAL_INDEX, "quarterly invoice", large.getId());
+
+        log.info("Small tenant search: before={} buffers / {} ms, after {} large docs={} buffers / {} ms,"
+                        + " global index={} buffers / {} ms",
+                before.buffers(), before.millis(), LARGE_TENANTS * DOCS_PER_LARGE_TENANT,
+                after.buffers(), after.millis(), globalAfter.buffers(), globalAfter.millis());
+        log.info("Large tenant search: user-scoped={} buffers / {} ms, global index={} buffers / {} ms",
+                largeScoped.buffers(), largeScoped.millis(), largeGlobal.buffers(), largeGlobal.millis());
+
+        assertThat(after.rows()).isEqualTo(20);
+        assertThat(globalAfter.rows()).isEqualTo(20);
+        // Flat within noise (index height may grow by a level), not proportional to the corpus
+        assertThat(after.buffers()).isLessThanOrEqualTo(before.buffers() * 2 + 10);
+        // The global index reads every tenant's postings and heap rows for the term
+        assertThat(globalAfter.buffers()).isGreaterThan(after.buffers() * 4);
+        // A large tenant is no worse off than with the global index
+        assertThat(largeScoped.rows()).isEqualTo(21);
+        assertThat(largeScoped.buffers()).isLessThanOrEqualTo(largeGlobal.buffers());
+    }
+
+    private record Plan(long buffers, double millis, long rows) {
+    }
+
+    /**
+     * EXPLAIN ANALYZE of the search with index as the only search path, asserting that the
+     * plan scans that index (one of its partition indexes). The schema change is rolled back.
+     */
+    private Plan explain(String index, String query, long userId) throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String json = transaction.execute(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.queryForList("""
+                            SELECT i.relname FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+                            WHERE x.indrelid = 'file_metadata'::regclass AND NOT x.indisunique
+                            """, String.class).stream()
+                    .filter(name -> !name.equals(index))
+                    .forEach(name -> jdbcTemplate.execute("DROP INDEX " + name));
+            if (GLOBAL_INDEX.equals(index)) {
+                // As before V14
+                jdbcTemplate.execute("CREATE INDEX " + GLOBAL_INDEX + " ON file_metadata USING GIN (search_vector)");
+            }
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+            String plan = jdbcTemplate.queryForObject(
+                    "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + SEARCH, String.class,
+                    languageProperties.searchConfigs(), query, userId);
+            List<String> partitionIndexes = jdbcTemplate.queryForList(
+                    "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = ?::regclass",
+                    String.class, index);
+            try {
+                assertThat(objectMapper.readTree(plan).get(0).get("Plan").findValuesAsText("Index Name"))
+                        .as("indexes scanned for %s", index)
+                        .isNotEmpty()
+                        .allMatch(partitionIndexes::contains);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return plan;
+        });
+        JsonNode root = objectMapper.readTree(json).get(0);
+        JsonNode plan = root.get("Plan");
+        return new Plan(
+                plan.get("Shared Hit Blocks").asLong() + plan.get("Shared Read Blocks").asLong(),
+                root.get("Execution Time").asDouble(),
+                plan.get("Actual Rows").asLong());
+    }
+
+    private void seed(long userId, int docs) {
+        jdbcTemplate.update("""
+                INSERT INTO file_metadata (user_id, original_filename, storage_key, size, content_type, file_text)
+                SELECT ?, 'doc-' || g || '.txt', 'bench-' || ? || '-' || g, 100, 'text/plain',
+                       'quarterly invoice ' || g || ' payment reminder for account ' || (g % 97)
+                FROM generate_series(1, ?) AS g
+                """, userId, userId, docs);
+    }
+
+    private int partitionOf(long userId) {
+        for (int r = 0; r < PARTITIONS; r++) {
+            Boolean matches = jdbcTemplate.queryForObject(
+                    "SELECT satisfies_hash_partition('file_metadata'::regclass, ?, ?, ?::bigint)",
+                    Boolean.class, PARTITIONS, r, userId);
+            if (Boolean.TRUE.equals(matches)) {
+                return r;
+            }
+        }
+        throw new IllegalStateException("No partition for user " + userId);
+    }
+
+    private User userInPartition(String name, int remainder) {
+        for (int attempt = 0; ; attempt++) {
+            User user = user(name + "-" + attempt);
+            if (partitionOf(user.getId()) == remainder) {
+                return user;
+            }
+        }
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    /** Also flushes the GIN pending lists, so the seeded rows are in the index proper */
+    private void analyze() {
+        jdbcTemplate.execute("VACUUM ANALYZE file_metadata");
+    }
+}
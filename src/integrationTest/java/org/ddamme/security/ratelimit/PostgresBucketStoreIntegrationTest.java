@@ -0,0 +1,82 @@
+package org.ddamme.security.ratelimit;
+
+import org.ddamme.security.config.RateLimitProperties;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two limiters, each over its own PostgresBucketStore (own local proxies), stand in for
+ * two replicas: they must draw from one budget in rate_limit_buckets.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class PostgresBucketStoreIntegrationTest extends BaseIntegrationTest {
+
+    private static final int LIMIT = 10;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private RateLimitProperties props;
+    private RateLimiter nodeA;
+    private RateLimiter nodeB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM " + PostgresBucketStore.TABLE);
+
+        props = new RateLimitProperties();
+        props.setPerMinute(Map.of("download", LIMIT));
+        nodeA = new RateLimiter(props, new PostgresBucketStore(dataSource, props));
+        nodeB = new RateLimiter(props, new PostgresBucketStore(dataSource, props));
+    }
+
+    @Test
+    void budgetDrainedOnOneNodeRejectsOnTheOther() {
+        assertThat(nodeA.tryConsume("u:alice", null, charge(LIMIT)).allowed()).isTrue();
+
+        RateLimiter.Decision rejected = nodeB.tryConsume("u:alice", null, charge(1));
+
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.routeKey()).isEqualTo("download");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + PostgresBucketStore.TABLE, Integer.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void alternatingRequestsShareOneBudget() {
+        int admitted = 0;
+        for (int i = 0; i < 4 * LIMIT; i++) {
+            RateLimiter node = i % 2 == 0 ? nodeA : nodeB;
+            if (node.tryConsume("u:bob", null, charge(1)).allowed()) {
+                admitted++;
+            }
+        }
+
+        // Each node may run ahead of the shared row by max-unsynchronized-tokens, no more;
+        // separate budgets would have admitted LIMIT per node
+        long slack = 2 * props.getPostgres().getMaxUnsynchronizedTokens();
+        assertThat(admitted).isBetween(LIMIT, (int) (LIMIT + slack));
+        assertThat(admitted).isLessThan(2 * LIMIT);
+    }
+
+    private static List<RateLimiter.Charge> charge(long tokens) {
+        return List.of(new RateLimiter.Charge("download", tokens));
+    }
+}
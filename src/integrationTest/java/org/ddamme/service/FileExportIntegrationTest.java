@@ -0,0 +1,128 @@
+package org.ddamme.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the streaming NDJSON export.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "files.export.fetch-size=2"  // Several cursor round trips even for a small account
+})
+class FileExportIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private FileExportService fileExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("exportuser")
+                .email("export@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void streamsOneLinePerFileInIdOrder() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(file(testUser, "f" + i + ".txt", null).getId());
+        }
+        User other = userRepository.save(User.builder()
+                .username("other").email("other@example.com").password("p").role(Role.USER).build());
+        file(other, "not-mine.txt", null);
+
+        List<JsonNode> rows = export(false);
+
+        assertThat(rows).extracting(r -> r.get("id").asLong()).containsExactlyElementsOf(ids);
+        assertThat(rows.getFirst().get("originalFilename").asText()).isEqualTo("f0.txt");
+        assertThat(rows.getFirst().get("tags").isArray()).isTrue();
+        assertThat(rows.getFirst().has("fileText")).isFalse();
+    }
+
+    @Test
+    void includesExtractedTextOnRequest() throws Exception {
+        file(testUser, "scan.pdf", "invoice total 42");
+        file(testUser, "photo.jpg", null);
+
+        List<JsonNode> rows = export(true);
+
+        assertThat(rows).extracting(r -> r.get("fileText").isNull() ? null : r.get("fileText").asText())
+                .containsExactly("invoice total 42", null);
+    }
+
+    @Test
+    void emptyAccountExportsNothing() throws Exception {
+        assertThat(export(false)).isEmpty();
+    }
+
+    private List<JsonNode> export(boolean includeText) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = fileExportService.export(testUser, includeText, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        assertThat(rows).hasSize((int) written);
+        assertThat(body.isEmpty() || body.endsWith("\n")).isTrue();
+        return rows;
+    }
+
+    private FileMetadata file(User owner, String name, String text) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(owner);
+        file.setOriginalFilename(name);
+        file.setStorageKey("export-" + owner.getUsername() + "-" + name);
+        file.setSize(1);
+        file.setContentType("application/octet-stream");
+        file.setFileText(text);
+        return metadataRepository.save(file);
+    }
+}
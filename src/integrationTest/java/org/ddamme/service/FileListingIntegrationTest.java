@@ -0,0 +1,154 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FileSort;
+import org.ddamme.dto.PagedFileResponse;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for the filtered, sorted file list and its keyset cursors.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class FileListingIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("listinguser")
+                .email("listing@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void cursorPagesFollowEachSortOrderWithoutGapsOrDuplicates() {
+        // Equal sizes force the id tie-breaker into play
+        for (int i = 0; i < 7; i++) {
+            file("file-" + (char) ('g' - i) + ".txt", "text/plain", i % 3, null);
+        }
+
+        assertThat(walk(FileSort.of("name", null))).extracting(FileListResponse::getOriginalFilename)
+                .containsExactly("file-a.txt", "file-b.txt", "file-c.txt", "file-d.txt",
+                        "file-e.txt", "file-f.txt", "file-g.txt");
+
+        List<FileListResponse> bySize = walk(FileSort.of("size", "desc"));
+        assertThat(bySize).hasSize(7).extracting(FileListResponse::getId).doesNotHaveDuplicates();
+        assertThat(bySize).extracting(FileListResponse::getSize).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+
+        assertThat(walk(FileSort.of("date", "asc"))).extracting(FileListResponse::getId).isSorted();
+    }
+
+    @Test
+    void filtersBySizeRangeContentFamilyAndText() {
+        file("small.png", "image/png", 10, null);
+        file("large.png", "image/png", 5_000, null);
+        file("large.pdf", "application/pdf", 6_000, "quarterly report");
+        file("huge.pdf", "application/pdf", 90_000, null);
+
+        PagedFileResponse largeImages = metadataService.listFiles(testUser,
+                FileFilter.builder().contentType("image/*").minSize(1_000L).build(),
+                FileSort.DEFAULT, null, 0, 10);
+        assertThat(largeImages.getFiles()).extracting(FileListResponse::getOriginalFilename)
+                .containsExactly("large.png");
+
+        PagedFileResponse midRange = metadataService.listFiles(testUser,
+                FileFilter.builder().minSize(1_000L).maxSize(10_000L).build(),
+                FileSort.of("size", "asc"), null, 0, 10);
+        assertThat(midRange.getFiles()).extracting(FileListResponse::getOriginalFilename)
+                .containsExactly("large.png", "large.pdf");
+        assertThat(midRange.getTotalElements()).isEqualTo(2);
+
+        PagedFileResponse withText = metadataService.listFiles(testUser,
+                FileFilter.builder().hasText(true).build(), FileSort.DEFAULT, null, 0, 10);
+        assertThat(withText.getFiles()).extracting(FileListResponse::getOriginalFilename)
+                .containsExactly("large.pdf");
+
+        PagedFileResponse withoutText = metadataService.listFiles(testUser,
+                FileFilter.builder().hasText(false).build(), FileSort.DEFAULT, null, 0, 10);
+        assertThat(withoutText.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void offsetPagesReportTotalsAndRejectForeignCursors() {
+        for (int i = 0; i < 5; i++) {
+            file("f" + i, "text/plain", i, null);
+        }
+
+        PagedFileResponse first = metadataService.listFiles(testUser, null, FileSort.DEFAULT, null, 0, 2);
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(first.getTotalPages()).isEqualTo(3);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        PagedFileResponse last = metadataService.listFiles(testUser, null, FileSort.DEFAULT, null, 2, 2);
+        assertThat(last.getFiles()).hasSize(1);
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getTotalElements()).isEqualTo(5);
+
+        assertThatThrownBy(() -> metadataService.listFiles(
+                testUser, null, FileSort.of("name", null), first.getNextCursor(), 0, 2))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    private List<FileListResponse> walk(FileSort sort) {
+        List<FileListResponse> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            PagedFileResponse page = metadataService.listFiles(testUser, new FileFilter(), sort, cursor, 0, 3);
+            seen.addAll(page.getFiles());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private FileMetadata file(String name, String contentType, long size, String text) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("listing-" + name);
+        file.setSize(size);
+        file.setContentType(contentType);
+        file.setFileText(text);
+        return metadataRepository.save(file);
+    }
+}
@@ -35,6 +35,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 
 /**
  * Integration tests for AI job creation during file upload.
@@ -45,7 +46,9 @@ import static org.mockito.Mockito.doAnswer;
 @TestPropertySource(properties = {
         "spring.task.scheduling.enabled=false",
         "ai.worker.enabled=true",
-        "ai.worker.ocr.auto-create=true"
+        "ai.worker.ocr.auto-create=true",
+        // One OCR page per minute for admins only: refills too slowly to hide a missing refund
+        "security.ratelimit.tiers.admin.ocr-pages=1"
 })
 class FileServiceAiJobIntegrationTest extends BaseIntegrationTest {
 
@@ -311,6 +314,29 @@ class FileServiceAiJobIntegrationTest extends BaseIntegrationTest {
         assertEquals(5, job.getPriority(), "Default priority should be 5");
     }
 
+    /**
+     * Test that an EMBED job is chained after the OCR job on upload.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void embedJobDependsOnOcrJob() {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "embed-test.pdf", "application/pdf", "content".getBytes());
+
+        // Act
+        FileMetadata metadata = fileService.upload(testUser, file);
+
+        // Assert
+        AiJob ocr = jobRepository.findByFileMetadata_IdAndJobType(
+                metadata.getId(), JobType.OCR).orElseThrow();
+        AiJob embed = jobRepository.findByFileMetadata_IdAndJobType(
+                metadata.getId(), JobType.EMBED).orElseThrow();
+
+        assertEquals(ocr.getId(), embed.getDependsOnJobId(), "EMBED should wait for OCR");
+        assertEquals(JobStatus.PENDING, embed.getJobStatus());
+    }
+
     /**
      * Test that job references are lightweight (getReferenceById).
      * This verifies we're not loading full entities unnecessarily.
@@ -363,4 +389,29 @@ class FileServiceAiJobIntegrationTest extends BaseIntegrationTest {
                 metadata.getId(), JobType.OCR).orElseThrow();
         assertNotNull(persistedJob, "Job should be persisted in separate transaction");
     }
+
+    /**
+     * OCR pages charged for an upload that then fails go back to the budget.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void failedUploadRefundsOcrPages() {
+        User admin = userRepository.save(User.builder()
+                .username("ocradmin")
+                .email("ocradmin@example.com")
+                .password("encoded_password")
+                .role(Role.ADMIN)
+                .build());
+        MockMultipartFile scan = new MockMultipartFile(
+                "file", "scan.png", "image/png", "content".getBytes());
+        doThrow(new RuntimeException("S3 unavailable"))
+                .doReturn("refund-storage-key")
+                .when(s3StorageService).upload(any(), any());
+
+        assertThrows(RuntimeException.class, () -> fileService.upload(admin, scan));
+
+        // The single page budget is available again for the retry
+        FileMetadata retried = fileService.upload(admin, scan);
+        assertNotNull(retried.getId());
+    }
 }
@@ -0,0 +1,132 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for S3/metadata consistency without a transaction spanning S3 calls.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "ai.worker.ocr.auto-create=false",
+        "storage.cleanup.upload-grace=PT0S",
+        "storage.cleanup.retry-backoff=PT0S"
+})
+class FileServiceStorageCleanupIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private StorageCleanupOutbox cleanupOutbox;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @org.springframework.test.context.bean.override.mockito.MockitoBean
+    private S3StorageService s3StorageService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM storage_cleanup_outbox");
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("cleanupuser")
+                .email("cleanup@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void successfulUploadReleasesReservation() {
+        when(s3StorageService.upload(any(), any())).thenReturn("cleanup-key-1");
+
+        FileMetadata saved = fileService.upload(testUser, file("a.txt"));
+
+        assertNotNull(saved.getId());
+        assertEquals(0, outboxRows(), "Reservation should be released with the metadata insert");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void failedMetadataInsertDeletesUploadedObject() {
+        // Same key twice -> unique violation on file_metadata.storage_key for the second upload
+        when(s3StorageService.upload(any(), any())).thenReturn("cleanup-dup-key");
+        fileService.upload(testUser, file("first.txt"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> fileService.upload(testUser, file("second.txt")));
+
+        verify(s3StorageService).delete("cleanup-dup-key");
+        assertEquals(0, outboxRows(), "Compensated upload leaves no outbox row");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void failedStorageDeleteIsRetriedBySweeper() {
+        when(s3StorageService.upload(any(), any())).thenReturn("cleanup-del-key");
+        FileMetadata saved = fileService.upload(testUser, file("gone.txt"));
+
+        doThrow(new RuntimeException("S3 unavailable")).when(s3StorageService).delete("cleanup-del-key");
+        fileService.delete(testUser, saved.getId());
+
+        // Metadata is gone immediately; the object delete is parked in the outbox
+        assertFalse(metadataRepository.existsById(saved.getId()));
+        assertEquals(1, outboxRows());
+
+        doNothing().when(s3StorageService).delete(any());
+        cleanupOutbox.sweep();
+
+        assertEquals(0, outboxRows(), "Sweeper should retry and resolve the delete");
+    }
+
+    private int outboxRows() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM storage_cleanup_outbox", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("file", name, "text/plain", "content".getBytes());
+    }
+}
@@ -0,0 +1,156 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.FileChangeDto;
+import org.ddamme.dto.FileChangesResponse;
+import org.ddamme.exception.SyncCursorExpiredException;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Integration tests for delta sync: change stamps, tombstones and cursor expiry (V13).
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class FileSyncIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private FileSyncService fileSyncService;
+
+    @Autowired
+    private FileTombstonePruner fileTombstonePruner;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("syncuser")
+                .email("sync@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void reportsCreatesUpdatesAndDeletesSinceCursor() {
+        FileMetadata kept = file("kept.txt");
+        FileMetadata renamed = file("draft.txt");
+        FileMetadata doomed = file("doomed.txt");
+
+        FileChangesResponse initial = fileSyncService.changes(testUser, null, 100);
+        assertThat(initial.getChanges()).extracting(FileChangeDto::getType, FileChangeDto::getFileId)
+                .containsExactly(
+                        tuple(FileChangeDto.Type.CREATED, kept.getId()),
+                        tuple(FileChangeDto.Type.CREATED, renamed.getId()),
+                        tuple(FileChangeDto.Type.CREATED, doomed.getId()));
+        assertThat(initial.isHasMore()).isFalse();
+
+        renamed.setOriginalFilename("final.txt");
+        metadataRepository.save(renamed);
+        metadataRepository.deleteById(doomed.getId());
+        FileMetadata added = file("new.txt");
+
+        FileChangesResponse delta = fileSyncService.changes(testUser, initial.getCursor(), 100);
+        assertThat(delta.getChanges()).extracting(FileChangeDto::getType, FileChangeDto::getFileId)
+                .containsExactly(
+                        tuple(FileChangeDto.Type.UPDATED, renamed.getId()),
+                        tuple(FileChangeDto.Type.DELETED, doomed.getId()),
+                        tuple(FileChangeDto.Type.CREATED, added.getId()));
+        assertThat(delta.getChanges().getFirst().getFile().getOriginalFilename()).isEqualTo("final.txt");
+        assertThat(delta.getChanges().get(1).getFile()).isNull();
+
+        FileChangesResponse idle = fileSyncService.changes(testUser, delta.getCursor(), 100);
+        assertThat(idle.getChanges()).isEmpty();
+        assertThat(idle.getCursor()).isNotBlank();
+    }
+
+    @Test
+    void smallPagesVisitEveryChangeOnce() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(file("f" + i).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        FileChangesResponse page = fileSyncService.changes(testUser, null, 2);
+        page.getChanges().forEach(c -> seen.add(c.getFileId()));
+        while (page.isHasMore()) {
+            page = fileSyncService.changes(testUser, page.getCursor(), 2);
+            page.getChanges().forEach(c -> seen.add(c.getFileId()));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void cursorsBehindPrunedTombstonesExpire() {
+        FileMetadata doomed = file("doomed.txt");
+        FileChangesResponse initial = fileSyncService.changes(testUser, null, 100);
+        metadataRepository.deleteById(doomed.getId());
+        // Age the tombstone past the retention window
+        jdbcTemplate.update("UPDATE file_tombstones SET deleted_at = NOW() - INTERVAL '365 days' WHERE user_id = ?",
+                testUser.getId());
+
+        fileTombstonePruner.pruneShard();
+
+        assertThatThrownBy(() -> fileSyncService.changes(testUser, initial.getCursor(), 100))
+                .isInstanceOf(SyncCursorExpiredException.class);
+        assertThat(fileSyncService.changes(testUser, null, 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    void cursorsFromAnotherEpochExpire() {
+        file("a.txt");
+        FileChangesResponse initial = fileSyncService.changes(testUser, null, 100);
+        jdbcTemplate.update("INSERT INTO file_sync_state (user_id, epoch) VALUES (?, 42)", testUser.getId());
+
+        assertThatThrownBy(() -> fileSyncService.changes(testUser, initial.getCursor(), 100))
+                .isInstanceOf(SyncCursorExpiredException.class);
+    }
+
+    private FileMetadata file(String name) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("sync-" + name);
+        file.setSize(1L);
+        file.setContentType("text/plain");
+        return metadataRepository.save(file);
+    }
+}
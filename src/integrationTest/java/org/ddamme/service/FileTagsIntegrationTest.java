@@ -0,0 +1,155 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.BulkTagRequest;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileSort;
+import org.ddamme.dto.PagedFileResponse;
+import org.ddamme.dto.TagCountDto;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for file tags: bulk tag/untag, filtered listings and tag facets.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class FileTagsIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+    private User otherUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("taguser")
+                .email("tag@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+        otherUser = userRepository.save(User.builder()
+                .username("othertaguser")
+                .email("othertag@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void bulkTagsAndUntagsOnlyOwnFiles() {
+        FileMetadata a = file(testUser, "a.pdf", "application/pdf");
+        FileMetadata b = file(testUser, "b.png", "image/png");
+        FileMetadata foreign = file(otherUser, "c.pdf", "application/pdf");
+
+        int updated = tagService.bulkUpdate(testUser, BulkTagRequest.builder()
+                .fileIds(List.of(a.getId(), b.getId(), foreign.getId()))
+                .add(List.of("Invoice", "draft"))
+                .build());
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(metadataRepository.findById(a.getId()).orElseThrow().getTags())
+                .containsExactly("draft", "invoice");
+        assertThat(metadataRepository.findById(foreign.getId()).orElseThrow().getTags()).isEmpty();
+
+        tagService.bulkUpdate(testUser, BulkTagRequest.builder()
+                .fileIds(List.of(a.getId()))
+                .remove(List.of("DRAFT"))
+                .build());
+
+        assertThat(metadataRepository.findById(a.getId()).orElseThrow().getTags()).containsExactly("invoice");
+        assertThat(metadataRepository.findById(b.getId()).orElseThrow().getTags())
+                .containsExactly("draft", "invoice");
+    }
+
+    @Test
+    void filtersByTagContentFamilyAndCountsFacets() {
+        FileMetadata pdf = file(testUser, "2025.pdf", "application/pdf");
+        FileMetadata png = file(testUser, "scan.png", "image/png");
+        FileMetadata jpg = file(testUser, "photo.jpg", "image/jpeg");
+        tag(List.of(pdf.getId(), png.getId()), "invoice");
+        tag(List.of(jpg.getId()), "holiday");
+
+        PagedFileResponse invoices = metadataService.listFiles(testUser,
+                FileFilter.builder().tag(List.of("invoice")).build(), FileSort.DEFAULT, null, 0, 10);
+        assertThat(invoices.getTotalElements()).isEqualTo(2);
+
+        PagedFileResponse imageInvoices = metadataService.listFiles(testUser,
+                FileFilter.builder().tag(List.of("invoice")).contentType("image/*").build(),
+                FileSort.DEFAULT, null, 0, 10);
+        assertThat(imageInvoices.getFiles()).singleElement()
+                .satisfies(f -> {
+                    assertThat(f.getOriginalFilename()).isEqualTo("scan.png");
+                    assertThat(f.getTags()).containsExactly("invoice");
+                });
+
+        List<TagCountDto> allFacets = tagService.facets(testUser, new FileFilter(), 10);
+        assertThat(allFacets).extracting(TagCountDto::getTag).containsExactly("invoice", "holiday");
+        assertThat(allFacets.getFirst().getCount()).isEqualTo(2);
+
+        List<TagCountDto> imageFacets = tagService.facets(testUser,
+                FileFilter.builder().contentType("image/*").build(), 10);
+        assertThat(imageFacets).extracting(TagCountDto::getCount).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void rejectsExceedingTagLimit() {
+        FileMetadata f = file(testUser, "busy.pdf", "application/pdf");
+        tag(List.of(f.getId()), IntStream.range(0, 30).mapToObj(i -> "a" + i).toArray(String[]::new));
+
+        assertThatThrownBy(() -> tag(List.of(f.getId()),
+                IntStream.range(0, 30).mapToObj(i -> "b" + i).toArray(String[]::new)))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(metadataRepository.findById(f.getId()).orElseThrow().getTags()).hasSize(30);
+    }
+
+    private void tag(List<Long> fileIds, String... tags) {
+        tagService.bulkUpdate(testUser, BulkTagRequest.builder().fileIds(fileIds).add(List.of(tags)).build());
+    }
+
+    private FileMetadata file(User owner, String name, String contentType) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(owner);
+        file.setOriginalFilename(name);
+        file.setStorageKey("tags-" + owner.getUsername() + "-" + name);
+        file.setSize(1L);
+        file.setContentType(contentType);
+        return metadataRepository.save(file);
+    }
+}
@@ -0,0 +1,155 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FolderDto;
+import org.ddamme.dto.FolderListingResponse;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for materialized-path folders and the folder_stats rollup triggers.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class FolderServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("folderuser")
+                .email("folder@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void listsFolderWithSubfolderRollups() {
+        file("/reports/", "summary.pdf", 100);
+        file("/reports/2025/", "q1.pdf", 10);
+        file("/reports/2025/", "q2.pdf", 20);
+        file("/reports-old/", "legacy.pdf", 5);
+
+        FolderListingResponse root = folderService.listFolder(testUser, "/", null, 20);
+        assertThat(root.getFolders()).extracting(FolderDto::getPath)
+                .containsExactly("/reports/", "/reports-old/");
+
+        FolderListingResponse reports = folderService.listFolder(testUser, "reports", null, 20);
+        assertThat(reports.getFiles()).extracting(FileListResponse::getOriginalFilename)
+                .containsExactly("summary.pdf");
+        assertThat(reports.getFolders()).singleElement()
+                .satisfies(f -> {
+                    assertThat(f.getName()).isEqualTo("2025");
+                    assertThat(f.getFileCount()).isEqualTo(2);
+                    assertThat(f.getTotalSize()).isEqualTo(30);
+                });
+
+        FolderDto stats = folderService.stats(testUser, "/reports/");
+        assertThat(stats.getFileCount()).isEqualTo(3);
+        assertThat(stats.getTotalSize()).isEqualTo(130);
+    }
+
+    @Test
+    void subtreeKeysetPaginationVisitsEveryFileOnce() {
+        for (int i = 0; i < 5; i++) {
+            file("/a/", "f" + i, 1);
+            file("/a/b/", "f" + i, 1);
+        }
+        file("/other/", "outside", 1);
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            FolderListingResponse page = folderService.listSubtree(testUser, "/a/", cursor, 3);
+            page.getFiles().forEach(f -> seen.add(f.getFolderPath() + f.getOriginalFilename()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).hasSize(10).doesNotHaveDuplicates().allMatch(p -> p.startsWith("/a/"));
+    }
+
+    @Test
+    void movesSubtreeAndKeepsRollupsCurrent() {
+        file("/projects/alpha/", "spec.pdf", 40);
+        file("/projects/alpha/drafts/", "v1.pdf", 2);
+        file("/projects/beta/", "notes.txt", 7);
+
+        int moved = folderService.moveFolder(testUser, "/projects/alpha/", "/archive/alpha/");
+
+        assertThat(moved).isEqualTo(2);
+        assertThat(folderService.stats(testUser, "/archive/").getFileCount()).isEqualTo(2);
+        assertThat(folderService.stats(testUser, "/archive/").getTotalSize()).isEqualTo(42);
+        assertThat(folderService.stats(testUser, "/projects/").getFileCount()).isEqualTo(1);
+        assertThat(folderService.listSubtree(testUser, "/archive/", null, 10).getFiles())
+                .extracting(FileListResponse::getFolderPath)
+                .containsExactly("/archive/alpha/", "/archive/alpha/drafts/");
+    }
+
+    @Test
+    void rejectsMovingFolderIntoItself() {
+        file("/a/", "x", 1);
+
+        assertThatThrownBy(() -> folderService.moveFolder(testUser, "/a/", "/a/b/"))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void deletingFilesDecrementsRollups() {
+        FileMetadata doomed = file("/tmp/", "scratch", 9);
+        file("/tmp/", "keep", 1);
+
+        metadataRepository.deleteById(doomed.getId());
+
+        FolderDto stats = folderService.stats(testUser, "/tmp/");
+        assertThat(stats.getFileCount()).isEqualTo(1);
+        assertThat(stats.getTotalSize()).isEqualTo(1);
+    }
+
+    private FileMetadata file(String folder, String name, long size) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setFolderPath(folder);
+        file.setOriginalFilename(name);
+        file.setStorageKey("folder-" + folder + name);
+        file.setSize(size);
+        file.setContentType("application/pdf");
+        return metadataRepository.save(file);
+    }
+}
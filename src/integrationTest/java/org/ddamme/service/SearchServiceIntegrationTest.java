@@ -0,0 +1,270 @@
+package org.ddamme.service;
+
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.FileQueryRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.FilenameSuggestionDto;
+import org.ddamme.dto.SearchFacets;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for paginated full-text search and its deferred snippets.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "search.cache.enabled=false"
+})
+class SearchServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileQueryRepository fileQueryRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("searchuser")
+                .email("search@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void pagesThroughAllMatchesOnce() {
+        for (int i = 0; i < 7; i++) {
+            file("doc" + i + ".txt", "quarterly invoice number " + i);
+        }
+        file("other.txt", "nothing relevant");
+
+        List<Long> seen = new ArrayList<>();
+        Double lastRank = null;
+        Long lastId = null;
+        SearchResponse page;
+        do {
+            page = searchService.searchTextWithPagination(testUser, "invoice", lastRank, lastId, 3, SnippetMode.NONE);
+            page.getResults().forEach(r -> seen.add(r.getFileId()));
+            lastRank = page.getNextRank();
+            lastId = page.getNextId();
+        } while (page.isHasMore());
+
+        assertThat(seen).hasSize(7).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void facetsCountAllMatchesOnFirstPage() {
+        for (int i = 0; i < 3; i++) {
+            file("doc" + i + ".txt", "invoice " + i);
+        }
+        FileMetadata scan = file("scan.png", "scanned invoice");
+        scan.setContentType("image/png");
+        scan.setSize(2_000_000L);
+        scan.setOcrConfidence(0.9f);
+        metadataRepository.save(scan);
+        file("other.txt", "nothing relevant");
+
+        SearchResponse first = searchService.searchTextWithPagination(
+                testUser, "invoice", null, null, 2, SnippetMode.NONE, true);
+
+        assertThat(first.getResults()).hasSize(2);
+        SearchFacets facets = first.getFacets();
+        assertThat(facets.getTotal()).isEqualTo(4);
+        assertThat(facets.isApproximate()).isFalse();
+        assertThat(facets.getContentType()).containsExactly(
+                new SearchFacets.Bucket("text/*", 3), new SearchFacets.Bucket("image/*", 1));
+        assertThat(facets.getSize()).containsExactly(
+                new SearchFacets.Bucket("under_100kb", 3), new SearchFacets.Bucket("1mb_10mb", 1));
+        assertThat(facets.getOcrConfidence()).containsExactly(
+                new SearchFacets.Bucket("none", 3), new SearchFacets.Bucket("high", 1));
+        assertThat(facets.getUploaded()).containsExactly(new SearchFacets.Bucket("past_week", 4));
+
+        SearchResponse plain = searchService.searchTextWithPagination(testUser, "invoice", null, null, 2, SnippetMode.NONE);
+        assertThat(first.getResults()).extracting(SearchResultDto::getFileId)
+                .isEqualTo(plain.getResults().stream().map(SearchResultDto::getFileId).toList());
+
+        SearchResponse second = searchService.searchTextWithPagination(
+                testUser, "invoice", first.getNextRank(), first.getNextId(), 2, SnippetMode.NONE, true);
+        assertThat(second.getFacets()).isNull();
+        assertThat(second.getResults()).hasSize(2);
+    }
+
+    @Test
+    void sampledFacetsScaleToTotalAndKeepExactPage() {
+        for (int i = 0; i < 40; i++) {
+            file("doc" + i + ".txt", "invoice " + i);
+        }
+
+        FileQueryRepository.FacetedPage page =
+                fileQueryRepository.searchWithFacets(testUser.getId(), "english", "invoice", 5, 10);
+
+        SearchFacets facets = page.facets();
+        assertThat(facets.getTotal()).isEqualTo(40);
+        assertThat(facets.isApproximate()).isTrue();
+        assertThat(facets.getUploaded()).containsExactly(new SearchFacets.Bucket("past_week", 40));
+
+        SearchResponse plain = searchService.searchTextWithPagination(testUser, "invoice", null, null, 5, SnippetMode.NONE);
+        assertThat(page.results()).extracting(SearchResultDto::getFileId)
+                .isEqualTo(plain.getResults().stream().map(SearchResultDto::getFileId).toList());
+    }
+
+    @Test
+    void documentsAreStemmedWithTheirOwnLanguage() {
+        FileMetadata scan = file("scan1.pdf", "Die Rechnungen für März sind bezahlt");
+
+        // Indexed as English: "Rechnungen" is not reduced to "rechnung"
+        assertThat(searchService.searchTextWithPagination(testUser, "Rechnung", null, null, 10, SnippetMode.NONE)
+                .isFuzzy()).isTrue();
+
+        scan.setTextConfig("german");
+        metadataRepository.save(scan);
+
+        SearchResponse german = searchService.searchTextWithPagination(testUser, "Rechnung", null, null, 10, SnippetMode.HTML);
+        assertThat(german.isFuzzy()).isFalse();
+        assertThat(german.getResults()).singleElement()
+                .satisfies(r -> assertThat(r.getSnippet()).contains("<mark>Rechnungen</mark>"));
+        assertThat(metadataRepository.findById(scan.getId()).orElseThrow().getTextConfig()).isEqualTo("german");
+    }
+
+    @Test
+    void snippetModes() {
+        file("scan.pdf", "Payment due for invoice 42 <b>now</b>");
+
+        SearchResultDto html = only(SnippetMode.HTML);
+        assertThat(html.getSnippet()).contains("<mark>invoice</mark>");
+        assertThat(html.getHighlights()).isNull();
+
+        SearchResultDto offsets = only(SnippetMode.OFFSETS);
+        assertThat(offsets.getSnippet()).doesNotContain("<mark>").contains("invoice");
+        assertThat(offsets.getHighlights()).singleElement()
+                .satisfies(h -> assertThat(offsets.getSnippet().substring(h.start(), h.end())).isEqualTo("invoice"));
+
+        SearchResultDto none = only(SnippetMode.NONE);
+        assertThat(none.getSnippet()).isNull();
+        assertThat(none.getRank()).isPositive();
+    }
+
+    @Test
+    void suggestsByPrefixSubstringAndTypo() {
+        file("Invoice-2025-03.pdf", null);
+        file("2024_invoice_final.pdf", null);
+        file("receipt.png", null);
+
+        assertThat(searchService.suggestFilenames(testUser, "inv", 10))
+                .extracting(FilenameSuggestionDto::getFilename)
+                .containsExactly("Invoice-2025-03.pdf", "2024_invoice_final.pdf");
+
+        assertThat(searchService.suggestFilenames(testUser, "recipt", 10))
+                .extracting(FilenameSuggestionDto::getFilename)
+                .containsExactly("receipt.png");
+
+        assertThat(searchService.suggestFilenames(testUser, "re", 10))
+                .extracting(FilenameSuggestionDto::getFilename)
+                .containsExactly("receipt.png");
+    }
+
+    @Test
+    void suggestTreatsWildcardsLiterally() {
+        file("100%_done.txt", null);
+        file("1000 items.txt", null);
+
+        // "%" is matched literally, so only the first name starts with "100%"
+        assertThat(searchService.suggestFilenames(testUser, "100%", 10))
+                .extracting(FilenameSuggestionDto::getFilename)
+                .first().isEqualTo("100%_done.txt");
+    }
+
+    @Test
+    void misspelledQueryFallsBackToDidYouMean() {
+        FileMetadata scan = file("scan.pdf", "Quarterly invoice for account 7");
+        file("notes.txt", "meeting notes");
+
+        SearchResponse exact = searchService.searchTextWithPagination(testUser, "invoice", null, null, 10, SnippetMode.NONE);
+        assertThat(exact.isFuzzy()).isFalse();
+        assertThat(exact.getDidYouMean()).isNull();
+
+        SearchResponse typo = searchService.searchTextWithPagination(testUser, "quartely invoise", null, null, 10, SnippetMode.NONE);
+        assertThat(typo.isFuzzy()).isTrue();
+        assertThat(typo.getDidYouMean()).isEqualTo("quarterly invoice");
+        assertThat(typo.getResults()).extracting(SearchResultDto::getFileId).containsExactly(scan.getId());
+        assertThat(typo.isHasMore()).isFalse();
+    }
+
+    @Test
+    void vocabularyFollowsTextChangesAndDeletes() {
+        FileMetadata scan = file("scan.pdf", "invoice");
+        assertThat(searchService.didYouMean(testUser.getId(), "invoise")).isEqualTo("invoice");
+
+        scan.setFileText("receipt");
+        metadataRepository.save(scan);
+        assertThat(searchService.didYouMean(testUser.getId(), "invoise")).isNull();
+        assertThat(searchService.didYouMean(testUser.getId(), "reciept")).isEqualTo("receipt");
+
+        metadataRepository.deleteById(scan.getId());
+        assertThat(searchService.didYouMean(testUser.getId(), "reciept")).isNull();
+    }
+
+    @Test
+    void didYouMeanKeepsOperatorsInAnyCase() {
+        // No "and" in the text: without the operator check "AND" would be corrected to "android"
+        file("report.pdf", "annual report android notes");
+
+        assertThat(searchService.didYouMean(testUser.getId(), "anual Or reprot AND andriod"))
+                .isEqualTo("annual Or report AND android");
+        assertThat(searchService.didYouMean(testUser.getId(), "annual OR report")).isNull();
+    }
+
+    private SearchResultDto only(SnippetMode mode) {
+        List<SearchResultDto> results =
+                searchService.searchTextWithPagination(testUser, "invoice", null, null, 10, mode).getResults();
+        assertThat(results).hasSize(1);
+        return results.getFirst();
+    }
+
+    private FileMetadata file(String name, String text) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("search-" + name);
+        file.setSize(1);
+        file.setContentType("text/plain");
+        file.setFileText(text);
+        return metadataRepository.save(file);
+    }
+}
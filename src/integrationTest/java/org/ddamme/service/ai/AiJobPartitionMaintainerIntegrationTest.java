@@ -0,0 +1,155 @@
+package org.ddamme.service.ai;
+
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Partition maintenance against real ai_jobs partitions: DETACH ... CONCURRENTLY runs outside
+ * a transaction, and partitions past retention with unfinished jobs stay attached.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "ai.jobs.partitions.retention-months=12",
+        "ai.jobs.partitions.archive-mode=detach"
+})
+class AiJobPartitionMaintainerIntegrationTest extends BaseIntegrationTest {
+
+    private static final YearMonth NOW = YearMonth.now(ZoneOffset.UTC);
+    private static final YearMonth DONE = NOW.minusMonths(13);
+    private static final YearMonth PENDING = NOW.minusMonths(14);
+    private static final YearMonth RUNNING = NOW.minusMonths(15);
+    private static final YearMonth FAILED = NOW.minusMonths(16);
+
+    @Autowired
+    private AiJobPartitionMaintainer maintainer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        dropTestPartitions();
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("partitionuser")
+                .email("partition@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dropTestPartitions();
+    }
+
+    @Test
+    void detachesFinishedPartitionsAndKeepsUnfinishedOnes() {
+        oldJob(DONE, "DONE");
+        oldJob(PENDING, "PENDING");
+        oldJob(RUNNING, "RUNNING");
+        oldJob(FAILED, "FAILED");
+
+        maintainer.maintainPartitions();
+
+        String archive = AiJobPartitionMaintainer.archiveName(DONE);
+        assertThat(attached(AiJobPartitionMaintainer.partitionName(DONE))).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + archive, Integer.class)).isEqualTo(1);
+        // The archived job keeps its (file, type) slot, so it is not re-created
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ai_job_keys", Integer.class)).isEqualTo(4);
+
+        for (YearMonth unfinished : new YearMonth[]{PENDING, RUNNING, FAILED}) {
+            assertThat(attached(AiJobPartitionMaintainer.partitionName(unfinished)))
+                    .as("partition %s", unfinished).isTrue();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ai_jobs", Integer.class)).isEqualTo(3);
+        // Nothing left half-detached by the two-phase CONCURRENTLY
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'ai_jobs'::regclass AND inhdetachpending",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void dropModeRemovesTheDetachedPartition() {
+        oldJob(DONE, "DONE");
+
+        ReflectionTestUtils.setField(maintainer, "archiveMode", "drop");
+        try {
+            maintainer.maintainPartitions();
+        } finally {
+            ReflectionTestUtils.setField(maintainer, "archiveMode", "detach");
+        }
+
+        assertThat(exists(AiJobPartitionMaintainer.partitionName(DONE))).isFalse();
+        assertThat(exists(AiJobPartitionMaintainer.archiveName(DONE))).isFalse();
+    }
+
+    private void oldJob(YearMonth month, String status) {
+        String partition = AiJobPartitionMaintainer.partitionName(month);
+        jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF ai_jobs FOR VALUES FROM ('"
+                + AiJobPartitionMaintainer.lowerBound(month) + "') TO ('"
+                + AiJobPartitionMaintainer.lowerBound(month.plusMonths(1)) + "')");
+        Long fileId = jdbcTemplate.queryForObject("""
+                INSERT INTO file_metadata (user_id, original_filename, storage_key, size, content_type)
+                VALUES (?, ?, ?, 100, 'application/pdf')
+                RETURNING id
+                """, Long.class, testUser.getId(), partition + ".pdf", "partition-" + partition);
+        jdbcTemplate.update("""
+                INSERT INTO ai_jobs (user_id, file_id, job_type, job_status, created_at)
+                VALUES (?, ?, 'OCR'::job_type, ?::job_status, ?::timestamptz + INTERVAL '1 day')
+                """, testUser.getId(), fileId, status, AiJobPartitionMaintainer.lowerBound(month));
+    }
+
+    private boolean attached(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_inherits
+                               WHERE inhparent = 'ai_jobs'::regclass AND inhrelid = to_regclass(?))
+                """, Boolean.class, partition));
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private void dropTestPartitions() {
+        for (YearMonth month : new YearMonth[]{DONE, PENDING, RUNNING, FAILED}) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + AiJobPartitionMaintainer.partitionName(month));
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + AiJobPartitionMaintainer.archiveName(month));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.ddamme.service.ai;
+
+import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.AiJobHistory;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.JobStatus;
+import org.ddamme.database.model.JobType;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobHistoryRepository;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.JobDto;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for moving finished jobs out of the queue table into ai_jobs_history.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "ai.jobs.retention.min-age=PT0S",
+        "ai.jobs.retention.batch-size=2"
+})
+class AiJobRetentionIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private AiJobRetentionMover mover;
+
+    @Autowired
+    private AiJobService aiJobService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private AiJobHistoryRepository historyRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("retentionuser")
+                .email("retention@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void movesOnlyFinishedJobsInBatches() {
+        AiJob done = job(file("done.pdf"), JobType.OCR, JobStatus.DONE);
+        AiJob dlq = job(file("dlq.pdf"), JobType.OCR, JobStatus.DLQ);
+        AiJob alsoDone = job(file("done2.pdf"), JobType.OCR, JobStatus.DONE);
+        AiJob pending = job(file("pending.pdf"), JobType.OCR, JobStatus.PENDING);
+
+        // batch-size=2: one full batch, then a short one ends the run
+        int moved = mover.moveShard();
+
+        assertThat(moved).isEqualTo(3);
+        assertThat(jobRepository.findAll()).extracting(AiJob::getId).containsExactly(pending.getId());
+        assertThat(historyRepository.findAll()).extracting(AiJobHistory::getId)
+                .containsExactlyInAnyOrder(done.getId(), dlq.getId(), alsoDone.getId());
+    }
+
+    @Test
+    void queriesSpanQueueAndHistory() {
+        FileMetadata file = file("both.pdf");
+        AiJob archived = job(file, JobType.OCR, JobStatus.DLQ);
+        mover.moveShard();
+        AiJob live = job(file, JobType.EMBED, JobStatus.DLQ);
+
+        List<JobDto> failed = aiJobService.getUserFailedJobs(testUser.getId());
+
+        assertThat(failed).extracting(JobDto::getId).containsExactly(live.getId(), archived.getId());
+        assertThat(failed).extracting(JobDto::isArchived).containsExactly(false, true);
+        assertThat(aiJobService.findJob(archived.getId())).get()
+                .extracting(JobDto::getJobStatus).isEqualTo(JobStatus.DLQ);
+    }
+
+    @Test
+    void archivedJobStillOwnsItsFileAndType() {
+        FileMetadata file = file("slot.pdf");
+        AiJob archived = job(file, JobType.OCR, JobStatus.DONE);
+        mover.moveShard();
+
+        Long jobId = aiJobService.createJob(testUser.getId(), file.getId(), JobType.OCR, 5, null);
+
+        assertThat(jobId).isEqualTo(archived.getId());
+        assertThat(jobRepository.count()).isZero();
+    }
+
+    private FileMetadata file(String name) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("retention-" + name);
+        file.setSize(100L);
+        file.setContentType("application/pdf");
+        return metadataRepository.save(file);
+    }
+
+    private AiJob job(FileMetadata file, JobType type, JobStatus status) {
+        return jobRepository.save(AiJob.builder()
+                .user(testUser)
+                .fileMetadata(file)
+                .jobType(type)
+                .jobStatus(status)
+                .createdAt(Instant.now())
+                .completedAt(status == JobStatus.DONE ? Instant.now() : null)
+                .build());
+    }
+}
@@ -0,0 +1,197 @@
+package org.ddamme.service.ai;
+
+import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.JobStatus;
+import org.ddamme.database.model.JobType;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.FileQueryRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.service.ai.embed.EmbeddingProvider;
+import org.ddamme.service.search.SemanticSearchService;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Integration tests for the EMBED job and semantic search over file_embeddings (pgvector),
+ * with the deterministic hashing provider.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "ai.embedding.provider=hashing",
+        "ai.embedding.chunk-words=8",
+        "ai.embedding.chunk-overlap=2",
+        "ai.embedding.batch-size=2"
+})
+class EmbedJobIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private EmbedJobHandler handler;
+
+    @Autowired
+    private SemanticSearchService semanticSearchService;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileQueryRepository fileQueryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private EmbeddingProvider embeddingProvider;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("embeduser")
+                .email("embed@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void embedsChunksInBatchesAndRecordsModel() {
+        FileMetadata file = file("long.pdf",
+                "one two three four five six seven eight nine ten eleven twelve thirteen fourteen fifteen");
+
+        handler.execute(job(file));
+
+        // 15 words, 8 per chunk, stepping 6: [1-8], [7-14], [13-15]
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT chunk_index FROM file_embeddings WHERE file_id = ? ORDER BY chunk_index",
+                Integer.class, file.getId())).containsExactly(0, 1, 2);
+        assertThat(metadataRepository.findById(file.getId()).orElseThrow().getEmbeddingModelVersion())
+                .isEqualTo("hashing-v1");
+    }
+
+    @Test
+    void reRunReplacesChunks() {
+        FileMetadata file = file("again.pdf", "alpha beta gamma");
+        AiJob job = job(file);
+
+        handler.execute(job);
+        handler.execute(job);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM file_embeddings WHERE file_id = ?", Integer.class, file.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void failedInsertKeepsPreviousChunks() {
+        FileMetadata file = file("keep.pdf", "alpha beta gamma");
+        AiJob job = job(file);
+        handler.execute(job);
+
+        // pgvector rejects NaN, so the insert fails after the delete
+        float[] invalid = new float[EmbeddingProvider.DIMENSIONS];
+        invalid[0] = Float.NaN;
+        doReturn(List.of(invalid)).when(embeddingProvider).embed(anyList());
+
+        assertThatThrownBy(() -> handler.execute(job)).isInstanceOf(DataAccessException.class);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM file_embeddings WHERE file_id = ?", Integer.class, file.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void tagsEditedDuringEmbeddingAreKept() {
+        FileMetadata file = file("tagged.pdf", "alpha beta gamma");
+        doAnswer(invocation -> {
+            fileQueryRepository.updateTags(testUser.getId(), List.of(file.getId()), List.of("urgent"), List.of());
+            return invocation.callRealMethod();
+        }).when(embeddingProvider).embed(anyList());
+
+        handler.execute(job(file));
+
+        FileMetadata saved = metadataRepository.findById(file.getId()).orElseThrow();
+        assertThat(saved.getTags()).containsExactly("urgent");
+        assertThat(saved.getEmbeddingModelVersion()).isEqualTo("hashing-v1");
+    }
+
+    @Test
+    void semanticSearchRanksClosestFileFirstAndStaysWithinUser() {
+        FileMetadata invoice = file("a.pdf", "invoice payment due amount total");
+        FileMetadata recipe = file("b.pdf", "bake the bread with flour and water");
+        handler.execute(job(invoice));
+        handler.execute(job(recipe));
+
+        User other = userRepository.save(User.builder()
+                .username("other").email("other@example.com").password("p").role(Role.USER).build());
+
+        List<SearchResultDto> results = semanticSearchService.nearest(testUser, "invoice payment", 10);
+
+        assertThat(results).isNotEmpty();
+        assertThat(results.get(0).getFileId()).isEqualTo(invoice.getId());
+        assertThat(results.get(0).getSnippet()).startsWith("invoice payment");
+        assertThat(semanticSearchService.nearest(other, "invoice payment", 10)).isEmpty();
+    }
+
+    @Test
+    void fileWithoutTextHasNoChunks() {
+        FileMetadata file = file("blank.png", null);
+
+        handler.execute(job(file));
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM file_embeddings WHERE file_id = ?", Integer.class, file.getId())).isZero();
+    }
+
+    private FileMetadata file(String name, String text) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("embed-" + name);
+        file.setSize(100L);
+        file.setContentType("application/pdf");
+        file.setFileText(text);
+        return metadataRepository.save(file);
+    }
+
+    private AiJob job(FileMetadata file) {
+        return jobRepository.save(AiJob.builder()
+                .user(testUser)
+                .fileMetadata(file)
+                .jobType(JobType.EMBED)
+                .jobStatus(JobStatus.RUNNING)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
@@ -0,0 +1,200 @@
+package org.ddamme.service.ai;
+
+import org.ddamme.config.LanguageProperties;
+import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.JobStatus;
+import org.ddamme.database.model.JobType;
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.FileQueryRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.service.SearchService;
+import org.ddamme.service.StorageService;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for the OCR job's database writes, with OCR and storage mocked
+ * (no Tesseract or S3 needed).
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.task.scheduling.enabled=false",
+        "search.cache.enabled=false"
+})
+class OcrJobIntegrationTest extends BaseIntegrationTest {
+
+    private static final String GERMAN = "Sehr geehrte Damen und Herren, anbei erhalten Sie die Rechnungen für die "
+            + "im letzten Monat gelieferten Waren. Bitte überweisen Sie den Betrag innerhalb von vierzehn Tagen.";
+
+    @Autowired
+    private OcrJobHandler handler;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private FileQueryRepository fileQueryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LanguageProperties languageProperties;
+
+    @Autowired
+    private SearchService searchService;
+
+    @MockitoBean
+    private OcrService ocrService;
+
+    @MockitoBean
+    private StorageService storageService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("ocruser")
+                .email("ocr@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+
+        doAnswer(invocation -> {
+            Path destination = invocation.getArgument(1);
+            Files.write(destination, new byte[]{1, 2, 3});
+            return null;
+        }).when(storageService).downloadToFile(anyString(), any(Path.class));
+    }
+
+    @Test
+    void tagsAndMoveDuringOcrAreKept() throws Exception {
+        FileMetadata file = file("scan.png");
+        when(ocrService.extractTextFromImage(any(Path.class))).thenAnswer(invocation -> {
+            // The user edits the file while OCR runs
+            fileQueryRepository.updateTags(testUser.getId(), List.of(file.getId()), List.of("urgent"), List.of());
+            jdbcTemplate.update("UPDATE file_metadata SET folder_path = '/inbox/' WHERE id = ?", file.getId());
+            return new OcrService.OcrResult("short scan", 1, 0.9f);
+        });
+
+        handler.execute(job(file));
+
+        FileMetadata saved = metadataRepository.findById(file.getId()).orElseThrow();
+        assertThat(saved.getFileText()).isEqualTo("short scan");
+        assertThat(saved.getOcrConfidence()).isEqualTo(0.9f);
+        assertThat(saved.getTags()).containsExactly("urgent");
+        assertThat(saved.getFolderPath()).isEqualTo("/inbox/");
+    }
+
+    @Test
+    void detectedLanguageSetsTextConfig() throws Exception {
+        FileMetadata file = file("brief.png");
+        when(ocrService.extractTextFromImage(any(Path.class))).thenReturn(new OcrService.OcrResult(GERMAN, 1, 0.9f));
+
+        handler.execute(job(file));
+
+        FileMetadata saved = metadataRepository.findById(file.getId()).orElseThrow();
+        assertThat(saved.getFileText()).isEqualTo(GERMAN);
+        assertThat(saved.getTextConfig()).isEqualTo("german");
+        // Stemmed with the German configuration: "Rechnung" finds "Rechnungen"
+        assertThat(search("Rechnung").getResults()).singleElement()
+                .satisfies(r -> assertThat(r.getFileId()).isEqualTo(file.getId()));
+    }
+
+    @Test
+    void scanIsReadAgainWithTheDetectedLanguage() throws Exception {
+        FileMetadata file = file("scan-de.png");
+        when(ocrService.extractTextFromImage(any(Path.class)))
+                .thenReturn(new OcrService.OcrResult(GERMAN.replace("ü", "u"), 1, 0.6f));
+        when(ocrService.hasLanguageData("deu")).thenReturn(true);
+        when(ocrService.extractTextFromImage(any(Path.class), eq("deu")))
+                .thenReturn(new OcrService.OcrResult(GERMAN, 1, 0.95f));
+
+        handler.execute(job(file));
+
+        verify(ocrService).extractTextFromImage(any(Path.class), eq("deu"));
+        FileMetadata saved = metadataRepository.findById(file.getId()).orElseThrow();
+        assertThat(saved.getFileText()).isEqualTo(GERMAN);
+        assertThat(saved.getOcrConfidence()).isEqualTo(0.95f);
+        assertThat(saved.getTextConfig()).isEqualTo("german");
+    }
+
+    @Test
+    void storedLanguageOutlivesDisablingDetection() throws Exception {
+        FileMetadata file = file("altbrief.png");
+        jdbcTemplate.update("UPDATE file_metadata SET text_config = 'german' WHERE id = ?", file.getId());
+        when(ocrService.extractTextFromImage(any(Path.class))).thenReturn(new OcrService.OcrResult(GERMAN, 1, 0.9f));
+
+        languageProperties.setEnabled(false);
+        try {
+            handler.execute(job(file));
+
+            assertThat(metadataRepository.findById(file.getId()).orElseThrow().getTextConfig()).isEqualTo("german");
+            assertThat(search("Rechnung").getResults()).hasSize(1);
+        } finally {
+            languageProperties.setEnabled(true);
+        }
+    }
+
+    private SearchResponse search(String query) {
+        return searchService.searchTextWithPagination(testUser, query, null, null, 10, SnippetMode.NONE);
+    }
+
+    private FileMetadata file(String name) {
+        FileMetadata file = new FileMetadata();
+        file.setUser(testUser);
+        file.setOriginalFilename(name);
+        file.setStorageKey("ocr-" + name);
+        file.setSize(100L);
+        file.setContentType("image/png");
+        return metadataRepository.save(file);
+    }
+
+    private AiJob job(FileMetadata file) {
+        return jobRepository.save(AiJob.builder()
+                .user(testUser)
+                .fileMetadata(file)
+                .jobType(JobType.OCR)
+                .jobStatus(JobStatus.RUNNING)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
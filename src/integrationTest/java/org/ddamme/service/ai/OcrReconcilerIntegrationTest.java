@@ -0,0 +1,128 @@
+package org.ddamme.service.ai;
+
+import org.ddamme.database.model.Role;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.repository.UserRepository;
+import org.ddamme.testsupport.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the OCR job backfill, including a job created for one of its files
+ * while it runs.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = "spring.task.scheduling.enabled=false")
+class OcrReconcilerIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private OcrReconciler reconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AiJobRepository jobRepository;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        metadataRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testUser = userRepository.save(User.builder()
+                .username("reconcileuser")
+                .email("reconcile@example.com")
+                .password("encoded_password")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void backfillsOnlyEligibleFilesWithoutJobs() {
+        long missing = file("missing.pdf", "application/pdf");
+        long scan = file("scan.png", "image/png");
+        long covered = file("covered.pdf", "application/pdf");
+        long text = file("notes.txt", "text/plain");
+        jdbcTemplate.update("INSERT INTO ai_jobs (user_id, file_id, job_type, job_status) VALUES (?, ?, 'OCR', 'DONE')",
+                testUser.getId(), covered);
+
+        reconciler.reconcileMissingJobs();
+
+        assertThat(ocrJobs(missing)).isEqualTo(1);
+        assertThat(ocrJobs(scan)).isEqualTo(1);
+        assertThat(ocrJobs(covered)).isEqualTo(1);
+        assertThat(ocrJobs(text)).isZero();
+        // Job ids were pre-allocated for the slots: keys point at the jobs actually inserted
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM ai_job_keys k
+                WHERE NOT EXISTS (SELECT 1 FROM ai_jobs j WHERE j.id = k.job_id)
+                """, Integer.class)).isZero();
+    }
+
+    @Test
+    void jobCreatedConcurrentlyIsSkippedNotFatal() throws Exception {
+        long contended = file("contended.pdf", "application/pdf");
+        long other = file("other.pdf", "application/pdf");
+
+        try (Connection writer = DriverManager.getConnection(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())) {
+            writer.setAutoCommit(false);
+            // Not yet visible to the reconciler's anti-join, but holds the (file, OCR) slot
+            try (PreparedStatement insert = writer.prepareStatement(
+                    "INSERT INTO ai_jobs (user_id, file_id, job_type, job_status) VALUES (?, ?, 'OCR', 'PENDING')")) {
+                insert.setLong(1, testUser.getId());
+                insert.setLong(2, contended);
+                insert.executeUpdate();
+            }
+
+            CompletableFuture<Void> run = CompletableFuture.runAsync(reconciler::reconcileMissingJobs);
+            Thread.sleep(1000);
+            assertThat(run).isNotDone();
+
+            writer.commit();
+            run.get(15, TimeUnit.SECONDS);
+        }
+
+        assertThat(ocrJobs(contended)).isEqualTo(1);
+        assertThat(ocrJobs(other)).isEqualTo(1);
+    }
+
+    private long file(String name, String contentType) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO file_metadata (user_id, original_filename, storage_key, size, content_type)
+                VALUES (?, ?, ?, 100, ?)
+                RETURNING id
+                """, Long.class, testUser.getId(), name, "reconcile-" + name, contentType);
+    }
+
+    private int ocrJobs(long fileId) {
+        Integer jobs = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ai_jobs WHERE file_id = ? AND job_type = 'OCR'", Integer.class, fileId);
+        return jobs == null ? 0 : jobs;
+    }
+}
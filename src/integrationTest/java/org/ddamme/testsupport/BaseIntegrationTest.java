@@ -7,6 +7,7 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
 
 @Testcontainers
 @ActiveProfiles("integrationTest")
@@ -15,7 +16,9 @@ public abstract class BaseIntegrationTest {
     @Container
     @ServiceConnection
     protected static final PostgreSQLContainer<?> POSTGRES =
-            new PostgreSQLContainer<>("postgres:17-alpine")
+            // PostgreSQL 17 with the pgvector extension (file_embeddings, V17)
+            new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:0.8.0-pg17")
+                    .asCompatibleSubstituteFor("postgres"))
                     .withDatabaseName("file_system_it")
                     .withUsername("user")
                     .withPassword("password")
@@ -2,15 +2,19 @@ package org.ddamme.advice;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.ddamme.config.BulkheadProperties;
 import org.ddamme.dto.ErrorResponse;
 import org.ddamme.exception.AccessDeniedException;
 import org.ddamme.exception.DuplicateResourceException;
 import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.exception.RateLimitExceededException;
 import org.ddamme.exception.ResourceNotFoundException;
 import org.ddamme.exception.StorageOperationException;
+import org.ddamme.exception.SyncCursorExpiredException;
 import org.ddamme.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -20,9 +24,11 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
@@ -31,6 +37,7 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
     private final MeterRegistry meterRegistry;
+    private final BulkheadProperties bulkheadProperties;
 
     /**
      * Records HTTP error metrics with bounded cardinality.
@@ -88,6 +95,21 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(SyncCursorExpiredException.class)
+    public ResponseEntity<ErrorResponse> handleSyncCursorExpiredException(
+            SyncCursorExpiredException ex, WebRequest request) {
+
+        recordError(410, ex);
+        ErrorResponse errorResponse =
+                new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.GONE.value(),
+                        "Gone",
+                        ex.getMessage(),
+                        request.getDescription(false));
+        return new ResponseEntity<>(errorResponse, HttpStatus.GONE);
+    }
+
     @ExceptionHandler(StorageOperationException.class)
     public ResponseEntity<ErrorResponse> handleStorageOperationException(
             StorageOperationException ex, WebRequest request) {
@@ -104,6 +126,61 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_GATEWAY);
     }
 
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(
+            RateLimitExceededException ex, WebRequest request) {
+
+        recordError(429, ex);
+        Metrics.increment(meterRegistry, "http.ratelimit.rejects",
+                "route", ex.getRouteKey(), "limit", String.valueOf(ex.getLimit()));
+        ErrorResponse errorResponse =
+                new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "Too Many Requests",
+                        ex.getMessage(),
+                        request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("X-RateLimit-Limit", String.valueOf(ex.getLimit()))
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * A bulkhead pool and its queue are full (TaskRejectedException extends this).
+     * Shed with 503 rather than queueing on the Tomcat thread.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecution(
+            RejectedExecutionException ex, WebRequest request) {
+
+        recordError(503, ex);
+        log.warn("Bulkhead saturated: {}", ex.getMessage());
+        return serviceUnavailable("Server is busy, please retry shortly", request);
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleAsyncRequestTimeout(
+            AsyncRequestTimeoutException ex, WebRequest request) {
+
+        recordError(503, ex);
+        return serviceUnavailable("Request timed out waiting for a worker", request);
+    }
+
+    private ResponseEntity<ErrorResponse> serviceUnavailable(String message, WebRequest request) {
+        ErrorResponse errorResponse =
+                new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        "Service Unavailable",
+                        message,
+                        request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, bulkheadProperties.getRetryAfter().toSeconds())))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ErrorResponse> handleBadCredentialsException(
             BadCredentialsException ex, WebRequest request) {
@@ -0,0 +1,82 @@
+package org.ddamme.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.logging.MdcTaskDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors (bulkheads) for expensive endpoints.
+ *
+ * Controllers hand heavy work to these pools and return a CompletableFuture, so the
+ * Tomcat thread is released while S3/FTS work runs. When a pool and its queue are full
+ * the task is rejected (AbortPolicy) and GlobalExceptionHandler answers 503 - the work is
+ * never run on the caller thread, which would defeat the isolation.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class BulkheadConfig {
+
+    private final BulkheadProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Bean(name = "uploadExecutor")
+    public Executor uploadExecutor() {
+        return bulkhead("upload", properties.getUpload());
+    }
+
+    @Bean(name = "searchExecutor")
+    public Executor searchExecutor() {
+        return bulkhead("search", properties.getSearch());
+    }
+
+    @Bean(name = "searchLegExecutor")
+    public Executor searchLegExecutor() {
+        return bulkhead("search-leg", properties.getSearchLeg());
+    }
+
+    /** AsyncTaskExecutor so exports can run as a WebAsyncTask with their own timeout */
+    @Bean(name = "exportExecutor")
+    public AsyncTaskExecutor exportExecutor() {
+        return bulkhead("export", properties.getExport());
+    }
+
+    private ThreadPoolTaskExecutor bulkhead(String name, BulkheadProperties.Pool pool) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.getCoreThreads());
+        executor.setMaxPoolSize(pool.getMaxThreads());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setThreadNamePrefix("bulkhead-" + name + "-");
+
+        // Shed instead of running on the Tomcat thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        // Carry request MDC and the user's shard onto the pool thread
+        MdcTaskDecorator mdc = new MdcTaskDecorator();
+        executor.setTaskDecorator(task -> mdc.decorate(ShardContext.wrap(task)));
+
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        executor.initialize();
+
+        // executor.* metrics (active, queued, rejected) tagged name=bulkhead.<name>
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "bulkhead." + name, Tags.empty())
+                .bindTo(meterRegistry);
+
+        log.info("Bulkhead '{}' initialized: core={}, max={}, queue={}",
+                name, pool.getCoreThreads(), pool.getMaxThreads(), pool.getQueueCapacity());
+
+        return executor;
+    }
+}
@@ -0,0 +1,60 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for bulkhead executors.
+ * Prefix: bulkhead
+ *
+ * Heavy endpoints run on these bounded pools via async servlet processing, so they
+ * cannot exhaust the shared Tomcat worker pool that cheap endpoints (list, presign, auth) use.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "bulkhead")
+@Data
+public class BulkheadProperties {
+
+    /** Retry-After sent when a bulkhead is saturated or an async request times out */
+    private Duration retryAfter = Duration.ofSeconds(2);
+
+    /** Upload pool: S3 streaming + metadata insert */
+    private Pool upload = new Pool(2, 4, 16);
+
+    /** Search pool: ranked full-text search with ts_headline */
+    private Pool search = new Pool(2, 4, 24);
+
+    /**
+     * Hybrid search legs: the full-text and vector queries of one request run here in
+     * parallel, never on the search pool thread that waits for them. A rejected leg is
+     * treated like a timed-out one.
+     */
+    private Pool searchLeg = new Pool(2, 4, 8);
+
+    /** Export pool: NDJSON streams that hold a DB cursor for the whole download */
+    private Pool export = new Pool(1, 2, 4);
+
+    @Data
+    public static class Pool {
+        /** Threads kept alive */
+        private int coreThreads;
+
+        /** Maximum concurrent tasks - bounds DB/S3 usage for this endpoint class */
+        private int maxThreads;
+
+        /** Waiting tasks before new requests are rejected with 503 */
+        private int queueCapacity;
+
+        public Pool() {
+        }
+
+        public Pool(int coreThreads, int maxThreads, int queueCapacity) {
+            this.coreThreads = coreThreads;
+            this.maxThreads = maxThreads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for chunk embeddings and semantic search (see EmbedJobHandler,
+ * EmbeddingProvider). Prefix: ai.embedding
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.embedding")
+@Data
+public class EmbeddingProperties {
+
+    /** Create an EMBED job after each OCR job on upload (runs once OCR is DONE) */
+    private boolean autoCreate = true;
+
+    /** hashing (deterministic, no model; development and tests) or onnx (local model) */
+    private String provider = "hashing";
+
+    /** Words per chunk; keep under the model's token limit (about 1.3 tokens per English word) */
+    private int chunkWords = 160;
+
+    /** Words shared by consecutive chunks, so a passage cut at a boundary is still found whole */
+    private int chunkOverlap = 32;
+
+    /** Chunks embedded per model call */
+    private int batchSize = 32;
+
+    /** Chunks per file (cost control, like ai.worker.ocr.max-pages); the rest of the text is not embedded */
+    private int maxChunks = 500;
+
+    /**
+     * Nearest chunks fetched per requested result. Files have several chunks, so more
+     * candidates than results are needed to fill a page with distinct files.
+     */
+    private int candidatesPerResult = 4;
+
+    private Onnx onnx = new Onnx();
+
+    @Data
+    public static class Onnx {
+        /** Sentence-embedding model exported to ONNX (token embeddings output, mean-pooled here) */
+        private String modelPath = "models/all-MiniLM-L6-v2/model.onnx";
+
+        /** HuggingFace tokenizer.json of the same model */
+        private String tokenizerPath = "models/all-MiniLM-L6-v2/tokenizer.json";
+
+        /** Stored in file_metadata.embedding_model_version */
+        private String modelVersion = "all-MiniLM-L6-v2";
+
+        /** Longer inputs are truncated */
+        private int maxTokens = 256;
+    }
+}
@@ -0,0 +1,38 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the per-user event stream (GET /api/v1/events).
+ * Prefix: events
+ *
+ * Events are published with PostgreSQL NOTIFY and fanned out by every node's listener to
+ * its own SSE connections, so a client may be connected to any node.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "events")
+@Data
+public class EventStreamProperties {
+
+    /** Publish events and serve the stream */
+    private boolean enabled = true;
+
+    /** Connection lifetime; clients reconnect (EventSource does so automatically) */
+    private Duration sseTimeout = Duration.ofMinutes(30);
+
+    /** Comment lines keep idle connections open through proxies */
+    private long heartbeatInterval = 25000;
+
+    /** Oldest connection is closed when a user opens more */
+    private int maxConnectionsPerUser = 5;
+
+    /** Events buffered per connection; a client that falls this far behind is disconnected */
+    private int queueCapacity = 256;
+
+    /** Wait before re-establishing a lost LISTEN connection */
+    private Duration reconnectBackoff = Duration.ofSeconds(5);
+}
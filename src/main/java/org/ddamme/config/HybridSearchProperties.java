@@ -0,0 +1,26 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for hybrid (full-text + semantic) search, see HybridSearchService.
+ * Prefix: search.hybrid
+ */
+@Configuration
+@ConfigurationProperties(prefix = "search.hybrid")
+@Data
+public class HybridSearchProperties {
+
+    /** Results taken from each leg; the fused list (at most twice this) is all that can be paged */
+    private int topK = 100;
+
+    /** How long a request waits for each leg before answering from the other one alone */
+    private Duration legTimeout = Duration.ofSeconds(2);
+
+    /** Reciprocal rank fusion constant: a result scores 1 / (k + rank) per leg it appears in */
+    private int rrfK = 60;
+}
@@ -0,0 +1,54 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.ddamme.service.ai.language.DocumentLanguage;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Configuration properties for document language detection (see DocumentLanguageDetector).
+ * Prefix: ai.language
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.language")
+@Data
+public class LanguageProperties {
+
+    /**
+     * Detect the language of extracted text. When off, new files are indexed as English and
+     * re-processed files keep the configuration they were detected with earlier.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Languages new text may be detected as. Removing one does not re-index the files
+     * already detected as it; searches still find them (searchConfigs).
+     */
+    private List<DocumentLanguage> languages = List.of(DocumentLanguage.values());
+
+    /** Minimum detector probability; below it the document keeps its current configuration */
+    private double minConfidence = 0.85;
+
+    /** Minimum letters in the text; shorter texts (stamps, captions) are not detected */
+    private int minLetters = 40;
+
+    /** Characters from the start of the text the detector reads */
+    private int sampleChars = 20_000;
+
+    /**
+     * OCR a scanned document again with the detected language's Tesseract data when it
+     * differs from ai.worker.ocr.language and is installed
+     */
+    private boolean reOcr = true;
+
+    /**
+     * Configurations searches parse the query with (search_query): every DocumentLanguage,
+     * not just the enabled ones, since a stored text_config outlives the setting it was
+     * detected under.
+     */
+    public String searchConfigs() {
+        return DocumentLanguage.searchConfigs();
+    }
+}
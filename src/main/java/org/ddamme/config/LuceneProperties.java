@@ -0,0 +1,48 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the embedded Lucene search backend (search.engine=lucene,
+ * see LuceneIndex). The backend analyzes all text as English; ai.language affects only
+ * the PostgreSQL backend. Prefix: search.lucene
+ */
+@Configuration
+@ConfigurationProperties(prefix = "search.lucene")
+@Data
+public class LuceneProperties {
+
+    /** Index directory on local disk; each node keeps its own copy */
+    private String path = "data/lucene";
+
+    /** How often (ms) indexed changes become visible to searches (near-real-time reopen) */
+    private long refreshInterval = 1000;
+
+    /**
+     * How often (ms) the index catches up from the change feed and commits; changes lost in a
+     * crash are replayed from the committed per-shard bounds on the next start
+     */
+    private long commitInterval = 30_000;
+
+    /**
+     * Rebuild from file_metadata when the index cannot catch up: no complete commit (new node,
+     * wiped disk, interrupted rebuild), a new shard, or a gap wider than the change feed covers
+     */
+    private boolean autoRebuild = true;
+
+    /** More files changed than this since a shard's bound: rebuild rather than re-sync one by one */
+    private int catchUpLimit = 100_000;
+
+    /**
+     * How long a search cursor keeps the index view its first page ran on after newer views
+     * replace it; later pages then run on the latest view, and scores may have shifted
+     */
+    private Duration cursorTtl = Duration.ofMinutes(5);
+
+    /** Rows per cursor round trip while rebuilding */
+    private int rebuildFetchSize = 500;
+}
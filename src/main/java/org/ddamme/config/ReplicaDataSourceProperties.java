@@ -0,0 +1,52 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for read-replica routing.
+ * Prefix: datasource.replica
+ *
+ * When enabled, services' outermost @Transactional(readOnly = true) work (see ReplicaReads)
+ * is routed to a replica pool whose replication lag is within maxLag; everything else (and
+ * all reads when no replica is usable) goes to the primary configured under spring.datasource.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "datasource.replica")
+@Data
+public class ReplicaDataSourceProperties {
+
+    /** Route read-only transactions to replicas (single-primary setup when false) */
+    private boolean enabled = false;
+
+    /** Replicas lagging more than this are skipped until they catch up */
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    /** Milliseconds between replication lag probes */
+    private long lagCheckInterval = 5000;
+
+    private List<Pool> pools = new ArrayList<>();
+
+    @Data
+    public static class Pool {
+        /** Pool name - used in routing and hikaricp.* metric tags */
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        private int minimumIdle = 2;
+
+        private long connectionTimeout = 2000;
+    }
+}
@@ -0,0 +1,106 @@
+package org.ddamme.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.routing.ReadReplicaRoutingDataSource;
+import org.ddamme.database.routing.ReplicaLagMonitor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-replica routing. Only loads if datasource.replica.enabled=true; otherwise Boot's
+ * single spring.datasource pool is used unchanged.
+ *
+ * Bean layout:
+ * - primaryDataSource: Hikari pool from spring.datasource / spring.datasource.hikari
+ * - replica pools: one Hikari pool per datasource.replica.pools entry (not beans, owned by the monitor/router)
+ * - dataSource (@Primary): LazyConnectionDataSourceProxy over ReadReplicaRoutingDataSource,
+ *   used by JPA, JdbcTemplate, Flyway and Bucket4j alike
+ *
+ * Every pool reports hikaricp.* metrics tagged with its pool name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicaRoutingConfig {
+
+    private final ReplicaDataSourceProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, HikariDataSource> replicaPools = new LinkedHashMap<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(ReadReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor() {
+        for (ReplicaDataSourceProperties.Pool pool : properties.getPools()) {
+            replicaPools.put(pool.getName(), replicaPool(pool));
+        }
+        return new ReplicaLagMonitor(new LinkedHashMap<>(replicaPools), properties.getMaxLag(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor) {
+        List<String> replicaNames = new ArrayList<>(replicaPools.keySet());
+
+        ReadReplicaRoutingDataSource routing =
+                new ReadReplicaRoutingDataSource(replicaNames, replicaLagMonitor, meterRegistry);
+        Map<Object, Object> targets = new HashMap<>(replicaPools);
+        targets.put(ReadReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        log.info("Read-replica routing enabled: replicas={}, maxLag={}", replicaNames, properties.getMaxLag());
+
+        // Defer connection choice until the first statement, after the read-only flag is bound
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @PreDestroy
+    public void closeReplicaPools() {
+        replicaPools.values().forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource replicaPool(ReplicaDataSourceProperties.Pool pool) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(pool.getName());
+        dataSource.setJdbcUrl(pool.getUrl());
+        dataSource.setUsername(pool.getUsername());
+        dataSource.setPassword(pool.getPassword());
+        dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
+        dataSource.setMinimumIdle(pool.getMinimumIdle());
+        dataSource.setConnectionTimeout(pool.getConnectionTimeout());
+        dataSource.setReadOnly(true);
+        // Not a bean, so Boot's pool metrics binder never sees it
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
@@ -0,0 +1,29 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the search result cache (see SearchResultCache).
+ * Prefix: search.cache
+ */
+@Configuration
+@ConfigurationProperties(prefix = "search.cache")
+@Data
+public class SearchCacheProperties {
+
+    /** Serve repeated searches (same query, cursor and limit) from memory */
+    private boolean enabled = true;
+
+    /** Cached result pages kept on this node */
+    private long maxEntries = 10_000;
+
+    /**
+     * Upper bound on how long a page is kept. Writes invalidate precisely; the TTL only
+     * limits memory held by idle users and staleness when reads are served by a lagging replica.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+}
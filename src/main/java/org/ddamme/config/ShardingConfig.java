@@ -0,0 +1,149 @@
+package org.ddamme.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.database.shard.ShardDirectory;
+import org.ddamme.database.shard.ShardMover;
+import org.ddamme.database.shard.ShardRoutingDataSource;
+import org.ddamme.database.shard.ShardsEndpoint;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user sharding. Only loads if sharding.enabled=true.
+ *
+ * Bean layout:
+ * - shard0DataSource: Hikari pool from spring.datasource (Boot's Flyway migrates it via the routing bean)
+ * - shard pools 1..N: migrated here with the same Flyway scripts at startup
+ * - dataSource (@Primary): ShardRoutingDataSource keyed by ShardContext
+ *
+ * Id sequences on shard k start at k * 2^40 so ids stay globally unique and rows can move
+ * between shards unchanged (still below 2^53 for JavaScript clients).
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ShardingConfig {
+
+    static final long SHARD_ID_STRIDE = 1L << 40;
+    static final List<String> SHARDED_SEQUENCES =
+            List.of("file_metadata_id_seq", "ai_jobs_id_seq", "storage_cleanup_outbox_id_seq",
+                    "file_embeddings_id_seq");
+
+    private final ShardingProperties properties;
+    private final ReplicaDataSourceProperties replicaProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Integer, HikariDataSource> shardPools = new LinkedHashMap<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shard0DataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardDirectory shardDirectory(@Qualifier("shard0DataSource") DataSource shard0DataSource) {
+        if (replicaProperties.isEnabled()) {
+            throw new IllegalStateException("datasource.replica and sharding cannot be enabled together");
+        }
+
+        Map<Integer, JdbcTemplate> shards = new HashMap<>();
+        shards.put(ShardContext.DEFAULT_SHARD, new JdbcTemplate(shard0DataSource));
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            if (shard.getId() <= ShardContext.DEFAULT_SHARD || shards.containsKey(shard.getId())) {
+                throw new IllegalStateException("Shard ids must be unique and >= 1: " + shard.getId());
+            }
+            HikariDataSource pool = shardPool(shard);
+            shardPools.put(shard.getId(), pool);
+            migrate(shard.getId(), pool);
+            shards.put(shard.getId(), new JdbcTemplate(pool));
+        }
+
+        log.info("Sharding enabled: shards={}, placement={}", shards.keySet(),
+                properties.getPlacement().isEmpty() ? "all" : properties.getPlacement());
+        return new ShardDirectory(shards, properties.getPlacement(), properties.getDirectoryCacheTtl());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("shard0DataSource") DataSource shard0DataSource, ShardDirectory shardDirectory) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        Map<Object, Object> targets = new HashMap<>(shardPools);
+        targets.put(ShardContext.DEFAULT_SHARD, shard0DataSource);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shard0DataSource);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Bean
+    public ShardMover shardMover(ShardDirectory shardDirectory) {
+        return new ShardMover(shardDirectory, properties.getMoveDrain(), properties.getMoveBatchSize());
+    }
+
+    @Bean
+    public ShardsEndpoint shardsEndpoint(ShardDirectory shardDirectory, ShardMover shardMover) {
+        return new ShardsEndpoint(shardDirectory, shardMover);
+    }
+
+    @PreDestroy
+    public void closeShardPools() {
+        shardPools.values().forEach(HikariDataSource::close);
+    }
+
+    private void migrate(int shardId, DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .outOfOrder(true)
+                .load()
+                .migrate();
+
+        // Only ever moves a sequence forward into the shard's id range
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long floor = shardId * SHARD_ID_STRIDE;
+        for (String sequence : SHARDED_SEQUENCES) {
+            jdbc.queryForList("""
+                    SELECT setval(?::regclass, ?, false) FROM pg_sequences
+                    WHERE schemaname = current_schema() AND sequencename = ? AND COALESCE(last_value, 0) < ?
+                    """, sequence, floor, sequence, floor);
+        }
+    }
+
+    private HikariDataSource shardPool(ShardingProperties.Shard shard) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("shard-" + shard.getId());
+        dataSource.setJdbcUrl(shard.getUrl());
+        dataSource.setUsername(shard.getUsername());
+        dataSource.setPassword(shard.getPassword());
+        dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+        dataSource.setMinimumIdle(shard.getMinimumIdle());
+        // Not a bean, so Boot's pool metrics binder never sees it
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
@@ -0,0 +1,58 @@
+package org.ddamme.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for per-user sharding of file_metadata and ai_jobs.
+ * Prefix: sharding
+ *
+ * Shard 0 is always spring.datasource (users, shard_directory, rate limit buckets and the
+ * files of users placed there); additional shards are listed under sharding.shards.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sharding")
+@Data
+public class ShardingProperties {
+
+    /** Enable shard routing (single database when false) */
+    private boolean enabled = false;
+
+    /** Additional shards (ids 1..N) */
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Shards that receive newly placed users; empty = all shards. Lets new capacity fill first. */
+    private List<Integer> placement = new ArrayList<>();
+
+    /** How long a node trusts its cached user -> shard mapping */
+    private Duration directoryCacheTtl = Duration.ofSeconds(30);
+
+    /**
+     * Longest wait for a moving user's RUNNING jobs, then for transactions open on the source
+     * shard, before the move gives up and rolls back
+     */
+    private Duration moveDrain = Duration.ofSeconds(90);
+
+    /** Rows per INSERT when copying a user's rows between shards */
+    private int moveBatchSize = 500;
+
+    @Data
+    public static class Shard {
+        private int id;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        private int minimumIdle = 2;
+    }
+}
@@ -0,0 +1,32 @@
+package org.ddamme.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.ddamme.database.model.User;
+import org.ddamme.service.events.EventStreamRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events stream of the current user's file and job events.
+ * Base path: /api/v1/events
+ */
+@RestController
+@RequestMapping("/api/v1/events")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "events.enabled", havingValue = "true", matchIfMissing = true)
+public class EventController {
+
+    private final EventStreamRegistry registry;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream upload, OCR/job and delete events for your files (text/event-stream)")
+    public SseEmitter stream(@AuthenticationPrincipal User currentUser) {
+        return registry.subscribe(currentUser.getId());
+    }
+}
@@ -1,55 +1,90 @@
 package org.ddamme.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
-import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
 import org.ddamme.dto.DownloadUrlResponse;
+import org.ddamme.dto.FileChangesResponse;
 import org.ddamme.dto.FileDto;
-import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileSort;
 import org.ddamme.dto.PagedFileResponse;
 import org.ddamme.logging.AuditLogger;
+import org.ddamme.service.FileExportService;
 import org.ddamme.service.FileService;
+import org.ddamme.service.FileSyncService;
 import org.ddamme.service.MetadataService;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/v1/files")
-@RequiredArgsConstructor
 @Slf4j
 public class FileController {
 
     private static final int MAX_PAGE_SIZE = 100;
+    private static final String NDJSON = "application/x-ndjson";
     private final FileService fileService;
     private final MetadataService metadataService;
+    private final FileSyncService fileSyncService;
+    private final FileExportService fileExportService;
+    private final Executor uploadExecutor;
+    private final AsyncTaskExecutor exportExecutor;
+    private final Duration exportTimeout;
+
+    public FileController(
+            FileService fileService,
+            MetadataService metadataService,
+            FileSyncService fileSyncService,
+            FileExportService fileExportService,
+            @Qualifier("uploadExecutor") Executor uploadExecutor,
+            @Qualifier("exportExecutor") AsyncTaskExecutor exportExecutor,
+            @Value("${files.export.timeout:PT30M}") Duration exportTimeout) {
+        this.fileService = fileService;
+        this.metadataService = metadataService;
+        this.fileSyncService = fileSyncService;
+        this.fileExportService = fileExportService;
+        this.uploadExecutor = uploadExecutor;
+        this.exportExecutor = exportExecutor;
+        this.exportTimeout = exportTimeout;
+    }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Upload a file to storage and create metadata")
-    public ResponseEntity<FileDto> uploadFile(
-            @RequestPart("file") MultipartFile file, @AuthenticationPrincipal User currentUser) {
-
-        FileMetadata savedMetadata = fileService.upload(currentUser, file);
-
-        AuditLogger.log(
-                "file_upload",
-                Map.of(
-                        "user", currentUser.getUsername(),
-                        "fileId", savedMetadata.getId(),
-                        "filename", savedMetadata.getOriginalFilename(),
-                        "size", savedMetadata.getSize()));
-
-        return ResponseEntity.ok(FileDto.from(savedMetadata));
+    public CompletableFuture<ResponseEntity<FileDto>> uploadFile(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "folder", required = false) String folder,
+            @AuthenticationPrincipal User currentUser) {
+
+        // Runs on the upload bulkhead; the Tomcat thread is released until the upload completes
+        return CompletableFuture.supplyAsync(() -> {
+            FileMetadata savedMetadata = fileService.upload(currentUser, file, folder);
+
+            AuditLogger.log(
+                    "file_upload",
+                    Map.of(
+                            "user", currentUser.getUsername(),
+                            "fileId", savedMetadata.getId(),
+                            "filename", savedMetadata.getOriginalFilename(),
+                            "size", savedMetadata.getSize()));
+
+            return ResponseEntity.ok(FileDto.from(savedMetadata));
+        }, uploadExecutor);
     }
 
     @GetMapping("/download/{id}")
@@ -99,44 +134,54 @@ public class FileController {
     }
 
     @GetMapping
-    @Operation(summary = "List your files (paginated)")
+    @Operation(summary = "List your files: filter by tag, content type, size, upload time and OCR text; "
+            + "sort by name, size or date; page by offset or cursor")
     public ResponseEntity<PagedFileResponse> getUserFiles(
             @AuthenticationPrincipal User currentUser,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @ModelAttribute FileFilter filter,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
 
         log.debug("Fetching files for user: {} (ID: {})", currentUser.getUsername(), currentUser.getId());
 
         int clampedSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
-        PageRequest pageable = PageRequest.of(page, clampedSize);
-
-        Page<FileMetadata> userFilesPage = metadataService.findByUser(currentUser, pageable);
-
-        log.debug("Found {} files for user {}", userFilesPage.getTotalElements(), currentUser.getUsername());
-
-        List<FileListResponse> files =
-                userFilesPage.getContent().stream()
-                        .map(
-                                file ->
-                                        FileListResponse.builder()
-                                                .id(file.getId())
-                                                .originalFilename(file.getOriginalFilename())
-                                                .size(file.getSize())
-                                                .contentType(file.getContentType())
-                                                .uploadTimestamp(file.getUploadTimestamp())
-                                                .build())
-                        .collect(Collectors.toList());
-
-        PagedFileResponse response =
-                PagedFileResponse.builder()
-                        .files(files)
-                        .currentPage(userFilesPage.getNumber())
-                        .totalPages(userFilesPage.getTotalPages())
-                        .totalElements(userFilesPage.getTotalElements())
-                        .hasNext(userFilesPage.hasNext())
-                        .hasPrevious(userFilesPage.hasPrevious())
-                        .build();
+
+        PagedFileResponse response = metadataService.listFiles(
+                currentUser, filter, FileSort.of(sort, direction), cursor, Math.max(0, page), clampedSize);
+
+        log.debug("Found {} files for user {}", response.getFiles().size(), currentUser.getUsername());
 
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Files created, updated or deleted since a sync cursor (delta sync)")
+    public ResponseEntity<FileChangesResponse> getChanges(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(fileSyncService.changes(currentUser, since, limit));
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(summary = "Stream all your file metadata (optionally with extracted text) as NDJSON")
+    public WebAsyncTask<Void> exportFiles(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(defaultValue = "false") boolean includeText,
+            HttpServletResponse response) {
+
+        AuditLogger.log("file_export", Map.of("user", currentUser.getUsername(), "includeText", includeText));
+
+        // Runs on the export bulkhead with its own timeout: a large export outlives the
+        // default async request timeout, and holds a DB connection while it streams
+        return new WebAsyncTask<>(exportTimeout.toMillis(), exportExecutor, () -> {
+            response.setContentType(NDJSON);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"files.ndjson\"");
+            fileExportService.export(currentUser, includeText, response.getOutputStream());
+            return null;
+        });
+    }
 }
@@ -0,0 +1,89 @@
+package org.ddamme.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.FileDto;
+import org.ddamme.dto.FolderDto;
+import org.ddamme.dto.FolderListingResponse;
+import org.ddamme.dto.FolderMoveRequest;
+import org.ddamme.logging.AuditLogger;
+import org.ddamme.service.FolderService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST API for the folder hierarchy.
+ * Base path: /api/v1/folders
+ *
+ * Folders are identified by path ("/reports/2025/"; slashes are normalized) and exist
+ * as long as they contain files.
+ */
+@RestController
+@RequestMapping("/api/v1/folders")
+@RequiredArgsConstructor
+@Slf4j
+public class FolderController {
+
+    private final FolderService folderService;
+
+    @GetMapping
+    @Operation(summary = "List a folder: direct subfolders with rollups, and its files (keyset-paginated)")
+    public ResponseEntity<FolderListingResponse> listFolder(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(defaultValue = "/") String path,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(folderService.listFolder(currentUser, path, cursor, limit));
+    }
+
+    @GetMapping("/tree")
+    @Operation(summary = "List all files in a folder and its subfolders (keyset-paginated)")
+    public ResponseEntity<FolderListingResponse> listSubtree(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(defaultValue = "/") String path,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(folderService.listSubtree(currentUser, path, cursor, limit));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "File count and total size of a folder including subfolders")
+    public ResponseEntity<FolderDto> stats(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(defaultValue = "/") String path) {
+        return ResponseEntity.ok(folderService.stats(currentUser, path));
+    }
+
+    @PostMapping("/move")
+    @Operation(summary = "Move or rename a folder with everything below it")
+    public ResponseEntity<Map<String, Object>> moveFolder(
+            @AuthenticationPrincipal User currentUser,
+            @Valid @RequestBody FolderMoveRequest request) {
+        int moved = folderService.moveFolder(currentUser, request.getFrom(), request.getTo());
+
+        AuditLogger.log("folder_move", Map.of(
+                "user", currentUser.getUsername(), "from", request.getFrom(), "to", request.getTo(), "files", moved));
+
+        return ResponseEntity.ok(Map.of("moved", moved));
+    }
+
+    @PutMapping("/files/{fileId}")
+    @Operation(summary = "Move a file into a folder")
+    public ResponseEntity<FileDto> moveFile(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable Long fileId,
+            @RequestParam String path) {
+        FileDto moved = folderService.moveFile(currentUser, fileId, path);
+
+        AuditLogger.log("file_move", Map.of(
+                "user", currentUser.getUsername(), "fileId", fileId, "folder", moved.getFolderPath()));
+
+        return ResponseEntity.ok(moved);
+    }
+}
@@ -1,14 +1,19 @@
 package org.ddamme.controller;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
 import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.dto.FilenameSuggestionDto;
 import org.ddamme.dto.SearchResponse;
 import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
 import org.ddamme.exception.InvalidRequestException;
 import org.ddamme.service.SearchService;
+import org.ddamme.service.search.HybridSearchService;
+import org.ddamme.service.search.SearchEngine;
+import org.ddamme.service.search.SemanticSearchService;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,6 +22,8 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * REST API for search operations.
@@ -24,12 +31,30 @@ import java.util.Map;
  */
 @RestController
 @RequestMapping("/api/v1/search")
-@RequiredArgsConstructor
 @Slf4j
 public class SearchController {
 
     private final SearchService searchService;
+    private final SearchEngine searchEngine;
+    private final SemanticSearchService semanticSearchService;
+    private final HybridSearchService hybridSearchService;
     private final MetadataRepository metadataRepository;
+    private final Executor searchExecutor;
+
+    public SearchController(
+            SearchService searchService,
+            SearchEngine searchEngine,
+            SemanticSearchService semanticSearchService,
+            HybridSearchService hybridSearchService,
+            MetadataRepository metadataRepository,
+            @Qualifier("searchExecutor") Executor searchExecutor) {
+        this.searchService = searchService;
+        this.searchEngine = searchEngine;
+        this.semanticSearchService = semanticSearchService;
+        this.hybridSearchService = hybridSearchService;
+        this.metadataRepository = metadataRepository;
+        this.searchExecutor = searchExecutor;
+    }
 
     /**
      * Full-text search across user's files (simple version, no pagination).
@@ -45,7 +70,7 @@ public class SearchController {
      * DEPRECATED: Use searchTextPaginated for stable pagination.
      */
     @GetMapping("/text")
-    public ResponseEntity<List<SearchResultDto>> searchText(
+    public CompletableFuture<ResponseEntity<List<SearchResultDto>>> searchText(
             @AuthenticationPrincipal User user,
             @RequestParam("q") String query) {
 
@@ -55,9 +80,9 @@ public class SearchController {
 
         log.info("Search request: query='{}', userId={}", query, user.getId());
 
-        List<SearchResultDto> results = searchService.searchText(user, query);
-
-        return ResponseEntity.ok(results);
+        // Ranked FTS runs on the search bulkhead so it cannot starve list/presign/auth
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(searchService.searchText(user, query)), searchExecutor);
     }
     
     /**
@@ -65,17 +90,24 @@ public class SearchController {
      * 
      * Keyset pagination prevents duplicate/missing results when new files uploaded mid-pagination.
      * Uses (rank, id) composite cursor for deterministic ordering.
+     * Served by the configured SearchEngine (search.engine: postgres or lucene).
      * 
      * Query Parameters:
      * - q: Search query (required)
      * - lastRank: Rank value from previous page (optional, for pagination)
      * - lastId: ID from previous page (optional, for pagination)
+     * - snapshot: nextSnapshot from the previous page, when it had one (Lucene engine)
      * - limit: Results per page (optional, default: 20, max: 100)
+     * - snippet: html (default, {@code <mark>} tags), offsets (plain text + highlights) or none
+     * - facets: true to add facet counts over all matches to the first page (content-type
+     *   family, upload age, OCR confidence, size); approximate for very large match sets.
+     *   Postgres engine only.
      * 
      * Response includes:
      * - results: Current page results
      * - nextRank: Rank cursor for next page
      * - nextId: ID cursor for next page
+     * - nextSnapshot: Index snapshot for next page (Lucene engine only)
      * - hasMore: True if more results available
      * - count: Results in current page
      * 
@@ -91,23 +123,116 @@ public class SearchController {
      * </pre>
      */
     @GetMapping("/text/paginated")
-    public ResponseEntity<SearchResponse> searchTextPaginated(
+    public CompletableFuture<ResponseEntity<SearchResponse>> searchTextPaginated(
+            @AuthenticationPrincipal User user,
+            @RequestParam("q") String query,
+            @RequestParam(value = "lastRank", required = false) Double lastRank,
+            @RequestParam(value = "lastId", required = false) Long lastId,
+            @RequestParam(value = "snapshot", required = false) Long snapshot,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "snippet", required = false) String snippet,
+            @RequestParam(value = "facets", defaultValue = "false") boolean facets) {
+
+        if (query == null || query.isBlank()) {
+            throw new InvalidRequestException("Search query cannot be empty");
+        }
+
+        log.info("Paginated search request: query='{}', lastRank={}, lastId={}, limit={}, facets={}, userId={}",
+                 query, lastRank, lastId, limit, facets, user.getId());
+
+        SnippetMode snippets = SnippetMode.of(snippet);
+
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(
+                        searchEngine.search(user, query, lastRank, lastId, snapshot, limit, snippets, facets)),
+                searchExecutor);
+    }
+
+    /**
+     * Semantic search: files whose text is closest in meaning to the query, by chunk
+     * embeddings (computed by the EMBED job after OCR; files not yet embedded don't match).
+     *
+     * Query Parameters:
+     * - q: Natural-language query (required)
+     * - limit: Results to return (optional, default: 10, max: 50)
+     *
+     * Results are ranked by cosine similarity (rank); snippet is the best-matching passage
+     * as plain text. No pagination.
+     */
+    @GetMapping("/semantic")
+    public CompletableFuture<ResponseEntity<SearchResponse>> searchSemantic(
+            @AuthenticationPrincipal User user,
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        if (query == null || query.isBlank()) {
+            throw new InvalidRequestException("Search query cannot be empty");
+        }
+
+        log.info("Semantic search request: query='{}', limit={}, userId={}", query, limit, user.getId());
+
+        // Query embedding and the vector scan run on the search bulkhead
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(semanticSearchService.search(user, query, limit)), searchExecutor);
+    }
+
+    /**
+     * Hybrid search: full-text and semantic matches in one ranking (reciprocal rank fusion).
+     *
+     * Query Parameters:
+     * - q: Search query (required)
+     * - lastRank, lastId: Cursor from the previous page (optional)
+     * - limit: Results per page (optional, default: 20, max: 100)
+     * - snippet: html (default), offsets or none; applies to full-text matches, semantic-only
+     *   matches carry their best passage as plain text
+     *
+     * rank is the fused score. Both legs run in parallel with a timeout each; if one is
+     * dropped the response lists it in degraded and the results come from the other, with
+     * no cursor (hasMore false): start over for the full ranking. Paging ends after the top
+     * search.hybrid.top-k results of each leg.
+     */
+    @GetMapping("/hybrid")
+    public CompletableFuture<ResponseEntity<SearchResponse>> searchHybrid(
             @AuthenticationPrincipal User user,
             @RequestParam("q") String query,
             @RequestParam(value = "lastRank", required = false) Double lastRank,
             @RequestParam(value = "lastId", required = false) Long lastId,
-            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "snippet", required = false) String snippet) {
 
         if (query == null || query.isBlank()) {
             throw new InvalidRequestException("Search query cannot be empty");
         }
 
-        log.info("Paginated search request: query='{}', lastRank={}, lastId={}, limit={}, userId={}", 
+        log.info("Hybrid search request: query='{}', lastRank={}, lastId={}, limit={}, userId={}",
                  query, lastRank, lastId, limit, user.getId());
 
-        SearchResponse response = searchService.searchTextWithPagination(user, query, lastRank, lastId, limit);
+        SnippetMode snippets = SnippetMode.of(snippet);
 
-        return ResponseEntity.ok(response);
+        // Waits for its legs on the search bulkhead; the legs run on the search-leg bulkhead
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(
+                        hybridSearchService.search(user, query, lastRank, lastId, limit, snippets)),
+                searchExecutor);
+    }
+
+    /**
+     * Filename typeahead for search-as-you-type.
+     *
+     * Matches names containing prefix anywhere (case-insensitive) and names with a word
+     * close to it (typos), names starting with it first. Cheap enough to call per keystroke,
+     * so it runs on the request thread rather than the search bulkhead.
+     *
+     * Query Parameters:
+     * - prefix: What the user has typed so far (required)
+     * - limit: Suggestions to return (optional, default: 10, max: 20)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<FilenameSuggestionDto>> suggest(
+            @AuthenticationPrincipal User user,
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(searchService.suggestFilenames(user, prefix, limit));
     }
 
     /**
@@ -0,0 +1,56 @@
+package org.ddamme.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.BulkTagRequest;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.TagCountDto;
+import org.ddamme.logging.AuditLogger;
+import org.ddamme.service.TagService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST API for file tags.
+ * Base path: /api/v1/tags
+ *
+ * Tags are normalized (trimmed, lower-case); filtering files by tag is done on
+ * GET /api/v1/files?tag=...
+ */
+@RestController
+@RequestMapping("/api/v1/tags")
+@RequiredArgsConstructor
+public class TagController {
+
+    private final TagService tagService;
+
+    @GetMapping
+    @Operation(summary = "Tag counts over your files, optionally narrowed by the file list filters")
+    public ResponseEntity<List<TagCountDto>> facets(
+            @AuthenticationPrincipal User currentUser,
+            @ModelAttribute FileFilter filter,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(tagService.facets(currentUser, filter, limit));
+    }
+
+    @PostMapping("/bulk")
+    @Operation(summary = "Add and/or remove tags on many files at once")
+    public ResponseEntity<Map<String, Object>> bulkUpdate(
+            @AuthenticationPrincipal User currentUser,
+            @Valid @RequestBody BulkTagRequest request) {
+        int updated = tagService.bulkUpdate(currentUser, request);
+
+        AuditLogger.log("file_tags_bulk", Map.of(
+                "user", currentUser.getUsername(), "files", updated,
+                "add", request.getAdd() == null ? List.of() : request.getAdd(),
+                "remove", request.getRemove() == null ? List.of() : request.getRemove()));
+
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+}
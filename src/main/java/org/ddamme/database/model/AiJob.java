@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.JdbcType;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.type.SqlTypes;
 import org.hibernate.dialect.PostgreSQLEnumJdbcType;
 
@@ -105,6 +106,11 @@ public class AiJob {
     private String errorMessage;
 
     // Timestamps
+    /**
+     * Range partition key of ai_jobs (monthly, see V8). Included in UPDATE/DELETE
+     * predicates so PostgreSQL touches a single partition.
+     */
+    @PartitionKey
     @Column(name = "created_at", nullable = false, updatable = false)
     @Builder.Default
     private Instant createdAt = Instant.now();
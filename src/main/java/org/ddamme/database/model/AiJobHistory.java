@@ -0,0 +1,90 @@
+package org.ddamme.database.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Finished (DONE/DLQ) AI job moved out of ai_jobs by AiJobRetentionMover.
+ * Read-only: rows are written by the mover's INSERT ... SELECT, never through JPA.
+ *
+ * Mirrors AiJob's columns; user and file are plain ids since history is only
+ * ever read for reporting.
+ */
+@Entity
+@Immutable
+@Table(name = "ai_jobs_history")
+@Getter
+@NoArgsConstructor
+public class AiJobHistory {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    @Column(name = "job_type", nullable = false)
+    private JobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    @Column(name = "job_status", nullable = false)
+    private JobStatus jobStatus;
+
+    @Column(nullable = false)
+    private Integer priority;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "depends_on_job_id")
+    private Long dependsOnJobId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "input_params", columnDefinition = "JSONB")
+    private Map<String, Object> inputParams;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "output_data", columnDefinition = "JSONB")
+    private Map<String, Object> outputData;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+}
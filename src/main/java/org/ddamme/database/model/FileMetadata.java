@@ -2,8 +2,11 @@ package org.ddamme.database.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.ddamme.util.FolderPaths;
 import org.hibernate.annotations.Array;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.type.SqlTypes;
@@ -20,6 +23,7 @@ import java.util.Objects;
 @AllArgsConstructor
 @Entity
 @Table(name = "file_metadata")
+@DynamicUpdate  // UPDATE only changed columns of a freshly loaded row; long-running jobs use targeted UPDATEs instead
 public class FileMetadata {
 
     @Id
@@ -47,6 +51,13 @@ public class FileMetadata {
     @Column(nullable = false)
     private String contentType;
 
+    /**
+     * Materialized path of the containing folder, with leading and trailing slash
+     * ("/", "/reports/2025/"). See V10 and FolderPaths.
+     */
+    @Column(name = "folder_path", nullable = false)
+    private String folderPath;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant uploadTimestamp;
@@ -74,6 +85,15 @@ public class FileMetadata {
     @Array(length = 100)  // Maximum array length hint for schema generation
     private String[] aiKeywords;
 
+    /**
+     * User-defined tags, normalized by FileTags (lower-case, sorted, unique). GIN-indexed (V11);
+     * bulk changes go through FileQueryRepository as a single UPDATE.
+     */
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "tags", nullable = false)
+    @Array(length = 50)
+    private String[] tags;
+
     @Column(name = "pii_level", length = 20)
     private String piiLevel;
 
@@ -86,8 +106,26 @@ public class FileMetadata {
     @Column(name = "embedding_model_version", length = 50)
     private String embeddingModelVersion;
 
+    /**
+     * Text search configuration (regconfig) of the detected language; search_vector is
+     * built with it (V18). Left to the column default ('english') on insert.
+     */
+    @ColumnTransformer(write = "?::regconfig")
+    @Column(name = "text_config", columnDefinition = "regconfig", nullable = false, insertable = false)
+    private String textConfig;
+
     // Note: search_vector is a generated column in PostgreSQL, not mapped in JPA
 
+    @PrePersist
+    void applyDefaults() {
+        if (folderPath == null) {
+            folderPath = FolderPaths.ROOT;
+        }
+        if (tags == null) {
+            tags = new String[0];
+        }
+    }
+
     // Helper methods for list-based access (convenience methods)
     @Transient
     public List<String> getAiKeywordsList() {
@@ -8,7 +8,7 @@ public enum JobType {
     /** Extract text from PDFs and images using OCR */
     OCR,
 
-    /** Generate embeddings for semantic search (Phase 2) */
+    /** Generate chunk embeddings for semantic search (after OCR, see EmbedJobHandler) */
     EMBED,
 
     /** Scan for personally identifiable information (Phase 4) */
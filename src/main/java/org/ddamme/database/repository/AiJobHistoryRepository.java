@@ -0,0 +1,25 @@
+package org.ddamme.database.repository;
+
+import org.ddamme.database.model.AiJobHistory;
+import org.ddamme.database.model.JobStatus;
+import org.ddamme.database.model.JobType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read access to archived (DONE/DLQ) AI jobs.
+ * Rows are written only by AiJobRetentionMover; see AiJobService for queries spanning
+ * both the live queue and history.
+ */
+@Repository
+public interface AiJobHistoryRepository extends JpaRepository<AiJobHistory, Long> {
+
+    Optional<AiJobHistory> findByFileIdAndJobType(Long fileId, JobType jobType);
+
+    List<AiJobHistory> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    List<AiJobHistory> findByUserIdAndJobStatusOrderByCreatedAtDesc(Long userId, JobStatus status);
+}
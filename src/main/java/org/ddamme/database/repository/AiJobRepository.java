@@ -28,7 +28,8 @@ public interface AiJobRepository extends JpaRepository<AiJob, Long> {
      * Atomically claim jobs for processing using SKIP LOCKED.
      *
      * This method:
-     * 1. Finds ready jobs (PENDING, time to run, dependencies satisfied)
+     * 1. Finds ready jobs (PENDING, time to run, dependencies satisfied - a DONE parent may
+     *    already have been moved to ai_jobs_history)
      * 2. Orders by next_attempt_at ASC NULLS FIRST, priority ASC, created_at ASC
      * 3. Locks rows with FOR UPDATE SKIP LOCKED (no blocking)
      * 4. Updates status to RUNNING, sets locked_by, and increments attempts
@@ -51,6 +52,12 @@ public interface AiJobRepository extends JpaRepository<AiJob, Long> {
                        FROM ai_jobs d
                        WHERE d.id = ai_jobs.depends_on_job_id
                          AND d.job_status = CAST('DONE' AS job_status)
+                   )
+                   OR EXISTS (
+                       SELECT 1
+                       FROM ai_jobs_history h
+                       WHERE h.id = ai_jobs.depends_on_job_id
+                         AND h.job_status = CAST('DONE' AS job_status)
                    ))
             ORDER BY next_attempt_at ASC NULLS FIRST, priority ASC, created_at ASC, id ASC
             LIMIT :batchSize
@@ -69,6 +76,47 @@ public interface AiJobRepository extends JpaRepository<AiJob, Long> {
     List<Long> claimJobIds(@Param("batchSize") int batchSize,
                            @Param("workerId") String workerId);
 
+    /**
+     * Move PENDING jobs whose dependency ended in the DLQ (possibly already moved to
+     * ai_jobs_history) to the DLQ as well. The claim query only releases a dependent once its
+     * parent is DONE, so without this they would stay PENDING forever.
+     *
+     * One level per call: dependents of the jobs failed here are caught by the next call.
+     * Returns the failed job IDs.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE ai_jobs j
+        SET job_status = CAST('DLQ' AS job_status),
+            locked_by = NULL,
+            locked_at = NULL,
+            next_attempt_at = NULL,
+            error_message = 'DEPENDENCY_FAILED: job ' || j.depends_on_job_id || ' ended in DLQ',
+            output_data = jsonb_build_object(
+                'error_code', 'DEPENDENCY_FAILED',
+                'dependency_job_id', j.depends_on_job_id,
+                'file_id', j.file_id,
+                'job_type', j.job_type::text,
+                'timestamp', NOW()),
+            updated_at = NOW()
+        WHERE j.job_status = CAST('PENDING' AS job_status)
+          AND j.depends_on_job_id IS NOT NULL
+          AND (EXISTS (
+                   SELECT 1
+                   FROM ai_jobs d
+                   WHERE d.id = j.depends_on_job_id
+                     AND d.job_status = CAST('DLQ' AS job_status)
+               )
+               OR EXISTS (
+                   SELECT 1
+                   FROM ai_jobs_history h
+                   WHERE h.id = j.depends_on_job_id
+                     AND h.job_status = CAST('DLQ' AS job_status)
+               ))
+        RETURNING j.id
+        """, nativeQuery = true)
+    List<Long> failJobsWithFailedDependency();
+
     /**
      * Find jobs stuck in RUNNING state (worker died or hung).
      * Uses Spring Data JPA derived method - @JdbcType handles enum binding automatically.
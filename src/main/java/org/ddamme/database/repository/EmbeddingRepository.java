@@ -0,0 +1,105 @@
+package org.ddamme.database.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.ddamme.dto.SearchResultDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunk embeddings (file_embeddings, V17) and nearest-neighbour search over them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmbeddingRepository {
+
+    /** Characters of the matching chunk returned as the snippet */
+    static final int SNIPPET_CHARS = 300;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** A chunk's [start, end) range in file_text and its vector */
+    public record ChunkEmbedding(int startOffset, int endOffset, float[] vector) {
+    }
+
+    /**
+     * Replaces all of a file's chunks. Must run in a transaction: the delete and the insert
+     * are separate statements, and a failed insert must not leave the file without chunks.
+     */
+    public void replace(long userId, long fileId, List<ChunkEmbedding> chunks) {
+        jdbcTemplate.update("DELETE FROM file_embeddings WHERE user_id = ? AND file_id = ?", userId, fileId);
+        List<Object[]> rows = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            ChunkEmbedding chunk = chunks.get(i);
+            rows.add(new Object[]{userId, fileId, i, chunk.startOffset(), chunk.endOffset(), literal(chunk.vector())});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO file_embeddings (user_id, file_id, chunk_index, start_offset, end_offset, embedding)
+                VALUES (?, ?, ?, ?, ?, ?::vector)
+                """, rows);
+    }
+
+    /**
+     * The user's files closest to vector, by their closest chunk; rank is the cosine
+     * similarity and snippet the start of that chunk.
+     *
+     * The candidate chunks come from the HNSW index (approximate); iterative scans keep the
+     * index walking past other users' rows until candidates are found (pgvector 0.8, ignored
+     * by older versions). Must run in a transaction: the settings are transaction-local.
+     *
+     * @param candidates nearest chunks to consider; several may belong to one file
+     */
+    public List<SearchResultDto> nearest(long userId, float[] vector, int limit, int candidates) {
+        jdbcTemplate.queryForObject("""
+                SELECT set_config('hnsw.iterative_scan', 'relaxed_order', true),
+                       set_config('hnsw.ef_search', ?, true)
+                """, (rs, i) -> null, String.valueOf(Math.max(40, candidates)));
+
+        String literal = literal(vector);
+        return jdbcTemplate.query("""
+                WITH nearest AS (
+                    SELECT e.file_id, e.start_offset, e.end_offset, e.embedding <=> ?::vector AS distance
+                    FROM file_embeddings e
+                    WHERE e.user_id = ?
+                    ORDER BY e.embedding <=> ?::vector
+                    LIMIT ?
+                ), best AS (
+                    SELECT DISTINCT ON (file_id) file_id, start_offset, end_offset, distance
+                    FROM nearest
+                    ORDER BY file_id, distance
+                )
+                SELECT f.id, f.original_filename, f.content_type, f.size, f.upload_timestamp, f.ocr_confidence,
+                       substr(f.file_text, b.start_offset + 1, LEAST(b.end_offset - b.start_offset, ?)) AS snippet,
+                       1 - b.distance AS similarity
+                FROM best b
+                JOIN file_metadata f ON f.user_id = ? AND f.id = b.file_id
+                ORDER BY b.distance, f.id
+                LIMIT ?
+                """,
+                (rs, i) -> SearchResultDto.builder()
+                        .fileId(rs.getLong("id"))
+                        .filename(rs.getString("original_filename"))
+                        .contentType(rs.getString("content_type"))
+                        .size(rs.getLong("size"))
+                        .uploadedAt(rs.getTimestamp("upload_timestamp").toInstant())
+                        .ocrConfidence(rs.getObject("ocr_confidence") == null ? null : rs.getFloat("ocr_confidence"))
+                        .snippet(rs.getString("snippet"))
+                        .rank(rs.getDouble("similarity"))
+                        .build(),
+                literal, userId, literal, candidates, SNIPPET_CHARS, userId, limit);
+    }
+
+    /** pgvector text input format: [x1,x2,...] */
+    static String literal(float[] vector) {
+        StringBuilder literal = new StringBuilder(vector.length * 10).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(vector[i]);
+        }
+        return literal.append(']').toString();
+    }
+}
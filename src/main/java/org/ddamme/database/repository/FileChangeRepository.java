@@ -0,0 +1,75 @@
+package org.ddamme.database.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.ddamme.dto.FileListResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the change stamps written by the V13 triggers.
+ *
+ * Positions are (change_xid, change_seq). Callers bound every read by a snapshot xmin
+ * taken first ({@link #stableBound}): all transactions below it have finished, so no
+ * change can later appear below a position already handed out.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileChangeRepository {
+
+    /**
+     * A change at a position; file is null for deletes.
+     */
+    public record Change(long xid, long seq, long fileId, Long createdXid, FileListResponse file) {
+    }
+
+    public record SyncState(long epoch, Long prunedXid) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Oldest transaction id still running; every change below it is final. */
+    public long stableBound() {
+        Long xmin = jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+        return xmin == null ? 0 : xmin;
+    }
+
+    public Optional<SyncState> syncState(long userId) {
+        return jdbcTemplate.query(
+                "SELECT epoch, pruned_xid::text::bigint AS pruned_xid FROM file_sync_state WHERE user_id = ?",
+                (rs, i) -> new SyncState(rs.getLong("epoch"), rs.getObject("pruned_xid", Long.class)),
+                userId).stream().findFirst();
+    }
+
+    /** Inserted or updated files after a position, below bound, in position order. */
+    public List<Change> upsertsAfter(long userId, long afterXid, long afterSeq, long bound, int limit) {
+        return jdbcTemplate.query(
+                "SELECT f.change_xid::text::bigint AS change_xid, f.change_seq, f.created_xid::text::bigint AS created_xid, "
+                        + FileQueryRepository.LIST_COLUMNS
+                        + " FROM file_metadata f"
+                        + " WHERE f.user_id = ? AND (f.change_xid, f.change_seq) > (?::text::xid8, ?)"
+                        + " AND f.change_xid < ?::text::xid8"
+                        + " ORDER BY f.change_xid, f.change_seq LIMIT ?",
+                (rs, i) -> new Change(rs.getLong("change_xid"), rs.getLong("change_seq"), rs.getLong("id"),
+                        rs.getLong("created_xid"), FileQueryRepository.LIST_ROW.mapRow(rs, i)),
+                userId, Long.toString(afterXid), afterSeq, Long.toString(bound), limit);
+    }
+
+    /** Deleted files after a position, below bound, in position order. */
+    public List<Change> deletesAfter(long userId, long afterXid, long afterSeq, long bound, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT change_xid::text::bigint AS change_xid, change_seq, file_id
+                        FROM file_tombstones
+                        WHERE user_id = ? AND (change_xid, change_seq) > (?::text::xid8, ?)
+                          AND change_xid < ?::text::xid8
+                        ORDER BY change_xid, change_seq
+                        LIMIT ?
+                        """,
+                (rs, i) -> new Change(rs.getLong("change_xid"), rs.getLong("change_seq"), rs.getLong("file_id"),
+                        null, null),
+                userId, Long.toString(afterXid), afterSeq, Long.toString(bound), limit);
+    }
+}
@@ -0,0 +1,362 @@
+package org.ddamme.database.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FilenameSuggestionDto;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.FileSort;
+import org.ddamme.dto.SearchFacets;
+import org.ddamme.dto.TagCountDto;
+import org.ddamme.util.FileTags;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filtered file listings, tag and search facets, and bulk tag changes.
+ *
+ * Plain JDBC because the WHERE clause depends on which filters are set: only the
+ * predicates in use are emitted, so each combination plans against its index
+ * (user_id prefix + GIN on tags, content type, upload time) instead of a catch-all
+ * "(:x IS NULL OR ...)" query. Listings select only the columns a list needs,
+ * never file_text.
+ *
+ * Listings page either by offset or by keyset (the last row's sort key and id); the
+ * keyset predicate is a row comparison on the same columns as the ORDER BY, so it
+ * becomes an index condition on the matching (user_id, column, id) index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileQueryRepository {
+
+    static final String LIST_COLUMNS =
+            "f.id, f.original_filename, f.size, f.content_type, f.folder_path, f.tags, f.upload_timestamp";
+
+    static final RowMapper<FileListResponse> LIST_ROW = (rs, i) -> FileListResponse.builder()
+            .id(rs.getLong("id"))
+            .originalFilename(rs.getString("original_filename"))
+            .size(rs.getLong("size"))
+            .contentType(rs.getString("content_type"))
+            .folderPath(rs.getString("folder_path"))
+            .tags(List.of((String[]) rs.getArray("tags").getArray()))
+            .uploadTimestamp(rs.getTimestamp("upload_timestamp").toInstant())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param afterValue sort key of the last row already seen (from {@link FileSort.Field#parameter}), or null
+     * @param afterId    id of that row, or null for the first page / offset paging
+     */
+    public List<FileListResponse> find(long userId, FileFilter filter, FileSort sort,
+                                       Object afterValue, Long afterId, long offset, int limit) {
+        Where where = where(userId, filter);
+        String column = sort.field().column();
+        String direction = sort.descending() ? "DESC" : "ASC";
+        if (afterId != null) {
+            where.and("(" + column + ", f.id) " + (sort.descending() ? "<" : ">") + " (?, ?)", afterValue, afterId);
+        }
+        where.args().add(limit);
+        where.args().add(offset);
+        return jdbcTemplate.query(
+                "SELECT " + LIST_COLUMNS + " FROM file_metadata f WHERE " + where.sql()
+                        + " ORDER BY " + column + " " + direction + ", f.id " + direction + " LIMIT ? OFFSET ?",
+                LIST_ROW, where.args().toArray());
+    }
+
+    public long count(long userId, FileFilter filter) {
+        Where where = where(userId, filter);
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM file_metadata f WHERE " + where.sql(), Long.class, where.args().toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Per-tag file counts over the files matching filter, in one aggregate query.
+     */
+    public List<TagCountDto> tagFacets(long userId, FileFilter filter, int limit) {
+        Where where = where(userId, filter);
+        where.args().add(limit);
+        return jdbcTemplate.query(
+                "SELECT t.tag, COUNT(*) AS files FROM file_metadata f CROSS JOIN LATERAL unnest(f.tags) AS t(tag)"
+                        + " WHERE " + where.sql()
+                        + " GROUP BY t.tag ORDER BY files DESC, t.tag LIMIT ?",
+                (rs, i) -> TagCountDto.builder().tag(rs.getString("tag")).count(rs.getLong("files")).build(),
+                where.args().toArray());
+    }
+
+    /** The first page of a full-text search and facet counts over all its matches */
+    public record FacetedPage(List<SearchResultDto> results, SearchFacets facets) {
+    }
+
+    /**
+     * Hash slots a match can fall in; matches in the lowest slots form the facet sample.
+     * Fine enough that the sample stays close to exactLimit for any realistic total.
+     */
+    static final int SAMPLE_SLOTS = 65536;
+
+    /**
+     * One @@ scan (the matches CTE, on idx_files_user_search) feeds both the ranked page
+     * and the facet aggregate. Each match gets its hash slot in that scan; the aggregate
+     * keeps only slots below the share exactLimit / total, which is every slot up to
+     * exactLimit matches.
+     */
+    static final String FACETED_SEARCH = """
+            WITH matches AS MATERIALIZED (
+                SELECT f.id, f.original_filename, f.content_type, f.size, f.upload_timestamp, f.ocr_confidence,
+                       ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) AS rank,
+                       (hashint8(f.id) & 2147483647) %% %1$d AS sample_slot
+                FROM file_metadata f, search_query(?, ?) AS q(query)
+                WHERE f.user_id = ? AND f.search_vector @@ q.query
+            ), total AS (
+                SELECT COUNT(*) AS files FROM matches
+            ), buckets AS (
+                SELECT COALESCE(split_part(m.content_type, '/', 1) || '/*', 'unknown') AS content_family,
+                       CASE WHEN m.upload_timestamp >= NOW() - INTERVAL '7 days' THEN 'past_week'
+                            WHEN m.upload_timestamp >= NOW() - INTERVAL '30 days' THEN 'past_month'
+                            WHEN m.upload_timestamp >= NOW() - INTERVAL '365 days' THEN 'past_year'
+                            ELSE 'older' END AS uploaded,
+                       CASE WHEN m.ocr_confidence IS NULL THEN 'none'
+                            WHEN m.ocr_confidence >= 0.85 THEN 'high'
+                            WHEN m.ocr_confidence >= 0.6 THEN 'medium'
+                            ELSE 'low' END AS confidence,
+                       CASE WHEN m.size < 102400 THEN 'under_100kb'
+                            WHEN m.size < 1048576 THEN '100kb_1mb'
+                            WHEN m.size < 10485760 THEN '1mb_10mb'
+                            ELSE 'over_10mb' END AS size_range
+                FROM matches m, total t
+                WHERE m.sample_slot < CEIL(%1$d * ?::numeric / GREATEST(t.files, 1))
+            )
+            (SELECT 'result' AS kind, m.id, m.original_filename, m.content_type, m.size, m.upload_timestamp,
+                    m.ocr_confidence, m.rank, NULL::text AS facet, NULL::text AS bucket, NULL::bigint AS files
+             FROM matches m
+             ORDER BY m.rank DESC, m.id
+             LIMIT ?)
+            UNION ALL
+            SELECT 'facet', NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+                   CASE WHEN GROUPING(content_family) = 0 THEN 'contentType'
+                        WHEN GROUPING(uploaded) = 0 THEN 'uploaded'
+                        WHEN GROUPING(confidence) = 0 THEN 'ocrConfidence'
+                        ELSE 'size' END,
+                   COALESCE(content_family, uploaded, confidence, size_range),
+                   COUNT(*)
+            FROM buckets
+            GROUP BY GROUPING SETS ((content_family), (uploaded), (confidence), (size_range))
+            UNION ALL
+            SELECT 'total', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, files
+            FROM total
+            """.formatted(SAMPLE_SLOTS);
+
+    /**
+     * First page of a ranked full-text search (same match set and ranking as
+     * MetadataRepository.searchTextWithCursor) plus facet counts over every match, in one
+     * statement: the @@ match set is scanned and materialized once, the page is its top
+     * rows, and all four facets come from one GROUPING SETS aggregate over it.
+     *
+     * configs: text search configurations to parse the query with (see search_query, V18).
+     *
+     * Above exactLimit matches the facets are counted over a deterministic hash sample of
+     * about exactLimit matches and scaled up to the total, so repeating a search shows the
+     * same counts. The sample is drawn from the materialized matches, so bucketing and
+     * grouping cost tracks exactLimit rather than the match count. The page is always exact.
+     */
+    public FacetedPage searchWithFacets(long userId, String configs, String query, int limit, int exactLimit) {
+        List<SearchResultDto> results = new ArrayList<>();
+        Map<String, List<SearchFacets.Bucket>> facets = new LinkedHashMap<>();
+        long[] total = {0};
+
+        jdbcTemplate.query(FACETED_SEARCH,
+                rs -> {
+                    switch (rs.getString("kind")) {
+                        case "result" -> results.add(SearchResultDto.builder()
+                                .fileId(rs.getLong("id"))
+                                .filename(rs.getString("original_filename"))
+                                .contentType(rs.getString("content_type"))
+                                .size(rs.getLong("size"))
+                                .uploadedAt(rs.getTimestamp("upload_timestamp").toInstant())
+                                .ocrConfidence(rs.getObject("ocr_confidence") == null ? null : rs.getFloat("ocr_confidence"))
+                                .rank(rs.getDouble("rank"))
+                                .build());
+                        case "facet" -> facets.computeIfAbsent(rs.getString("facet"), k -> new ArrayList<>())
+                                .add(new SearchFacets.Bucket(rs.getString("bucket"), rs.getLong("files")));
+                        default -> total[0] = rs.getLong("files");
+                    }
+                },
+                configs, query, userId, exactLimit, limit);
+
+        // UNION ALL does not promise to keep the page's order
+        results.sort(Comparator.comparing(SearchResultDto::getRank, Comparator.reverseOrder())
+                .thenComparing(SearchResultDto::getFileId));
+        return new FacetedPage(results, facets(total[0], facets));
+    }
+
+    /**
+     * Assembles the facets, largest bucket first, scaling sampled counts up to total. Each
+     * facet partitions the same counted rows, so any one of them sums to their number.
+     */
+    static SearchFacets facets(long total, Map<String, List<SearchFacets.Bucket>> facets) {
+        long counted = facets.getOrDefault("size", List.of()).stream().mapToLong(SearchFacets.Bucket::getCount).sum();
+        boolean approximate = counted > 0 && counted < total;
+        if (approximate) {
+            double scale = (double) total / counted;
+            facets.values().forEach(buckets -> buckets.forEach(
+                    bucket -> bucket.setCount(Math.max(1, Math.round(bucket.getCount() * scale)))));
+        }
+        Comparator<SearchFacets.Bucket> largestFirst = Comparator
+                .comparingLong(SearchFacets.Bucket::getCount).reversed()
+                .thenComparing(SearchFacets.Bucket::getValue);
+        facets.values().forEach(buckets -> buckets.sort(largestFirst));
+        return SearchFacets.builder()
+                .total(total)
+                .approximate(approximate)
+                .contentType(facets.getOrDefault("contentType", List.of()))
+                .uploaded(facets.getOrDefault("uploaded", List.of()))
+                .ocrConfidence(facets.getOrDefault("ocrConfidence", List.of()))
+                .size(facets.getOrDefault("size", List.of()))
+                .build();
+    }
+
+    /**
+     * Adds and removes tags on many files in one UPDATE. Arguments must already be
+     * normalized (FileTags); the result stays sorted and unique.
+     *
+     * @return number of files updated (ids not owned by userId are skipped)
+     */
+    public int updateTags(long userId, List<Long> fileIds, List<String> add, List<String> remove) {
+        return jdbcTemplate.update("""
+                UPDATE file_metadata f
+                SET tags = ARRAY(SELECT DISTINCT t
+                                 FROM unnest(f.tags || ?::text[]) AS t
+                                 WHERE t <> ALL (?::text[])
+                                 ORDER BY t),
+                    update_timestamp = NOW()
+                WHERE f.user_id = ? AND f.id = ANY (?::bigint[])
+                """,
+                add.toArray(String[]::new), remove.toArray(String[]::new),
+                userId, fileIds.toArray(Long[]::new));
+    }
+
+    /**
+     * Filename typeahead: names containing the prefix (case-insensitive) or with a word
+     * similar to it (typos), names starting with it first. Both predicates are served by
+     * the trigram index idx_files_user_name_trgm. Below three characters there are no
+     * trigrams to match on, so only "starts with" is used and the scan stays within the
+     * user's rows.
+     */
+    public List<FilenameSuggestionDto> suggestFilenames(long userId, String prefix, int limit) {
+        String escaped = likeEscape(prefix);
+        String startsWith = escaped + "%";
+        RowMapper<FilenameSuggestionDto> row = (rs, i) -> FilenameSuggestionDto.builder()
+                .fileId(rs.getLong("id"))
+                .filename(rs.getString("original_filename"))
+                .folderPath(rs.getString("folder_path"))
+                .contentType(rs.getString("content_type"))
+                .build();
+
+        if (prefix.length() < 3) {
+            return jdbcTemplate.query("""
+                    SELECT f.id, f.original_filename, f.folder_path, f.content_type
+                    FROM file_metadata f
+                    WHERE f.user_id = ? AND f.original_filename ILIKE ? ESCAPE '\\'
+                    ORDER BY f.original_filename, f.id
+                    LIMIT ?
+                    """, row, userId, startsWith, limit);
+        }
+        return jdbcTemplate.query("""
+                SELECT f.id, f.original_filename, f.folder_path, f.content_type
+                FROM file_metadata f
+                WHERE f.user_id = ?
+                  AND (f.original_filename ILIKE ? ESCAPE '\\' OR ? <% f.original_filename)
+                ORDER BY f.original_filename ILIKE ? ESCAPE '\\' DESC,
+                         word_similarity(?, f.original_filename) DESC,
+                         f.original_filename, f.id
+                LIMIT ?
+                """, row, userId, "%" + escaped + "%", prefix, startsWith, prefix, limit);
+    }
+
+    /**
+     * Files whose name has a word similar to query (typo-tolerant), most similar first;
+     * for search results when full-text search finds nothing. rank is the word similarity.
+     */
+    public List<SearchResultDto> similarFilenames(long userId, String query, int limit) {
+        return jdbcTemplate.query("""
+                SELECT f.id, f.original_filename, f.content_type, f.size, f.upload_timestamp, f.ocr_confidence,
+                       word_similarity(?, f.original_filename) AS rank
+                FROM file_metadata f
+                WHERE f.user_id = ? AND ? <% f.original_filename
+                ORDER BY rank DESC, f.id
+                LIMIT ?
+                """,
+                (rs, i) -> SearchResultDto.builder()
+                        .fileId(rs.getLong("id"))
+                        .filename(rs.getString("original_filename"))
+                        .contentType(rs.getString("content_type"))
+                        .size(rs.getLong("size"))
+                        .uploadedAt(rs.getTimestamp("upload_timestamp").toInstant())
+                        .ocrConfidence(rs.getObject("ocr_confidence") == null ? null : rs.getFloat("ocr_confidence"))
+                        .rank(rs.getDouble("rank"))
+                        .build(),
+                query, userId, query, limit);
+    }
+
+    /** Escapes LIKE wildcards; use with {@code ESCAPE '\'}. */
+    static String likeEscape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Builds the WHERE clause for a filter; always scoped to the user (and so to one hash partition).
+     */
+    static Where where(long userId, FileFilter filter) {
+        Where where = new Where(new StringBuilder("f.user_id = ?"), new ArrayList<>(List.of(userId)));
+        if (filter == null) {
+            return where;
+        }
+        List<String> tags = FileTags.normalize(filter.getTag());
+        if (!tags.isEmpty()) {
+            where.and("f.tags @> ?::text[]", tags.toArray(String[]::new));
+        }
+        String contentType = filter.getContentType();
+        if (contentType != null && !contentType.isBlank()) {
+            if (contentType.endsWith("/*")) {
+                // "image/*" -> prefix range on (user_id, content_type, ...)
+                String family = contentType.substring(0, contentType.length() - 1);
+                where.and("f.content_type LIKE ? ESCAPE '\\'", likeEscape(family) + "%");
+            } else {
+                where.and("f.content_type = ?", contentType);
+            }
+        }
+        if (filter.getMinSize() != null) {
+            where.and("f.size >= ?", filter.getMinSize());
+        }
+        if (filter.getMaxSize() != null) {
+            where.and("f.size <= ?", filter.getMaxSize());
+        }
+        if (filter.getHasText() != null) {
+            // IS NOT NULL matches the partial index idx_files_text_exists
+            where.and(filter.getHasText() ? "f.file_text IS NOT NULL" : "f.file_text IS NULL");
+        }
+        if (filter.getUploadedAfter() != null) {
+            where.and("f.upload_timestamp >= ?", Timestamp.from(filter.getUploadedAfter()));
+        }
+        if (filter.getUploadedBefore() != null) {
+            where.and("f.upload_timestamp < ?", Timestamp.from(filter.getUploadedBefore()));
+        }
+        return where;
+    }
+
+    record Where(StringBuilder sql, List<Object> args) {
+        void and(String predicate, Object... predicateArgs) {
+            sql.append(" AND ").append(predicate);
+            args.addAll(List.of(predicateArgs));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.ddamme.database.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Per-user vocabulary (file_lexemes, V16) for "did you mean" suggestions.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LexiconRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Which of words occur in the user's files. */
+    public Set<String> known(long userId, Collection<String> words) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT lexeme FROM file_lexemes WHERE user_id = ? AND lexeme = ANY (?::text[])",
+                String.class, userId, words.toArray(String[]::new)));
+    }
+
+    /**
+     * The user's word most similar to word (pg_trgm similarity above pg_trgm.similarity_threshold,
+     * 0.3 by default), preferring words found in more files. Index-backed via idx_file_lexemes_trgm.
+     */
+    public Optional<String> closest(long userId, String word) {
+        return jdbcTemplate.queryForList("""
+                        SELECT lexeme
+                        FROM file_lexemes
+                        WHERE user_id = ? AND lexeme % ?
+                        ORDER BY similarity(lexeme, ?) DESC, ndoc DESC, lexeme
+                        LIMIT 1
+                        """, String.class, userId, word, word)
+                .stream()
+                .findFirst();
+    }
+}
@@ -6,10 +6,12 @@ import org.ddamme.database.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,9 +28,54 @@ public interface MetadataRepository extends JpaRepository<FileMetadata, Long> {
     @Query("select coalesce(sum(f.size), 0) from FileMetadata f")
     long sumSizes();
 
+    /**
+     * Files directly in one folder, keyset-paginated by (name, id).
+     * Served by idx_files_user_folder_name; first page: afterName = null.
+     */
+    @Query(value = """
+        SELECT f.*
+        FROM file_metadata f
+        WHERE f.user_id = :userId
+          AND f.folder_path = :folderPath
+          AND (CAST(:afterName AS text) IS NULL
+               OR (f.original_filename, f.id) > (CAST(:afterName AS text), CAST(:afterId AS bigint)))
+        ORDER BY f.original_filename, f.id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<FileMetadata> findInFolder(@Param("userId") Long userId,
+                                    @Param("folderPath") String folderPath,
+                                    @Param("afterName") String afterName,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
+
+    /**
+     * Files in a folder and all folders below it, keyset-paginated by (folder, name, id).
+     * The prefix LIKE is an index range scan because folder_path is COLLATE "C" (see V10).
+     */
+    @Query(value = """
+        SELECT f.*
+        FROM file_metadata f
+        WHERE f.user_id = :userId
+          AND f.folder_path LIKE :pattern ESCAPE '\\'
+          AND (CAST(:afterPath AS text) IS NULL
+               OR (f.folder_path, f.original_filename, f.id)
+                  > (CAST(:afterPath AS text), CAST(:afterName AS text), CAST(:afterId AS bigint)))
+        ORDER BY f.folder_path, f.original_filename, f.id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<FileMetadata> findInSubtree(@Param("userId") Long userId,
+                                     @Param("pattern") String pattern,
+                                     @Param("afterPath") String afterPath,
+                                     @Param("afterName") String afterName,
+                                     @Param("afterId") Long afterId,
+                                     @Param("limit") int limit);
+
     /**
      * Full-text search using PostgreSQL FTS with weighted ranking.
      * Returns: [id, filename, contentType, size, uploadedAt, rank, snippet, ocrConfidence]
+     *
+     * configs: the text search configurations documents may be indexed with, comma-separated
+     * (LanguageProperties.searchConfigs); the query is parsed with each, see search_query (V18).
      * 
      * DEPRECATED: Use searchTextWithCursor for pagination without OFFSET drift.
      */
@@ -39,18 +86,18 @@ public interface MetadataRepository extends JpaRepository<FileMetadata, Long> {
             f.content_type,
             f.size,
             f.upload_timestamp,
-            ts_rank(f.search_vector, websearch_to_tsquery('english', :query)) AS rank,
-            ts_headline('english', COALESCE(f.file_text, ''), 
-                        websearch_to_tsquery('english', :query),
+            ts_rank(f.search_vector, q.query) AS rank,
+            ts_headline(f.text_config, COALESCE(f.file_text, ''), q.query,
                         'MaxWords=50, MinWords=25') AS snippet,
             f.ocr_confidence
-        FROM file_metadata f
+        FROM file_metadata f, search_query(:configs, :query) AS q(query)
         WHERE f.user_id = :userId
-          AND f.search_vector @@ websearch_to_tsquery('english', :query)
+          AND f.search_vector @@ q.query
         ORDER BY rank DESC
         LIMIT 100
         """, nativeQuery = true)
     List<Object[]> searchTextRaw(@Param("userId") Long userId,
+                                 @Param("configs") String configs,
                                  @Param("query") String query);
     
     /**
@@ -63,35 +110,97 @@ public interface MetadataRepository extends JpaRepository<FileMetadata, Long> {
      * - First page: lastRank=null, lastId=null → fetch top N+1
      * - Next pages: WHERE (rank < :lastRank) OR (rank = :lastRank AND id > :lastId)
      * 
-     * Returns: [id, filename, contentType, size, uploadedAt, rank, snippet, ocrConfidence]
+     * Ranks and pages on search_vector alone: the rank is computed once per candidate in the
+     * subquery, and no snippet is built here (see searchSnippets, run for the final page only).
+     * 
+     * Returns: [id, filename, contentType, size, uploadedAt, rank, ocrConfidence]
+     *
+     * configs: as for searchTextRaw
      * 
      * See: cursor_v2_rationale.md Section "Keyset Pagination" for rationale
      */
     @Query(value = """
-        WITH q AS (SELECT websearch_to_tsquery('english', :query) AS query)
-        SELECT
-            f.id,
-            f.original_filename,
-            f.content_type,
-            f.size,
-            f.upload_timestamp,
-            ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) AS rank,
-            ts_headline('english', COALESCE(f.file_text, ''), q.query,
-                        'StartSel=<mark>,StopSel=</mark>,MaxFragments=2,MinWords=8,MaxWords=25,ShortWord=3,HighlightAll=FALSE') AS snippet,
-            f.ocr_confidence
-        FROM file_metadata f, q
-        WHERE f.user_id = :userId
-          AND f.search_vector @@ q.query
-          AND (:lastRank IS NULL OR 
-               (ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) < :lastRank 
-                OR (ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) = :lastRank AND f.id > :lastId)))
-        ORDER BY ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) DESC, f.id ASC
+        SELECT r.id, r.original_filename, r.content_type, r.size, r.upload_timestamp, r.rank, r.ocr_confidence
+        FROM (
+            SELECT
+                f.id,
+                f.original_filename,
+                f.content_type,
+                f.size,
+                f.upload_timestamp,
+                ts_rank_cd(ARRAY[0.0, 0.0, 0.35, 1.0], f.search_vector, q.query) AS rank,
+                f.ocr_confidence
+            FROM file_metadata f, search_query(:configs, :query) AS q(query)
+            WHERE f.user_id = :userId
+              AND f.search_vector @@ q.query
+        ) r
+        WHERE (:lastRank IS NULL OR r.rank < :lastRank OR (r.rank = :lastRank AND r.id > :lastId))
+        ORDER BY r.rank DESC, r.id ASC
         LIMIT :limit
         """, nativeQuery = true)
     List<Object[]> searchTextWithCursor(@Param("userId") Long userId,
+                                        @Param("configs") String configs,
                                         @Param("query") String query,
                                         @Param("lastRank") Double lastRank,
                                         @Param("lastId") Long lastId,
                                         @Param("limit") int limit);
-}
 
+    /**
+     * ts_headline snippets for the given files only (one search result page).
+     * STX/ETX are removed from the text so they can serve as match markers (see SnippetMode).
+     * Each text is highlighted with its own configuration.
+     * 
+     * Returns: [id, snippet]
+     */
+    @Query(value = """
+        SELECT f.id,
+               ts_headline(f.text_config, translate(COALESCE(f.file_text, ''), E'\\x02\\x03', ''),
+                           q.query, :options) AS snippet
+        FROM file_metadata f, search_query(:configs, :query) AS q(query)
+        WHERE f.user_id = :userId
+          AND f.id IN (:ids)
+        """, nativeQuery = true)
+    List<Object[]> searchSnippets(@Param("userId") Long userId,
+                                  @Param("configs") String configs,
+                                  @Param("query") String query,
+                                  @Param("ids") Collection<Long> ids,
+                                  @Param("options") String options);
+
+    /**
+     * Writes an OCR result to the row as it is now. Jobs hold their FileMetadata for minutes;
+     * saving that copy would write back tags or a folder changed in the meantime.
+     * textConfig null keeps the current configuration (search_vector is regenerated either way).
+     *
+     * Returns the number of rows updated (0 if the file was deleted).
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE file_metadata
+        SET file_text = :text,
+            ocr_confidence = :confidence,
+            ocr_model_version = :modelVersion,
+            text_config = COALESCE(CAST(CAST(:textConfig AS text) AS regconfig), text_config),
+            update_timestamp = NOW()
+        WHERE id = :fileId AND user_id = :userId
+        """, nativeQuery = true)
+    int updateOcrResult(@Param("fileId") Long fileId,
+                        @Param("userId") Long userId,
+                        @Param("text") String text,
+                        @Param("confidence") Float confidence,
+                        @Param("modelVersion") String modelVersion,
+                        @Param("textConfig") String textConfig);
+
+    /**
+     * Records the embedding model of the file's chunks, touching no other column.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE file_metadata
+        SET embedding_model_version = :modelVersion,
+            update_timestamp = NOW()
+        WHERE id = :fileId AND user_id = :userId
+        """, nativeQuery = true)
+    int updateEmbeddingModelVersion(@Param("fileId") Long fileId,
+                                    @Param("userId") Long userId,
+                                    @Param("modelVersion") String modelVersion);
+}
@@ -0,0 +1,75 @@
+package org.ddamme.database.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes connections by transaction type: read-only transactions started in a ReplicaReads
+ * scope go to a usable replica (round-robin), everything else - writes, job claims,
+ * autocommit statements, repository calls outside a service transaction - to the primary.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: JpaTransactionManager acquires the
+ * connection before the read-only flag is bound to the thread.
+ *
+ * Metrics: db.routing.count tagged with target pool and reason
+ * (read_write, read_only, replica_unavailable).
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicas;
+    private final ReplicaLagMonitor lagMonitor;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter writes;
+    private final Counter fallbacks;
+    private final Map<String, Counter> replicaReads = new HashMap<>();
+
+    public ReadReplicaRoutingDataSource(List<String> replicas, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.lagMonitor = lagMonitor;
+        this.writes = routingCounter(meterRegistry, PRIMARY, "read_write");
+        this.fallbacks = routingCounter(meterRegistry, PRIMARY, "replica_unavailable");
+        for (String replica : this.replicas) {
+            replicaReads.put(replica, routingCounter(meterRegistry, replica, "read_only"));
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !ReplicaReads.isOpen()
+                || replicas.isEmpty()) {
+            writes.increment();
+            return PRIMARY;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            String replica = replicas.get((start + i) % replicas.size());
+            if (lagMonitor.isUsable(replica)) {
+                replicaReads.get(replica).increment();
+                return replica;
+            }
+        }
+
+        // All replicas lagging or down: stale reads are worse than a busier primary
+        fallbacks.increment();
+        return PRIMARY;
+    }
+
+    private static Counter routingCounter(MeterRegistry registry, String target, String reason) {
+        return Counter.builder("db.routing.count")
+                .description("Connections routed per target pool")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,106 @@
+package org.ddamme.database.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Probes replication lag on each replica and decides which replicas may serve reads.
+ *
+ * A replica is usable only after a successful probe reports lag within maxLag; a failed
+ * probe takes it out of rotation until the next successful one. Replicas start unusable,
+ * so reads go to the primary until the first probe completes.
+ *
+ * Metrics: db.replica.lag (seconds, -1 when down) and db.replica.usable (0/1), tagged with replica.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * Lag as seen by the replica. An idle primary stops advancing pg_last_xact_replay_timestamp(),
+     * so a replica that has replayed everything it received reports 0 instead of "time since last write".
+     */
+    static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM (NOW() - pg_last_xact_replay_timestamp())) * 1000, 0)
+            END::BIGINT
+            """;
+
+    private static final long DOWN = -1;
+
+    private final Map<String, JdbcTemplate> probes = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> lagMillis = new LinkedHashMap<>();
+    private final long maxLagMillis;
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+        this.maxLagMillis = maxLag.toMillis();
+        replicas.forEach((name, dataSource) -> {
+            JdbcTemplate probe = new JdbcTemplate(dataSource);
+            probe.setQueryTimeout(2);
+            probes.put(name, probe);
+
+            AtomicLong lag = new AtomicLong(DOWN);
+            lagMillis.put(name, lag);
+
+            Gauge.builder("db.replica.lag", lag, l -> l.get() < 0 ? -1 : l.get() / 1000.0)
+                    .description("Replication lag observed on the replica")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.usable", this, m -> m.isUsable(name) ? 1 : 0)
+                    .description("Whether the replica currently serves read-only transactions")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval:5000}")
+    public void checkLag() {
+        probes.forEach((name, probe) -> {
+            try {
+                Long lag = probe.queryForObject(LAG_QUERY, Long.class);
+                record(name, lag == null ? 0 : lag);
+            } catch (Exception e) {
+                if (lagMillis.get(name).get() != DOWN) {
+                    log.warn("Replica {} lag probe failed, routing reads to primary: {}", name, e.getMessage());
+                }
+                markDown(name);
+            }
+        });
+    }
+
+    public boolean isUsable(String replica) {
+        AtomicLong lag = lagMillis.get(replica);
+        if (lag == null) {
+            return false;
+        }
+        long current = lag.get();
+        return current != DOWN && current <= maxLagMillis;
+    }
+
+    public long lag(String replica, TimeUnit unit) {
+        return unit.convert(lagMillis.get(replica).get(), TimeUnit.MILLISECONDS);
+    }
+
+    void record(String replica, long lag) {
+        long previous = lagMillis.get(replica).getAndSet(Math.max(0, lag));
+        if (previous != DOWN && previous <= maxLagMillis && lag > maxLagMillis) {
+            log.warn("Replica {} lag {}ms exceeds {}ms, routing reads to primary", replica, lag, maxLagMillis);
+        }
+    }
+
+    void markDown(String replica) {
+        lagMillis.get(replica).set(DOWN);
+    }
+}
@@ -0,0 +1,51 @@
+package org.ddamme.database.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+
+/**
+ * Opens a ReplicaReads scope around the application's own {@code @Transactional(readOnly = true)}
+ * methods (method annotation first, then class), so their transactions may run on a replica.
+ *
+ * Ordered just outside the transaction interceptor: the scope must exist before the
+ * transaction starts, and is skipped when the method joins a caller's transaction.
+ * Spring Data repositories are not matched (their implementation lives outside org.ddamme),
+ * so a bare repository call always reads from the primary.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaReadAspect {
+
+    @Around("within(org.ddamme..*) && (@annotation(org.springframework.transaction.annotation.Transactional)"
+            + " || @within(org.springframework.transaction.annotation.Transactional))")
+    public Object aroundTransactional(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!readOnly(joinPoint)) {
+            return joinPoint.proceed();
+        }
+        try (ReplicaReads.Scope ignored = ReplicaReads.open()) {
+            return joinPoint.proceed();
+        }
+    }
+
+    private static boolean readOnly(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+        if (transactional == null) {
+            transactional = AnnotatedElementUtils.findMergedAnnotation(
+                    joinPoint.getTarget().getClass(), Transactional.class);
+        }
+        return transactional != null && transactional.readOnly();
+    }
+}
@@ -0,0 +1,70 @@
+package org.ddamme.database.routing;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Thread-bound opt-in to replica reads.
+ *
+ * ReadReplicaRoutingDataSource sends a read-only transaction to a replica only when it was
+ * started inside a scope opened here: around a service's outermost
+ * {@code @Transactional(readOnly = true)} method (ReplicaReadAspect) or by a template from
+ * readOnlyTemplate(). Every other read-only transaction stays on the primary - notably the
+ * one Spring Data's SimpleJpaRepository opens for a repository call made outside any
+ * transaction, where the caller (a worker re-reading the job it just claimed, a handler
+ * loading a file uploaded moments ago) may depend on writes a replica has not replayed yet.
+ *
+ * A scope is only opened when no transaction is active: work joining an existing
+ * transaction keeps that transaction's connection.
+ */
+public final class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> OPEN = new ThreadLocal<>();
+
+    private ReplicaReads() {
+    }
+
+    public static boolean isOpen() {
+        return OPEN.get() != null;
+    }
+
+    /**
+     * Allows replica reads until the returned scope is closed. A no-op inside another
+     * scope or an active transaction.
+     */
+    public static Scope open() {
+        if (isOpen() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return () -> {
+            };
+        }
+        OPEN.set(Boolean.TRUE);
+        return OPEN::remove;
+    }
+
+    /**
+     * A read-only TransactionTemplate whose transactions may run on a replica. A plain
+     * read-only TransactionTemplate runs on the primary.
+     */
+    public static TransactionTemplate readOnlyTemplate(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+                try (Scope ignored = open()) {
+                    return super.execute(action);
+                }
+            }
+        };
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /** Ends the scope on close. */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
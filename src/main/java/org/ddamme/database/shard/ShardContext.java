@@ -0,0 +1,109 @@
+package org.ddamme.database.shard;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound shard for the current unit of work.
+ *
+ * Bound per request by ShardContextFilter (from the authenticated user), per shard by
+ * ShardRouter.forEachShard() for background loops, and carried onto pool threads via wrap().
+ * Unbound threads use DEFAULT_SHARD, which also holds users, shard_directory and rate limit buckets.
+ *
+ * Must be bound before a transaction starts: the routing DataSource picks the shard when the
+ * transaction acquires its connection, and a transaction never spans shards.
+ */
+public final class ShardContext {
+
+    public static final int DEFAULT_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? DEFAULT_SHARD : shard;
+    }
+
+    /**
+     * Binds shard until the returned scope is closed; the previous binding is restored.
+     */
+    public static Scope open(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return () -> restore(previous);
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        try (Scope ignored = open(shard)) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Captures the caller's binding so work handed to an executor runs on the same shard.
+     */
+    public static Runnable wrap(Runnable runnable) {
+        Integer captured = CURRENT.get();
+        return () -> {
+            Integer previous = CURRENT.get();
+            restore(captured);
+            try {
+                runnable.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * View of a (routing) DataSource that always resolves to DEFAULT_SHARD, for global state
+     * accessed from inside user-bound work (e.g. rate limit buckets charged during upload).
+     */
+    public static DataSource pinnedToDefault(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Integer previous = CURRENT.get();
+                CURRENT.set(DEFAULT_SHARD);
+                try {
+                    return super.getConnection();
+                } finally {
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                Integer previous = CURRENT.get();
+                CURRENT.set(DEFAULT_SHARD);
+                try {
+                    return super.getConnection(username, password);
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+
+    private static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** Restores the previous binding on close. */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
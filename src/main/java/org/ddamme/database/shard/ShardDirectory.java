@@ -0,0 +1,202 @@
+package org.ddamme.database.shard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.exception.ResourceNotFoundException;
+import org.ddamme.exception.ShardMovingException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * user_id -> shard mapping (shard_directory on shard 0, see V7).
+ *
+ * Users are placed on first access: users that already have files on shard 0 (data from
+ * before sharding was enabled) stay there, everyone else is hashed across the placement
+ * shards. Indirection through the table is what makes rebalancing possible - ShardMover
+ * flags a user as moving, copies their rows and flips shard_id, queueing the deletion of
+ * the rows left behind (shard_move_cleanups).
+ *
+ * Lookups are cached per node for sharding.directory-cache-ttl.
+ */
+@Slf4j
+public class ShardDirectory {
+
+    record Entry(int shardId, boolean moving) {
+    }
+
+    /** A user's rows left on a shard by a completed move (shard_move_cleanups, V20) */
+    record Cleanup(long userId, int shardId) {
+    }
+
+    private final JdbcTemplate directory;
+    private final Map<Integer, JdbcTemplate> shards;
+    private final List<Integer> placement;
+    private final Duration cacheTtl;
+    private final Cache<Long, Entry> cache;
+
+    public ShardDirectory(Map<Integer, JdbcTemplate> shards, List<Integer> placement, Duration cacheTtl) {
+        this.shards = Map.copyOf(shards);
+        this.directory = shards.get(ShardContext.DEFAULT_SHARD);
+        this.placement = placement.isEmpty() ? shardIds() : List.copyOf(placement);
+        this.cacheTtl = cacheTtl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public List<Integer> shardIds() {
+        List<Integer> ids = new ArrayList<>(shards.keySet());
+        ids.sort(null);
+        return ids;
+    }
+
+    /**
+     * Shard holding the user's files, placing the user if needed.
+     *
+     * @throws ShardMovingException while the user is being moved
+     */
+    public int shardFor(long userId) {
+        Entry entry = cache.get(userId, this::loadOrPlace);
+        if (entry.moving()) {
+            throw new ShardMovingException(userId);
+        }
+        return entry.shardId();
+    }
+
+    /** Directory row, uncached and ignoring the moving flag. */
+    Optional<Entry> lookup(long userId) {
+        return directory.query(
+                        "SELECT shard_id, moving FROM shard_directory WHERE user_id = ?",
+                        (rs, i) -> new Entry(rs.getInt(1), rs.getBoolean(2)),
+                        userId)
+                .stream()
+                .findFirst();
+    }
+
+    void setMoving(long userId, boolean moving) {
+        directory.update("UPDATE shard_directory SET moving = ?, updated_at = NOW() WHERE user_id = ?", moving, userId);
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Points the user at shardId and, in the same statement, queues the deletion of their
+     * rows on fromShard. The deletion is due once every node's cached route to fromShard
+     * has expired (one cache TTL).
+     */
+    void reassign(long userId, int fromShard, int shardId) {
+        directory.update("""
+                WITH flipped AS (
+                    UPDATE shard_directory SET shard_id = ?, moving = FALSE, updated_at = NOW()
+                    WHERE user_id = ?
+                    RETURNING user_id
+                )
+                INSERT INTO shard_move_cleanups (user_id, shard_id, not_before)
+                SELECT user_id, ?, NOW() + make_interval(secs => ?) FROM flipped
+                ON CONFLICT (user_id, shard_id) DO UPDATE
+                    SET not_before = EXCLUDED.not_before, attempts = 0, last_error = NULL
+                """, shardId, userId, fromShard, cacheTtl.toMillis() / 1000.0);
+        cache.invalidate(userId);
+    }
+
+    /** Whether rows of the user still wait for deletion on shardId */
+    boolean cleanupPending(long userId, int shardId) {
+        return Boolean.TRUE.equals(directory.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM shard_move_cleanups WHERE user_id = ? AND shard_id = ?)",
+                Boolean.class, userId, shardId));
+    }
+
+    /** Cleanups past their not_before, oldest first; never one for the shard a user is on now */
+    List<Cleanup> dueCleanups(int limit) {
+        return directory.query("""
+                        SELECT c.user_id, c.shard_id FROM shard_move_cleanups c
+                        WHERE c.not_before <= NOW()
+                          AND NOT EXISTS (SELECT 1 FROM shard_directory d
+                                          WHERE d.user_id = c.user_id AND d.shard_id = c.shard_id)
+                        ORDER BY c.not_before
+                        LIMIT ?
+                        """,
+                (rs, i) -> new Cleanup(rs.getLong(1), rs.getInt(2)),
+                limit);
+    }
+
+    void completeCleanup(Cleanup cleanup) {
+        directory.update("DELETE FROM shard_move_cleanups WHERE user_id = ? AND shard_id = ?",
+                cleanup.userId(), cleanup.shardId());
+    }
+
+    void failCleanup(Cleanup cleanup, String error) {
+        directory.update("""
+                UPDATE shard_move_cleanups SET attempts = attempts + 1, last_error = ?
+                WHERE user_id = ? AND shard_id = ?
+                """, error, cleanup.userId(), cleanup.shardId());
+    }
+
+    JdbcTemplate shard(int shardId) {
+        JdbcTemplate shard = shards.get(shardId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shardId);
+        }
+        return shard;
+    }
+
+    /**
+     * file_metadata/ai_jobs reference users(id), so shards other than 0 carry a stub row
+     * (no usable password - authentication always reads shard 0).
+     */
+    void ensureUserStub(int shardId, long userId) {
+        if (shardId == ShardContext.DEFAULT_SHARD) {
+            return;
+        }
+        Map<String, Object> user = directory.query(
+                        "SELECT username, email, role FROM users WHERE id = ?",
+                        (rs, i) -> Map.<String, Object>of(
+                                "username", rs.getString(1), "email", rs.getString(2), "role", rs.getString(3)),
+                        userId)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+
+        shard(shardId).update("""
+                INSERT INTO users (id, username, email, password, role)
+                VALUES (?, ?, ?, '!', ?)
+                ON CONFLICT (id) DO NOTHING
+                """, userId, user.get("username"), user.get("email"), user.get("role"));
+    }
+
+    private Entry loadOrPlace(long userId) {
+        Optional<Entry> existing = lookup(userId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        int shardId = place(userId);
+        ensureUserStub(shardId, userId);
+        // Another node may place the same user concurrently; the first insert wins
+        directory.update("""
+                INSERT INTO shard_directory (user_id, shard_id) VALUES (?, ?)
+                ON CONFLICT (user_id) DO NOTHING
+                """, userId, shardId);
+
+        Entry placed = lookup(userId).orElseThrow();
+        log.info("Placed user {} on shard {}", userId, placed.shardId());
+        return placed;
+    }
+
+    private int place(long userId) {
+        Boolean hasLegacyFiles = directory.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM file_metadata WHERE user_id = ?)", Boolean.class, userId);
+        if (Boolean.TRUE.equals(hasLegacyFiles)) {
+            return ShardContext.DEFAULT_SHARD;
+        }
+        // Fibonacci hashing spreads sequential ids evenly
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return placement.get(Math.floorMod(mixed >>> 32, placement.size()));
+    }
+}
@@ -0,0 +1,215 @@
+package org.ddamme.database.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Moves one user's file_metadata, file_embeddings and ai_jobs rows to another shard.
+ *
+ * Steps: flag the user as moving (requests get 503), wait for RUNNING jobs to finish, fence
+ * the user's rows on the source shard (V20: writes to them now fail), wait until every
+ * transaction that was writing on the source when the fence committed has ended, copy rows
+ * in id order (ids are globally unique, see ShardingConfig), then flip the directory entry.
+ * Requests admitted through a route cached before the flag cannot write behind the copy:
+ * they either finished before it started or hit the fence. A failure before the flip
+ * removes the partial copy, lifts the fence and unflags the user.
+ *
+ * The flip also queues the source rows for deletion (shard_move_cleanups). They are deleted
+ * together with the fence once every cached route has expired, retried every
+ * sharding.move-cleanup-interval until that succeeds.
+ *
+ * S3 objects are untouched: storage keys do not depend on the shard.
+ */
+@Slf4j
+public class ShardMover {
+
+    /** Tables holding per-user rows, in FK order */
+    static final List<String> USER_TABLES = List.of("file_metadata", "file_embeddings", "ai_jobs", "ai_jobs_history");
+
+    /** Cleanups handled per sweep */
+    static final int CLEANUP_BATCH = 100;
+
+    private static final Duration WRITER_POLL = Duration.ofMillis(200);
+
+    private final ShardDirectory directory;
+    private final Duration drain;
+    private final int batchSize;
+
+    public ShardMover(ShardDirectory directory, Duration drain, int batchSize) {
+        this.directory = directory;
+        this.drain = drain;
+        this.batchSize = batchSize;
+    }
+
+    public record MoveResult(long userId, int fromShard, int toShard, long filesMoved, long jobsMoved) {
+    }
+
+    public MoveResult move(long userId, int targetShard) {
+        ShardDirectory.Entry entry = directory.lookup(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User " + userId + " has not been placed on a shard"));
+        if (entry.moving()) {
+            throw new IllegalStateException("User " + userId + " is already being moved");
+        }
+        int sourceShard = entry.shardId();
+        if (sourceShard == targetShard) {
+            return new MoveResult(userId, sourceShard, targetShard, 0, 0);
+        }
+        if (directory.cleanupPending(userId, targetShard)) {
+            throw new IllegalStateException("Rows of user " + userId + " from an earlier move still wait"
+                    + " to be deleted on shard " + targetShard);
+        }
+
+        JdbcTemplate source = directory.shard(sourceShard);
+        JdbcTemplate target = directory.shard(targetShard);
+
+        directory.setMoving(userId, true);
+        long files;
+        long jobs;
+        try {
+            awaitRunningJobs(source, userId);
+            source.update("INSERT INTO shard_move_fences (user_id) VALUES (?) ON CONFLICT DO NOTHING", userId);
+            awaitWriters(source, userId);
+            directory.ensureUserStub(targetShard, userId);
+            files = copy(source, target, "file_metadata", userId);
+            copy(source, target, "file_embeddings", userId);
+            jobs = copy(source, target, "ai_jobs", userId);
+            jobs += copy(source, target, "ai_jobs_history", userId);
+            // Archived jobs keep their (file, type) slot; ai_jobs rows registered theirs via trigger
+            target.update("""
+                    INSERT INTO ai_job_keys (file_id, job_type, user_id, job_id)
+                    SELECT file_id, job_type, user_id, id FROM ai_jobs_history WHERE user_id = ?
+                    ON CONFLICT (file_id, job_type) DO NOTHING
+                    """, userId);
+            // Change stamps were re-issued by the target's triggers; a new epoch makes sync clients resync
+            target.update("""
+                    INSERT INTO file_sync_state (user_id, epoch) VALUES (?, ?)
+                    ON CONFLICT (user_id) DO UPDATE SET epoch = EXCLUDED.epoch, pruned_xid = NULL
+                    """, userId, System.currentTimeMillis());
+            directory.reassign(userId, sourceShard, targetShard);
+        } catch (RuntimeException e) {
+            log.error("Moving user {} from shard {} to {} failed, rolling back", userId, sourceShard, targetShard, e);
+            // Embeddings, ai_jobs, ai_jobs_history and ai_job_keys rows go with file_metadata (ON DELETE CASCADE)
+            target.update("DELETE FROM file_metadata WHERE user_id = ?", userId);
+            source.update("DELETE FROM shard_move_fences WHERE user_id = ?", userId);
+            directory.setMoving(userId, false);
+            throw e;
+        }
+
+        log.info("Moved user {} from shard {} to {}: {} files, {} jobs", userId, sourceShard, targetShard, files, jobs);
+        return new MoveResult(userId, sourceShard, targetShard, files, jobs);
+    }
+
+    /**
+     * Deletes the rows completed moves left on their source shards, with their fence, in
+     * one transaction per move. A failure is recorded and retried on the next sweep.
+     *
+     * @return moves cleaned up
+     */
+    @Scheduled(fixedDelayString = "${sharding.move-cleanup-interval:60000}")
+    public int cleanUpMovedRows() {
+        int cleaned = 0;
+        for (ShardDirectory.Cleanup cleanup : directory.dueCleanups(CLEANUP_BATCH)) {
+            try {
+                JdbcTemplate source = directory.shard(cleanup.shardId());
+                Integer files = new TransactionTemplate(new DataSourceTransactionManager(source.getDataSource()))
+                        .execute(status -> {
+                            source.update("DELETE FROM shard_move_fences WHERE user_id = ?", cleanup.userId());
+                            return source.update("DELETE FROM file_metadata WHERE user_id = ?", cleanup.userId());
+                        });
+                directory.completeCleanup(cleanup);
+                cleaned++;
+                log.info("Deleted {} moved files of user {} from shard {}", files, cleanup.userId(), cleanup.shardId());
+            } catch (RuntimeException e) {
+                log.warn("Deleting moved files of user {} from shard {} failed, will retry",
+                        cleanup.userId(), cleanup.shardId(), e);
+                directory.failCleanup(cleanup, e.getMessage());
+            }
+        }
+        return cleaned;
+    }
+
+    private void awaitRunningJobs(JdbcTemplate source, long userId) {
+        Instant deadline = Instant.now().plus(drain);
+        while (true) {
+            Integer running = source.queryForObject(
+                    "SELECT COUNT(*) FROM ai_jobs WHERE user_id = ? AND job_status = 'RUNNING'", Integer.class, userId);
+            if (running == null || running == 0) {
+                return;
+            }
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException(running + " jobs still running for user " + userId);
+            }
+            sleep(Duration.ofSeconds(1));
+        }
+    }
+
+    /**
+     * Waits until the transactions in progress on the source just after the fence committed
+     * have ended. A transaction writing the user's rows took its xid before it read the
+     * fence (V20), so it is either among these or saw the fence and failed.
+     */
+    private void awaitWriters(JdbcTemplate source, long userId) {
+        String fenced = source.queryForObject("SELECT pg_current_snapshot()::text", String.class);
+        Instant deadline = Instant.now().plus(drain);
+        while (true) {
+            Integer open = source.queryForObject("""
+                    SELECT COUNT(*) FROM pg_snapshot_xip(?::pg_snapshot) AS x(xid)
+                    WHERE pg_xact_status(x.xid) = 'in progress'
+                    """, Integer.class, fenced);
+            if (open == null || open == 0) {
+                return;
+            }
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException(open + " transactions still open on the source shard of user " + userId);
+            }
+            sleep(WRITER_POLL);
+        }
+    }
+
+    /**
+     * Keyset-batched copy via json_agg / json_populate_recordset, so enums, arrays and JSONB
+     * round-trip without per-type mapping. Generated columns (search_vector) are recomputed.
+     */
+    private long copy(JdbcTemplate source, JdbcTemplate target, String table, long userId) {
+        String columns = String.join(", ", target.queryForList("""
+                SELECT column_name FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = ? AND is_generated = 'NEVER'
+                ORDER BY ordinal_position
+                """, String.class, table));
+
+        long lastId = 0;
+        long copied = 0;
+        while (true) {
+            Object[] batch = source.queryForObject(
+                    "SELECT json_agg(t ORDER BY t.id)::text, MAX(t.id), COUNT(*) FROM "
+                            + "(SELECT * FROM " + table + " WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?) t",
+                    (rs, i) -> new Object[]{rs.getString(1), rs.getLong(2), rs.getLong(3)},
+                    userId, lastId, batchSize);
+            long rows = (Long) batch[2];
+            if (rows == 0) {
+                return copied;
+            }
+
+            target.update("INSERT INTO " + table + " (" + columns + ") SELECT " + columns
+                    + " FROM json_populate_recordset(NULL::" + table + ", ?::json)", batch[0]);
+            copied += rows;
+            lastId = (Long) batch[1];
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while draining shard move", e);
+        }
+    }
+}
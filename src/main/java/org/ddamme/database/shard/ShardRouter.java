@@ -0,0 +1,51 @@
+package org.ddamme.database.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Entry point for shard-aware code. With sharding disabled there is a single shard 0
+ * and every call degenerates to running inline, so callers need no special casing.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+
+    private static final List<Integer> SINGLE_SHARD = List.of(ShardContext.DEFAULT_SHARD);
+
+    private final ShardDirectory directory;
+
+    public ShardRouter(ObjectProvider<ShardDirectory> directory) {
+        this.directory = directory.getIfAvailable();
+    }
+
+    public boolean isSharded() {
+        return directory != null;
+    }
+
+    public List<Integer> shardIds() {
+        return directory == null ? SINGLE_SHARD : directory.shardIds();
+    }
+
+    public int shardFor(long userId) {
+        return directory == null ? ShardContext.DEFAULT_SHARD : directory.shardFor(userId);
+    }
+
+    /**
+     * Runs action once per shard with that shard bound. A failing shard is logged and
+     * skipped so one unavailable database doesn't stall background work on the others.
+     */
+    public void forEachShard(String task, IntConsumer action) {
+        for (int shardId : shardIds()) {
+            try (ShardContext.Scope ignored = ShardContext.open(shardId)) {
+                action.accept(shardId);
+            } catch (RuntimeException e) {
+                log.error("{} failed on shard {}", task, shardId, e);
+            }
+        }
+    }
+}
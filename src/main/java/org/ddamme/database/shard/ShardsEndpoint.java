@@ -0,0 +1,119 @@
+package org.ddamme.database.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Operator endpoint: /actuator/shards shows users per shard, POST starts moving a user and
+ * returns a move id, /actuator/shards/{moveId} reports its progress.
+ * Moves run on a single background thread so the actuator request does not wait out the
+ * copy and drain. Not exposed by default - add "shards" to management.endpoints.web.exposure.include.
+ */
+@Slf4j
+@Endpoint(id = "shards")
+public class ShardsEndpoint implements DisposableBean {
+
+    /** Finished moves kept for polling; older statuses are dropped */
+    static final int MAX_TRACKED_MOVES = 100;
+
+    public enum MoveState { QUEUED, RUNNING, DONE, FAILED }
+
+    public record MoveStatus(String moveId, long userId, int targetShard, MoveState state,
+                             Instant startedAt, Instant finishedAt,
+                             ShardMover.MoveResult result, String error) {
+    }
+
+    private final ShardDirectory directory;
+    private final ShardMover mover;
+    private final ExecutorService moveExecutor;
+    private final Map<String, MoveStatus> moves = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MoveStatus> eldest) {
+            return size() > MAX_TRACKED_MOVES && isFinished(eldest.getValue());
+        }
+    });
+
+    public ShardsEndpoint(ShardDirectory directory, ShardMover mover) {
+        this(directory, mover, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "shard-move");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ShardsEndpoint(ShardDirectory directory, ShardMover mover, ExecutorService moveExecutor) {
+        this.directory = directory;
+        this.mover = mover;
+        this.moveExecutor = moveExecutor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        Map<String, Object> usersPerShard = new LinkedHashMap<>();
+        for (int shardId : directory.shardIds()) {
+            usersPerShard.put(String.valueOf(shardId), 0L);
+        }
+        directory.shard(ShardContext.DEFAULT_SHARD).query(
+                "SELECT shard_id, COUNT(*) FROM shard_directory GROUP BY shard_id",
+                rs -> {
+                    usersPerShard.put(String.valueOf(rs.getInt(1)), rs.getLong(2));
+                });
+        return Map.of("usersPerShard", usersPerShard);
+    }
+
+    @ReadOperation
+    public MoveStatus moveStatus(@Selector String moveId) {
+        // null makes the actuator answer 404
+        return moves.get(moveId);
+    }
+
+    @WriteOperation
+    public MoveStatus move(long userId, int targetShard) {
+        String moveId = UUID.randomUUID().toString();
+        MoveStatus queued = new MoveStatus(moveId, userId, targetShard, MoveState.QUEUED,
+                null, null, null, null);
+        moves.put(moveId, queued);
+        moveExecutor.execute(() -> run(queued));
+        return queued;
+    }
+
+    private void run(MoveStatus queued) {
+        MoveStatus running = new MoveStatus(queued.moveId(), queued.userId(), queued.targetShard(),
+                MoveState.RUNNING, Instant.now(), null, null, null);
+        moves.put(running.moveId(), running);
+        MoveStatus finished;
+        try {
+            ShardMover.MoveResult result = mover.move(running.userId(), running.targetShard());
+            finished = new MoveStatus(running.moveId(), running.userId(), running.targetShard(), MoveState.DONE,
+                    running.startedAt(), Instant.now(), result, null);
+        } catch (RuntimeException e) {
+            log.error("Shard move {} of user {} to shard {} failed",
+                    running.moveId(), running.userId(), running.targetShard(), e);
+            finished = new MoveStatus(running.moveId(), running.userId(), running.targetShard(), MoveState.FAILED,
+                    running.startedAt(), Instant.now(), null, e.getMessage());
+        }
+        moves.put(running.moveId(), finished);
+    }
+
+    private static boolean isFinished(MoveStatus status) {
+        return status.state() == MoveState.DONE || status.state() == MoveState.FAILED;
+    }
+
+    @Override
+    public void destroy() {
+        // Interrupting the drain makes ShardMover roll back a move that has not flipped yet
+        moveExecutor.shutdownNow();
+    }
+}
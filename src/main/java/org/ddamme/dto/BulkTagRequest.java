@@ -0,0 +1,25 @@
+package org.ddamme.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkTagRequest {
+
+    @NotEmpty(message = "fileIds is required")
+    @Size(max = 1000, message = "At most 1000 files per request")
+    private List<Long> fileIds;
+
+    /** Tags to add (applied before remove) */
+    private List<String> add;
+
+    /** Tags to remove */
+    private List<String> remove;
+}
@@ -0,0 +1,22 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileChangeDto {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private Type type;
+    private Long fileId;
+    /** Current state of the file; null for DELETED */
+    private FileListResponse file;
+}
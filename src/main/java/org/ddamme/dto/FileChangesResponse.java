@@ -0,0 +1,21 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileChangesResponse {
+    /** In commit order; apply in sequence. Updated files appear once, in their latest state */
+    private List<FileChangeDto> changes;
+    /** Pass as since on the next call; always present */
+    private String cursor;
+    /** More changes are available right away */
+    private boolean hasMore;
+}
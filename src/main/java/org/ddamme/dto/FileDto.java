@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import org.ddamme.database.model.FileMetadata;
 
 import java.time.Instant;
+import java.util.List;
 
 @Data
 @Builder
@@ -17,6 +18,8 @@ public class FileDto {
     private String originalFilename;
     private long size;
     private String contentType;
+    private String folderPath;
+    private List<String> tags;
     private Instant uploadTimestamp;
     private Instant updateTimestamp;
 
@@ -26,6 +29,8 @@ public class FileDto {
                 .originalFilename(metadata.getOriginalFilename())
                 .size(metadata.getSize())
                 .contentType(metadata.getContentType())
+                .folderPath(metadata.getFolderPath())
+                .tags(metadata.getTags() == null ? List.of() : List.of(metadata.getTags()))
                 .uploadTimestamp(metadata.getUploadTimestamp())
                 .updateTimestamp(metadata.getUpdateTimestamp())
                 .build();
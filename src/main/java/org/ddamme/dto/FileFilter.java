@@ -0,0 +1,54 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Optional filters for listing files; bound from query parameters.
+ * All set filters must match (AND).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileFilter {
+
+    /** Files carrying all of these tags (repeat the parameter: ?tag=a&tag=b) */
+    private List<String> tag;
+
+    /** Exact content type ("application/pdf") or a family ("image/*") */
+    private String contentType;
+
+    /** Size in bytes, inclusive */
+    private Long minSize;
+
+    /** Size in bytes, inclusive */
+    private Long maxSize;
+
+    /** true: only files with extracted (OCR) text; false: only files without */
+    private Boolean hasText;
+
+    /** Uploaded at or after (ISO-8601) */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant uploadedAfter;
+
+    /** Uploaded before (ISO-8601, exclusive) */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant uploadedBefore;
+
+    public boolean isEmpty() {
+        return (tag == null || tag.isEmpty())
+                && (contentType == null || contentType.isBlank())
+                && minSize == null
+                && maxSize == null
+                && hasText == null
+                && uploadedAfter == null
+                && uploadedBefore == null;
+    }
+}
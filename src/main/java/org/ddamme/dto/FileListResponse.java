@@ -1,8 +1,10 @@
 package org.ddamme.dto;
 
 import lombok.*;
+import org.ddamme.database.model.FileMetadata;
 
 import java.time.Instant;
+import java.util.List;
 
 @Getter
 @Setter
@@ -14,5 +16,19 @@ public class FileListResponse {
     private String originalFilename;
     private long size;
     private String contentType;
+    private String folderPath;
+    private List<String> tags;
     private Instant uploadTimestamp;
+
+    public static FileListResponse from(FileMetadata file) {
+        return FileListResponse.builder()
+                .id(file.getId())
+                .originalFilename(file.getOriginalFilename())
+                .size(file.getSize())
+                .contentType(file.getContentType())
+                .folderPath(file.getFolderPath())
+                .tags(file.getTags() == null ? List.of() : List.of(file.getTags()))
+                .uploadTimestamp(file.getUploadTimestamp())
+                .build();
+    }
 }
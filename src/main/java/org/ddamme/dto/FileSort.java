@@ -0,0 +1,91 @@
+package org.ddamme.dto;
+
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.util.KeysetCursor;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Sort order of the file list. Every order ends with the file id as tie-breaker and is
+ * served by a (user_id, column, id) index (V12), scanned forwards or backwards.
+ */
+public record FileSort(Field field, boolean descending) {
+
+    public static final FileSort DEFAULT = new FileSort(Field.DATE, true);
+
+    public enum Field {
+        NAME("f.original_filename", false),
+        SIZE("f.size", true),
+        DATE("f.upload_timestamp", true);
+
+        private final String column;
+        private final boolean defaultDescending;
+
+        Field(String column, boolean defaultDescending) {
+            this.column = column;
+            this.defaultDescending = defaultDescending;
+        }
+
+        public String column() {
+            return column;
+        }
+
+        /** Sort key of a row as carried in a keyset cursor. */
+        public String cursorValue(FileListResponse row) {
+            return switch (this) {
+                case NAME -> row.getOriginalFilename();
+                case SIZE -> Long.toString(row.getSize());
+                case DATE -> row.getUploadTimestamp().toString();
+            };
+        }
+
+        /** Cursor sort key back to a JDBC parameter. */
+        public Object parameter(String cursorValue) {
+            return switch (this) {
+                case NAME -> cursorValue;
+                case SIZE -> KeysetCursor.longValue(cursorValue);
+                case DATE -> {
+                    try {
+                        yield Timestamp.from(Instant.parse(cursorValue));
+                    } catch (DateTimeParseException e) {
+                        throw new InvalidRequestException("Invalid cursor", e);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Parses the sort query parameters. Without a direction, names sort ascending and
+     * sizes and dates descending.
+     *
+     * @throws InvalidRequestException for an unknown field or direction
+     */
+    public static FileSort of(String field, String direction) {
+        if (field == null || field.isBlank()) {
+            return DEFAULT;
+        }
+        Field parsed;
+        try {
+            parsed = Field.valueOf(field.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("sort must be one of name, size, date");
+        }
+        if (direction == null || direction.isBlank()) {
+            return new FileSort(parsed, parsed.defaultDescending);
+        }
+        return switch (direction.strip().toLowerCase(Locale.ROOT)) {
+            case "asc" -> new FileSort(parsed, false);
+            case "desc" -> new FileSort(parsed, true);
+            default -> throw new InvalidRequestException("direction must be asc or desc");
+        };
+    }
+
+    /** Identifies the order inside a cursor, so a cursor cannot be replayed under another sort. */
+    public String token() {
+        return field.name() + (descending ? ":desc" : ":asc");
+    }
+}
@@ -0,0 +1,17 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilenameSuggestionDto {
+    private Long fileId;
+    private String filename;
+    private String folderPath;
+    private String contentType;
+}
@@ -0,0 +1,28 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A folder with rollups over its whole subtree.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderDto {
+
+    /** Canonical path, e.g. "/reports/2025/" */
+    private String path;
+
+    /** Last path segment ("2025"); empty for the root folder */
+    private String name;
+
+    /** Files in this folder and all folders below it */
+    private long fileCount;
+
+    /** Bytes in this folder and all folders below it */
+    private long totalSize;
+}
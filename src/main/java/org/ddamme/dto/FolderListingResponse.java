@@ -0,0 +1,30 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderListingResponse {
+
+    /** Canonical path of the listed folder */
+    private String path;
+
+    /** Direct subfolders with subtree rollups (first page only; null on later pages) */
+    private List<FolderDto> folders;
+
+    /** Files in the current page */
+    private List<FileListResponse> files;
+
+    /** Opaque cursor for the next page; null when there are no more files */
+    private String nextCursor;
+
+    /** True if more files available beyond current page */
+    private boolean hasMore;
+}
@@ -0,0 +1,18 @@
+package org.ddamme.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FolderMoveRequest {
+
+    @NotBlank(message = "Source folder is required")
+    private String from;
+
+    @NotBlank(message = "Target folder is required")
+    private String to;
+}
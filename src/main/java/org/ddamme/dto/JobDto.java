@@ -0,0 +1,60 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.AiJobHistory;
+import org.ddamme.database.model.JobStatus;
+import org.ddamme.database.model.JobType;
+
+import java.time.Instant;
+
+/**
+ * AI job as seen by callers, whether it is still in the queue (ai_jobs) or has been
+ * moved to ai_jobs_history.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobDto {
+    private Long id;
+    private Long fileId;
+    private JobType jobType;
+    private JobStatus jobStatus;
+    private int attempts;
+    private String errorMessage;
+    private Instant createdAt;
+    private Instant completedAt;
+    private boolean archived;
+
+    public static JobDto from(AiJob job) {
+        return JobDto.builder()
+                .id(job.getId())
+                .fileId(job.getFileId())
+                .jobType(job.getJobType())
+                .jobStatus(job.getJobStatus())
+                .attempts(job.getAttempts())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .archived(false)
+                .build();
+    }
+
+    public static JobDto from(AiJobHistory job) {
+        return JobDto.builder()
+                .id(job.getId())
+                .fileId(job.getFileId())
+                .jobType(job.getJobType())
+                .jobStatus(job.getJobStatus())
+                .attempts(job.getAttempts())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .archived(true)
+                .build();
+    }
+}
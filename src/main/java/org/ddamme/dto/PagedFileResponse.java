@@ -11,9 +11,12 @@ import java.util.List;
 @NoArgsConstructor
 public class PagedFileResponse {
     private List<FileListResponse> files;
-    private int currentPage;
-    private int totalPages;
-    private long totalElements;
+    /** Null when paging by cursor: positions and totals are not computed for keyset pages */
+    private Integer currentPage;
+    private Integer totalPages;
+    private Long totalElements;
     private boolean hasNext;
     private boolean hasPrevious;
+    /** Pass as cursor to fetch the next page in the same sort order; null on the last page */
+    private String nextCursor;
 }
@@ -0,0 +1,48 @@
+package org.ddamme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Facet counts over a search's whole match set, for drill-down filters.
+ *
+ * Buckets within a facet do not overlap. contentType values are families ("image/*")
+ * and size/uploaded buckets line up with the file list filters (contentType, minSize/maxSize,
+ * uploadedAfter/uploadedBefore). Buckets without files are omitted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFacets {
+
+    /** Files matching the query */
+    private long total;
+
+    /** True when counts were extrapolated from a sample of the matches (large match sets) */
+    private boolean approximate;
+
+    /** By content-type family: image/*, application/*, text/*, ... (unknown when not set) */
+    private List<Bucket> contentType;
+
+    /** By upload age: past_week, past_month, past_year, older */
+    private List<Bucket> uploaded;
+
+    /** By OCR confidence: high (>= 0.85), medium (>= 0.6), low, none (not OCR'd) */
+    private List<Bucket> ocrConfidence;
+
+    /** By size: under_100kb, 100kb_1mb, 1mb_10mb, over_10mb */
+    private List<Bucket> size;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private String value;
+        private long count;
+    }
+}
@@ -1,5 +1,6 @@
 package org.ddamme.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -42,11 +43,42 @@ public class SearchResponse {
     
     /** ID of last result (for next page cursor, tie-breaker) */
     private Long nextId;
+
+    /**
+     * Index snapshot the page ran on, to pass back as snapshot with the cursor (Lucene
+     * engine only; its ranks shift with every write)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextSnapshot;
     
     /** True if more results available beyond current page */
     private boolean hasMore;
     
     /** Total results returned in this page */
     private int count;
+
+    /**
+     * The query with unknown words replaced by close words from the user's files, when the
+     * query as typed found nothing and such words exist
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String didYouMean;
+
+    /**
+     * True when the query as typed found nothing and results come from the typo-tolerant
+     * fallback (didYouMean, else similar filenames). Such a page has no cursor.
+     */
+    private boolean fuzzy;
+
+    /**
+     * Hybrid search legs ("lexical", "semantic") that failed or timed out; the results come
+     * from the other leg alone
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> degraded;
+
+    /** Facet counts over all matches; first page only, when requested, never on fuzzy pages */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchFacets facets;
 }
 
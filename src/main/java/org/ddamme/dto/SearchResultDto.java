@@ -1,11 +1,13 @@
 package org.ddamme.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Data transfer object for search results.
@@ -81,10 +83,20 @@ public class SearchResultDto {
      */
     private String snippet;
 
+    /**
+     * Match positions in snippet (snippet=offsets only): [start, end) in UTF-16 code units,
+     * the same indices as JavaScript strings. The snippet is then plain text, not HTML.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Highlight> highlights;
+
     /** OCR confidence score (0-1) */
     private Float ocrConfidence;
 
     /** Search relevance rank (higher = more relevant) */
     private Double rank;
+
+    public record Highlight(int start, int end) {
+    }
 }
 
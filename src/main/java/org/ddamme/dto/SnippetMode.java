@@ -0,0 +1,61 @@
+package org.ddamme.dto;
+
+import org.ddamme.exception.InvalidRequestException;
+
+import java.util.Locale;
+
+/**
+ * How search results carry their text snippet.
+ *
+ * - HTML: ts_headline fragments with matches wrapped in {@code <mark>} (the default)
+ * - OFFSETS: the same fragments as plain text plus match offsets, for clients that highlight locally
+ * - NONE: no snippet; skips ts_headline entirely
+ */
+public enum SnippetMode {
+    HTML("<mark>", "</mark>"),
+    OFFSETS(SnippetMode.MATCH_START, SnippetMode.MATCH_END),
+    NONE(null, null);
+
+    /** Match markers for OFFSETS; the snippet query strips them from the source text first */
+    public static final String MATCH_START = "\u0002";
+    public static final String MATCH_END = "\u0003";
+
+    private static final String FRAGMENTS = "MaxFragments=2,MinWords=8,MaxWords=25,ShortWord=3,HighlightAll=FALSE";
+
+    private final String startSel;
+    private final String stopSel;
+
+    SnippetMode(String startSel, String stopSel) {
+        this.startSel = startSel;
+        this.stopSel = stopSel;
+    }
+
+    /** Opening match marker, or null for NONE */
+    public String matchStart() {
+        return startSel;
+    }
+
+    /** Closing match marker, or null for NONE */
+    public String matchEnd() {
+        return stopSel;
+    }
+
+    /** ts_headline options string, or null for NONE */
+    public String headlineOptions() {
+        return startSel == null ? null : "StartSel=" + startSel + ",StopSel=" + stopSel + "," + FRAGMENTS;
+    }
+
+    /**
+     * @throws InvalidRequestException for an unknown mode
+     */
+    public static SnippetMode of(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return HTML;
+        }
+        try {
+            return valueOf(mode.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("snippet must be one of html, offsets, none");
+        }
+    }
+}
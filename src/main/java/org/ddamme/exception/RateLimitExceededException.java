@@ -0,0 +1,25 @@
+package org.ddamme.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a cost-weighted budget is exhausted inside a service
+ * (e.g. OCR pages on upload). Returns HTTP 429 Too Many Requests.
+ */
+@Getter
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class RateLimitExceededException extends RuntimeException {
+
+    private final String routeKey;
+    private final int limit;
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String routeKey, int limit, long retryAfterSeconds) {
+        super("Rate limit exceeded for " + routeKey);
+        this.routeKey = routeKey;
+        this.limit = limit;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,20 @@
+package org.ddamme.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The user's data is being moved between shards; requests are refused until the move completes.
+ */
+@Getter
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ShardMovingException extends RuntimeException {
+
+    private final long userId;
+
+    public ShardMovingException(long userId) {
+        super("Your files are being migrated, please retry shortly");
+        this.userId = userId;
+    }
+}
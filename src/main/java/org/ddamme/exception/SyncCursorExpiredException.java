@@ -0,0 +1,17 @@
+package org.ddamme.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A delta-sync cursor can no longer be continued (tombstones pruned, or the user's data
+ * was re-created on another shard). The client must resync from scratch.
+ * Returns HTTP 410 Gone.
+ */
+@ResponseStatus(HttpStatus.GONE)
+public class SyncCursorExpiredException extends RuntimeException {
+
+    public SyncCursorExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,43 @@
+package org.ddamme.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adaptive in-flight request limits per route class (upload, search, list, auth).
+ * Prefix: security.concurrency
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "security.concurrency")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private Duration retryAfter = Duration.ofSeconds(1); // sent with 503 when shedding
+    private String message = "Server busy, please retry";
+    private Map<String, ClassLimit> classes = new HashMap<>(); // keyed by route class
+
+    @Data
+    public static class ClassLimit {
+        /** Starting in-flight limit before any latency has been observed */
+        private int initialLimit = 20;
+
+        /** Floor so a latency spike never sheds all traffic */
+        private int minLimit = 2;
+
+        /** Ceiling, e.g. bounded by Hikari pool size and Tomcat threads */
+        private int maxLimit = 200;
+
+        /** Weight of each new limit estimate (0-1); lower = slower, steadier adaptation */
+        private double smoothing = 0.2;
+
+        /** Latency inflation tolerated before the limit backs off (1.5 = 50% over baseline) */
+        private double rttTolerance = 1.5;
+    }
+}
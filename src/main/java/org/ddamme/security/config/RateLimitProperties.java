@@ -6,6 +6,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -14,9 +16,66 @@ import java.util.Set;
 @Component
 @ConfigurationProperties(prefix = "security.ratelimit")
 public class RateLimitProperties {
-    private Map<String, Integer> perMinute; // e.g. upload=10, download=120
+    private Map<String, Integer> perMinute; // e.g. upload=10, download=120 (tokens per minute)
+    private Map<String, Map<String, Integer>> tiers = Map.of(); // e.g. admin.upload=100 overrides perMinute
+    private List<Route> routes = new ArrayList<>(); // empty = built-in upload/download/login routes
     private String message = "Too many requests";
     private boolean sendRetryAfter = true;
     private Duration retryAfter = Duration.ofSeconds(30);
     private Set<String> exemptPrincipals = Set.of();
+    private String backend = "memory"; // memory (per-JVM) | postgres (shared across replicas)
+    private Postgres postgres = new Postgres();
+
+    /**
+     * A rate-limited route. Every route matching a request is charged, so one request
+     * can consume from several budgets (e.g. upload count and upload bytes).
+     */
+    @Data
+    public static class Route {
+        /** Budget key looked up in perMinute/tiers (e.g. "upload", "upload-bytes") */
+        private String name;
+
+        /** HTTP methods to match; empty matches any method */
+        private Set<String> methods = Set.of();
+
+        /** Spring PathPattern, e.g. /api/v1/files/download/** */
+        private String pattern;
+
+        /** How many tokens a matching request costs */
+        private Cost cost = Cost.FIXED;
+
+        /** Tokens per request for FIXED cost, and the minimum charge for CONTENT_LENGTH */
+        private long tokens = 1;
+
+        /** Request bytes per token for CONTENT_LENGTH cost */
+        private long bytesPerToken = 64 * 1024;
+
+        public Route() {
+        }
+
+        public Route(String name, Set<String> methods, String pattern) {
+            this.name = name;
+            this.methods = methods;
+            this.pattern = pattern;
+        }
+    }
+
+    public enum Cost {
+        /** Fixed number of tokens per request */
+        FIXED,
+        /** ceil(Content-Length / bytesPerToken) tokens per request */
+        CONTENT_LENGTH
+    }
+
+    @Data
+    public static class Postgres {
+        /** Tokens a replica may consume locally before syncing with the shared bucket */
+        private long maxUnsynchronizedTokens = 3;
+
+        /** Maximum time local consumption may stay unsynchronized */
+        private Duration maxUnsynchronizedTimeout = Duration.ofMillis(500);
+
+        /** Idle buckets older than this are purged (must exceed the longest refill window) */
+        private Duration idleBucketTtl = Duration.ofHours(1);
+    }
 }
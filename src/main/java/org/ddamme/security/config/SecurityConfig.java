@@ -3,6 +3,7 @@ package org.ddamme.security.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.ddamme.database.shard.ShardRouter;
 import org.ddamme.dto.ErrorResponse;
 import org.ddamme.security.filter.*;
 import org.springframework.context.annotation.Bean;
@@ -36,7 +37,9 @@ public class SecurityConfig {
     private final RequestCorrelationFilter requestCorrelationFilter;
     private final CacheControlFilter cacheControlFilter;
     private final RateLimitFilter rateLimitFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
     private final AccessLogFilter accessLogFilter;
+    private final ShardRouter shardRouter;
     private final Environment environment;
 
     @Bean
@@ -141,8 +144,12 @@ public class SecurityConfig {
                 .addFilterBefore(requestCorrelationFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(cacheControlFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Shed overload before JWT parsing loads the user from the DB
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class)
                 .addFilterAfter(accessLogFilter, JwtAuthenticationFilter.class)
-                .addFilterAfter(rateLimitFilter, AccessLogFilter.class);
+                .addFilterAfter(rateLimitFilter, AccessLogFilter.class)
+                // Route the rest of the request to the user's shard (no-op when unsharded)
+                .addFilterAfter(new ShardContextFilter(shardRouter, objectMapper), RateLimitFilter.class);
 
         return http.build();
     }
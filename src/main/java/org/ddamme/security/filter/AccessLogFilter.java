@@ -1,5 +1,7 @@
 package org.ddamme.security.filter;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -58,36 +60,71 @@ public class AccessLogFilter extends OncePerRequestFilter {
         try {
             chain.doFilter(request, response);
         } finally {
-            long latencyMs = Duration.between(start, Instant.now()).toMillis();
-            int status = response.getStatus();
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String user = (auth != null && auth.isAuthenticated()) ? auth.getName() : "anonymous";
 
-            // Populate MDC for logstash encoder to emit as structured fields
-            putMdc("method", method);
-            putMdc("path", path);
-            putMdc("status", String.valueOf(status));
-            putMdc("latency_ms", String.valueOf(latencyMs));
-            putMdc("user", user);
-            putMdc("user_agent", userAgent);
-            putMdc("remote_addr", remoteAddr);
-            if (requestId != null) putMdc("request_id", requestId);
-
-            try {
-                if (!skip) {
-                    ACCESS.info("access");
+            if (!skip) {
+                if (request.isAsyncStarted()) {
+                    // Bulkheaded endpoints finish on another thread; log once the response is complete
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            logAccess(start, response, method, path, user, userAgent, remoteAddr, requestId);
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onError(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {
+                        }
+                    });
+                } else {
+                    logAccess(start, response, method, path, user, userAgent, remoteAddr, requestId);
                 }
-            } finally {
-                // Clean up to avoid MDC bleed between threads
-                MDC.remove("method");
-                MDC.remove("path");
-                MDC.remove("status");
-                MDC.remove("latency_ms");
-                MDC.remove("user");
-                MDC.remove("user_agent");
-                MDC.remove("remote_addr");
-                MDC.remove("request_id");
             }
         }
     }
+
+    private static void logAccess(
+            Instant start,
+            HttpServletResponse response,
+            String method,
+            String path,
+            String user,
+            String userAgent,
+            String remoteAddr,
+            String requestId) {
+        long latencyMs = Duration.between(start, Instant.now()).toMillis();
+        int status = response.getStatus();
+
+        // Populate MDC for logstash encoder to emit as structured fields
+        putMdc("method", method);
+        putMdc("path", path);
+        putMdc("status", String.valueOf(status));
+        putMdc("latency_ms", String.valueOf(latencyMs));
+        putMdc("user", user);
+        putMdc("user_agent", userAgent);
+        putMdc("remote_addr", remoteAddr);
+        if (requestId != null) putMdc("request_id", requestId);
+
+        try {
+            ACCESS.info("access");
+        } finally {
+            // Clean up to avoid MDC bleed between threads
+            MDC.remove("method");
+            MDC.remove("path");
+            MDC.remove("status");
+            MDC.remove("latency_ms");
+            MDC.remove("user");
+            MDC.remove("user_agent");
+            MDC.remove("remote_addr");
+            MDC.remove("request_id");
+        }
+    }
 }
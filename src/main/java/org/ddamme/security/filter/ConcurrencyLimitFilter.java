@@ -0,0 +1,175 @@
+package org.ddamme.security.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.ddamme.dto.ErrorResponse;
+import org.ddamme.metrics.Metrics;
+import org.ddamme.security.config.ConcurrencyLimitProperties;
+import org.ddamme.security.ratelimit.AdaptiveConcurrencyLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load shedding: caps in-flight requests per route class with a latency-adaptive limit.
+ * <p>
+ * Runs before JWT authentication so shed requests never touch Hikari or S3. Requests over
+ * the limit get 503 + Retry-After immediately instead of queueing on Tomcat threads behind
+ * the connection pool, so under burst load a few requests fail fast and the rest stay fast.
+ * <p>
+ * Metrics: http.concurrency.limit / http.concurrency.inflight gauges and
+ * http.concurrency.rejects counter, all tagged with route_class.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final List<String> ROUTE_CLASSES = List.of("upload", "search", "list", "auth");
+
+    private final ConcurrencyLimitProperties props;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new HashMap<>();
+
+    public ConcurrencyLimitFilter(
+            ConcurrencyLimitProperties props, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        for (String routeClass : ROUTE_CLASSES) {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                    props.getClasses().getOrDefault(routeClass, new ConcurrencyLimitProperties.ClassLimit()));
+            limiters.put(routeClass, limiter);
+
+            Gauge.builder("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive in-flight request limit")
+                    .tag("route_class", routeClass)
+                    .register(meterRegistry);
+            Gauge.builder("http.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Requests currently in flight")
+                    .tag("route_class", routeClass)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String routeClass = props.isEnabled() ? classify(request.getMethod(), request.getRequestURI()) : null;
+        if (routeClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = limiters.get(routeClass);
+        if (!limiter.tryAcquire()) {
+            Metrics.increment(meterRegistry, "http.concurrency.rejects", "route_class", routeClass);
+            reject(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = false;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            dropped = true;
+            throw e;
+        } finally {
+            if (!dropped && request.isAsyncStarted()) {
+                // Work continues on a bulkhead pool; hold the slot until the response completes
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(limiter, start, response));
+            } else {
+                dropped = dropped || response.getStatus() >= 500;
+                limiter.release(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+
+    /** Releases the limiter slot exactly once when an async request completes, errors or times out. */
+    private static final class ReleaseOnCompletion implements AsyncListener {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long start;
+        private final HttpServletResponse response;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnCompletion(AdaptiveConcurrencyLimiter limiter, long start, HttpServletResponse response) {
+            this.limiter = limiter;
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+
+    // Route classes share a limit because they share a bottleneck (S3 + Hikari, FTS CPU, bcrypt)
+    static String classify(String method, String path) {
+        if ("POST".equals(method) && path.equals("/api/v1/files/upload")) return "upload";
+        if (path.startsWith("/api/v1/search/")) return "search";
+        if ("GET".equals(method) && path.equals("/api/v1/files")) return "list";
+        if (path.startsWith("/api/v1/auth/")) return "auth";
+        return null;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, props.getRetryAfter().toSeconds())));
+        response.setContentType("application/json");
+
+        if ("HEAD".equals(request.getMethod())) {
+            response.setContentLength(0);
+            return;
+        }
+
+        var errorResponse =
+                new ErrorResponse(
+                        Instant.now(),
+                        503,
+                        "Service Unavailable",
+                        props.getMessage(),
+                        "uri=" + request.getRequestURI());
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+}
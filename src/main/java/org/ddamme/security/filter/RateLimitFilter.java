@@ -1,33 +1,32 @@
 package org.ddamme.security.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.ddamme.dto.ErrorResponse;
 import org.ddamme.metrics.Metrics;
 import org.ddamme.security.config.RateLimitProperties;
+import org.ddamme.security.ratelimit.RateLimitRoutes;
+import org.ddamme.security.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.Objects;
+import java.util.List;
+import java.util.Locale;
 
 @Component
-@RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
 
     // optional: toggle high-cardinality tag in non-prod only
@@ -36,12 +35,21 @@ public class RateLimitFilter extends OncePerRequestFilter {
     private final RateLimitProperties props;
     private final ObjectMapper objectMapper;
     private final MeterRegistry meterRegistry;
-    private final Cache<String, Bucket> cache =
-            Caffeine.newBuilder()
-                    .maximumSize(50_000) // Rule of thumb: active_principals_per_30min * route_keys
-                    // E.g., 15k active users/IPs * 2 routes = 30k buckets
-                    .expireAfterAccess(Duration.ofMinutes(30))
-                    .build();
+    private final RateLimiter rateLimiter;
+    private final RateLimitRoutes routes; // compiled once from security.ratelimit.routes
+
+    public RateLimitFilter(
+            RateLimitProperties props,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            RateLimiter rateLimiter,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.routes = RateLimitRoutes.compile(props.getRoutes(), maxRequestSize.toBytes());
+    }
 
     @Override
     protected void doFilterInternal(
@@ -50,56 +58,50 @@ public class RateLimitFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain)
             throws ServletException, IOException {
 
-        String routeKey = matchRouteKey(request.getMethod(), request.getRequestURI());
-        if (routeKey == null) {
+        List<RateLimiter.Charge> charges = routes.charges(request);
+        if (charges.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String principalKey = resolvePrincipalKey();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String principalKey = resolvePrincipalKey(authentication);
 
         // Check if user is exempt (if configured)
-        if (principalKey != null
-                && props.getExemptPrincipals() != null
-                && props.getExemptPrincipals().contains(principalKey)) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        int perMinute =
-                props.getPerMinute() == null ? 0 : props.getPerMinute().getOrDefault(routeKey, 0);
-        if (perMinute <= 0) {
+        if (rateLimiter.isExempt(principalKey)) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String key = routeKey + "|" + (principalKey == null ? clientIp(request) : "u:" + principalKey);
-        Bucket bucket = Objects.requireNonNull(cache.get(key, k -> newBucket(perMinute)));
+        String subject = principalKey == null ? clientIp(request) : "u:" + principalKey;
+        RateLimiter.Decision decision = rateLimiter.tryConsume(subject, resolveTier(authentication), charges);
 
-        if (bucket.tryConsume(1)) {
+        if (decision.allowed()) {
             filterChain.doFilter(request, response);
         } else {
+            String routeKey = decision.routeKey();
+            int limit = decision.limit();
+
             // Increment observability counter for alerting on abuse
             String principal = principalKey != null ? principalKey : clientIp(request);
             if (INCLUDE_PRINCIPAL_TAG) {
                 Metrics.increment(meterRegistry, "http.ratelimit.rejects",
-                        "route", routeKey, "limit", String.valueOf(perMinute),
+                        "route", routeKey, "limit", String.valueOf(limit),
                         "principal", principal);
             } else {
                 Metrics.increment(meterRegistry, "http.ratelimit.rejects",
-                        "route", routeKey, "limit", String.valueOf(perMinute));
+                        "route", routeKey, "limit", String.valueOf(limit));
             }
 
             response.setStatus(429);
             response.setContentType("application/json");
 
             // Add standard rate limit headers including precise reset time
-            var probe = bucket.estimateAbilityToConsume(1);
-            long remaining = Math.max(0, bucket.getAvailableTokens());
-            long resetSeconds = Math.max(0, probe.getNanosToWaitForRefill() / 1_000_000_000L);
-            long suggested = Math.max(resetSeconds, props.getRetryAfter().toSeconds());
+            long remaining = Math.max(0, decision.remaining());
+            long resetSeconds = decision.resetSeconds();
+            long suggested = rateLimiter.suggestedRetryAfterSeconds(decision);
 
-            response.setHeader("X-RateLimit-Limit", String.valueOf(perMinute));
+            response.setHeader("X-RateLimit-Limit", String.valueOf(limit));
             response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
             response.setHeader("X-RateLimit-Reset", String.valueOf(resetSeconds));
             response.setHeader("X-RateLimit-Window", "60"); // seconds
@@ -127,18 +129,24 @@ public class RateLimitFilter extends OncePerRequestFilter {
         }
     }
 
-    private Bucket newBucket(int perMinute) {
-        Bandwidth limit =
-                Bandwidth.builder()
-                        .capacity(perMinute)
-                        .refillGreedy(perMinute, Duration.ofMinutes(1))
-                        .build();
-        return Bucket.builder().addLimit(limit).build();
+    private String resolvePrincipalKey(Authentication a) {
+        return (a != null && a.isAuthenticated() && a.getName() != null) ? a.getName() : null;
     }
 
-    private String resolvePrincipalKey() {
-        Authentication a = SecurityContextHolder.getContext().getAuthentication();
-        return (a != null && a.isAuthenticated() && a.getName() != null) ? a.getName() : null;
+    /**
+     * Tier for per-tier limits: lower-cased role name (ROLE_ADMIN -> "admin"), null when anonymous.
+     */
+    private String resolveTier(Authentication a) {
+        if (a == null || !a.isAuthenticated()) {
+            return null;
+        }
+        for (GrantedAuthority authority : a.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith("ROLE_")) {
+                return name.substring(5).toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
     }
 
     private String clientIp(HttpServletRequest req) {
@@ -152,20 +160,4 @@ public class RateLimitFilter extends OncePerRequestFilter {
         }
         return req.getRemoteAddr();
     }
-
-    // Only the sensitive routes we care about
-    private String matchRouteKey(String method, String path) {
-        boolean isUpload = "POST".equals(method) && path.equals("/api/v1/files/upload");
-        boolean isDownload =
-                ("GET".equals(method) || "HEAD".equals(method))
-                        && path.startsWith("/api/v1/files/download/");
-        boolean isLogin = "POST".equals(method) && path.equals("/api/v1/auth/login");
-
-        if (isUpload) return "upload";
-        if (isDownload) return "download";
-        if (isLogin) return "login";
-        return null;
-    }
-
-    // (old cached counters removed)
 }
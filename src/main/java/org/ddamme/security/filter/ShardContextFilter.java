@@ -0,0 +1,78 @@
+package org.ddamme.security.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.ddamme.database.model.User;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.database.shard.ShardRouter;
+import org.ddamme.dto.ErrorResponse;
+import org.ddamme.exception.ShardMovingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Binds the authenticated user's shard (ShardContext) for the rest of the request, so
+ * repositories, search and FileService hit the database holding that user's files.
+ * <p>
+ * Runs after JWT authentication: loading the user itself always reads shard 0.
+ * Not a @Component - registered only inside the security chain, since it needs the principal.
+ */
+@RequiredArgsConstructor
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    private static final long MOVING_RETRY_AFTER_SECONDS = 30;
+
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (!shardRouter.isSharded() || auth == null || !(auth.getPrincipal() instanceof User user)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        int shardId;
+        try {
+            shardId = shardRouter.shardFor(user.getId());
+        } catch (ShardMovingException e) {
+            reject(request, response, e);
+            return;
+        }
+
+        try (ShardContext.Scope ignored = ShardContext.open(shardId)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, ShardMovingException e)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(MOVING_RETRY_AFTER_SECONDS));
+        response.setContentType("application/json");
+        var errorResponse =
+                new ErrorResponse(
+                        Instant.now(),
+                        503,
+                        "Service Unavailable",
+                        e.getMessage(),
+                        "uri=" + request.getRequestURI());
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+}
@@ -0,0 +1,109 @@
+package org.ddamme.security.ratelimit;
+
+import org.ddamme.security.config.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency-driven in-flight request limit (gradient algorithm, as in Netflix concurrency-limits).
+ * <p>
+ * Tracks a short-term and a long-term RTT average. While short-term latency stays near the
+ * long-term baseline the limit grows by roughly sqrt(limit) per sample (additive increase);
+ * when queueing inflates latency the limit shrinks by long/short RTT, down to half per sample
+ * (multiplicative decrease). Failed or 5xx requests count as drops and apply the maximum back-off.
+ * <p>
+ * tryAcquire/release are lock-free; limit recalculation is synchronized but only runs
+ * once per completed request and is a handful of arithmetic operations.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW_WEIGHT = 0.1;  // ~10 samples
+    private static final double LONG_WINDOW_WEIGHT = 0.01;  // ~100 samples
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties.ClassLimit settings) {
+        this.minLimit = Math.max(1, settings.getMinLimit());
+        this.maxLimit = Math.max(minLimit, settings.getMaxLimit());
+        this.smoothing = settings.getSmoothing();
+        this.rttTolerance = settings.getRttTolerance();
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, settings.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Reserve an in-flight slot.
+     *
+     * @return false if the class is at its limit and the request should be shed
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a slot acquired by {@link #tryAcquire()} and feed its latency into the limit.
+     *
+     * @param rttNanos request latency
+     * @param dropped  true if the request failed in a way that signals overload (exception/5xx)
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtCompletion, dropped);
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtCompletion, boolean dropped) {
+        if (shortRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        }
+        shortRtt = shortRtt * (1 - SHORT_WINDOW_WEIGHT) + rttNanos * SHORT_WINDOW_WEIGHT;
+        longRtt = longRtt * (1 - LONG_WINDOW_WEIGHT) + rttNanos * LONG_WINDOW_WEIGHT;
+
+        // Baseline far above current latency (load dropped): let it decay so the limit can grow again
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // App-limited: too little traffic to learn anything about capacity
+        if (!dropped && inFlightAtCompletion < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = dropped
+                ? 0.5
+                : Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double queueAllowance = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueAllowance;
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,25 @@
+package org.ddamme.security.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+ * Backend that owns rate limit token buckets.
+ * <p>
+ * Selected via security.ratelimit.backend:
+ * - memory: per-JVM Caffeine cache (single-node deployments, default)
+ * - postgres: shared buckets in PostgreSQL so limits hold across replicas and deploys
+ */
+public interface BucketStore {
+
+    /**
+     * Resolve the bucket for a key, creating it from the supplied configuration on first use.
+     *
+     * @param key           route|principal key (e.g. "upload|u:alice")
+     * @param configuration bucket configuration used only when the bucket does not exist yet
+     * @return bucket to consume tokens from
+     */
+    Bucket resolve(String key, Supplier<BucketConfiguration> configuration);
+}
@@ -0,0 +1,43 @@
+package org.ddamme.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Per-JVM bucket store. Limits are enforced per replica and reset on restart,
+ * so only use this for single-node deployments, dev and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "security.ratelimit.backend", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBucketStore implements BucketStore {
+
+    private final Cache<String, Bucket> cache =
+            Caffeine.newBuilder()
+                    .maximumSize(50_000) // Rule of thumb: active_principals_per_30min * route_keys
+                    // E.g., 15k active users/IPs * 2 routes = 30k buckets
+                    .expireAfterAccess(Duration.ofMinutes(30))
+                    .build();
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+        return Objects.requireNonNull(cache.get(key, k -> newLocalBucket(configuration.get())));
+    }
+
+    private Bucket newLocalBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,103 @@
+package org.ddamme.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.security.config.RateLimitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Cluster-wide bucket store backed by the rate_limit_buckets table (see V5 migration).
+ * <p>
+ * Every replica shares the same bucket state, so a user gets their configured limit
+ * once across the cluster instead of once per node, and limits survive deploys.
+ * <p>
+ * Latency: each local bucket proxy uses Bucket4j's delaying optimization, which consumes
+ * tokens locally and synchronizes with PostgreSQL only after max-unsynchronized-tokens
+ * have been consumed or max-unsynchronized-timeout has elapsed. Worst-case over-admission
+ * is max-unsynchronized-tokens per replica per bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "security.ratelimit.backend", havingValue = "postgres")
+@Slf4j
+public class PostgresBucketStore implements BucketStore {
+
+    static final String TABLE = "rate_limit_buckets";
+
+    private final ProxyManager<String> proxyManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final RateLimitProperties.Postgres settings;
+
+    // Local proxies hold the unsynchronized token state, so they must be reused across requests
+    private final Cache<String, Bucket> proxies =
+            Caffeine.newBuilder()
+                    .maximumSize(50_000)
+                    .expireAfterAccess(Duration.ofMinutes(30))
+                    .build();
+
+    public PostgresBucketStore(DataSource dataSource, RateLimitProperties props) {
+        // Buckets are global state: stay on shard 0 even when charged from user-bound work
+        DataSource globalDataSource = ShardContext.pinnedToDefault(dataSource);
+        SQLProxyConfiguration<String> configuration =
+                SQLProxyConfiguration.builder()
+                        .withPrimaryKeyMapper(PrimaryKeyMapper.STRING)
+                        .withTableSettings(BucketTableSettings.customSettings(TABLE, "id", "state"))
+                        .build(globalDataSource);
+        this.proxyManager = new PostgreSQLSelectForUpdateBasedProxyManager<>(configuration);
+        this.jdbcTemplate = new JdbcTemplate(globalDataSource);
+        this.settings = props.getPostgres();
+
+        log.info("Rate limit buckets stored in PostgreSQL: maxUnsynchronizedTokens={}, maxUnsynchronizedTimeout={}",
+                settings.getMaxUnsynchronizedTokens(), settings.getMaxUnsynchronizedTimeout());
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+        return Objects.requireNonNull(proxies.get(key, k -> newProxy(k, configuration)));
+    }
+
+    private Bucket newProxy(String key, Supplier<BucketConfiguration> configuration) {
+        DelayParameters delay =
+                new DelayParameters(settings.getMaxUnsynchronizedTokens(), settings.getMaxUnsynchronizedTimeout());
+        return proxyManager.builder()
+                .withOptimization(Optimizations.delaying(delay))
+                .build(key, configuration);
+    }
+
+    /**
+     * Purge buckets that have been idle long enough to be fully refilled.
+     * A missing row is recreated full on next access, so deleting these is lossless.
+     */
+    @Scheduled(fixedDelayString = "${security.ratelimit.postgres.purge-interval:600000}")
+    public void purgeIdleBuckets() {
+        try {
+            int purged = jdbcTemplate.update(
+                    "DELETE FROM " + TABLE + " WHERE updated_at < NOW() - (? * INTERVAL '1 second')",
+                    settings.getIdleBucketTtl().toSeconds());
+            if (purged > 0) {
+                log.info("Purged {} idle rate limit buckets", purged);
+            }
+        } catch (Exception e) {
+            log.error("Rate limit bucket purge failed", e);
+            // Don't rethrow - allow next scheduled run to retry
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.ddamme.security.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.ddamme.security.config.RateLimitProperties;
+import org.ddamme.security.config.RateLimitProperties.Route;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Route table for rate limiting, compiled once from {@link RateLimitProperties#getRoutes()}.
+ * <p>
+ * Routes are bucketed by HTTP method so a request only tests patterns for its own method,
+ * and literal patterns are compared with String.equals instead of PathPattern matching.
+ */
+public final class RateLimitRoutes {
+
+    /** Routes used when security.ratelimit.routes is not configured (previous hard-coded set) */
+    static final List<Route> DEFAULT_ROUTES = List.of(
+            new Route("upload", Set.of("POST"), "/api/v1/files/upload"),
+            new Route("download", Set.of("GET", "HEAD"), "/api/v1/files/download/**"),
+            new Route("login", Set.of("POST"), "/api/v1/auth/login"));
+
+    private final Map<String, List<CompiledRoute>> byMethod = new HashMap<>();
+    private final List<CompiledRoute> anyMethod = new ArrayList<>();
+
+    private RateLimitRoutes(List<Route> routes, long maxRequestBytes) {
+        for (Route route : routes) {
+            CompiledRoute compiled = new CompiledRoute(route, maxRequestBytes);
+            if (route.getMethods() == null || route.getMethods().isEmpty()) {
+                anyMethod.add(compiled);
+            } else {
+                for (String method : route.getMethods()) {
+                    byMethod.computeIfAbsent(method.toUpperCase(Locale.ROOT), m -> new ArrayList<>()).add(compiled);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param maxRequestBytes spring.servlet.multipart.max-request-size in bytes (not positive
+     *                        when unlimited): what a CONTENT_LENGTH route charges for a body
+     *                        of unknown length
+     */
+    public static RateLimitRoutes compile(List<Route> routes, long maxRequestBytes) {
+        return new RateLimitRoutes(routes == null || routes.isEmpty() ? DEFAULT_ROUTES : routes, maxRequestBytes);
+    }
+
+    /**
+     * Resolve the charges for a request: one per matching route, in configuration order.
+     * Returns an empty list when the request is not rate limited.
+     */
+    public List<RateLimiter.Charge> charges(HttpServletRequest request) {
+        List<CompiledRoute> candidates = byMethod.getOrDefault(request.getMethod(), List.of());
+        if (candidates.isEmpty() && anyMethod.isEmpty()) {
+            return List.of();
+        }
+
+        String path = request.getRequestURI();
+        PathContainer container = null;
+        List<RateLimiter.Charge> charges = new ArrayList<>(1);
+        for (List<CompiledRoute> group : List.of(candidates, anyMethod)) {
+            for (CompiledRoute route : group) {
+                boolean matches;
+                if (route.literal != null) {
+                    matches = route.literal.equals(path);
+                } else {
+                    if (container == null) {
+                        container = PathContainer.parsePath(path);
+                    }
+                    matches = route.pattern.matches(container);
+                }
+                if (matches) {
+                    charges.add(new RateLimiter.Charge(route.name, route.cost(request)));
+                }
+            }
+        }
+        return charges;
+    }
+
+    private static final class CompiledRoute {
+        private final String name;
+        private final String literal;
+        private final PathPattern pattern;
+        private final RateLimitProperties.Cost cost;
+        private final long tokens;
+        private final long bytesPerToken;
+        private final long unknownLengthTokens;
+
+        private CompiledRoute(Route route, long maxRequestBytes) {
+            if (route.getName() == null || route.getPattern() == null) {
+                throw new IllegalArgumentException("Rate limit route requires name and pattern: " + route);
+            }
+            PathPattern parsed = PathPatternParser.defaultInstance.parse(route.getPattern());
+            boolean isLiteral = route.getPattern().indexOf('*') < 0 && route.getPattern().indexOf('{') < 0;
+            this.name = route.getName();
+            this.literal = isLiteral ? route.getPattern() : null;
+            this.pattern = parsed;
+            this.cost = route.getCost();
+            this.tokens = Math.max(1, route.getTokens());
+            this.bytesPerToken = Math.max(1, route.getBytesPerToken());
+            // Unlimited request size: RateLimiter caps the charge at the bucket capacity
+            this.unknownLengthTokens = maxRequestBytes > 0 ? tokensFor(maxRequestBytes) : Long.MAX_VALUE;
+        }
+
+        private long cost(HttpServletRequest request) {
+            if (cost == RateLimitProperties.Cost.CONTENT_LENGTH) {
+                long length = request.getContentLengthLong();
+                // Unknown length (chunked) pays for the largest body multipart parsing accepts
+                if (length < 0) {
+                    return unknownLengthTokens;
+                }
+                return tokensFor(length);
+            }
+            return tokens;
+        }
+
+        private long tokensFor(long length) {
+            return Math.max(tokens, length / bytesPerToken + (length % bytesPerToken == 0 ? 0 : 1));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.ddamme.security.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.RequiredArgsConstructor;
+import org.ddamme.security.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cost-weighted token bucket limiter shared by {@code RateLimitFilter} (per-route charges)
+ * and services that only learn the real cost of a request after parsing it (e.g. OCR pages).
+ * <p>
+ * Limits are tokens per minute, resolved per tier first (security.ratelimit.tiers.&lt;tier&gt;)
+ * and then from security.ratelimit.per-minute. A route with no positive limit is unlimited.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimiter {
+
+    private final RateLimitProperties props;
+    private final BucketStore bucketStore;
+
+    /** Tokens to consume from a route budget. */
+    public record Charge(String routeKey, long tokens) {
+    }
+
+    /** Outcome of a consumption attempt; routeKey/limit describe the rejecting budget. */
+    public record Decision(boolean allowed, String routeKey, int limit, long remaining, long nanosToWait) {
+        static final Decision ALLOWED = new Decision(true, null, 0, 0, 0);
+
+        public long resetSeconds() {
+            return Math.max(0, nanosToWait / 1_000_000_000L);
+        }
+    }
+
+    public boolean isExempt(String principal) {
+        return principal != null
+                && props.getExemptPrincipals() != null
+                && props.getExemptPrincipals().contains(principal);
+    }
+
+    public int limitFor(String routeKey, String tier) {
+        if (tier != null && props.getTiers() != null) {
+            Map<String, Integer> tierLimits = props.getTiers().get(tier);
+            if (tierLimits != null && tierLimits.containsKey(routeKey)) {
+                return tierLimits.get(routeKey);
+            }
+        }
+        return props.getPerMinute() == null ? 0 : props.getPerMinute().getOrDefault(routeKey, 0);
+    }
+
+    /**
+     * Consume all charges for a subject, or none of them.
+     * If a later budget rejects, tokens already taken from earlier budgets are refunded.
+     *
+     * @param subject "u:&lt;username&gt;" for authenticated callers, client IP otherwise
+     * @param tier    caller tier (lower-case role name) or null
+     */
+    public Decision tryConsume(String subject, String tier, List<Charge> charges) {
+        List<Bucket> consumed = new ArrayList<>(charges.size());
+        List<Long> consumedTokens = new ArrayList<>(charges.size());
+
+        for (Charge charge : charges) {
+            int limit = limitFor(charge.routeKey(), tier);
+            if (limit <= 0) {
+                continue;
+            }
+            long tokens = tokens(charge, limit);
+            Bucket bucket = bucket(subject, charge.routeKey(), limit);
+
+            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(tokens);
+            if (!probe.isConsumed()) {
+                for (int i = 0; i < consumed.size(); i++) {
+                    consumed.get(i).addTokens(consumedTokens.get(i));
+                }
+                return new Decision(false, charge.routeKey(), limit,
+                        probe.getRemainingTokens(), probe.getNanosToWaitForRefill());
+            }
+            consumed.add(bucket);
+            consumedTokens.add(tokens);
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Give back charges an earlier {@link #tryConsume} took for work that then failed,
+     * e.g. OCR pages of an upload that was never stored. Refills never exceed capacity.
+     */
+    public void refund(String subject, String tier, List<Charge> charges) {
+        for (Charge charge : charges) {
+            int limit = limitFor(charge.routeKey(), tier);
+            if (limit > 0) {
+                bucket(subject, charge.routeKey(), limit).addTokens(tokens(charge, limit));
+            }
+        }
+    }
+
+    /** Retry-After value for a rejection: the bucket refill time, but never below the configured floor. */
+    public long suggestedRetryAfterSeconds(Decision decision) {
+        return Math.max(decision.resetSeconds(), props.getRetryAfter().toSeconds());
+    }
+
+    /** A cost above capacity could never be satisfied; a max-size request drains the bucket instead */
+    private static long tokens(Charge charge, int limit) {
+        return Math.min(Math.max(1, charge.tokens()), limit);
+    }
+
+    private Bucket bucket(String subject, String routeKey, int limit) {
+        // Limit is part of the key so config and tier changes take effect without waiting for expiry
+        return bucketStore.resolve(routeKey + "|" + limit + "|" + subject, () -> newBucketConfiguration(limit));
+    }
+
+    private BucketConfiguration newBucketConfiguration(int perMinute) {
+        Bandwidth limit =
+                Bandwidth.builder()
+                        .capacity(perMinute)
+                        .refillGreedy(perMinute, Duration.ofMinutes(1))
+                        .build();
+        return BucketConfiguration.builder().addLimit(limit).build();
+    }
+}
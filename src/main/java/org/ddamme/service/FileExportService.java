@@ -0,0 +1,134 @@
+package org.ddamme.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.model.User;
+import org.ddamme.metrics.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+
+/**
+ * Streams all of a user's file metadata as NDJSON (one JSON object per line).
+ *
+ * Memory stays flat whatever the account size: rows come through a forward-only server-side
+ * cursor (PgJDBC fetches fetch-size rows at a time inside a transaction) and each row is
+ * written straight to the response with a Jackson generator, never collected into a list.
+ *
+ * Exports run on the primary, not a read replica: a download can keep its snapshot open for
+ * up to files.export.timeout, and on a hot standby that either stalls WAL replay or gets the
+ * query cancelled (max_standby_streaming_delay). On the primary the snapshot only holds back
+ * vacuum, and the transaction is bounded: statement-timeout caps each cursor fetch, and
+ * files.export.timeout ends the async request, so a client that stops reading fails the
+ * blocked write and rolls the transaction back. (idle_in_transaction_session_timeout would
+ * not do: it terminates the session, killing the pooled connection rather than the transaction.)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileExportService {
+
+    private static final String EXPORT_COLUMNS = """
+            id, original_filename, size, content_type, folder_path, tags, upload_timestamp, update_timestamp""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /** Rows per cursor round trip; with file_text a row can be large, so keep this modest */
+    @Value("${files.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${files.export.statement-timeout:30s}")
+    private Duration statementTimeout;
+
+    /**
+     * Writes the export to out. Does not close out.
+     *
+     * @param includeText also export the extracted text (file_text), null when there is none
+     * @return number of files written
+     * @throws UncheckedIOException if the client goes away; the cursor and transaction are released
+     */
+    @Transactional // read-write so the routing data source keeps it on the primary
+    public long export(User user, boolean includeText, OutputStream out) {
+        jdbcTemplate.execute("SET TRANSACTION READ ONLY");
+        jdbcTemplate.execute("SET LOCAL statement_timeout = " + statementTimeout.toMillis());
+
+        String sql = "SELECT " + EXPORT_COLUMNS + (includeText ? ", file_text" : "")
+                + " FROM file_metadata WHERE user_id = ? ORDER BY id";
+        long[] rows = {0};
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are terminated by '\n' below instead of Jackson's default space separator
+            json.setRootValueSeparator(null);
+
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                        sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, user.getId());
+                return ps;
+            }, rs -> {
+                writeRow(json, rs, includeText);
+                rows[0]++;
+            });
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Metrics.increment(meterRegistry, "files.export", "text", String.valueOf(includeText));
+        log.info("Exported {} files (userId={}, includeText={})", rows[0], user.getId(), includeText);
+        return rows[0];
+    }
+
+    private static void writeRow(JsonGenerator json, ResultSet rs, boolean includeText) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("originalFilename", rs.getString("original_filename"));
+            json.writeNumberField("size", rs.getLong("size"));
+            json.writeStringField("contentType", rs.getString("content_type"));
+            json.writeStringField("folderPath", rs.getString("folder_path"));
+            json.writeArrayFieldStart("tags");
+            Array tags = rs.getArray("tags");
+            for (String tag : (String[]) tags.getArray()) {
+                json.writeString(tag);
+            }
+            json.writeEndArray();
+            writeTimestamp(json, "uploadTimestamp", rs.getTimestamp("upload_timestamp"));
+            writeTimestamp(json, "updateTimestamp", rs.getTimestamp("update_timestamp"));
+            if (includeText) {
+                json.writeStringField("fileText", rs.getString("file_text"));
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            // Client disconnected: abort the query instead of reading the rest of the cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeTimestamp(JsonGenerator json, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeStringField(field, value.toInstant().toString());
+        }
+    }
+}
@@ -3,31 +3,61 @@ package org.ddamme.service;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.JobType;
 import org.ddamme.database.model.User;
+import org.ddamme.exception.RateLimitExceededException;
 import org.ddamme.metrics.Metrics;
+import org.ddamme.security.ratelimit.RateLimiter;
 import org.ddamme.service.ai.AiJobService;
+import org.ddamme.service.events.FileEvent;
+import org.ddamme.service.events.FileEventPublisher;
 import org.ddamme.util.FileUtils;
+import org.ddamme.util.FolderPaths;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
+/**
+ * File lifecycle across S3 and file_metadata.
+ *
+ * Deliberately not @Transactional: S3 calls (up to 10MB PUTs) must not pin a Hikari
+ * connection. Only the metadata writes run in short TransactionTemplate blocks, and
+ * StorageCleanupOutbox keeps objects and metadata consistent across the gap.
+ */
 @Service
-@Transactional
 @Slf4j
 public class FileService {
+    /** Rate limit budget (security.ratelimit.per-minute / tiers) charged per OCR page on upload */
+    static final String OCR_PAGES_ROUTE = "ocr-pages";
+
     private final StorageService storageService;
     private final MetadataService metadataService;
     private final MeterRegistry meterRegistry;
     private final AiJobService aiJobService;
+    private final RateLimiter rateLimiter;
+    private final StorageCleanupOutbox cleanupOutbox;
+    private final FileEventPublisher eventPublisher;
+    private final SearchResultCache searchResultCache;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${spring.servlet.multipart.max-file-size}")
     private DataSize maxFileSize;
@@ -35,21 +65,43 @@ public class FileService {
     private String activeProfile;
     @Value("${ai.worker.ocr.auto-create:true}")
     private boolean ocrAutoCreate;
+    @Value("${ai.worker.ocr.max-pages:50}")
+    private int ocrMaxPages;
+    @Value("${ai.embedding.auto-create:true}")
+    private boolean embedAutoCreate;
 
     public FileService(StorageService storageService,
                        MetadataService metadataService,
                        MeterRegistry meterRegistry,
-                       AiJobService aiJobService) {
+                       AiJobService aiJobService,
+                       RateLimiter rateLimiter,
+                       StorageCleanupOutbox cleanupOutbox,
+                       FileEventPublisher eventPublisher,
+                       SearchResultCache searchResultCache,
+                       PlatformTransactionManager transactionManager) {
         this.storageService = storageService;
         this.metadataService = metadataService;
         this.meterRegistry = meterRegistry;
         this.aiJobService = aiJobService;
+        this.rateLimiter = rateLimiter;
+        this.cleanupOutbox = cleanupOutbox;
+        this.eventPublisher = eventPublisher;
+        this.searchResultCache = searchResultCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public FileMetadata upload(User user, MultipartFile file) {
+        return upload(user, file, FolderPaths.ROOT);
+    }
+
+    /**
+     * @param folder target folder path (normalized; null means the root folder)
+     */
+    public FileMetadata upload(User user, MultipartFile file, String folder) {
         long start = System.nanoTime();
         String result = "success";
         String contentFamily = "other";
+        List<RateLimiter.Charge> ocrCharge = List.of();
         try {
             // Input validation with specific reject metrics
             if (file == null || file.isEmpty()) {
@@ -62,12 +114,22 @@ public class FileService {
             }
 
             String originalName = file.getOriginalFilename() == null ? "file" : file.getOriginalFilename();
+            String folderPath = FolderPaths.normalize(folder);
             String contentType = FileUtils.getContentTypeOrDefault(file.getContentType());
             contentFamily = Metrics.familyFromContentType(contentType);
 
+            // Charge OCR page budget before any S3/DB work so rejected uploads cost nothing downstream
+            if (ocrAutoCreate && shouldOcr(contentType)) {
+                ocrCharge = chargeOcrPages(user, file, contentType);
+            }
+
             // Add environment prefix to separate dev/prod files in the same bucket
             String key = activeProfile + "/" + user.getId() + "/" + UUID.randomUUID() + "-" + FileUtils.sanitizeFilename(originalName);
 
+            // Durable intent first: if we die after the PUT, the sweeper deletes the orphan
+            long reservation = cleanupOutbox.reserve(key);
+
+            // No transaction/connection held during the S3 PUT
             String storedKey = storageService.upload(file, key);
 
             FileMetadata meta =
@@ -77,38 +139,53 @@ public class FileService {
                             .storageKey(storedKey)
                             .size(file.getSize())
                             .contentType(contentType)
+                            .folderPath(folderPath)
                             .build();
 
+            FileMetadata savedMetadata;
+            try {
+                // Short transaction: insert metadata and take ownership of the object atomically
+                savedMetadata = transactionTemplate.execute(status -> {
+                    FileMetadata saved = metadataService.save(meta);
+                    cleanupOutbox.release(reservation);
+                    eventPublisher.publish(FileEvent.uploaded(user.getId(), saved.getId()));  // delivered on commit
+                    searchResultCache.invalidate(user.getId());
+                    return saved;
+                });
+            } catch (RuntimeException e) {
+                // Compensate: nothing references the object; the reservation covers a failed delete
+                cleanupOutbox.deleteNow(reservation, storedKey);
+                throw e;
+            }
+
             // metrics - track upload success with content family
             Metrics.uploadBytes(meterRegistry).record(file.getSize());
             Metrics.increment(meterRegistry, "fs.upload.count", "result", "success", "content_family", contentFamily);
 
-            FileMetadata savedMetadata = metadataService.save(meta);
-
             // Automatically create OCR job for PDFs and images (if enabled and AI service is available)
             log.debug("Job creation check: ocrAutoCreate={}, aiJobService={}, contentType={}, shouldOcr={}",
                     ocrAutoCreate, aiJobService != null, contentType, shouldOcr(contentType));
 
             if (ocrAutoCreate && aiJobService != null && shouldOcr(contentType)) {
-                // Schedule job creation after commit so file_metadata row is visible to REQUIRES_NEW transaction
+                // Job creation must see the committed file_metadata row (REQUIRES_NEW transaction)
                 final Long userId = user.getId();
                 final Long fileId = savedMetadata.getId();
                 final String filename = originalName;
 
-                TransactionSynchronizationManager.registerSynchronization(
-                    new TransactionSynchronization() {
-                        @Override
-                        public void afterCommit() {
-                            try {
-                                aiJobService.createJob(userId, fileId, JobType.OCR, 5, null);
-                                log.info("Created OCR job for file {}: {}", fileId, filename);
-                            } catch (Exception e) {
-                                // Log error but don't propagate - upload should succeed even if job creation fails
-                                log.error("Post-commit OCR job creation failed for file {}: {}",
-                                        fileId, e.getMessage(), e);
-                            }
+                afterCommit(() -> {
+                    try {
+                        Long ocrJobId = aiJobService.createJob(userId, fileId, JobType.OCR, 5, null);
+                        log.info("Created OCR job for file {}: {}", fileId, filename);
+                        if (embedAutoCreate && ocrJobId != null) {
+                            // Claimed only once the OCR job is DONE (depends_on_job_id)
+                            aiJobService.createJob(userId, fileId, JobType.EMBED, 7, ocrJobId);
                         }
-                    });
+                    } catch (Exception e) {
+                        // Log error but don't propagate - upload should succeed even if job creation fails
+                        log.error("Post-commit OCR job creation failed for file {}: {}",
+                                fileId, e.getMessage(), e);
+                    }
+                });
             } else {
                 log.warn("Skipping OCR job creation for file {}: ocrAutoCreate={}, aiJobService={}, shouldOcr={}",
                         originalName, ocrAutoCreate, aiJobService != null, shouldOcr(contentType));
@@ -118,6 +195,10 @@ public class FileService {
         } catch (RuntimeException e) {
             result = "failure";
             Metrics.increment(meterRegistry, "fs.upload.count", "result", "failure", "content_family", contentFamily);
+            // Nothing was stored, so nothing will be OCR'd: the pages go back to the budget
+            if (!ocrCharge.isEmpty()) {
+                rateLimiter.refund("u:" + user.getUsername(), tier(user), ocrCharge);
+            }
             throw e;
         } finally {
             // End-to-end upload latency (controller→S3→DB)
@@ -153,11 +234,23 @@ public class FileService {
         }
     }
 
+    /**
+     * Removes metadata and enqueues the S3 delete in one short transaction, then deletes the
+     * object after commit. A failed S3 delete is retried by StorageCleanupOutbox.sweep(),
+     * so the file disappears for the user even while storage is degraded.
+     */
     public void delete(User user, Long fileId) {
         try {
-            FileMetadata meta = metadataService.findOwnedById(user, fileId);
-            storageService.delete(meta.getStorageKey());
-            metadataService.deleteById(fileId);
+            record Pending(long outboxId, String storageKey) {}
+            Pending pending = transactionTemplate.execute(status -> {
+                FileMetadata meta = metadataService.findOwnedById(user, fileId);
+                metadataService.deleteById(fileId);
+                eventPublisher.publish(FileEvent.deleted(user.getId(), fileId));
+                searchResultCache.invalidate(user.getId());
+                return new Pending(cleanupOutbox.enqueueDelete(meta.getStorageKey()), meta.getStorageKey());
+            });
+
+            afterCommit(() -> cleanupOutbox.deleteNow(pending.outboxId(), pending.storageKey()));
             Metrics.increment(meterRegistry, "fs.delete.count", "result", "success");
         } catch (RuntimeException e) {
             Metrics.increment(meterRegistry, "fs.delete.count", "result", "failure");
@@ -165,6 +258,92 @@ public class FileService {
         }
     }
 
+    /**
+     * Runs after the caller's transaction commits, or immediately when there is none
+     * (the normal case - FileService opens only short TransactionTemplate blocks).
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            action.run();
+                        }
+                    });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * OCR-triggering uploads draw from the "ocr-pages" budget, weighted by page count.
+     * Skipped entirely (no PDF parsing) when no ocr-pages limit is configured for the user's tier.
+     *
+     * @return the charge taken, to refund if the upload then fails; empty when nothing was charged
+     */
+    private List<RateLimiter.Charge> chargeOcrPages(User user, MultipartFile file, String contentType) {
+        if (rateLimiter.isExempt(user.getUsername())) {
+            return List.of();
+        }
+        String tier = tier(user);
+        if (rateLimiter.limitFor(OCR_PAGES_ROUTE, tier) <= 0) {
+            return List.of();
+        }
+
+        long pages = estimateOcrPages(file, contentType);
+        List<RateLimiter.Charge> charge = List.of(new RateLimiter.Charge(OCR_PAGES_ROUTE, pages));
+        RateLimiter.Decision decision = rateLimiter.tryConsume("u:" + user.getUsername(), tier, charge);
+        if (!decision.allowed()) {
+            Metrics.increment(meterRegistry, "fs.upload.rejects", "reason", "ocr_rate_limited");
+            throw new RateLimitExceededException(
+                    OCR_PAGES_ROUTE, decision.limit(), rateLimiter.suggestedRetryAfterSeconds(decision));
+        }
+        return charge;
+    }
+
+    private static String tier(User user) {
+        return user.getRole() == null ? null : user.getRole().name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Pages OCR will process: PDF page count capped at ai.worker.ocr.max-pages, 1 for images.
+     */
+    private long estimateOcrPages(MultipartFile file, String contentType) {
+        if (!contentType.startsWith("application/pdf")) {
+            return 1;
+        }
+        Path temp = null;
+        try {
+            // Spool to disk and parse with a file-only stream cache so counting pages
+            // never holds the whole upload on the heap
+            temp = Files.createTempFile("upload-pages-", ".pdf");
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (PDDocument doc = Loader.loadPDF(temp.toFile(), MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+                return Math.max(1, Math.min(doc.getNumberOfPages(), ocrMaxPages));
+            }
+        } catch (IOException e) {
+            // Encrypted/malformed PDFs fail fast in OCR (DLQ), so charge a single page
+            log.debug("Could not count PDF pages for rate limiting: {}", e.getMessage());
+            return 1;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp file {}: {}", path, e.getMessage());
+        }
+    }
+
     private boolean shouldOcr(String contentType) {
         // Determine if the file type requires OCR processing
         return contentType.equals("application/pdf") ||
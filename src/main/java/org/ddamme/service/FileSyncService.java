@@ -0,0 +1,113 @@
+package org.ddamme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.FileChangeRepository;
+import org.ddamme.database.repository.FileChangeRepository.Change;
+import org.ddamme.database.repository.FileChangeRepository.SyncState;
+import org.ddamme.dto.FileChangeDto;
+import org.ddamme.dto.FileChangesResponse;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.exception.SyncCursorExpiredException;
+import org.ddamme.util.KeysetCursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Delta sync for file metadata: what changed since a client's cursor, instead of the
+ * client re-listing the whole account.
+ *
+ * The cursor is (epoch, change_xid, change_seq). Each call reads up to limit changes
+ * from transactions below the current snapshot xmin, so changes are final and none can
+ * appear behind the cursor later. When a call drains everything below that bound, the
+ * cursor moves up to it, so idle accounts keep a fresh cursor without any changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class FileSyncService {
+
+    static final int MAX_LIMIT = 1000;
+
+    private static final Comparator<Change> POSITION =
+            Comparator.comparingLong(Change::xid).thenComparingLong(Change::seq);
+
+    private final FileChangeRepository fileChangeRepository;
+
+    /**
+     * @param since cursor from a previous response, or null for a full initial sync
+     * @throws SyncCursorExpiredException if the cursor predates pruned tombstones or a shard move
+     */
+    public FileChangesResponse changes(User user, String since, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        SyncState state = fileChangeRepository.syncState(user.getId()).orElse(new SyncState(0, null));
+
+        String[] cursor = KeysetCursor.decode(since, 3);
+        long afterXid = 0;
+        long afterSeq = 0;
+        if (cursor != null) {
+            long epoch = KeysetCursor.longValue(cursor[0]);
+            afterXid = KeysetCursor.longValue(cursor[1]);
+            afterSeq = KeysetCursor.longValue(cursor[2]);
+            if (afterXid < 0) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+            if (epoch != state.epoch()) {
+                throw new SyncCursorExpiredException("Sync cursor is no longer valid, resync from scratch");
+            }
+            if (state.prunedXid() != null && afterXid <= state.prunedXid()) {
+                throw new SyncCursorExpiredException("Sync cursor is older than the change history, resync from scratch");
+            }
+        }
+
+        // Bound first: the change reads below see at least every transaction under it
+        long bound = fileChangeRepository.stableBound();
+
+        List<Change> merged = new ArrayList<>(
+                fileChangeRepository.upsertsAfter(user.getId(), afterXid, afterSeq, bound, pageSize + 1));
+        if (cursor != null) {
+            // An initial sync starts from the current files; earlier deletes are irrelevant to it
+            merged.addAll(fileChangeRepository.deletesAfter(user.getId(), afterXid, afterSeq, bound, pageSize + 1));
+        }
+        merged.sort(POSITION);
+
+        boolean hasMore = merged.size() > pageSize;
+        List<Change> page = hasMore ? merged.subList(0, pageSize) : merged;
+
+        String next;
+        if (hasMore) {
+            Change last = page.get(page.size() - 1);
+            next = KeysetCursor.encode(state.epoch(), last.xid(), last.seq());
+        } else if (bound - 1 >= afterXid) {
+            // Everything below bound has been returned: continue from the bound itself
+            next = KeysetCursor.encode(state.epoch(), bound - 1, Long.MAX_VALUE);
+        } else {
+            // Bound behind the cursor (e.g. read from a lagging replica): stay put
+            next = KeysetCursor.encode(state.epoch(), afterXid, afterSeq);
+        }
+
+        long createdAfter = afterXid;
+        return FileChangesResponse.builder()
+                .changes(page.stream().map(change -> toDto(change, cursor == null, createdAfter)).toList())
+                .cursor(next)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static FileChangeDto toDto(Change change, boolean initial, long createdAfter) {
+        if (change.file() == null) {
+            return FileChangeDto.builder().type(FileChangeDto.Type.DELETED).fileId(change.fileId()).build();
+        }
+        // Files created in the cursor's own transaction are reported as UPDATED; clients upsert both
+        boolean created = initial || change.createdXid() > createdAfter;
+        return FileChangeDto.builder()
+                .type(created ? FileChangeDto.Type.CREATED : FileChangeDto.Type.UPDATED)
+                .fileId(change.fileId())
+                .file(change.file())
+                .build();
+    }
+}
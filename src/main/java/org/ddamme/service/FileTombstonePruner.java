@@ -0,0 +1,93 @@
+package org.ddamme.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Deletes file tombstones older than the sync retention (see V13) and records, per user,
+ * the newest pruned position in file_sync_state.pruned_xid. Sync cursors at or below it
+ * get 410 and resync, instead of silently missing deletes.
+ *
+ * Runs per shard, in batches like AiJobRetentionMover.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "files.sync.pruning.enabled", havingValue = "true", matchIfMissing = true)
+public class FileTombstonePruner {
+
+    private static final String PRUNE_BATCH = """
+            WITH batch AS (
+                SELECT user_id, change_xid, change_seq
+                FROM file_tombstones
+                WHERE deleted_at < NOW() - (? * INTERVAL '1 second')
+                ORDER BY deleted_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), pruned AS (
+                DELETE FROM file_tombstones t
+                USING batch b
+                WHERE t.user_id = b.user_id AND t.change_xid = b.change_xid AND t.change_seq = b.change_seq
+                RETURNING t.user_id, t.change_xid
+            ), horizon AS (
+                INSERT INTO file_sync_state AS s (user_id, pruned_xid)
+                SELECT p.user_id, MAX(p.change_xid)
+                FROM pruned p
+                JOIN users u ON u.id = p.user_id
+                GROUP BY p.user_id
+                ORDER BY p.user_id
+                ON CONFLICT (user_id) DO UPDATE
+                    SET pruned_xid = GREATEST(s.pruned_xid, EXCLUDED.pruned_xid)
+            )
+            SELECT COUNT(*) FROM pruned
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+
+    /** Clients that have not synced for longer than this must resync from scratch */
+    @Value("${files.sync.tombstone-retention:P30D}")
+    private Duration retention;
+
+    @Value("${files.sync.pruning.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${files.sync.pruning.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(cron = "${files.sync.pruning.cron:0 45 3 * * *}")
+    public void pruneTombstones() {
+        shardRouter.forEachShard("file tombstone pruning", shardId -> pruneShard());
+    }
+
+    /**
+     * @return number of tombstones pruned on the current shard
+     */
+    int pruneShard() {
+        long pruned = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Long batch = jdbcTemplate.queryForObject(PRUNE_BATCH, Long.class, retention.toSeconds(), batchSize);
+            long count = batch == null ? 0 : batch;
+            pruned += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+
+        if (pruned > 0) {
+            log.info("Pruned {} file tombstones older than {}", pruned, retention);
+        }
+        meterRegistry.counter("files.sync.tombstones.pruned").increment(pruned);
+        return (int) pruned;
+    }
+}
@@ -0,0 +1,190 @@
+package org.ddamme.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.dto.FileDto;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FolderDto;
+import org.ddamme.dto.FolderListingResponse;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.exception.ResourceNotFoundException;
+import org.ddamme.util.FolderPaths;
+import org.ddamme.util.KeysetCursor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Folder hierarchy over file_metadata.folder_path (materialized path, see V10).
+ *
+ * - Listing a folder and listing a subtree are index range scans with keyset cursors
+ * - Moving a subtree is one set-based UPDATE rewriting the path prefix
+ * - Rollups come from folder_stats, kept current by statement-level triggers
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class FolderService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final MetadataRepository metadataRepository;
+    private final MetadataService metadataService;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Files directly in a folder, by name. The first page also carries the direct
+     * subfolders with their subtree rollups.
+     */
+    @Transactional(readOnly = true)
+    public FolderListingResponse listFolder(User user, String rawPath, String cursor, int limit) {
+        String path = FolderPaths.normalize(rawPath);
+        int pageSize = clamp(limit);
+        String[] after = KeysetCursor.decode(cursor, 2);
+
+        List<FileMetadata> rows = metadataRepository.findInFolder(
+                user.getId(), path,
+                after == null ? null : after[0],
+                after == null ? null : KeysetCursor.longValue(after[1]),
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<FileMetadata> page = hasMore ? rows.subList(0, pageSize) : rows;
+        FileMetadata last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return FolderListingResponse.builder()
+                .path(path)
+                .folders(after == null ? subfolders(user, path) : null)
+                .files(page.stream().map(FileListResponse::from).toList())
+                .nextCursor(hasMore ? KeysetCursor.encode(last.getOriginalFilename(), last.getId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Files in a folder and everything below it, ordered by folder then name.
+     */
+    @Transactional(readOnly = true)
+    public FolderListingResponse listSubtree(User user, String rawPath, String cursor, int limit) {
+        String path = FolderPaths.normalize(rawPath);
+        int pageSize = clamp(limit);
+        String[] after = KeysetCursor.decode(cursor, 3);
+
+        List<FileMetadata> rows = metadataRepository.findInSubtree(
+                user.getId(), FolderPaths.subtreePattern(path),
+                after == null ? null : after[0],
+                after == null ? null : after[1],
+                after == null ? null : KeysetCursor.longValue(after[2]),
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<FileMetadata> page = hasMore ? rows.subList(0, pageSize) : rows;
+        FileMetadata last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return FolderListingResponse.builder()
+                .path(path)
+                .files(page.stream().map(FileListResponse::from).toList())
+                .nextCursor(hasMore
+                        ? KeysetCursor.encode(last.getFolderPath(), last.getOriginalFilename(), last.getId())
+                        : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * File count and total bytes of a folder's whole subtree.
+     */
+    @Transactional(readOnly = true)
+    public FolderDto stats(User user, String rawPath) {
+        String path = FolderPaths.normalize(rawPath);
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(file_count), 0) AS file_count, COALESCE(SUM(total_size), 0) AS total_size
+                FROM folder_stats
+                WHERE user_id = ? AND folder_path LIKE ? ESCAPE '\\'
+                """,
+                (rs, i) -> FolderDto.builder()
+                        .path(path)
+                        .name(name(path))
+                        .fileCount(rs.getLong("file_count"))
+                        .totalSize(rs.getLong("total_size"))
+                        .build(),
+                user.getId(), FolderPaths.subtreePattern(path));
+    }
+
+    /**
+     * Moves (or renames) a folder with everything below it. One UPDATE rewrites the
+     * path prefix of every file in the subtree; folder_stats follows via trigger.
+     *
+     * @return number of files moved
+     */
+    public int moveFolder(User user, String rawFrom, String rawTo) {
+        String from = FolderPaths.normalize(rawFrom);
+        String to = FolderPaths.normalize(rawTo);
+        if (from.equals(FolderPaths.ROOT)) {
+            throw new InvalidRequestException("The root folder cannot be moved");
+        }
+        if (FolderPaths.isWithin(to, from)) {
+            throw new InvalidRequestException("A folder cannot be moved into itself");
+        }
+
+        int moved = jdbcTemplate.update("""
+                UPDATE file_metadata
+                SET folder_path = ? || substr(folder_path, char_length(?) + 1),
+                    update_timestamp = NOW()
+                WHERE user_id = ? AND folder_path LIKE ? ESCAPE '\\'
+                """, to, from, user.getId(), FolderPaths.subtreePattern(from));
+        if (moved == 0) {
+            throw new ResourceNotFoundException("Folder", "path", from);
+        }
+
+        log.info("Moved folder {} -> {} ({} files, userId={})", from, to, moved, user.getId());
+        return moved;
+    }
+
+    /**
+     * Moves a single file into another folder.
+     */
+    public FileDto moveFile(User user, Long fileId, String rawFolder) {
+        FileMetadata file = metadataService.findOwnedById(user, fileId);
+        file.setFolderPath(FolderPaths.normalize(rawFolder));
+        return FileDto.from(metadataService.save(file));
+    }
+
+    private List<FolderDto> subfolders(User user, String path) {
+        // Child name = first segment below path; SUM folds each child's subtree into one row
+        return jdbcTemplate.query("""
+                SELECT split_part(substr(folder_path, char_length(?) + 1), '/', 1) AS name,
+                       SUM(file_count) AS file_count,
+                       SUM(total_size) AS total_size
+                FROM folder_stats
+                WHERE user_id = ? AND folder_path LIKE ? ESCAPE '\\' AND folder_path <> ?
+                GROUP BY 1
+                ORDER BY 1
+                """,
+                (rs, i) -> FolderDto.builder()
+                        .path(FolderPaths.child(path, rs.getString("name")))
+                        .name(rs.getString("name"))
+                        .fileCount(rs.getLong("file_count"))
+                        .totalSize(rs.getLong("total_size"))
+                        .build(),
+                path, user.getId(), FolderPaths.subtreePattern(path), path);
+    }
+
+    private static String name(String path) {
+        if (path.equals(FolderPaths.ROOT)) {
+            return "";
+        }
+        String trimmed = path.substring(0, path.length() - 1);
+        return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
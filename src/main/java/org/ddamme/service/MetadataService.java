@@ -2,6 +2,9 @@ package org.ddamme.service;
 
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileSort;
+import org.ddamme.dto.PagedFileResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -19,4 +22,10 @@ public interface MetadataService {
     List<FileMetadata> findByUser(User user);
 
     Page<FileMetadata> findByUser(User user, Pageable pageable);
+
+    /**
+     * Filtered, sorted file list. Without a cursor, page is an offset page with totals;
+     * with a cursor from a previous response, the next keyset page follows it.
+     */
+    PagedFileResponse listFiles(User user, FileFilter filter, FileSort sort, String cursor, int page, int size);
 }
@@ -4,8 +4,15 @@ import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
+import org.ddamme.database.repository.FileQueryRepository;
 import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FileSort;
+import org.ddamme.dto.PagedFileResponse;
+import org.ddamme.exception.InvalidRequestException;
 import org.ddamme.exception.ResourceNotFoundException;
+import org.ddamme.util.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -19,6 +26,7 @@ import java.util.List;
 public class MetadataServiceImpl implements MetadataService {
 
     private final MetadataRepository metadataRepository;
+    private final FileQueryRepository fileQueryRepository;
 
     @Override
     @Observed(name = "db.file_metadata.save")
@@ -64,5 +72,46 @@ public class MetadataServiceImpl implements MetadataService {
     public Page<FileMetadata> findByUser(User user, Pageable pageable) {
         return metadataRepository.findByUserIdOrderByUploadTimestampDesc(user.getId(), pageable);
     }
-}
 
+    @Override
+    @Transactional(readOnly = true)
+    @Observed(name = "db.file_metadata.listFiles")
+    public PagedFileResponse listFiles(User user, FileFilter filter, FileSort sort, String cursor, int page, int size) {
+        String[] after = KeysetCursor.decode(cursor, 3);
+        if (after != null && !after[0].equals(sort.token())) {
+            throw new InvalidRequestException("Cursor does not match the requested sort order");
+        }
+        long offset = after == null ? (long) page * size : 0;
+
+        List<FileListResponse> rows = fileQueryRepository.find(
+                user.getId(), filter, sort,
+                after == null ? null : sort.field().parameter(after[1]),
+                after == null ? null : KeysetCursor.longValue(after[2]),
+                offset, size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<FileListResponse> files = hasNext ? rows.subList(0, size) : rows;
+        FileListResponse last = files.isEmpty() ? null : files.get(files.size() - 1);
+
+        PagedFileResponse.PagedFileResponseBuilder response = PagedFileResponse.builder()
+                .files(files)
+                .hasNext(hasNext)
+                .hasPrevious(after != null || page > 0)
+                .nextCursor(hasNext
+                        ? KeysetCursor.encode(sort.token(), sort.field().cursorValue(last), last.getId())
+                        : null);
+        if (after != null) {
+            return response.build();
+        }
+
+        // The last page already tells the total; only count when more rows follow
+        long total = !hasNext && (last != null || offset == 0)
+                ? offset + files.size()
+                : fileQueryRepository.count(user.getId(), filter);
+        return response
+                .currentPage(page)
+                .totalPages((int) ((total + size - 1) / size))
+                .totalElements(total)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package org.ddamme.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.ddamme.config.SearchCacheProperties;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.metrics.Metrics;
+import org.ddamme.service.events.FileEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of search result pages.
+ *
+ * Entries are keyed by the user's current generation. Anything that changes what a
+ * search can return (upload, delete, OCR text) bumps the generation after commit, so
+ * older entries can no longer be looked up and simply age out. Generations come from
+ * one node-wide counter: a user whose generation was evicted gets a fresh value, never
+ * one that older entries were stored under.
+ *
+ * Bumping only after commit keeps this exact: a search racing a write either read
+ * before the bump (and its entry is unreachable) or started after the commit (and saw it).
+ * That holds only for reads from the primary: SearchService never fills the cache from a
+ * replica, which may lag behind the commit it started after.
+ *
+ * Hit ratio: cache.gets{cache=search.results,result=hit|miss}.
+ */
+@Component
+public class SearchResultCache {
+
+    private final SearchCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Cache<Key, SearchResponse> results;
+    private final Cache<Long, Long> generations;
+    private final AtomicLong nextGeneration = new AtomicLong();
+
+    public SearchResultCache(SearchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        // Outlives the result entries it guards; losing one only costs a cold cache for that user
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterAccess(properties.getTtl().multipliedBy(2))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "search.results");
+    }
+
+    /**
+     * Returns the cached page for this search, or runs search and caches its result.
+     */
+    public SearchResponse get(long userId, String query, Double lastRank, Long lastId, int limit,
+                              SnippetMode snippets, Supplier<SearchResponse> search) {
+        return get(userId, query, lastRank, lastId, limit, snippets, false, search);
+    }
+
+    /**
+     * As above, for pages that also carry facet counts when facets is set.
+     */
+    public SearchResponse get(long userId, String query, Double lastRank, Long lastId, int limit,
+                              SnippetMode snippets, boolean facets, Supplier<SearchResponse> search) {
+        if (!properties.isEnabled()) {
+            return search.get();
+        }
+        Key key = new Key(userId, generation(userId), normalize(query), lastRank, lastId, limit, snippets, facets);
+        SearchResponse cached = results.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        SearchResponse response = search.get();
+        results.put(key, response);
+        return response;
+    }
+
+    /**
+     * Drops the user's cached searches once the current transaction commits (immediately
+     * outside a transaction).
+     */
+    public void invalidate(long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(userId);
+                }
+            });
+        } else {
+            bump(userId);
+        }
+    }
+
+    /**
+     * Writes made on other nodes arrive as file events (see FileEventListener); for local
+     * writes this repeats the invalidation already done after commit, which is harmless.
+     */
+    @EventListener
+    public void onFileEvent(FileEvent event) {
+        switch (event.type()) {
+            case FileEvent.UPLOAD_COMMITTED, FileEvent.FILE_DELETED, FileEvent.JOB_COMPLETED ->
+                    invalidate(event.userId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Same key for queries that websearch_to_tsquery parses identically: it ignores case
+     * and runs of whitespace.
+     */
+    static String normalize(String query) {
+        return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private long generation(long userId) {
+        return generations.get(userId, id -> nextGeneration.incrementAndGet());
+    }
+
+    private void bump(long userId) {
+        generations.put(userId, nextGeneration.incrementAndGet());
+        Metrics.increment(meterRegistry, "search.cache.invalidations");
+    }
+
+    private record Key(long userId, long generation, String query, Double lastRank, Long lastId, int limit,
+                       SnippetMode snippets, boolean facets) {
+    }
+}
@@ -1,21 +1,37 @@
 package org.ddamme.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.LanguageProperties;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
+import org.ddamme.database.repository.FileQueryRepository;
+import org.ddamme.database.repository.LexiconRepository;
 import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.database.routing.ReplicaReads;
+import org.ddamme.dto.FilenameSuggestionDto;
+import org.ddamme.dto.SearchFacets;
 import org.ddamme.dto.SearchResponse;
 import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.exception.InvalidRequestException;
 import org.ddamme.logging.AuditLogger;
+import org.ddamme.util.Snippets;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Full-text search service using PostgreSQL FTS.
@@ -27,12 +43,49 @@ import java.util.Map;
  * - Phrase search ("exact phrase")
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SearchService {
 
+    static final int MAX_SUGGESTIONS = 20;
+    static final int MAX_SUGGEST_PREFIX = 100;
+
+    /** Words as the 'simple' text search parser splits them (letters, then letters or digits) */
+    private static final Pattern WORD = Pattern.compile("\\p{L}[\\p{L}\\p{N}]*");
+
+    /** Boolean operators in any case; never spell-corrected */
+    private static final Set<String> OPERATORS = Set.of("and", "or");
+
     private final MetadataRepository metadataRepository;
+    private final FileQueryRepository fileQueryRepository;
+    private final LexiconRepository lexiconRepository;
     private final MetadataService metadataService;
+    private final SearchResultCache searchResultCache;
+    private final LanguageProperties languageProperties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate primaryReadTransaction;
+    private final int facetExactLimit;
+
+    public SearchService(MetadataRepository metadataRepository,
+                         FileQueryRepository fileQueryRepository,
+                         LexiconRepository lexiconRepository,
+                         MetadataService metadataService,
+                         SearchResultCache searchResultCache,
+                         LanguageProperties languageProperties,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${search.facets.exact-limit:10000}") int facetExactLimit) {
+        this.metadataRepository = metadataRepository;
+        this.fileQueryRepository = fileQueryRepository;
+        this.lexiconRepository = lexiconRepository;
+        this.metadataService = metadataService;
+        this.searchResultCache = searchResultCache;
+        this.languageProperties = languageProperties;
+        this.readOnlyTransaction = ReplicaReads.readOnlyTemplate(transactionManager);
+        // Cached pages: a replica could still return what the primary held before the
+        // write that bumped the generation, and the stale page would be cached under it
+        this.primaryReadTransaction = new TransactionTemplate(transactionManager);
+        this.primaryReadTransaction.setReadOnly(true);
+        this.facetExactLimit = facetExactLimit;
+    }
 
     /**
      * Search files by text content.
@@ -46,7 +99,8 @@ public class SearchService {
 
         log.debug("Searching for: '{}' (userId={})", query, user.getId());
 
-        List<Object[]> rows = metadataRepository.searchTextRaw(user.getId(), query);
+        List<Object[]> rows = metadataRepository.searchTextRaw(
+                user.getId(), languageProperties.searchConfigs(), query);
         List<SearchResultDto> dtos = new ArrayList<>(rows.size());
 
         for (Object[] r : rows) {
@@ -110,11 +164,26 @@ public class SearchService {
      * @param lastRank Rank value of last result from previous page (null for first page)
      * @param lastId ID of last result from previous page (null for first page)
      * @param limit Results per page (default: 20, max: 100)
+     * @param snippets HTML snippets, plain snippets with match offsets, or none
      * @return SearchResponse with results and pagination metadata
+     *
+     * Pages are served from SearchResultCache when the same page was fetched since the
+     * user's last change; a hit opens no transaction. A miss reads from the primary, never a
+     * replica, so a cached page always reflects the writes that produced its generation.
      */
-    @Transactional(readOnly = true)
     public SearchResponse searchTextWithPagination(
-            User user, String query, Double lastRank, Long lastId, int limit) {
+            User user, String query, Double lastRank, Long lastId, int limit, SnippetMode snippets) {
+        return searchTextWithPagination(user, query, lastRank, lastId, limit, snippets, false);
+    }
+
+    /**
+     * As above; with facets set, the first page also carries facet counts over all matches
+     * (SearchFacets), computed in the same statement as the page. Later pages never do: the
+     * counts do not change while paging.
+     */
+    public SearchResponse searchTextWithPagination(
+            User user, String query, Double lastRank, Long lastId, int limit, SnippetMode snippets,
+            boolean facets) {
         
         if (query == null || query.isBlank()) {
             return SearchResponse.builder()
@@ -126,25 +195,101 @@ public class SearchService {
         
         // Validate and cap limit
         int effectiveLimit = Math.min(Math.max(limit, 1), 100);
-        
+
+        boolean withFacets = facets && lastRank == null;
+        boolean[] cached = {true};
+        SearchResponse response = searchResultCache.get(
+                user.getId(), query, lastRank, lastId, effectiveLimit, snippets, withFacets, () -> {
+                    cached[0] = false;
+                    return primaryReadTransaction.execute(
+                            status -> searchPage(user, query, lastRank, lastId, effectiveLimit, snippets, withFacets));
+                });
+
+        log.info("Search returned {} results (hasMore={}, cached={}) for query: '{}' (userId={})",
+                response.getCount(), response.isHasMore(), cached[0], query, user.getId());
+
+        AuditLogger.log("SEARCH_TEXT_PAGINATED",
+                Map.of("username", user.getUsername(), "query", query,
+                       "resultCount", response.getCount(), "hasMore", response.isHasMore()));
+
+        return response;
+    }
+
+    private SearchResponse searchPage(User user, String query, Double lastRank, Long lastId, int effectiveLimit,
+                                      SnippetMode snippets, boolean withFacets) {
         // Fetch limit + 1 to detect "has more" without separate count query
-        List<Object[]> rows = metadataRepository.searchTextWithCursor(
-                user.getId(), query, lastRank, lastId, effectiveLimit + 1);
-        
-        boolean hasMore = rows.size() > effectiveLimit;
-        List<Object[]> pageRows = hasMore ? rows.subList(0, effectiveLimit) : rows;
-        
-        List<SearchResultDto> dtos = new ArrayList<>(pageRows.size());
+        List<SearchResultDto> ranked;
+        SearchFacets facets = null;
+        if (withFacets) {
+            FileQueryRepository.FacetedPage page =
+                    fileQueryRepository.searchWithFacets(user.getId(), languageProperties.searchConfigs(),
+                            query, effectiveLimit + 1, facetExactLimit);
+            ranked = page.results();
+            facets = page.facets();
+        } else {
+            ranked = rank(user, query, lastRank, lastId, effectiveLimit + 1);
+        }
+
+        if (ranked.isEmpty() && lastRank == null) {
+            return fuzzyFallback(user, query, effectiveLimit, snippets);
+        }
+
+        boolean hasMore = ranked.size() > effectiveLimit;
+        List<SearchResultDto> dtos = hasMore ? ranked.subList(0, effectiveLimit) : ranked;
+
+        addSnippets(user, query, dtos, snippets);
         
-        for (Object[] r : pageRows) {
+        // Extract cursor from last result for next page
+        Double nextRank = null;
+        Long nextId = null;
+        if (!dtos.isEmpty()) {
+            SearchResultDto lastResult = dtos.get(dtos.size() - 1);
+            nextRank = lastResult.getRank();
+            nextId = lastResult.getFileId();
+        }
+
+        return SearchResponse.builder()
+                .results(dtos)
+                .nextRank(nextRank)
+                .nextId(nextId)
+                .hasMore(hasMore)
+                .count(dtos.size())
+                .facets(facets)
+                .build();
+    }
+
+    /**
+     * The query's limit best full-text matches, without snippets or fuzzy fallback (one leg
+     * of hybrid search). Runs in a read-only transaction.
+     */
+    public List<SearchResultDto> topMatches(User user, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return readOnlyTransaction.execute(status -> rank(user, query, null, null, limit));
+    }
+
+    /**
+     * Sets snippets on results found by full-text search for query, as the paginated search
+     * would (ts_headline for these rows only).
+     */
+    public void highlight(User user, String query, List<SearchResultDto> results, SnippetMode snippets) {
+        addSnippets(user, query, results, snippets);
+    }
+
+    private List<SearchResultDto> rank(User user, String query, Double lastRank, Long lastId, int limit) {
+        List<Object[]> rows = metadataRepository.searchTextWithCursor(
+                user.getId(), languageProperties.searchConfigs(), query, lastRank, lastId, limit);
+        List<SearchResultDto> dtos = new ArrayList<>(rows.size());
+
+        for (Object[] r : rows) {
             Long id = ((Number) r[0]).longValue();
             String filename = (String) r[1];
             String contentType = (String) r[2];
             Long size = ((Number) r[3]).longValue();
             Instant uploadedAt = convertToInstant(r[4]);
             Double rank = ((Number) r[5]).doubleValue();
-            String snippet = (String) r[6];
-            Float ocrConfidence = r[7] != null ? ((Number) r[7]).floatValue() : null;
+            Float ocrConfidence = r[6] != null ? ((Number) r[6]).floatValue() : null;
 
             dtos.add(SearchResultDto.builder()
                     .fileId(id)
@@ -152,37 +297,120 @@ public class SearchService {
                     .contentType(contentType)
                     .size(size)
                     .uploadedAt(uploadedAt)
-                    .snippet(snippet)
                     .ocrConfidence(ocrConfidence)
                     .rank(rank)
                     .build());
         }
-        
-        // Extract cursor from last result for next page
-        Double nextRank = null;
-        Long nextId = null;
-        if (!dtos.isEmpty()) {
-            SearchResultDto lastResult = dtos.get(dtos.size() - 1);
-            nextRank = lastResult.getRank();
-            nextId = lastResult.getFileId();
+        return dtos;
+    }
+
+    /**
+     * The query as typed matched nothing (often OCR misrecognitions or typos): retry with
+     * each unknown word replaced by the closest word from the user's vocabulary, and failing
+     * that return files whose names are similar to the query. Both lookups are trigram
+     * index scans. The page is a preview without a cursor; clients page by searching
+     * didYouMean.
+     */
+    private SearchResponse fuzzyFallback(User user, String query, int limit, SnippetMode snippets) {
+        String corrected = didYouMean(user.getId(), query);
+        List<SearchResultDto> results = corrected == null ? List.of() : rank(user, corrected, null, null, limit);
+        if (results.isEmpty()) {
+            results = fileQueryRepository.similarFilenames(user.getId(), query, limit);
         }
-        
-        log.info("Search returned {} results (hasMore={}) for query: '{}' (userId={})",
-                dtos.size(), hasMore, query, user.getId());
-        
-        AuditLogger.log("SEARCH_TEXT_PAGINATED",
-                Map.of("username", user.getUsername(), "query", query, 
-                       "resultCount", dtos.size(), "hasMore", hasMore));
-        
+        addSnippets(user, corrected == null ? query : corrected, results, snippets);
+
+        log.debug("Fuzzy fallback for '{}': didYouMean='{}', results={} (userId={})",
+                query, corrected, results.size(), user.getId());
+
         return SearchResponse.builder()
-                .results(dtos)
-                .nextRank(nextRank)
-                .nextId(nextId)
-                .hasMore(hasMore)
-                .count(dtos.size())
+                .results(results)
+                .hasMore(false)
+                .count(results.size())
+                .didYouMean(corrected)
+                .fuzzy(true)
                 .build();
     }
 
+    /**
+     * The query with each word the user's files do not contain replaced by the most similar
+     * word they do contain; null if no word could be corrected. Operators ("AND"/"OR" in any
+     * case, quotes, leading "-") are kept as typed.
+     */
+    String didYouMean(long userId, String query) {
+        List<String> words = new ArrayList<>();
+        Matcher m = WORD.matcher(query);
+        while (m.find()) {
+            String word = m.group().toLowerCase(Locale.ROOT);
+            if (word.length() >= 3 && !OPERATORS.contains(word)) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+
+        Set<String> known = lexiconRepository.known(userId, words);
+        Map<String, String> corrections = new HashMap<>();
+        for (String word : words) {
+            if (!known.contains(word) && !corrections.containsKey(word)) {
+                lexiconRepository.closest(userId, word).ifPresent(c -> corrections.put(word, c));
+            }
+        }
+        if (corrections.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder corrected = new StringBuilder();
+        m = WORD.matcher(query);
+        while (m.find()) {
+            String replacement = corrections.getOrDefault(m.group().toLowerCase(Locale.ROOT), m.group());
+            m.appendReplacement(corrected, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(corrected);
+        return corrected.toString();
+    }
+
+    /**
+     * Second query: ts_headline over the full text only for the rows of the final page,
+     * never for candidates that are ranked and discarded.
+     */
+    private void addSnippets(User user, String query, List<SearchResultDto> page, SnippetMode snippets) {
+        if (snippets == SnippetMode.NONE || page.isEmpty()) {
+            return;
+        }
+        Map<Long, SearchResultDto> byId = new HashMap<>();
+        page.forEach(dto -> byId.put(dto.getFileId(), dto));
+
+        for (Object[] r : metadataRepository.searchSnippets(
+                user.getId(), languageProperties.searchConfigs(), query, byId.keySet(), snippets.headlineOptions())) {
+            SearchResultDto dto = byId.get(((Number) r[0]).longValue());
+            String snippet = (String) r[1];
+            if (snippets == SnippetMode.OFFSETS) {
+                Snippets.Marked marked = Snippets.parse(snippet);
+                dto.setSnippet(marked.text());
+                dto.setHighlights(marked.highlights());
+            } else {
+                dto.setSnippet(snippet);
+            }
+        }
+    }
+
+    /**
+     * Filename typeahead: cheap trigram lookups instead of a ranked FTS query per keystroke.
+     */
+    @Transactional(readOnly = true)
+    public List<FilenameSuggestionDto> suggestFilenames(User user, String prefix, int limit) {
+        String normalized = prefix == null ? "" : prefix.strip();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        if (normalized.length() > MAX_SUGGEST_PREFIX) {
+            throw new InvalidRequestException("prefix must be at most " + MAX_SUGGEST_PREFIX + " characters");
+        }
+        int effectiveLimit = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        return fileQueryRepository.suggestFilenames(user.getId(), normalized, effectiveLimit);
+    }
+
     /**
      * Check if file has OCR text.
      */
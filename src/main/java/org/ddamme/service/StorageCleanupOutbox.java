@@ -0,0 +1,164 @@
+package org.ddamme.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardRouter;
+import org.ddamme.metrics.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Durable record of S3 objects that may need deleting (storage_cleanup_outbox, see V6).
+ *
+ * Pattern: Outbox + compensating cleanup
+ * - Upload: reserve() before the S3 PUT, release() in the metadata insert transaction.
+ *   If the insert fails the object is deleted inline; if the node dies in between,
+ *   the reservation expires and sweep() deletes the orphan.
+ * - Delete: enqueueDelete() in the metadata delete transaction, then deleteNow() after commit.
+ *   Failed S3 deletes are retried by sweep() with backoff.
+ *
+ * No transaction is held while S3 is called - statements here are single autocommit
+ * round trips unless the caller joins them to its own transaction.
+ *
+ * Rows live on the shard of the file's owner (written in the same transaction as file_metadata),
+ * so sweep() runs per shard.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StorageCleanupOutbox {
+
+    static final String PENDING_UPLOAD = "PENDING_UPLOAD";
+    static final String DELETED = "DELETED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StorageService storageService;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+
+    /** How long an upload may take before its reserved key is treated as orphaned */
+    @Value("${storage.cleanup.upload-grace:PT1H}")
+    private Duration uploadGrace;
+
+    /** Backoff before the sweeper retries a failed (or not yet attempted) delete */
+    @Value("${storage.cleanup.retry-backoff:PT5M}")
+    private Duration retryBackoff;
+
+    @Value("${storage.cleanup.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * Records intent to upload storageKey. Must commit before the S3 PUT starts.
+     *
+     * @return reservation id to pass to release() once metadata is saved
+     */
+    public long reserve(String storageKey) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO storage_cleanup_outbox (storage_key, reason, not_before)
+                VALUES (?, ?, NOW() + (? * INTERVAL '1 second'))
+                RETURNING id
+                """, Long.class, storageKey, PENDING_UPLOAD, uploadGrace.toSeconds());
+    }
+
+    /**
+     * Drops a reservation. Call inside the transaction that inserts file_metadata so the
+     * object is "owned" atomically.
+     */
+    public void release(long id) {
+        jdbcTemplate.update("DELETE FROM storage_cleanup_outbox WHERE id = ?", id);
+    }
+
+    /**
+     * Schedules deletion of storageKey. Call inside the transaction that deletes file_metadata.
+     * The sweeper only picks it up after retryBackoff, leaving the inline deleteNow() first.
+     */
+    public long enqueueDelete(String storageKey) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO storage_cleanup_outbox (storage_key, reason, not_before)
+                VALUES (?, ?, NOW() + (? * INTERVAL '1 second'))
+                RETURNING id
+                """, Long.class, storageKey, DELETED, retryBackoff.toSeconds());
+    }
+
+    /**
+     * Deletes the object now (outside any transaction) and resolves the outbox row.
+     * Failures are recorded and left for sweep() - never rethrown.
+     *
+     * @return true if the object was deleted
+     */
+    public boolean deleteNow(long id, String storageKey) {
+        try {
+            storageService.delete(storageKey);
+            jdbcTemplate.update("DELETE FROM storage_cleanup_outbox WHERE id = ?", id);
+            Metrics.increment(meterRegistry, "fs.storage.cleanup", "result", "success");
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("S3 delete for {} failed, will retry from outbox {}: {}", storageKey, id, e.getMessage());
+            jdbcTemplate.update("""
+                    UPDATE storage_cleanup_outbox
+                    SET attempts = attempts + 1, last_error = ?
+                    WHERE id = ?
+                    """, e.getMessage(), id);
+            Metrics.increment(meterRegistry, "fs.storage.cleanup", "result", "failure");
+            return false;
+        }
+    }
+
+    /**
+     * Deletes objects for expired upload reservations and retries failed deletes.
+     *
+     * Claim pushes not_before forward by retryBackoff (a lease), so concurrent nodes skip
+     * claimed rows and a crashed sweeper's rows come back automatically.
+     */
+    @Scheduled(fixedDelayString = "${storage.cleanup.sweep-interval:60000}")
+    public void sweep() {
+        shardRouter.forEachShard("Storage cleanup sweep", shardId -> sweepShard());
+    }
+
+    private void sweepShard() {
+        try {
+            // Safety belt: never delete an object that file_metadata references
+            jdbcTemplate.update("""
+                    DELETE FROM storage_cleanup_outbox o
+                    WHERE o.reason = ?
+                      AND o.not_before <= NOW()
+                      AND EXISTS (SELECT 1 FROM file_metadata fm WHERE fm.storage_key = o.storage_key)
+                    """, PENDING_UPLOAD);
+
+            List<Object[]> claimed = jdbcTemplate.query("""
+                    UPDATE storage_cleanup_outbox o
+                    SET not_before = NOW() + (? * INTERVAL '1 second')
+                    WHERE o.id IN (
+                        SELECT id FROM storage_cleanup_outbox
+                        WHERE not_before <= NOW()
+                        ORDER BY not_before
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                    )
+                    RETURNING o.id, o.storage_key
+                    """,
+                    (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2)},
+                    retryBackoff.toSeconds(), batchSize);
+
+            int deleted = 0;
+            for (Object[] row : claimed) {
+                if (deleteNow((Long) row[0], (String) row[1])) {
+                    deleted++;
+                }
+            }
+
+            if (!claimed.isEmpty()) {
+                log.info("Storage cleanup: deleted {}/{} outbox objects", deleted, claimed.size());
+            }
+        } catch (Exception e) {
+            log.error("Storage cleanup sweep failed", e);
+            // Don't rethrow - allow next scheduled run to retry
+        }
+    }
+}
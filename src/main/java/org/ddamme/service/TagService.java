@@ -0,0 +1,62 @@
+package org.ddamme.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.FileQueryRepository;
+import org.ddamme.dto.BulkTagRequest;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.TagCountDto;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.util.FileTags;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * User-defined file tags: facet counts and bulk tag/untag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class TagService {
+
+    static final int MAX_FACETS = 100;
+
+    private final FileQueryRepository fileQueryRepository;
+
+    /**
+     * Tags used on the files matching filter, most used first.
+     */
+    @Transactional(readOnly = true)
+    public List<TagCountDto> facets(User user, FileFilter filter, int limit) {
+        return fileQueryRepository.tagFacets(user.getId(), filter, Math.max(1, Math.min(limit, MAX_FACETS)));
+    }
+
+    /**
+     * Adds and removes tags on many files in one statement. Files the user does not
+     * own are skipped.
+     *
+     * @return number of files updated
+     */
+    public int bulkUpdate(User user, BulkTagRequest request) {
+        List<String> add = FileTags.normalize(request.getAdd());
+        List<String> remove = FileTags.normalize(request.getRemove());
+        if (add.isEmpty() && remove.isEmpty()) {
+            throw new InvalidRequestException("Nothing to add or remove");
+        }
+
+        try {
+            int updated = fileQueryRepository.updateTags(user.getId(), request.getFileIds(), add, remove);
+            log.info("Tagged {} files (+{} -{}, userId={})", updated, add, remove, user.getId());
+            return updated;
+        } catch (DataIntegrityViolationException e) {
+            // chk_file_metadata_tags_count
+            throw new InvalidRequestException(
+                    "A file would exceed " + FileTags.MAX_TAGS_PER_FILE + " tags", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.ddamme.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly ai_jobs partitions (see V8) rolling.
+ *
+ * - Creates partitions for the current month and the next N months, so inserts never
+ *   hit a missing range (there is deliberately no DEFAULT partition)
+ * - Detaches partitions older than the retention window once they hold no PENDING,
+ *   RUNNING or FAILED jobs, then either keeps them as ai_jobs_archive_YYYY_MM tables
+ *   (archive-mode=detach, for pg_dump to cold storage) or drops them (archive-mode=drop)
+ *
+ * DETACH ... CONCURRENTLY must run outside a transaction, so this class deliberately
+ * has no @Transactional. Runs at startup and then daily, per shard.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ai.jobs.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class AiJobPartitionMaintainer {
+
+    static final String PARENT = "ai_jobs";
+    static final String ARCHIVE_PREFIX = "ai_jobs_archive_";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("ai_jobs_(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+
+    @Value("${ai.jobs.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${ai.jobs.partitions.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${ai.jobs.partitions.archive-mode:detach}")
+    private String archiveMode;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${ai.jobs.partitions.cron:0 30 2 * * *}") // daily @ 02:30
+    public void maintainPartitions() {
+        shardRouter.forEachShard("ai_jobs partition maintenance", shardId -> maintainShard());
+    }
+
+    private void maintainShard() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        int created = 0;
+        for (int i = 0; i <= monthsAhead; i++) {
+            if (createIfMissing(current.plusMonths(i))) {
+                created++;
+            }
+        }
+
+        int archived = 0;
+        YearMonth cutoff = current.minusMonths(retentionMonths);
+        for (String partition : listPartitions()) {
+            Optional<YearMonth> month = monthOf(partition);
+            if (month.isPresent() && month.get().isBefore(cutoff) && archive(partition, month.get())) {
+                archived++;
+            }
+        }
+
+        if (created > 0 || archived > 0) {
+            log.info("ai_jobs partitions: created {}, archived {} (retention: {} months, mode: {})",
+                    created, archived, retentionMonths, archiveMode);
+        } else {
+            log.debug("ai_jobs partitions: nothing to do");
+        }
+    }
+
+    private boolean createIfMissing(YearMonth month) {
+        String name = partitionName(month);
+        Boolean missing = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, name);
+        if (!Boolean.TRUE.equals(missing)) {
+            return false;
+        }
+        // Identifiers and bounds are derived from YearMonth, never from input
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT
+                + " FOR VALUES FROM ('" + lowerBound(month) + "') TO ('" + lowerBound(month.plusMonths(1)) + "')");
+        meterRegistry.counter("ai.jobs.partitions", "action", "created").increment();
+        return true;
+    }
+
+    private boolean archive(String partition, YearMonth month) {
+        Boolean active = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition
+                        + " WHERE job_status IN ('PENDING', 'RUNNING', 'FAILED'))", Boolean.class);
+        if (Boolean.TRUE.equals(active)) {
+            log.warn("ai_jobs partition {} is past retention but still has unfinished jobs; keeping it", partition);
+            meterRegistry.counter("ai.jobs.partitions", "action", "skipped").increment();
+            return false;
+        }
+
+        // CONCURRENTLY only takes SHARE UPDATE EXCLUSIVE on the parent, so claims keep running
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partition + " CONCURRENTLY");
+        if ("drop".equalsIgnoreCase(archiveMode)) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            meterRegistry.counter("ai.jobs.partitions", "action", "dropped").increment();
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + archiveName(month));
+            meterRegistry.counter("ai.jobs.partitions", "action", "detached").increment();
+        }
+        return true;
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'ai_jobs'::regclass
+                ORDER BY c.relname
+                """, String.class);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT + "_" + month.format(SUFFIX);
+    }
+
+    static String archiveName(YearMonth month) {
+        return ARCHIVE_PREFIX + month.format(SUFFIX);
+    }
+
+    /** Partition bounds are UTC month starts, matching V8. */
+    static String lowerBound(YearMonth month) {
+        return month.atDay(1) + " 00:00:00+00";
+    }
+
+    static Optional<YearMonth> monthOf(String partition) {
+        Matcher m = PARTITION_NAME.matcher(partition);
+        if (!m.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+    }
+}
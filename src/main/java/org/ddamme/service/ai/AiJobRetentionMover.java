@@ -0,0 +1,103 @@
+package org.ddamme.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Moves finished (DONE/DLQ) jobs from ai_jobs into ai_jobs_history (see V9).
+ *
+ * Without this, the claim query and the status gauges scan a queue table that grows with
+ * every job ever processed. Moving finished jobs keeps ai_jobs at working-set size.
+ *
+ * - One statement per batch (DELETE ... RETURNING feeding INSERT), so each batch is atomic
+ *   and a crash never leaves a job in both tables or in neither
+ * - FOR UPDATE SKIP LOCKED: concurrent movers (several instances) take disjoint batches
+ * - The (file, type) slot in ai_job_keys is kept, so archived jobs are not re-created
+ *
+ * Runs per shard; query both tables through AiJobService.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ai.jobs.retention.enabled", havingValue = "true", matchIfMissing = true)
+public class AiJobRetentionMover {
+
+    private static final String MOVE_BATCH = """
+            WITH batch AS (
+                SELECT id, created_at
+                FROM ai_jobs
+                WHERE job_status IN ('DONE', 'DLQ')
+                  AND updated_at < NOW() - (? * INTERVAL '1 second')
+                ORDER BY updated_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), moved AS (
+                DELETE FROM ai_jobs j
+                USING batch b
+                WHERE j.id = b.id AND j.created_at = b.created_at
+                RETURNING j.*
+            )
+            INSERT INTO ai_jobs_history (id, user_id, file_id, job_type, job_status, priority, attempts,
+                                         max_attempts, next_attempt_at, locked_by, locked_at, depends_on_job_id,
+                                         input_params, output_data, error_message, created_at, updated_at,
+                                         completed_at)
+            SELECT id, user_id, file_id, job_type, job_status, priority, attempts,
+                   max_attempts, next_attempt_at, locked_by, locked_at, depends_on_job_id,
+                   input_params, output_data, error_message, created_at, updated_at,
+                   completed_at
+            FROM moved
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+
+    /** Finished jobs younger than this stay in ai_jobs (recent results, DLQ triage) */
+    @Value("${ai.jobs.retention.min-age:P7D}")
+    private Duration minAge;
+
+    @Value("${ai.jobs.retention.batch-size:1000}")
+    private int batchSize;
+
+    /** Caps one run so a large backlog is drained over several runs instead of one long burst */
+    @Value("${ai.jobs.retention.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(fixedDelayString = "${ai.jobs.retention.interval:300000}")
+    public void moveFinishedJobs() {
+        shardRouter.forEachShard("AI job retention", shardId -> moveShard());
+    }
+
+    /**
+     * Moves batches until one comes back short or the per-run cap is hit.
+     *
+     * @return number of jobs moved on the current shard
+     */
+    int moveShard() {
+        int moved = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int batch = jdbcTemplate.update(MOVE_BATCH, minAge.toSeconds(), batchSize);
+            moved += batch;
+            if (batch < batchSize) {
+                break;
+            }
+        }
+
+        if (moved > 0) {
+            log.info("AI job retention moved {} finished jobs to ai_jobs_history (min age: {})", moved, minAge);
+        } else {
+            log.debug("AI job retention: nothing to move");
+        }
+        meterRegistry.counter("ai.jobs.retention.moved").increment(moved);
+        return moved;
+    }
+}
@@ -9,12 +9,18 @@ import org.ddamme.config.AiWorkerProperties;
 import org.ddamme.database.model.AiJob;
 import org.ddamme.database.model.JobStatus;
 import org.ddamme.database.repository.AiJobRepository;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.database.shard.ShardRouter;
+import org.ddamme.service.events.FileEvent;
+import org.ddamme.service.events.FileEventPublisher;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.net.InetAddress;
 import java.time.Duration;
@@ -32,7 +38,10 @@ import java.util.concurrent.Executor;
  * - Execute jobs via JobHandler implementations
  * - Retry failed jobs with exponential backoff
  * - Reclaim stuck jobs (worker died/hung)
- * - Move permanently failed jobs to DLQ
+ * - Move permanently failed jobs to DLQ, along with the jobs waiting on them
+ *
+ * With sharding enabled, claim and reclaim run once per shard (each with its own short
+ * transaction) and executions carry the job's shard onto the executor thread.
  */
 @Service
 @ConditionalOnProperty(name = "ai.worker.enabled", havingValue = "true", matchIfMissing = true)
@@ -44,6 +53,9 @@ public class AiJobScheduler {
     private final List<JobHandler> jobHandlers;
     private final MeterRegistry meterRegistry;
     private final Executor aiJobExecutor;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final FileEventPublisher eventPublisher;
 
     private String workerId;
 
@@ -56,12 +68,18 @@ public class AiJobScheduler {
             AiWorkerProperties properties,
             List<JobHandler> jobHandlers,
             MeterRegistry meterRegistry,
-            @Qualifier("aiJobExecutor") Executor aiJobExecutor) {
+            @Qualifier("aiJobExecutor") Executor aiJobExecutor,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            FileEventPublisher eventPublisher) {
         this.jobRepository = jobRepository;
         this.properties = properties;
         this.jobHandlers = jobHandlers;
         this.meterRegistry = meterRegistry;
         this.aiJobExecutor = aiJobExecutor;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -93,22 +111,28 @@ public class AiJobScheduler {
      * Registered once at startup; monitoring system polls on its schedule (e.g., Prometheus every 15s).
      */
     private void registerGauges() {
-        // Pending jobs gauge (queries DB on each scrape)
-        Gauge.builder("ai.jobs.pending", jobRepository, 
-                repo -> repo.countByJobStatus(JobStatus.PENDING))
-            .description("Current pending job queue depth")
-            .tag("status", "pending")
-            .baseUnit("jobs")
-            .register(meterRegistry);
-            
-        // Running jobs gauge (queries DB on each scrape)
-        Gauge.builder("ai.jobs.running", jobRepository,
-                repo -> repo.countByJobStatus(JobStatus.RUNNING))
-            .description("Currently executing jobs")
-            .tag("status", "running")
-            .baseUnit("jobs")
-            .register(meterRegistry);
-            
+        for (int shardId : shardRouter.shardIds()) {
+            String shard = String.valueOf(shardId);
+
+            // Pending jobs gauge (queries the shard on each scrape)
+            Gauge.builder("ai.jobs.pending", jobRepository,
+                    repo -> ShardContext.callOn(shardId, () -> repo.countByJobStatus(JobStatus.PENDING)))
+                .description("Current pending job queue depth")
+                .tag("status", "pending")
+                .tag("shard", shard)
+                .baseUnit("jobs")
+                .register(meterRegistry);
+
+            // Running jobs gauge (queries the shard on each scrape)
+            Gauge.builder("ai.jobs.running", jobRepository,
+                    repo -> ShardContext.callOn(shardId, () -> repo.countByJobStatus(JobStatus.RUNNING)))
+                .description("Currently executing jobs")
+                .tag("status", "running")
+                .tag("shard", shard)
+                .baseUnit("jobs")
+                .register(meterRegistry);
+        }
+
         log.info("AI job queue gauges registered (supplier pattern)");
     }
 
@@ -118,19 +142,18 @@ public class AiJobScheduler {
      */
     @Scheduled(fixedDelayString = "${ai.worker.poll-interval:5000}")
     public void pollJobs() {  // ⬅ removed @Transactional
-        try {
+        // One claim per shard; a failing shard doesn't block the others
+        shardRouter.forEachShard("Job poll", shardId -> {
             List<Long> jobIds = claimReadyJobs(); // short tx, commits immediately
 
             if (!jobIds.isEmpty()) {
-                log.debug("Claimed {} jobs: {}", jobIds.size(), jobIds);
+                log.debug("Claimed {} jobs on shard {}: {}", jobIds.size(), shardId, jobIds);
                 recordMetric("ai.jobs.claimed", jobIds.size());
 
-                // Dispatch each job to executor pool
-                jobIds.forEach(id -> aiJobExecutor.execute(() -> executeJobById(id)));
+                // Dispatch each job to executor pool (wrap carries the shard binding)
+                jobIds.forEach(id -> aiJobExecutor.execute(ShardContext.wrap(() -> executeJobById(id))));
             }
-        } catch (Exception e) {
-            log.error("Error polling jobs", e);
-        }
+        });
     }
 
     /**
@@ -142,12 +165,19 @@ public class AiJobScheduler {
     }
 
     /**
-     * Reclaim stuck jobs (worker died or hung).
+     * Reclaim stuck jobs (worker died or hung), and fail jobs waiting on a DLQ job.
      * Runs every ai.worker.reclaim-interval (default 60 seconds).
      */
     @Scheduled(fixedDelayString = "${ai.worker.reclaim-interval:60000}")
-    @Transactional
     public void reclaimStuckJobs() {
+        shardRouter.forEachShard("Stuck job reclaim", shardId -> {
+            transactionTemplate.executeWithoutResult(status -> reclaimStuckJobsOnCurrentShard());
+            // Sweep for dependents a failed cascade (or an older version) left PENDING
+            failDependentsOfDlqJobs();
+        });
+    }
+
+    private void reclaimStuckJobsOnCurrentShard() {
         try {
             Instant staleThreshold = Instant.now().minus(properties.getStaleJobTimeout());
             List<AiJob> stuckJobs = jobRepository.findByJobStatusAndLockedAtBefore(
@@ -188,8 +218,8 @@ public class AiJobScheduler {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void executeJobById(Long jobId) {
         try {
-            // Fetch fresh job from DB
-            Optional<AiJob> jobOpt = jobRepository.findById(jobId);
+            // Fetch fresh job from the primary (a replica may not have the claim yet)
+            Optional<AiJob> jobOpt = transactionTemplate.execute(status -> jobRepository.findById(jobId));
             if (jobOpt.isEmpty()) {
                 log.error("Job not found: {}", jobId);
                 return;
@@ -205,6 +235,7 @@ public class AiJobScheduler {
                     job.getAttempts(), job.getMaxAttempts());
 
             Instant startTime = Instant.now();
+            eventPublisher.publishNow(FileEvent.jobStarted(job));
 
             try {
                 // Find handler for this job type
@@ -222,6 +253,8 @@ public class AiJobScheduler {
                 job.setErrorMessage(null);
 
                 jobRepository.save(job);
+                // Best effort: a failed notify must not send a finished job back to retry
+                eventPublisher.publishNow(FileEvent.jobCompleted(job));
 
                 Duration duration = Duration.between(startTime, Instant.now());
                 log.info("Job completed: id={}, type={}, duration={}ms",
@@ -234,6 +267,7 @@ public class AiJobScheduler {
                         job.getId(), job.getJobType(), e.getMessage(), e);
 
                 handleJobFailure(job, e);
+                eventPublisher.publishNow(FileEvent.jobFailed(job, job.getJobStatus() == JobStatus.PENDING));
 
                 recordMetric("ai.jobs.completed", 1, "result", "failure", "type", job.getJobType().name());
             }
@@ -296,9 +330,31 @@ public class AiJobScheduler {
 
             // Avoid error_code tag to prevent cardinality explosion
             recordMetric("ai.jobs.dlq", 1, "type", job.getJobType().name());
+
+            failDependentsOfDlqJobs();
         }
     }
-    
+
+    /**
+     * Moves PENDING jobs that depend on a DLQ job to the DLQ, down the whole chain
+     * (OCR -> EMBED -> ...). They can never be claimed, and would otherwise be re-scanned
+     * by every poll. On failure the reclaim sweep picks them up later.
+     */
+    private void failDependentsOfDlqJobs() {
+        try {
+            while (true) {
+                List<Long> failed = transactionTemplate.execute(status -> jobRepository.failJobsWithFailedDependency());
+                if (failed == null || failed.isEmpty()) {
+                    return;
+                }
+                log.warn("Moved {} jobs to DLQ after their dependency failed: ids={}", failed.size(), failed);
+                recordMetric("ai.jobs.dependency_failed", failed.size());
+            }
+        } catch (Exception e) {
+            log.error("Error failing dependents of DLQ jobs", e);
+        }
+    }
+
     /**
      * Extract error code from exception message for structured DLQ logging.
      * Looks for patterns like "PDF_ENCRYPTED:", "S3_NOT_FOUND:", etc.
@@ -5,18 +5,24 @@ import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.AiJobHistory;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.JobStatus;
 import org.ddamme.database.model.JobType;
 import org.ddamme.database.model.User;
+import org.ddamme.database.repository.AiJobHistoryRepository;
 import org.ddamme.database.repository.AiJobRepository;
 import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.dto.JobDto;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service for creating and managing AI jobs.
@@ -25,6 +31,7 @@ import java.util.Optional;
  * - Idempotent job creation (unique constraint on file_id + job_type)
  * - REQUIRES_NEW transaction isolation (decoupled from upload transaction)
  * - Race condition handling (duplicate key → read winner's ID)
+ * - Queries span the live queue (ai_jobs) and ai_jobs_history (see AiJobRetentionMover)
  * 
  * See: docs/BEST_EFFORT_PATTERN.md for design rationale
  */
@@ -33,6 +40,7 @@ import java.util.Optional;
 public class AiJobService {
 
     private final AiJobRepository jobRepository;
+    private final AiJobHistoryRepository historyRepository;
     private final MetadataRepository metadataRepository;
     private final AiJobService self;
     
@@ -40,10 +48,12 @@ public class AiJobService {
     private EntityManager entityManager;
     
     // Self-injection for @Transactional proxying (must be @Lazy to break circular dependency)
-    public AiJobService(AiJobRepository jobRepository, 
+    public AiJobService(AiJobRepository jobRepository,
+                        AiJobHistoryRepository historyRepository,
                         MetadataRepository metadataRepository,
                         @org.springframework.context.annotation.Lazy AiJobService self) {
         this.jobRepository = jobRepository;
+        this.historyRepository = historyRepository;
         this.metadataRepository = metadataRepository;
         this.self = self;
     }
@@ -73,11 +83,11 @@ public class AiJobService {
             // Winner-read loop (up to 3 attempts) in new transaction
             for (int attempt = 1; attempt <= 3; attempt++) {
                 // Call through self-reference to ensure @Transactional proxying works
-                Optional<AiJob> winner = self.readExistingJob(fileId, jobType);
+                Optional<Long> winner = self.readExistingJob(fileId, jobType);
                 if (winner.isPresent()) {
                     log.debug("Read winner's job after race: fileId={}, jobType={}, jobId={}", 
-                             fileId, jobType, winner.get().getId());
-                    return winner.get().getId();
+                             fileId, jobType, winner.get());
+                    return winner.get();
                 }
                 
                 // Small backoff before retry
@@ -109,6 +119,13 @@ public class AiJobService {
                      fileId, jobType, existing.get().getId());
             return existing.get().getId();
         }
+        // Finished and archived: still owns the (file, type) slot in ai_job_keys
+        Optional<AiJobHistory> archived = historyRepository.findByFileIdAndJobType(fileId, jobType);
+        if (archived.isPresent()) {
+            log.debug("Job already archived: fileId={}, jobType={}, jobId={}",
+                     fileId, jobType, archived.get().getId());
+            return archived.get().getId();
+        }
 
         // Create lightweight entity references
         // Use EntityManager.getReference() to avoid loading User from DB
@@ -137,10 +154,14 @@ public class AiJobService {
     /**
      * Read existing job in a fresh transaction (called after race condition detected).
      * Public for Spring AOP proxying (called via self-reference).
+     * Not readOnly: the conflicting row was just committed on the primary and may not
+     * have reached a replica yet.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
-    public Optional<AiJob> readExistingJob(long fileId, JobType jobType) {
-        return jobRepository.findByFileMetadata_IdAndJobType(fileId, jobType);
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<Long> readExistingJob(long fileId, JobType jobType) {
+        return jobRepository.findByFileMetadata_IdAndJobType(fileId, jobType)
+                .map(AiJob::getId)
+                .or(() -> historyRepository.findByFileIdAndJobType(fileId, jobType).map(AiJobHistory::getId));
     }
 
     /**
@@ -152,19 +173,37 @@ public class AiJobService {
     }
 
     /**
-     * Get all jobs for a user.
+     * Get job by ID from the queue or, once moved, from history.
      */
     @Transactional(readOnly = true)
-    public java.util.List<AiJob> getUserJobs(Long userId) {
-        return jobRepository.findByUser_IdOrderByCreatedAtDesc(userId);
+    public Optional<JobDto> findJob(Long jobId) {
+        return jobRepository.findById(jobId).map(JobDto::from)
+                .or(() -> historyRepository.findById(jobId).map(JobDto::from));
     }
 
     /**
-     * Get failed jobs for a user (for DLQ inspection).
+     * Get all jobs for a user, live and archived, newest first.
      */
     @Transactional(readOnly = true)
-    public java.util.List<AiJob> getUserFailedJobs(Long userId) {
-        return jobRepository.findByUser_IdAndJobStatusOrderByCreatedAtDesc(userId, JobStatus.DLQ);
+    public List<JobDto> getUserJobs(Long userId) {
+        return merge(jobRepository.findByUser_IdOrderByCreatedAtDesc(userId),
+                historyRepository.findByUserIdOrderByCreatedAtDesc(userId));
+    }
+
+    /**
+     * Get failed jobs for a user (for DLQ inspection), live and archived, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<JobDto> getUserFailedJobs(Long userId) {
+        return merge(jobRepository.findByUser_IdAndJobStatusOrderByCreatedAtDesc(userId, JobStatus.DLQ),
+                historyRepository.findByUserIdAndJobStatusOrderByCreatedAtDesc(userId, JobStatus.DLQ));
+    }
+
+    // A job is in exactly one of the two tables (moved atomically), so no de-duplication needed
+    private static List<JobDto> merge(List<AiJob> live, List<AiJobHistory> archived) {
+        return Stream.concat(live.stream().map(JobDto::from), archived.stream().map(JobDto::from))
+                .sorted(Comparator.comparing(JobDto::getCreatedAt).reversed())
+                .toList();
     }
 }
 
@@ -0,0 +1,113 @@
+package org.ddamme.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EmbeddingProperties;
+import org.ddamme.database.model.AiJob;
+import org.ddamme.database.model.FileMetadata;
+import org.ddamme.database.model.JobType;
+import org.ddamme.database.repository.EmbeddingRepository;
+import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.service.ai.embed.EmbeddingProvider;
+import org.ddamme.service.ai.embed.TextChunker;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Job handler for chunk embeddings (semantic search).
+ *
+ * Runs after the file's OCR job (depends_on_job_id), so file_text is final:
+ * 1. Split file_text into overlapping word windows (TextChunker)
+ * 2. Embed them batch-size chunks per model call
+ * 3. Replace the file's rows in file_embeddings and record the model version
+ *
+ * Re-running is safe: the file's previous chunks are replaced, and the model version
+ * recorded, in one transaction of its own (AiJobScheduler calls handlers outside any
+ * transaction), so a failed insert leaves the previous chunks in place.
+ */
+@Component
+@Slf4j
+public class EmbedJobHandler implements JobHandler {
+
+    private final MetadataRepository metadataRepository;
+    private final EmbeddingRepository embeddingRepository;
+    private final EmbeddingProvider embeddingProvider;
+    private final EmbeddingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmbedJobHandler(MetadataRepository metadataRepository,
+                           EmbeddingRepository embeddingRepository,
+                           EmbeddingProvider embeddingProvider,
+                           EmbeddingProperties properties,
+                           MeterRegistry meterRegistry,
+                           PlatformTransactionManager transactionManager) {
+        this.metadataRepository = metadataRepository;
+        this.embeddingRepository = embeddingRepository;
+        this.embeddingProvider = embeddingProvider;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean supports(AiJob job) {
+        return job.getJobType() == JobType.EMBED;
+    }
+
+    @Override
+    public void execute(AiJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // Read-write so it reads the primary, where the OCR text was just written
+        FileMetadata metadata = transactionTemplate.execute(
+                status -> metadataRepository.findById(job.getFileId()).orElse(null));
+        if (metadata == null) {
+            log.warn("File {} deleted from DB before embedding started; marking job DONE-noop", job.getFileId());
+            return;
+        }
+        long userId = metadata.getUser().getId();
+        String text = metadata.getFileText();
+
+        List<TextChunker.Chunk> chunks = text == null || text.isBlank()
+                ? List.of()
+                : TextChunker.chunk(text, properties.getChunkWords(), properties.getChunkOverlap(),
+                        properties.getMaxChunks());
+
+        List<EmbeddingRepository.ChunkEmbedding> embeddings = new ArrayList<>(chunks.size());
+        for (int from = 0; from < chunks.size(); from += properties.getBatchSize()) {
+            List<TextChunker.Chunk> batch = chunks.subList(from, Math.min(from + properties.getBatchSize(), chunks.size()));
+            List<float[]> vectors = embeddingProvider.embed(batch.stream().map(TextChunker.Chunk::text).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                float[] vector = vectors.get(i);
+                if (!EmbeddingProvider.isZero(vector)) {
+                    embeddings.add(new EmbeddingRepository.ChunkEmbedding(
+                            batch.get(i).start(), batch.get(i).end(), vector));
+                }
+            }
+        }
+
+        // Embedding calls above stay outside: no connection is held while the model runs
+        transactionTemplate.executeWithoutResult(status -> {
+            embeddingRepository.replace(userId, metadata.getId(), embeddings);
+            // Not save(metadata): that copy predates the model calls and would revert tag edits
+            metadataRepository.updateEmbeddingModelVersion(metadata.getId(), userId, embeddingProvider.modelVersion());
+        });
+
+        job.setOutputData(Map.of(
+                "chunks", embeddings.size(),
+                "model_version", embeddingProvider.modelVersion()));
+
+        sample.stop(Timer.builder("ai.embed.duration").register(meterRegistry));
+        meterRegistry.counter("ai.embed.chunks").increment(embeddings.size());
+
+        log.info("Embedding completed: fileId={}, chunks={}, model={}",
+                metadata.getId(), embeddings.size(), embeddingProvider.modelVersion());
+    }
+}
@@ -2,27 +2,35 @@ package org.ddamme.service.ai;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.text.PDFTextStripper;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import org.ddamme.config.AiWorkerProperties;
+import org.ddamme.config.LanguageProperties;
 import org.ddamme.database.model.AiJob;
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.JobType;
 import org.ddamme.database.repository.MetadataRepository;
+import org.ddamme.service.SearchResultCache;
 import org.ddamme.service.StorageService;
+import org.ddamme.service.ai.language.DocumentLanguage;
+import org.ddamme.service.ai.language.DocumentLanguageDetector;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Job handler for OCR text extraction.
@@ -32,12 +40,12 @@ import java.util.Map;
  * 2. Download file from S3 to temp location
  * 3. Determine type (PDF vs image)
  * 4. Extract text using OcrService
- * 5. Save text to files.file_text column
- * 6. Store metadata (confidence, model version)
- * 7. Record metrics
+ * 5. Detect the text's language; OCR a scan again with that language's data if installed
+ * 6. Save text to files.file_text column, and the language's text search config
+ * 7. Store metadata (confidence, model version)
+ * 8. Record metrics
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class OcrJobHandler implements JobHandler {
 
@@ -45,6 +53,31 @@ public class OcrJobHandler implements JobHandler {
     private final MetadataRepository metadataRepository;
     private final StorageService storageService;
     private final MeterRegistry meterRegistry;
+    private final SearchResultCache searchResultCache;
+    private final DocumentLanguageDetector languageDetector;
+    private final LanguageProperties languageProperties;
+    private final AiWorkerProperties workerProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public OcrJobHandler(OcrService ocrService,
+                         MetadataRepository metadataRepository,
+                         StorageService storageService,
+                         MeterRegistry meterRegistry,
+                         SearchResultCache searchResultCache,
+                         DocumentLanguageDetector languageDetector,
+                         LanguageProperties languageProperties,
+                         AiWorkerProperties workerProperties,
+                         PlatformTransactionManager transactionManager) {
+        this.ocrService = ocrService;
+        this.metadataRepository = metadataRepository;
+        this.storageService = storageService;
+        this.meterRegistry = meterRegistry;
+        this.searchResultCache = searchResultCache;
+        this.languageDetector = languageDetector;
+        this.languageProperties = languageProperties;
+        this.workerProperties = workerProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     private static final String OCR_MODEL_VERSION = "tesseract-5.x";
     
@@ -77,8 +110,10 @@ public class OcrJobHandler implements JobHandler {
         Path tempFile = null;
 
         try {
-            // Guard 1: Check DB record still exists
-            FileMetadata metadata = metadataRepository.findById(job.getFileId()).orElse(null);
+            // Guard 1: Check DB record still exists. Read-write so it reads the primary:
+            // the file may have been committed moments ago
+            FileMetadata metadata = transactionTemplate.execute(
+                    status -> metadataRepository.findById(job.getFileId()).orElse(null));
             if (metadata == null) {
                 log.warn("File {} deleted from DB before OCR started; marking job DONE-noop", job.getFileId());
                 return; // No-op success (file deleted by user)
@@ -93,14 +128,22 @@ public class OcrJobHandler implements JobHandler {
             // Extract text based on content type
             OcrService.OcrResult result = extractText(tempFile, metadata.getContentType());
 
+            Optional<DocumentLanguage> language = languageDetector.detect(result.text());
+            if (language.isPresent() && shouldReOcr(result, language.get())) {
+                result = reOcr(tempFile, metadata.getContentType(), result, language.get());
+            }
+            meterRegistry.counter("ai.ocr.language",
+                    "language", language.map(DocumentLanguage::code).orElse("unknown")).increment();
+
             // Save results to database
-            saveOcrResults(metadata, result);
+            saveOcrResults(metadata, result, language.orElse(null));
 
             // Store summary in job output
             Map<String, Object> output = new HashMap<>();
             output.put("text_length", result.text().length());
             output.put("page_count", result.pageCount());
             output.put("confidence", result.confidence());
+            output.put("language", language.map(DocumentLanguage::code).orElse("unknown"));
             job.setOutputData(output);
 
             // Record metrics
@@ -211,6 +254,37 @@ public class OcrJobHandler implements JobHandler {
         }
     }
 
+    /**
+     * Whether a Tesseract result should be redone with the detected language's data: it
+     * was read with other data, and the right data is installed. Native PDF text
+     * (confidence 1.0) does not depend on OCR language.
+     */
+    private boolean shouldReOcr(OcrService.OcrResult result, DocumentLanguage language) {
+        if (!languageProperties.isReOcr() || result.confidence() == 1.0f) {
+            return false;
+        }
+        // ai.worker.ocr.language may combine several, e.g. "eng+deu"
+        boolean alreadyUsed = Arrays.asList(workerProperties.getOcr().getLanguage().split("\\+"))
+                .contains(language.tesseract());
+        return !alreadyUsed && ocrService.hasLanguageData(language.tesseract());
+    }
+
+    /**
+     * Second OCR pass with the detected language's data; keeps the first result if the
+     * second one comes back empty.
+     */
+    private OcrService.OcrResult reOcr(Path file, String contentType, OcrService.OcrResult first,
+                                       DocumentLanguage language) throws Exception {
+        log.info("Detected language '{}' differs from OCR language; re-running OCR with '{}'",
+                language.code(), language.tesseract());
+        meterRegistry.counter("ai.ocr.reocr", "language", language.code()).increment();
+
+        OcrService.OcrResult second = isPdf(contentType)
+                ? ocrService.extractTextFromPdf(file, language.tesseract())
+                : ocrService.extractTextFromImage(file, language.tesseract());
+        return second.text().isBlank() ? first : second;
+    }
+
     /**
      * Attempts to extract text from PDF using PDFBox (native text).
      * Returns null if insufficient text is found (scanned PDF).
@@ -278,20 +352,26 @@ public class OcrJobHandler implements JobHandler {
 
     /**
      * Save OCR results to database.
+     *
+     * @param language detected language, or null to keep the file's text search config
      */
-    private void saveOcrResults(FileMetadata metadata, OcrService.OcrResult result) {
-        metadata.setFileText(result.text());
-        metadata.setOcrConfidence(result.confidence());
-
+    private void saveOcrResults(FileMetadata metadata, OcrService.OcrResult result, DocumentLanguage language) {
         // Set model version based on confidence
         // 1.0 = native PDF text extraction, < 1.0 = Tesseract OCR
-        if (result.confidence() == 1.0f) {
-            metadata.setOcrModelVersion("pdfbox-text");
-        } else {
-            metadata.setOcrModelVersion(OCR_MODEL_VERSION);
+        String modelVersion = result.confidence() == 1.0f ? "pdfbox-text" : OCR_MODEL_VERSION;
+
+        // Only the OCR columns: metadata was loaded before the OCR ran, and merging it back
+        // would revert tags or a folder move made since. search_vector is regenerated with
+        // the language's config in the same UPDATE.
+        Integer updated = transactionTemplate.execute(status -> metadataRepository.updateOcrResult(
+                metadata.getId(), metadata.getUserId(), result.text(), result.confidence(), modelVersion,
+                language == null ? null : language.textConfig()));
+        if (updated == null || updated == 0) {
+            log.warn("File {} deleted during OCR; result discarded", metadata.getId());
+            return;
         }
-
-        metadataRepository.save(metadata);
+        // The text is now searchable: cached searches for this user may be missing the file
+        searchResultCache.invalidate(metadata.getUser().getId());
 
         log.debug("Saved OCR results for file {}", metadata.getId());
     }
@@ -1,13 +1,17 @@
 package org.ddamme.service.ai;
 
 import io.micrometer.core.instrument.MeterRegistry;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.ddamme.database.shard.ShardRouter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
 
 /**
  * Safety net for best-effort job creation pattern.
@@ -23,48 +27,70 @@ import org.springframework.stereotype.Component;
  */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 @ConditionalOnProperty(name = "ai.ocr.reconciler.enabled", havingValue = "true", matchIfMissing = true)
 public class OcrReconciler {
 
     private final JdbcTemplate jdbcTemplate;
     private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${ai.ocr.reconciler.lookback-days:30}")
     private int lookbackDays;
 
+    public OcrReconciler(JdbcTemplate jdbcTemplate,
+                         MeterRegistry meterRegistry,
+                         ShardRouter shardRouter,
+                         PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Reconciles missing OCR jobs for eligible files.
      * 
      * Uses NOT EXISTS anti-join (plans better than LEFT JOIN ... IS NULL).
-     * Performance: UNIQUE constraint uq_ai_jobs_file_type provides index for lookups.
+     * Performance: ai_job_keys primary key (file_id, job_type) provides index for lookups.
+     * ai_jobs is partitioned and cannot carry that constraint itself (see V8), so the slots are
+     * claimed in ai_job_keys first with ON CONFLICT DO NOTHING, under pre-allocated job ids,
+     * and jobs are inserted only for the claimed ones (V21). A job created concurrently for
+     * one file just drops that file from the run. Both inserts share one transaction so a
+     * claimed slot never outlives a failed job insert.
      * 
      * Logs at DEBUG level when created==0 to avoid hourly noise.
      */
     @Scheduled(cron = "${ai.ocr.reconciler.cron:0 15 * * * *}") // hourly @ :15
     public void reconcileMissingJobs() {
+        // file_metadata and ai_jobs of a user live on the same shard, so reconcile shard by shard
+        shardRouter.forEachShard("OCR reconciliation", shardId -> reconcileShard());
+    }
+
+    private void reconcileShard() {
         try {
             // NOT EXISTS pattern for anti-join (better query plan)
             // PostgreSQL-safe interval parameterization: (? * INTERVAL '1 day')
-            int created = jdbcTemplate.update("""
-                INSERT INTO ai_jobs (user_id, file_id, job_type, job_status, priority, created_at, updated_at)
-                SELECT 
-                    fm.user_id,
-                    fm.id,
-                    'OCR'::job_type,
-                    'PENDING'::job_status,
-                    5,
-                    NOW(),
-                    NOW()
-                FROM file_metadata fm
-                WHERE (fm.content_type = 'application/pdf' OR fm.content_type LIKE 'image/%')
-                  AND fm.upload_timestamp >= NOW() - (? * INTERVAL '1 day')
-                  AND NOT EXISTS (
-                    SELECT 1 FROM ai_jobs aj
-                    WHERE aj.file_id = fm.id AND aj.job_type = 'OCR'::job_type
-                  )
-                ON CONFLICT (file_id, job_type) DO NOTHING
-                """, lookbackDays);
+            Integer created = transactionTemplate.execute(status -> {
+                List<Object[]> claimed = jdbcTemplate.query("""
+                    INSERT INTO ai_job_keys (file_id, job_type, user_id, job_id)
+                    SELECT fm.id, 'OCR'::job_type, fm.user_id, nextval('ai_jobs_id_seq')
+                    FROM file_metadata fm
+                    WHERE (fm.content_type = 'application/pdf' OR fm.content_type LIKE 'image/%')
+                      AND fm.upload_timestamp >= NOW() - (? * INTERVAL '1 day')
+                      AND NOT EXISTS (
+                        SELECT 1 FROM ai_job_keys k
+                        WHERE k.file_id = fm.id AND k.job_type = 'OCR'::job_type
+                      )
+                    ON CONFLICT (file_id, job_type) DO NOTHING
+                    RETURNING job_id, user_id, file_id
+                    """, (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, lookbackDays);
+                jdbcTemplate.batchUpdate("""
+                    INSERT INTO ai_jobs (id, user_id, file_id, job_type, job_status, priority, created_at, updated_at)
+                    VALUES (?, ?, ?, 'OCR'::job_type, 'PENDING'::job_status, 5, NOW(), NOW())
+                    """, claimed);
+                return claimed.size();
+            });
 
             // Log at INFO only when jobs created (DEBUG otherwise to avoid noise)
             if (created > 0) {
@@ -63,7 +63,14 @@ public class OcrService {
      * Extract text from an image file.
      */
     public OcrResult extractTextFromImage(Path imagePath) throws IOException, TesseractException {
-        log.debug("Extracting text from image: {}", imagePath);
+        return extractTextFromImage(imagePath, properties.getOcr().getLanguage());
+    }
+
+    /**
+     * Extract text from an image file with the given Tesseract language data.
+     */
+    public OcrResult extractTextFromImage(Path imagePath, String language) throws IOException, TesseractException {
+        log.debug("Extracting text from image: {} (language: {})", imagePath, language);
 
         BufferedImage image = ImageIO.read(imagePath.toFile());
         if (image == null) {
@@ -74,7 +81,7 @@ public class OcrService {
         image = downscaleIfNeeded(image);
 
         // OCR the image
-        Tesseract tesseract = createTesseract();
+        Tesseract tesseract = createTesseract(language);
         String text = tesseract.doOCR(image);
 
         // Tesseract doesn't provide confidence for doOCR, use a default
@@ -94,7 +101,14 @@ public class OcrService {
      * - Metrics for page_corrupt and oom_guard errors
      */
     public OcrResult extractTextFromPdf(Path pdfPath) throws IOException, TesseractException {
-        log.debug("Extracting text from PDF: {}", pdfPath);
+        return extractTextFromPdf(pdfPath, properties.getOcr().getLanguage());
+    }
+
+    /**
+     * Extract text from a PDF file with the given Tesseract language data.
+     */
+    public OcrResult extractTextFromPdf(Path pdfPath, String language) throws IOException, TesseractException {
+        log.debug("Extracting text from PDF: {} (language: {})", pdfPath, language);
 
         int maxPages = properties.getOcr().getMaxPages();
         StringBuilder allText = new StringBuilder();
@@ -106,7 +120,7 @@ public class OcrService {
             PDFRenderer renderer = new PDFRenderer(document);
             int numPages = Math.min(document.getNumberOfPages(), maxPages);
 
-            Tesseract tesseract = createTesseract();
+            Tesseract tesseract = createTesseract(language);
 
             for (int pageIndex = 0; pageIndex < numPages; pageIndex++) {
                 BufferedImage pageImage = null;
@@ -173,19 +187,25 @@ public class OcrService {
         return new OcrResult(finalText, pagesProcessed, avgConfidence);
     }
 
+    /**
+     * Whether Tesseract data for language is installed (tesseract-ocr-<lang> package).
+     */
+    public boolean hasLanguageData(String language) {
+        return java.nio.file.Files.exists(Path.of(properties.getOcr().getDataPath(), language + ".traineddata"));
+    }
+
     /**
      * Create and configure Tesseract instance.
      *
      * Tess4J expects the directory that contains *.traineddata files directly.
      * For Ubuntu 22.04, this is typically /usr/share/tesseract-ocr/4.00/tessdata
      */
-    private Tesseract createTesseract() {
+    private Tesseract createTesseract(String languageCode) {
         Tesseract tesseractInstance = new Tesseract();
 
         String tessdataDirectoryPath = properties.getOcr().getDataPath();
 
         // Validate language data file exists (helps with debugging path issues)
-        String languageCode = properties.getOcr().getLanguage();
         Path languageDataFilePath = Path.of(tessdataDirectoryPath, languageCode + ".traineddata");
 
         if (!java.nio.file.Files.exists(languageDataFilePath)) {
@@ -202,7 +222,7 @@ public class OcrService {
         tesseractInstance.setDatapath(tessdataDirectoryPath);
         log.debug("Tesseract datapath set to: {} (language: {})", tessdataDirectoryPath, languageCode);
 
-        // Set language from configuration
+        // Configured language, or the detected one on a second pass
         tesseractInstance.setLanguage(languageCode);
 
         // PSM 3: Fully automatic page segmentation (default)
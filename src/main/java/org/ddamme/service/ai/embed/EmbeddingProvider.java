@@ -0,0 +1,47 @@
+package org.ddamme.service.ai.embed;
+
+import java.util.List;
+
+/**
+ * Turns text into vectors for file_embeddings (V17). Selected with ai.embedding.provider.
+ *
+ * Implementations return unit-length vectors of DIMENSIONS floats, one per input, in order.
+ * Search compares vectors from the same provider only: switching providers means
+ * re-embedding (file_metadata.embedding_model_version records which one produced a file's rows).
+ */
+public interface EmbeddingProvider {
+
+    /** Width of the file_embeddings.embedding column */
+    int DIMENSIONS = 384;
+
+    /** Recorded in file_metadata.embedding_model_version */
+    String modelVersion();
+
+    List<float[]> embed(List<String> texts);
+
+    /** Scales vector to unit length in place; an all-zero vector (no usable input) stays zero. */
+    static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            return vector;
+        }
+        float norm = (float) Math.sqrt(sum);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+
+    /** Cosine distance is undefined for zero vectors; such chunks and queries are skipped. */
+    static boolean isZero(float[] vector) {
+        for (float v : vector) {
+            if (v != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package org.ddamme.service.ai.embed;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic stand-in for a model: feature hashing of lower-cased words and word
+ * bigrams into DIMENSIONS buckets with a hashed sign.
+ *
+ * Texts sharing words get similar vectors, so the whole pipeline (chunking, storage, HNSW
+ * search) behaves realistically without a model file; it does not capture meaning
+ * (synonyms do not match). The default so that development and tests need no model;
+ * production sets ai.embedding.provider=onnx.
+ */
+@Component
+@ConditionalOnProperty(name = "ai.embedding.provider", havingValue = "hashing", matchIfMissing = true)
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Pattern WORD = Pattern.compile("\\p{L}[\\p{L}\\p{N}]*|\\p{N}+");
+
+    @Override
+    public String modelVersion() {
+        return "hashing-v1";
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
+    private static float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        Matcher m = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        String previous = null;
+        while (m.find()) {
+            String word = m.group();
+            add(vector, word, 1.0f);
+            if (previous != null) {
+                add(vector, previous + ' ' + word, 0.5f);
+            }
+            previous = word;
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        int h = mix(feature.hashCode());
+        vector[Math.floorMod(h, DIMENSIONS)] += (h & 0x80000000) == 0 ? weight : -weight;
+    }
+
+    /** Spreads String.hashCode bits (murmur3 finalizer) so similar words land in unrelated buckets */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,124 @@
+package org.ddamme.service.ai.embed;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EmbeddingProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sentence embeddings from a local ONNX model (ai.embedding.provider=onnx), in-process on
+ * the CPU: no network call and no per-request cost.
+ *
+ * Expects a BERT-style encoder exported with its token embeddings as the first output
+ * (e.g. sentence-transformers/all-MiniLM-L6-v2); they are mean-pooled over the attention
+ * mask and normalized, as sentence-transformers does. The model and tokenizer files are
+ * deployment artifacts (ai.embedding.onnx.*), not part of the jar.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "ai.embedding.provider", havingValue = "onnx")
+public class OnnxEmbeddingProvider implements EmbeddingProvider, DisposableBean {
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final String modelVersion;
+
+    public OnnxEmbeddingProvider(EmbeddingProperties properties) throws OrtException, IOException {
+        EmbeddingProperties.Onnx onnx = properties.getOnnx();
+        this.session = environment.createSession(onnx.getModelPath(), new OrtSession.SessionOptions());
+        this.tokenizer = HuggingFaceTokenizer.newInstance(Path.of(onnx.getTokenizerPath()), Map.of(
+                "padding", "true",
+                "truncation", "true",
+                "maxLength", String.valueOf(onnx.getMaxTokens())));
+        this.modelVersion = onnx.getModelVersion();
+        log.info("Loaded embedding model {} from {}", modelVersion, onnx.getModelPath());
+    }
+
+    @Override
+    public String modelVersion() {
+        return modelVersion;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        // Padded to the longest input of the batch
+        Encoding[] encodings = tokenizer.batchEncode(texts);
+        long[][] ids = new long[encodings.length][];
+        long[][] mask = new long[encodings.length][];
+        long[][] types = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            ids[i] = encodings[i].getIds();
+            mask[i] = encodings[i].getAttentionMask();
+            types[i] = encodings[i].getTypeIds();
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, ids));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, mask));
+            if (session.getInputNames().contains("token_type_ids")) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, types));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][][] tokens = (float[][][]) result.get(0).getValue();
+                List<float[]> vectors = new ArrayList<>(tokens.length);
+                for (int i = 0; i < tokens.length; i++) {
+                    vectors.add(EmbeddingProvider.normalize(meanPool(tokens[i], mask[i])));
+                }
+                return vectors;
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("EMBED_MODEL_FAILED: " + e.getMessage(), e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static float[] meanPool(float[][] tokens, long[] mask) {
+        if (tokens[0].length != DIMENSIONS) {
+            throw new IllegalStateException("EMBED_MODEL_DIMENSIONS: model produces " + tokens[0].length
+                    + " dimensions, file_embeddings holds " + DIMENSIONS);
+        }
+        float[] pooled = new float[DIMENSIONS];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (mask[t] == 0) {
+                continue;
+            }
+            for (int d = 0; d < DIMENSIONS; d++) {
+                pooled[d] += tokens[t][d];
+            }
+            count++;
+        }
+        if (count > 0) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                pooled[d] /= count;
+            }
+        }
+        return pooled;
+    }
+
+    @Override
+    public void destroy() throws OrtException {
+        session.close();
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,54 @@
+package org.ddamme.service.ai.embed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits extracted text into overlapping word windows for embedding.
+ *
+ * Chunks are character ranges of the original text (whitespace-delimited words), so a
+ * stored chunk can be shown as a snippet by slicing file_text instead of storing it again.
+ */
+public final class TextChunker {
+
+    private static final Pattern NON_SPACE = Pattern.compile("\\S+");
+
+    private TextChunker() {
+        // Utility class
+    }
+
+    /** [start, end) character range in the source text, and the text itself */
+    public record Chunk(int start, int end, String text) {
+    }
+
+    /**
+     * @param words   words per chunk
+     * @param overlap words repeated at the start of the next chunk (less than words)
+     * @param max     chunks to return at most
+     */
+    public static List<Chunk> chunk(String text, int words, int overlap, int max) {
+        if (words < 1 || overlap < 0 || overlap >= words) {
+            throw new IllegalArgumentException("Need words >= 1 and 0 <= overlap < words");
+        }
+        List<int[]> spans = new ArrayList<>();
+        Matcher m = NON_SPACE.matcher(text);
+        while (m.find()) {
+            spans.add(new int[]{m.start(), m.end()});
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int step = words - overlap;
+        for (int first = 0; first < spans.size() && chunks.size() < max; first += step) {
+            int last = Math.min(first + words, spans.size()) - 1;
+            int start = spans.get(first)[0];
+            int end = spans.get(last)[1];
+            chunks.add(new Chunk(start, end, text.substring(start, end)));
+            if (last == spans.size() - 1) {
+                break;
+            }
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,66 @@
+package org.ddamme.service.ai.language;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Languages a document can be detected as, with the PostgreSQL text search configuration
+ * its search_vector is built with and the Tesseract language data that reads it best.
+ */
+public enum DocumentLanguage {
+    ENGLISH("en", "english", "eng"),
+    GERMAN("de", "german", "deu"),
+    FRENCH("fr", "french", "fra"),
+    SPANISH("es", "spanish", "spa"),
+    ITALIAN("it", "italian", "ita"),
+    PORTUGUESE("pt", "portuguese", "por"),
+    DUTCH("nl", "dutch", "nld"),
+    SWEDISH("sv", "swedish", "swe"),
+    RUSSIAN("ru", "russian", "rus");
+
+    /** Configuration of documents whose language is unknown (the column default) */
+    public static final DocumentLanguage DEFAULT = ENGLISH;
+
+    private final String code;
+    private final String textConfig;
+    private final String tesseract;
+
+    DocumentLanguage(String code, String textConfig, String tesseract) {
+        this.code = code;
+        this.textConfig = textConfig;
+        this.tesseract = tesseract;
+    }
+
+    /** ISO 639-1 code */
+    public String code() {
+        return code;
+    }
+
+    /** Built-in PostgreSQL text search configuration (regconfig) */
+    public String textConfig() {
+        return textConfig;
+    }
+
+    /** Tesseract language data name ({@code <name>.traineddata}) */
+    public String tesseract() {
+        return tesseract;
+    }
+
+    public static Optional<DocumentLanguage> ofCode(String code) {
+        for (DocumentLanguage language : values()) {
+            if (language.code.equals(code)) {
+                return Optional.of(language);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Every configuration a document can have, for search_query(configs, query),
+     * comma-separated in declaration order.
+     */
+    public static String searchConfigs() {
+        return Arrays.stream(values()).map(DocumentLanguage::textConfig).collect(Collectors.joining(","));
+    }
+}
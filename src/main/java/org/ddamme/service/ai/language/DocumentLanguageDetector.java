@@ -0,0 +1,70 @@
+package org.ddamme.service.ai.language;
+
+import com.optimaize.langdetect.DetectedLanguage;
+import com.optimaize.langdetect.LanguageDetector;
+import com.optimaize.langdetect.LanguageDetectorBuilder;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import com.optimaize.langdetect.text.TextObjectFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.LanguageProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Detects the language of extracted text with character n-gram profiles (1-3 grams,
+ * optimaize language-detector), restricted to the configured languages.
+ *
+ * Runs in the JVM in a few milliseconds on the first sampleChars characters; no model
+ * files or network. Short or mixed texts the detector is unsure about come back empty,
+ * and the document keeps the configuration it has.
+ */
+@Component
+@Slf4j
+public class DocumentLanguageDetector {
+
+    private final LanguageProperties properties;
+    private final LanguageDetector detector;
+    private final TextObjectFactory textObjects = CommonTextObjectFactories.forDetectingOnLargeText();
+
+    public DocumentLanguageDetector(LanguageProperties properties) {
+        this.properties = properties;
+        List<LdLocale> locales = properties.getLanguages().stream()
+                .map(language -> LdLocale.fromString(language.code()))
+                .toList();
+        try {
+            this.detector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                    .withProfiles(new LanguageProfileReader().readBuiltIn(locales))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load language profiles for " + locales, e);
+        }
+        log.info("Language detection {} for {}", properties.isEnabled() ? "enabled" : "disabled", locales);
+    }
+
+    public Optional<DocumentLanguage> detect(String text) {
+        if (!properties.isEnabled() || text == null) {
+            return Optional.empty();
+        }
+        String sample = text.length() > properties.getSampleChars()
+                ? text.substring(0, properties.getSampleChars())
+                : text;
+        if (sample.codePoints().filter(Character::isLetter).limit(properties.getMinLetters()).count()
+                < properties.getMinLetters()) {
+            return Optional.empty();
+        }
+
+        List<DetectedLanguage> candidates = detector.getProbabilities(textObjects.forText(sample));
+        if (candidates.isEmpty() || candidates.get(0).getProbability() < properties.getMinConfidence()) {
+            log.debug("No confident language: {}", candidates);
+            return Optional.empty();
+        }
+        return DocumentLanguage.ofCode(candidates.get(0).getLocale().getLanguage());
+    }
+}
@@ -0,0 +1,172 @@
+package org.ddamme.service.events;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EventStreamProperties;
+import org.ddamme.metrics.Metrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE connections of this node, by user.
+ *
+ * The servlet request is async (no container thread held). Each connection gets a
+ * bounded queue drained by its own virtual thread, so a slow client only backs up its
+ * own queue (and is dropped when it fills) instead of blocking the NOTIFY listener.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "events.enabled", havingValue = "true", matchIfMissing = true)
+public class EventStreamRegistry {
+
+    private final EventStreamProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Deque<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public EventStreamRegistry(EventStreamProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("events.sse.connections", connections, AtomicInteger::get)
+                .description("Open SSE event stream connections on this node")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long userId) {
+        SseEmitter emitter = newEmitter();
+        Subscription subscription = new Subscription(userId, emitter, properties.getQueueCapacity());
+
+        // compute/computeIfPresent keep add and remove-if-empty atomic per user
+        Deque<Subscription> userSubscriptions = subscriptions.compute(userId, (id, deque) -> {
+            Deque<Subscription> target = deque == null ? new ConcurrentLinkedDeque<>() : deque;
+            target.addLast(subscription);
+            return target;
+        });
+        connections.incrementAndGet();
+        while (userSubscriptions.size() > properties.getMaxConnectionsPerUser()) {
+            Subscription oldest = userSubscriptions.peekFirst();
+            if (oldest == null || oldest == subscription) {
+                break;
+            }
+            oldest.close();
+        }
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(e -> remove(subscription));
+        subscription.start();
+        subscription.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Queues an event for every connection of its user on this node.
+     */
+    public void dispatch(FileEvent event, String json) {
+        Deque<Subscription> userSubscriptions = subscriptions.get(event.userId());
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            if (!subscription.offer(SseEmitter.event().name(event.type()).data(json))) {
+                log.info("Dropping slow event stream client (userId={})", event.userId());
+                Metrics.increment(meterRegistry, "events.sse.dropped", "reason", "slow_client");
+                subscription.close();
+            }
+        }
+        Metrics.increment(meterRegistry, "events.dispatched", "type", event.type());
+    }
+
+    @Scheduled(fixedDelayString = "${events.heartbeat-interval:25000}")
+    public void heartbeat() {
+        subscriptions.values().forEach(userSubscriptions ->
+                userSubscriptions.forEach(subscription -> subscription.offer(SseEmitter.event().comment("ping"))));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::close));
+    }
+
+    /** Seam for tests, which record or fail sends without a servlet response */
+    SseEmitter newEmitter() {
+        return new SseEmitter(properties.getSseTimeout().toMillis());
+    }
+
+    int connectionCount() {
+        return connections.get();
+    }
+
+    private void remove(Subscription subscription) {
+        boolean[] removed = {false};
+        subscriptions.computeIfPresent(subscription.userId, (id, deque) -> {
+            removed[0] = deque.remove(subscription);
+            return deque.isEmpty() ? null : deque;
+        });
+        if (removed[0]) {
+            connections.decrementAndGet();
+        }
+        subscription.stop();
+    }
+
+    private final class Subscription {
+
+        private final long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private Thread writer;
+
+        Subscription(long userId, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void start() {
+            writer = Thread.ofVirtual().name("sse-user-" + userId).start(this::drain);
+        }
+
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            return queue.offer(event);
+        }
+
+        /** Ends the stream; completion callbacks unregister it */
+        void close() {
+            emitter.complete();
+            remove(this);
+        }
+
+        void stop() {
+            if (writer != null) {
+                writer.interrupt();
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    emitter.send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                log.debug("Event stream closed for user {}: {}", userId, e.getMessage());
+                remove(this);
+            }
+        }
+    }
+}
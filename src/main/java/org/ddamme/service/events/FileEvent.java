@@ -0,0 +1,44 @@
+package org.ddamme.service.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.ddamme.database.model.AiJob;
+
+/**
+ * Something a user's clients want to hear about without polling. Serialized as the
+ * NOTIFY payload and, unchanged, as the SSE data; kept small (NOTIFY caps payloads at 8000 bytes).
+ *
+ * @param retrying for job.failed: another attempt is scheduled (false = moved to DLQ)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FileEvent(String type, long userId, Long fileId, Long jobId, String jobType, Boolean retrying) {
+
+    public static final String UPLOAD_COMMITTED = "upload.committed";
+    public static final String FILE_DELETED = "file.deleted";
+    public static final String JOB_STARTED = "job.started";
+    public static final String JOB_COMPLETED = "job.completed";
+    public static final String JOB_FAILED = "job.failed";
+
+    public static FileEvent uploaded(long userId, long fileId) {
+        return new FileEvent(UPLOAD_COMMITTED, userId, fileId, null, null, null);
+    }
+
+    public static FileEvent deleted(long userId, long fileId) {
+        return new FileEvent(FILE_DELETED, userId, fileId, null, null, null);
+    }
+
+    public static FileEvent jobStarted(AiJob job) {
+        return job(JOB_STARTED, job, null);
+    }
+
+    public static FileEvent jobCompleted(AiJob job) {
+        return job(JOB_COMPLETED, job, null);
+    }
+
+    public static FileEvent jobFailed(AiJob job, boolean retrying) {
+        return job(JOB_FAILED, job, retrying);
+    }
+
+    private static FileEvent job(String type, AiJob job, Boolean retrying) {
+        return new FileEvent(type, job.getUserId(), job.getFileId(), job.getId(), job.getJobType().name(), retrying);
+    }
+}
@@ -0,0 +1,160 @@
+package org.ddamme.service.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EventStreamProperties;
+import org.ddamme.config.ShardingProperties;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.database.shard.ShardRouter;
+import org.ddamme.metrics.Metrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LISTENs on every shard's primary and hands notifications to the local SSE connections.
+ *
+ * One dedicated connection per shard, opened outside the Hikari pools: it is held for the
+ * life of the node and must not count against the pool budget the bulkheads are sized for.
+ * Each runs on a virtual thread that blocks in getNotifications. A lost connection is
+ * re-established after a backoff; events raised in between are not replayed (clients
+ * catch up with GET /api/v1/files/changes).
+ *
+ * Each event is also published as a Spring application event, so node-local state derived
+ * from file_metadata (SearchResultCache, the Lucene index) follows writes made on any node.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "events.enabled", havingValue = "true", matchIfMissing = true)
+public class FileEventListener implements SmartLifecycle {
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+
+    private final EventStreamRegistry registry;
+    private final EventStreamProperties properties;
+    private final ShardRouter shardRouter;
+    private final ShardingProperties shardingProperties;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectProvider<JdbcConnectionDetails> connectionDetails;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher applicationEvents;
+
+    private final List<Thread> listeners = new ArrayList<>();
+    private volatile boolean running;
+
+    public FileEventListener(EventStreamRegistry registry,
+                             EventStreamProperties properties,
+                             ShardRouter shardRouter,
+                             ShardingProperties shardingProperties,
+                             DataSourceProperties dataSourceProperties,
+                             ObjectProvider<JdbcConnectionDetails> connectionDetails,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             ApplicationEventPublisher applicationEvents) {
+        this.registry = registry;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.shardingProperties = shardingProperties;
+        this.dataSourceProperties = dataSourceProperties;
+        this.connectionDetails = connectionDetails;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.applicationEvents = applicationEvents;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (int shardId : shardRouter.shardIds()) {
+            listeners.add(Thread.ofVirtual().name("file-events-shard-" + shardId).start(() -> listen(shardId)));
+        }
+        log.info("Listening for file events on {} shard(s)", listeners.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        listeners.forEach(Thread::interrupt);
+        listeners.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(int shardId) {
+        while (running) {
+            try (Connection connection = connect(shardId)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + FileEventPublisher.CHANNEL);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                log.debug("LISTEN {} on shard {}", FileEventPublisher.CHANNEL, shardId);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("File event listener on shard {} lost its connection, retrying in {}",
+                        shardId, properties.getReconnectBackoff(), e);
+                Metrics.increment(meterRegistry, "events.listener.reconnects", "shard", String.valueOf(shardId));
+                try {
+                    Thread.sleep(properties.getReconnectBackoff());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            FileEvent event = objectMapper.readValue(payload, FileEvent.class);
+            applicationEvents.publishEvent(event);
+            registry.dispatch(event, payload);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed file event payload: {}", payload, e);
+        }
+    }
+
+    /** Primary of the shard (NOTIFY is not replicated to read replicas) */
+    private Connection connect(int shardId) throws SQLException {
+        if (shardId == ShardContext.DEFAULT_SHARD) {
+            JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+            if (details != null) {
+                return DriverManager.getConnection(details.getJdbcUrl(), details.getUsername(), details.getPassword());
+            }
+            return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        }
+        ShardingProperties.Shard shard = shardingProperties.getShards().stream()
+                .filter(s -> s.getId() == shardId)
+                .findFirst()
+                .orElseThrow(() -> new SQLException("No connection settings for shard " + shardId));
+        return DriverManager.getConnection(shard.getUrl(), shard.getUsername(), shard.getPassword());
+    }
+}
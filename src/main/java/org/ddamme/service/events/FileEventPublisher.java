@@ -0,0 +1,74 @@
+package org.ddamme.service.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EventStreamProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes FileEvents with pg_notify on the current shard.
+ *
+ * NOTIFY is transactional: inside a transaction the event is delivered only if and when
+ * it commits, so "upload.committed" or "job.completed" never arrives before the row is
+ * visible (or at all, on rollback). Outside a transaction it is delivered immediately.
+ */
+@Component
+@Slf4j
+public class FileEventPublisher {
+
+    public static final String CHANNEL = "file_events";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EventStreamProperties properties;
+    private final TransactionTemplate newTransaction;
+
+    public FileEventPublisher(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              EventStreamProperties properties,
+                              PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Publishes with the caller's transaction (delivered on commit).
+     */
+    public void publish(FileEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping unserializable event {}", event, e);
+            return;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+    }
+
+    /**
+     * Publishes in its own transaction, for progress events raised inside a longer
+     * transaction (e.g. job.started while the job runs).
+     */
+    public void publishNow(FileEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> publish(event));
+        } catch (RuntimeException e) {
+            // Progress events are best effort; the job itself must not fail over one
+            log.warn("Failed to publish {} for user {}", event.type(), event.userId(), e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.ddamme.service.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.HybridSearchProperties;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.logging.AuditLogger;
+import org.ddamme.metrics.Metrics;
+import org.ddamme.service.SearchService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Hybrid search: full-text matches (exact words, filenames) and semantic matches (meaning)
+ * merged into one ranking with reciprocal rank fusion.
+ *
+ * Both legs take their top-K and run in parallel on the search-leg bulkhead, so latency
+ * is the slower leg, not the sum. Each leg has a timeout; a leg that fails, times out or
+ * is rejected is dropped and the page comes from the other leg alone, listed in
+ * SearchResponse.degraded. Only when both legs fail does the request fail. A dropped leg
+ * is not cancelled: it finishes on its pool thread, which the pool size bounds.
+ *
+ * Fusion: score = sum over legs of 1 / (k + rank), rank starting at 1. RRF uses only
+ * positions, so ts_rank and cosine similarity never need to be comparable. Results are
+ * ordered by (score DESC, id ASC) and paged with a (score, id) keyset cursor over the
+ * fused list, which both legs recompute identically while the user's files don't change.
+ * Paging ends at the fused top-K.
+ *
+ * A degraded page carries no cursor (hasMore is false): its scores come from one leg, a
+ * different basis from the two-leg fusion the other pages use, so continuing from it (or
+ * into it) would skip or repeat results. The client starts over to get the full ranking.
+ */
+@Service
+@Slf4j
+public class HybridSearchService {
+
+    static final int MAX_LIMIT = 100;
+
+    static final String LEXICAL = "lexical";
+    static final String SEMANTIC = "semantic";
+
+    private final SearchService searchService;
+    private final SemanticSearchService semanticSearchService;
+    private final HybridSearchProperties properties;
+    private final Executor legExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public HybridSearchService(SearchService searchService,
+                               SemanticSearchService semanticSearchService,
+                               HybridSearchProperties properties,
+                               @Qualifier("searchLegExecutor") Executor legExecutor,
+                               MeterRegistry meterRegistry) {
+        this.searchService = searchService;
+        this.semanticSearchService = semanticSearchService;
+        this.properties = properties;
+        this.legExecutor = legExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** A leg's results, or why it has none */
+    private record Leg(String name, List<SearchResultDto> results, Throwable failure) {
+    }
+
+    public SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit,
+                                 SnippetMode snippets) {
+        if (query == null || query.isBlank()) {
+            return SearchResponse.builder()
+                    .results(List.of())
+                    .hasMore(false)
+                    .count(0)
+                    .build();
+        }
+        int effectiveLimit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        int topK = properties.getTopK();
+
+        CompletableFuture<Leg> lexicalLeg = leg(LEXICAL, () -> searchService.topMatches(user, query, topK));
+        CompletableFuture<Leg> semanticLeg = leg(SEMANTIC, () -> semanticSearchService.nearest(user, query, topK));
+        Leg lexical = lexicalLeg.join();
+        Leg semantic = semanticLeg.join();
+
+        if (lexical.failure() != null && semantic.failure() != null) {
+            throw lexical.failure() instanceof RuntimeException e
+                    ? e
+                    : new IllegalStateException("Hybrid search failed in both legs", lexical.failure());
+        }
+        List<String> degraded = new ArrayList<>(2);
+        for (Leg leg : List.of(lexical, semantic)) {
+            if (leg.failure() != null) {
+                degraded.add(leg.name());
+            }
+        }
+
+        List<SearchResultDto> fused = fuse(lexical.results(), semantic.results(), properties.getRrfK());
+        List<SearchResultDto> after = after(fused, lastRank, lastId);
+        boolean truncated = after.size() > effectiveLimit;
+        List<SearchResultDto> page = new ArrayList<>(truncated ? after.subList(0, effectiveLimit) : after);
+        boolean hasMore = truncated && degraded.isEmpty();
+
+        addSnippets(user, query, page, lexical.results(), snippets);
+
+        // Only a page fused from both legs can be continued
+        SearchResultDto last = page.isEmpty() || !degraded.isEmpty() ? null : page.get(page.size() - 1);
+
+        log.info("Hybrid search returned {} results (hasMore={}, lexical={}, semantic={}, degraded={}) "
+                        + "for query: '{}' (userId={})",
+                page.size(), hasMore, lexical.results().size(), semantic.results().size(), degraded,
+                query, user.getId());
+        AuditLogger.log("SEARCH_HYBRID",
+                Map.of("username", user.getUsername(), "query", query,
+                       "resultCount", page.size(), "hasMore", hasMore));
+
+        return SearchResponse.builder()
+                .results(page)
+                .nextRank(last == null ? null : last.getRank())
+                .nextId(last == null ? null : last.getFileId())
+                .hasMore(hasMore)
+                .count(page.size())
+                .degraded(degraded)
+                .build();
+    }
+
+    private CompletableFuture<Leg> leg(String name, Supplier<List<SearchResultDto>> search) {
+        CompletableFuture<List<SearchResultDto>> future;
+        try {
+            future = CompletableFuture.supplyAsync(search, legExecutor);
+        } catch (RejectedExecutionException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future
+                .orTimeout(properties.getLegTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((results, failure) -> {
+                    if (failure == null) {
+                        return new Leg(name, results, null);
+                    }
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure;
+                    String reason = cause instanceof TimeoutException ? "timeout"
+                            : cause instanceof RejectedExecutionException ? "rejected"
+                            : "error";
+                    log.warn("Hybrid search leg '{}' dropped ({}): {}", name, reason, cause.toString());
+                    Metrics.increment(meterRegistry, "search.hybrid.degraded", "leg", name, "reason", reason);
+                    return new Leg(name, List.of(), cause);
+                });
+    }
+
+    /**
+     * Full-text snippets (per SnippetMode) for results the lexical leg found; results only
+     * the semantic leg found keep their best-matching passage as plain text.
+     */
+    private void addSnippets(User user, String query, List<SearchResultDto> page,
+                             List<SearchResultDto> lexical, SnippetMode snippets) {
+        if (snippets == SnippetMode.NONE) {
+            page.forEach(dto -> dto.setSnippet(null));
+            return;
+        }
+        Set<Long> lexicalIds = new HashSet<>();
+        lexical.forEach(dto -> lexicalIds.add(dto.getFileId()));
+        List<SearchResultDto> matched = page.stream().filter(dto -> lexicalIds.contains(dto.getFileId())).toList();
+        searchService.highlight(user, query, matched, snippets);
+    }
+
+    /**
+     * Reciprocal rank fusion of two rankings of the user's files, ordered by (score DESC,
+     * id ASC); each result's rank is its fused score. A file in both keeps the lexical
+     * result's fields.
+     */
+    static List<SearchResultDto> fuse(List<SearchResultDto> lexical, List<SearchResultDto> semantic, int k) {
+        Map<Long, SearchResultDto> byId = new LinkedHashMap<>();
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<SearchResultDto> ranking : List.of(lexical, semantic)) {
+            for (int i = 0; i < ranking.size(); i++) {
+                SearchResultDto dto = ranking.get(i);
+                byId.putIfAbsent(dto.getFileId(), dto);
+                scores.merge(dto.getFileId(), 1.0 / (k + i + 1), Double::sum);
+            }
+        }
+
+        List<SearchResultDto> fused = new ArrayList<>(byId.size());
+        byId.forEach((id, dto) -> {
+            dto.setRank(scores.get(id));
+            fused.add(dto);
+        });
+        fused.sort(Comparator.comparing(SearchResultDto::getRank, Comparator.reverseOrder())
+                .thenComparing(SearchResultDto::getFileId));
+        return fused;
+    }
+
+    /** The results after the (lastRank, lastId) cursor; all of them for the first page */
+    static List<SearchResultDto> after(List<SearchResultDto> fused, Double lastRank, Long lastId) {
+        if (lastRank == null || lastId == null) {
+            return fused;
+        }
+        return fused.stream()
+                .filter(dto -> dto.getRank() < lastRank
+                        || (dto.getRank().equals(lastRank) && dto.getFileId() > lastId))
+                .toList();
+    }
+}
@@ -0,0 +1,42 @@
+package org.ddamme.service.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operator endpoint: /actuator/lucene shows the node's index state, POST queues a rebuild
+ * from file_metadata (searches keep the current index until it completes).
+ * Not exposed by default - add "lucene" to management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "lucene")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneEndpoint {
+
+    private final LuceneIndex index;
+    private final LuceneIndexer indexer;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("documents", index.numDocs());
+        status.put("rebuilding", indexer.isRebuilding());
+        status.put("lastCheckpoint", indexer.lastCheckpoint());
+        status.put("bounds", indexer.bounds());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        indexer.requestRebuild();
+        return Map.of("rebuild", "queued");
+    }
+}
@@ -0,0 +1,337 @@
+package org.ddamme.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.ddamme.config.LuceneProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The node-local Lucene index of file_metadata: one document per file, keyed by id.
+ *
+ * Writes go to a single IndexWriter; searches use a SearcherManager over it, reopened
+ * every refresh-interval (near-real-time, no commit needed). LuceneIndexer commits it at
+ * each checkpoint together with commit data saying how far the index has caught up with
+ * file_metadata. The index is derived data: LuceneIndexer keeps it current from file
+ * events and the change feed, and can rebuild it from file_metadata at any time.
+ *
+ * Paging pins the view a query started on (SearcherLifetimeManager): BM25 scores depend on
+ * index-wide statistics, so any write between two pages would shift scores and make a
+ * (score, id) cursor skip or repeat results. Pinned views are released cursor-ttl after
+ * they stop being the latest one.
+ *
+ * A rebuild is never committed half-way: commits are skipped while it runs, and a failed
+ * rebuild (or a shutdown during one) rolls back to the last commit.
+ *
+ * Every document and query is analyzed as English, whatever the file's text_config: the
+ * per-language stemming of search_vector (ai.language) is PostgreSQL-only. Non-English
+ * text stays searchable, as documents and queries get the same analysis, but without its
+ * own language's stemming and stop words.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneIndex implements DisposableBean {
+
+    static final String ID = "id";
+    static final String ID_SORT = "id_sort";
+    static final String USER = "user";
+    static final String FILENAME = "filename";
+    static final String TEXT = "text";
+    static final String CONTENT_TYPE = "content_type";
+    static final String SIZE = "size";
+    static final String UPLOADED_AT = "uploaded_at";
+    static final String OCR_CONFIDENCE = "ocr_confidence";
+
+    /** Stored with offsets in the postings so the highlighter needs no re-analysis */
+    private static final FieldType TEXT_WITH_OFFSETS = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        TEXT_WITH_OFFSETS.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_WITH_OFFSETS.freeze();
+    }
+
+    /** A file_metadata row as indexed; text is null before OCR */
+    public record IndexedFile(long id, long userId, String filename, String text, String contentType,
+                              long size, Instant uploadedAt, Float ocrConfidence) {
+    }
+
+    /** Stemming and stop words as in the 'english' text search config; text_config is not used */
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final Directory directory;
+    private final Duration cursorTtl;
+    private final SearcherLifetimeManager snapshots = new SearcherLifetimeManager();
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private volatile boolean rebuilding;
+
+    public LuceneIndex(LuceneProperties properties) throws IOException {
+        this(FSDirectory.open(Path.of(properties.getPath())), properties.getCursorTtl());
+        log.info("Opened Lucene index at {} ({} documents)", properties.getPath(), numDocs());
+    }
+
+    LuceneIndex(Directory directory) throws IOException {
+        this(directory, new LuceneProperties().getCursorTtl());
+    }
+
+    LuceneIndex(Directory directory, Duration cursorTtl) throws IOException {
+        this.directory = directory;
+        this.cursorTtl = cursorTtl;
+        open();
+    }
+
+    /** Opens the writer and searchers on the last commit */
+    private void open() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    Analyzer analyzer() {
+        return analyzer;
+    }
+
+    /** Adds the file or replaces its previous version. */
+    public void upsert(IndexedFile file) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, String.valueOf(file.id()), Field.Store.YES));
+        doc.add(new NumericDocValuesField(ID_SORT, file.id()));
+        doc.add(new StringField(USER, String.valueOf(file.userId()), Field.Store.NO));
+        doc.add(new StoredField(FILENAME, file.filename()));
+        doc.add(new TextField(FILENAME, searchableName(file.filename()), Field.Store.NO));
+        if (file.text() != null) {
+            doc.add(new Field(TEXT, file.text(), TEXT_WITH_OFFSETS));
+        }
+        if (file.contentType() != null) {
+            doc.add(new StoredField(CONTENT_TYPE, file.contentType()));
+        }
+        doc.add(new StoredField(SIZE, file.size()));
+        if (file.uploadedAt() != null) {
+            doc.add(new StoredField(UPLOADED_AT, file.uploadedAt().toEpochMilli()));
+        }
+        if (file.ocrConfidence() != null) {
+            doc.add(new StoredField(OCR_CONFIDENCE, file.ocrConfidence()));
+        }
+        try {
+            writer.updateDocument(idTerm(file.id()), doc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete(long fileId) {
+        try {
+            writer.deleteDocuments(idTerm(fileId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Empties the index for a rebuild. Refreshes are held back until endRebuild(), so
+     * searches keep seeing the old contents rather than a half-built index.
+     */
+    public void beginRebuild() {
+        rebuilding = true;
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            rebuilding = false;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Commits the rebuilt index with its commit data and makes it visible. */
+    public void endRebuild(Map<String, String> commitData) {
+        rebuilding = false;
+        commit(commitData);
+        refresh();
+    }
+
+    /**
+     * Discards the partial rebuild, and any change not yet committed before it, by rolling
+     * back to the last commit. The caller catches up from that commit's data.
+     */
+    public synchronized void abortRebuild() {
+        SearcherManager previous = searcherManager;
+        try {
+            writer.rollback();
+            open();
+            // Reader versions restart from the last commit and could collide with pinned views
+            snapshots.prune((ageSec, searcher) -> true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuilding = false;
+            closeQuietly(previous);
+        }
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    /** The commit data of the last commit, or of the last checkpoint since; empty for a new index */
+    public Map<String, String> commitData() {
+        Map<String, String> data = new HashMap<>();
+        Iterable<Map.Entry<String, String>> live = writer.getLiveCommitData();
+        if (live != null) {
+            live.forEach(entry -> data.put(entry.getKey(), entry.getValue()));
+        }
+        return data;
+    }
+
+    @FunctionalInterface
+    public interface SearcherFunction<T> {
+        T apply(IndexSearcher searcher) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface SnapshotFunction<T> {
+        T apply(IndexSearcher searcher, long snapshot) throws IOException;
+    }
+
+    /**
+     * Runs search against the pinned view snapshot, or against the latest view (pinning it)
+     * when snapshot is null or has been released. The function receives the snapshot it ran on.
+     */
+    public <T> T withSnapshot(Long snapshot, SnapshotFunction<T> search) {
+        try {
+            IndexSearcher pinned = snapshot == null ? null : snapshots.acquire(snapshot);
+            if (pinned != null) {
+                try {
+                    return search.apply(pinned, snapshot);
+                } finally {
+                    snapshots.release(pinned);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return withSearcher(latest -> search.apply(latest, snapshots.record(latest)));
+    }
+
+    /** Runs search against the latest refreshed view of the index. */
+    public <T> T withSearcher(SearcherFunction<T> search) {
+        try {
+            SearcherManager manager = searcherManager;
+            IndexSearcher searcher;
+            try {
+                searcher = manager.acquire();
+            } catch (AlreadyClosedException e) {
+                // Reopened by abortRebuild() between reading the field and acquiring
+                manager = searcherManager;
+                searcher = manager.acquire();
+            }
+            try {
+                return search.apply(searcher);
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    @Scheduled(fixedDelayString = "${search.lucene.snapshot-prune-interval:60000}")
+    public void pruneSnapshots() {
+        try {
+            snapshots.prune(new SearcherLifetimeManager.PruneByAge(cursorTtl.toSeconds()));
+        } catch (IOException e) {
+            log.warn("Pruning Lucene snapshots failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.lucene.refresh-interval:1000}")
+    public void refresh() {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Lucene index refresh failed", e);
+        }
+    }
+
+    /**
+     * Makes indexed changes durable together with commitData (replacing the previous commit
+     * data). Skipped during a rebuild, which must not be persisted half-way.
+     */
+    public synchronized void commit(Map<String, String> commitData) {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            writer.setLiveCommitData(Map.copyOf(commitData).entrySet());
+            writer.commit();
+        } catch (IOException e) {
+            log.warn("Lucene index commit failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        snapshots.close();
+        searcherManager.close();
+        if (rebuilding) {
+            // Keep the last complete commit; the next start catches up from it
+            writer.rollback();
+        } else {
+            writer.close();  // commits pending changes with the last commit data
+        }
+        directory.close();
+    }
+
+    private static void closeQuietly(SearcherManager manager) {
+        try {
+            manager.close();
+        } catch (IOException e) {
+            log.warn("Failed to close Lucene searcher manager", e);
+        }
+    }
+
+    /**
+     * The standard tokenizer keeps "q3_report.pdf" as one token; split on the separators
+     * file names use so "report" and "pdf" match on their own.
+     */
+    static String searchableName(String filename) {
+        return filename.replaceAll("[._]+", " ");
+    }
+
+    private static Term idTerm(long fileId) {
+        return new Term(ID, String.valueOf(fileId));
+    }
+}
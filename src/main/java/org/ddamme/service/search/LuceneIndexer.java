@@ -0,0 +1,354 @@
+package org.ddamme.service.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.LuceneProperties;
+import org.ddamme.database.shard.ShardContext;
+import org.ddamme.database.shard.ShardRouter;
+import org.ddamme.metrics.Metrics;
+import org.ddamme.service.events.FileEvent;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps LuceneIndex in step with file_metadata.
+ *
+ * Fed by the file events FileEventListener receives over LISTEN/NOTIFY (uploads, deletes,
+ * completed OCR jobs, from any node), so every node indexes every change. An event only
+ * says which file changed: the indexer reloads that row from its shard and upserts it, or
+ * deletes the document when the row is gone. Reloading makes replays and reordering harmless.
+ *
+ * All work runs on one background thread, so a rebuild and the events arriving during it
+ * are applied in order and never block the listener.
+ *
+ * Events are best-effort (none arrive while the node is down or its listener reconnects),
+ * so every commit-interval a checkpoint also catches up from the delta sync change feed
+ * (V13 change stamps and tombstones): every file changed or deleted in a transaction at or
+ * above the shard's last bound is re-synced, then the index is committed with the new
+ * per-shard bounds as commit data. Startup does the same from the committed bounds. The
+ * index is rebuilt instead (with auto-rebuild, otherwise through the lucene actuator
+ * endpoint) when it has no complete commit, when a shard has no bound, when tombstones
+ * past a bound were pruned, or when more than catch-up-limit files changed.
+ *
+ * Catch-up and rebuild read from the primary even with read replicas enabled.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneIndexer implements DisposableBean {
+
+    private static final String INDEX_COLUMNS = """
+            f.id, f.user_id, f.original_filename, f.content_type, f.size, f.upload_timestamp, f.ocr_confidence,
+            translate(f.file_text, E'\\x02\\x03', '') AS file_text""";
+
+    /** Commit data key marking a commit that followed a completed rebuild */
+    static final String COMPLETE = "complete";
+    /** Commit data key prefix of a shard's bound: changes from transactions below it are indexed */
+    static final String BOUND_PREFIX = "bound.";
+
+    private static final RowMapper<LuceneIndex.IndexedFile> ROW = (rs, i) -> new LuceneIndex.IndexedFile(
+            rs.getLong("id"),
+            rs.getLong("user_id"),
+            rs.getString("original_filename"),
+            rs.getString("file_text"),
+            rs.getString("content_type"),
+            rs.getLong("size"),
+            rs.getTimestamp("upload_timestamp").toInstant(),
+            rs.getObject("ocr_confidence") == null ? null : rs.getFloat("ocr_confidence"));
+
+    private final LuceneIndex index;
+    private final LuceneProperties properties;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final boolean eventsEnabled;
+    private final ExecutorService worker =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("lucene-indexer").factory());
+
+    /** Per-shard bounds as of the last catch-up or rebuild; written on the worker only */
+    private final Map<Integer, Long> bounds = new ConcurrentHashMap<>();
+    /** The index holds a completed rebuild plus everything since; only touched on the worker */
+    private boolean complete;
+    /** Checkpoints wait for recover(), so they cannot overwrite the last commit's bounds first */
+    private boolean recovered;
+    private volatile boolean needsRebuild;
+    private volatile Instant lastCheckpoint;
+
+    public LuceneIndexer(LuceneIndex index,
+                         LuceneProperties properties,
+                         ShardRouter shardRouter,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${events.enabled:true}") boolean eventsEnabled) {
+        this.index = index;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        // A plain read-only template stays on the primary (ReplicaReads): a rebuild holds its
+        // snapshot for the whole stream, which a replica may cancel to replay WAL, and a bound
+        // taken on a lagging replica would skip changes the primary has already committed
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.eventsEnabled = eventsEnabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!eventsEnabled) {
+            log.warn("search.engine=lucene with events.enabled=false: changes show up after the next checkpoint");
+        }
+        worker.execute(this::recover);
+    }
+
+    /** Picks up from the last commit: catch up from its bounds, or rebuild if it is incomplete. */
+    private void recover() {
+        recovered = true;
+        Map<String, String> commitData = index.commitData();
+        if (!"true".equals(commitData.get(COMPLETE))) {
+            if (properties.isAutoRebuild()) {
+                log.info("Lucene index has no complete commit ({} documents), rebuilding from file_metadata",
+                        index.numDocs());
+                rebuild();
+            } else {
+                log.warn("Lucene index has no complete commit and auto-rebuild is off; "
+                        + "trigger a rebuild through the lucene actuator endpoint");
+            }
+            return;
+        }
+        complete = true;
+        commitData.forEach((key, value) -> {
+            if (key.startsWith(BOUND_PREFIX)) {
+                bounds.put(Integer.parseInt(key.substring(BOUND_PREFIX.length())), Long.parseLong(value));
+            }
+        });
+        log.info("Lucene index catching up from its last commit (bounds {})", bounds);
+        checkpoint();
+    }
+
+    /** Queues a full rebuild behind the work already queued. */
+    public void requestRebuild() {
+        worker.execute(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${search.lucene.commit-interval:30000}")
+    public void scheduleCheckpoint() {
+        worker.execute(this::checkpoint);
+    }
+
+    public boolean isRebuilding() {
+        return index.isRebuilding();
+    }
+
+    public Instant lastCheckpoint() {
+        return lastCheckpoint;
+    }
+
+    public Map<Integer, Long> bounds() {
+        return Map.copyOf(bounds);
+    }
+
+    @EventListener
+    public void onFileEvent(FileEvent event) {
+        if (event.fileId() == null) {
+            return;
+        }
+        switch (event.type()) {
+            case FileEvent.UPLOAD_COMMITTED, FileEvent.FILE_DELETED, FileEvent.JOB_COMPLETED ->
+                    worker.execute(() -> sync(event.userId(), event.fileId()));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Reindexes one file from its current row, or removes it if the row is gone.
+     *
+     * @return false if the file could not be synced
+     */
+    boolean sync(long userId, long fileId) {
+        try {
+            List<LuceneIndex.IndexedFile> rows = ShardContext.callOn(shardRouter.shardFor(userId),
+                    () -> jdbcTemplate.query(
+                            "SELECT " + INDEX_COLUMNS + " FROM file_metadata f WHERE f.user_id = ? AND f.id = ?",
+                            ROW, userId, fileId));
+            if (rows.isEmpty()) {
+                index.delete(fileId);
+            } else {
+                index.upsert(rows.get(0));
+            }
+            Metrics.increment(meterRegistry, "search.lucene.updates", "outcome", rows.isEmpty() ? "deleted" : "indexed");
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to index file {} (userId={}); the next checkpoint retries it", fileId, userId, e);
+            Metrics.increment(meterRegistry, "search.lucene.updates", "outcome", "error");
+            return false;
+        }
+    }
+
+    /**
+     * Re-syncs every file changed since each shard's bound, then commits the index with the
+     * new bounds. Falls back to a rebuild when the change feed cannot cover the gap.
+     */
+    void checkpoint() {
+        if (!recovered) {
+            return;
+        }
+        if (needsRebuild && properties.isAutoRebuild()) {
+            rebuild();
+            return;
+        }
+        for (int shardId : complete ? shardRouter.shardIds() : List.<Integer>of()) {
+            try (ShardContext.Scope ignored = ShardContext.open(shardId)) {
+                if (!catchUp(shardId)) {
+                    if (properties.isAutoRebuild()) {
+                        rebuild();
+                        return;
+                    }
+                    log.warn("Lucene index cannot catch up on shard {} and auto-rebuild is off; "
+                            + "trigger a rebuild through the lucene actuator endpoint", shardId);
+                }
+            } catch (RuntimeException e) {
+                // Bound stays put, so the next checkpoint retries the same range
+                log.warn("Lucene catch-up failed on shard {}", shardId, e);
+                Metrics.increment(meterRegistry, "search.lucene.checkpoints", "outcome", "error");
+            }
+        }
+        index.commit(commitData());
+        lastCheckpoint = Instant.now();
+        Metrics.increment(meterRegistry, "search.lucene.checkpoints", "outcome", "committed");
+    }
+
+    /**
+     * @return false when the shard's changes since its bound cannot be replayed
+     */
+    private boolean catchUp(int shardId) {
+        Long bound = bounds.get(shardId);
+        if (bound == null) {
+            log.info("No Lucene bound for shard {}, rebuilding", shardId);
+            return false;
+        }
+        long[] newBound = {0};
+        List<long[]> changed = readOnlyTransaction.execute(status -> {
+            // Bound first: the reads below see every transaction under it
+            newBound[0] = stableBound();
+            Long pruned = jdbcTemplate.queryForObject(
+                    "SELECT MAX(pruned_xid)::text::bigint FROM file_sync_state", Long.class);
+            if (pruned != null && pruned >= bound) {
+                log.info("Tombstones past the Lucene bound of shard {} were pruned, rebuilding", shardId);
+                return null;
+            }
+            return jdbcTemplate.query("""
+                            SELECT user_id, id FROM file_metadata WHERE change_xid >= ?::text::xid8
+                            UNION
+                            SELECT user_id, file_id FROM file_tombstones WHERE change_xid >= ?::text::xid8
+                            LIMIT ?
+                            """,
+                    (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                    bound, bound, properties.getCatchUpLimit() + 1);
+        });
+        if (changed == null) {
+            return false;
+        }
+        if (changed.size() > properties.getCatchUpLimit()) {
+            log.info("More than {} files changed on shard {} since the Lucene bound, rebuilding",
+                    properties.getCatchUpLimit(), shardId);
+            return false;
+        }
+        // Outside the shard's transaction: sync() reads from each user's current shard
+        boolean synced = true;
+        for (long[] file : changed) {
+            synced &= sync(file[0], file[1]);
+        }
+        if (synced) {
+            bounds.put(shardId, newBound[0]);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the index with every file_metadata row of every shard, streamed through a
+     * forward-only cursor. Searches see the previous index until it completes; if any shard
+     * fails, the partial index is rolled back and the next checkpoint tries again.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        long[] files = {0};
+        Map<Integer, Long> rebuiltBounds = new HashMap<>();
+        index.beginRebuild();
+        try {
+            for (int shardId : shardRouter.shardIds()) {
+                try (ShardContext.Scope ignored = ShardContext.open(shardId)) {
+                    readOnlyTransaction.executeWithoutResult(status -> {
+                        rebuiltBounds.put(shardId, stableBound());
+                        jdbcTemplate.query(connection -> {
+                            PreparedStatement ps = connection.prepareStatement(
+                                    "SELECT " + INDEX_COLUMNS + " FROM file_metadata f",
+                                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                            ps.setFetchSize(properties.getRebuildFetchSize());
+                            return ps;
+                        }, rs -> {
+                            index.upsert(ROW.mapRow(rs, 0));
+                            files[0]++;
+                        });
+                    });
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Lucene index rebuild failed after {} files, keeping the last commit", files[0], e);
+            Metrics.increment(meterRegistry, "search.lucene.rebuilds", "outcome", "error");
+            needsRebuild = true;
+            index.abortRebuild();
+            return;
+        }
+        bounds.clear();
+        bounds.putAll(rebuiltBounds);
+        complete = true;
+        needsRebuild = false;
+        index.endRebuild(commitData());
+        lastCheckpoint = Instant.now();
+        Metrics.increment(meterRegistry, "search.lucene.rebuilds", "outcome", "completed");
+        log.info("Rebuilt Lucene index: {} files in {} ms", files[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Map<String, String> commitData() {
+        Map<String, String> data = new HashMap<>();
+        if (complete) {
+            data.put(COMPLETE, "true");
+        }
+        bounds.forEach((shardId, bound) -> data.put(BOUND_PREFIX + shardId, String.valueOf(bound)));
+        return data;
+    }
+
+    /** Oldest transaction still running on the current shard; all below it are final */
+    private long stableBound() {
+        return jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+    }
+
+    @Override
+    public void destroy() {
+        worker.shutdownNow();
+    }
+}
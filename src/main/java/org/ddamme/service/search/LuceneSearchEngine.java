@@ -0,0 +1,208 @@
+package org.ddamme.service.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.logging.AuditLogger;
+import org.ddamme.util.Snippets;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text search on the embedded Lucene index (search.engine=lucene).
+ *
+ * - BM25 over filename and text, filename weighted higher (as weights A/B in search_vector)
+ * - Query syntax of SimpleQueryParser: all words required, "phrase", -exclude, a | b
+ * - Per-user term filter: a non-scoring clause, so it restricts without affecting rank
+ * - Keyset pages by (score desc, id asc) via searchAfter, the same cursor shape as PostgreSQL,
+ *   plus the index snapshot (nextSnapshot) the pages run on: BM25 scores move with every
+ *   write, so later pages must see the same view as the first. A snapshot released after
+ *   search.lucene.cursor-ttl falls back to the latest view, where pages may skip or repeat.
+ * - Snippets from the unified highlighter, using offsets stored in the postings
+ *
+ * No result cache and no typo fallback: the index answers from memory-mapped segments
+ * without touching the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneSearchEngine implements SearchEngine {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(
+            LuceneIndex.FILENAME, 1.0f,
+            LuceneIndex.TEXT, 0.4f);
+
+    private static final Sort BY_SCORE_THEN_ID = new Sort(
+            SortField.FIELD_SCORE, new SortField(LuceneIndex.ID_SORT, SortField.Type.LONG));
+
+    /** Passages per snippet and separator, as MaxFragments/FragmentDelimiter for ts_headline */
+    private static final int SNIPPET_PASSAGES = 2;
+    private static final String SNIPPET_ELLIPSIS = " ... ";
+
+    /** Characters of text considered for snippets; matches further in fall back to the first passage */
+    private static final int SNIPPET_MAX_LENGTH = 200_000;
+
+    private final LuceneIndex index;
+
+    @Override
+    public SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit,
+                                 SnippetMode snippets) {
+        return search(user, query, lastRank, lastId, null, limit, snippets, false);
+    }
+
+    @Override
+    public SearchResponse search(User user, String query, Double lastRank, Long lastId, Long snapshot, int limit,
+                                 SnippetMode snippets, boolean facets) {
+        Query parsed = query == null || query.isBlank() ? null : parse(user.getId(), query);
+        if (parsed == null) {
+            return SearchResponse.builder().results(List.of()).hasMore(false).count(0).build();
+        }
+        int effectiveLimit = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // A cursor without its snapshot (older clients) pages on the latest view
+        SearchResponse response = index.withSnapshot(lastRank == null ? null : snapshot,
+                (searcher, pinned) -> {
+                    SearchResponse page = page(searcher, parsed, lastRank, lastId, effectiveLimit, snippets);
+                    page.setNextSnapshot(page.isHasMore() ? pinned : null);
+                    return page;
+                });
+
+        log.info("Lucene search returned {} results (hasMore={}) for query: '{}' (userId={})",
+                response.getCount(), response.isHasMore(), query, user.getId());
+
+        AuditLogger.log("SEARCH_TEXT_PAGINATED",
+                Map.of("username", user.getUsername(), "query", query,
+                       "resultCount", response.getCount(), "hasMore", response.isHasMore()));
+
+        return response;
+    }
+
+    /**
+     * The user's query scoped to their documents, or null when nothing searchable is left
+     * (only stop words or operators).
+     */
+    Query parse(long userId, String query) {
+        SimpleQueryParser parser = new SimpleQueryParser(index.analyzer(), FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query parsed = parser.parse(query);
+        if (parsed == null || parsed instanceof MatchNoDocsQuery) {
+            return null;
+        }
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(LuceneIndex.USER, String.valueOf(userId))), BooleanClause.Occur.FILTER)
+                .add(parsed, BooleanClause.Occur.MUST)
+                .build();
+    }
+
+    private SearchResponse page(IndexSearcher searcher, Query query, Double lastRank, Long lastId, int limit,
+                                SnippetMode snippets) throws IOException {
+        int maxDoc = searcher.getIndexReader().maxDoc();
+        if (maxDoc == 0) {
+            return SearchResponse.builder().results(List.of()).hasMore(false).count(0).build();
+        }
+
+        // Fetch limit + 1 to detect "has more" without counting
+        TopFieldDocs top;
+        if (lastRank != null && lastId != null) {
+            // Ties on (score, id) fall back to doc id; the highest one makes the cursor row itself sort before it
+            FieldDoc after = new FieldDoc(maxDoc - 1, Float.NaN, new Object[]{lastRank.floatValue(), lastId});
+            top = searcher.searchAfter(after, query, limit + 1, BY_SCORE_THEN_ID, true);
+        } else {
+            top = searcher.search(query, limit + 1, BY_SCORE_THEN_ID, true);
+        }
+
+        boolean hasMore = top.scoreDocs.length > limit;
+        ScoreDoc[] hits = hasMore ? Arrays.copyOf(top.scoreDocs, limit) : top.scoreDocs;
+
+        StoredFields stored = searcher.storedFields();
+        List<SearchResultDto> dtos = new ArrayList<>(hits.length);
+        for (ScoreDoc hit : hits) {
+            float score = (Float) ((FieldDoc) hit).fields[0];
+            dtos.add(toDto(stored.document(hit.doc), score));
+        }
+
+        if (snippets != SnippetMode.NONE && hits.length > 0) {
+            addSnippets(searcher, query, new TopDocs(top.totalHits, hits), dtos, snippets);
+        }
+
+        SearchResultDto last = dtos.isEmpty() ? null : dtos.get(dtos.size() - 1);
+        return SearchResponse.builder()
+                .results(dtos)
+                .nextRank(last == null ? null : last.getRank())
+                .nextId(last == null ? null : last.getFileId())
+                .hasMore(hasMore)
+                .count(dtos.size())
+                .build();
+    }
+
+    private void addSnippets(IndexSearcher searcher, Query query, TopDocs page, List<SearchResultDto> dtos,
+                             SnippetMode snippets) throws IOException {
+        UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, index.analyzer())
+                .withFormatter(new DefaultPassageFormatter(
+                        snippets.matchStart(), snippets.matchEnd(), SNIPPET_ELLIPSIS, false))
+                .withMaxLength(SNIPPET_MAX_LENGTH)
+                .build();
+        String[] highlighted = highlighter.highlight(LuceneIndex.TEXT, query, page, SNIPPET_PASSAGES);
+        for (int i = 0; i < dtos.size(); i++) {
+            String snippet = highlighted[i];
+            if (snippet == null) {
+                continue;
+            }
+            SearchResultDto dto = dtos.get(i);
+            if (snippets == SnippetMode.OFFSETS) {
+                Snippets.Marked marked = Snippets.parse(snippet);
+                dto.setSnippet(marked.text());
+                dto.setHighlights(marked.highlights());
+            } else {
+                dto.setSnippet(snippet);
+            }
+        }
+    }
+
+    private static SearchResultDto toDto(Document doc, float score) {
+        IndexableField uploadedAt = doc.getField(LuceneIndex.UPLOADED_AT);
+        IndexableField ocrConfidence = doc.getField(LuceneIndex.OCR_CONFIDENCE);
+        return SearchResultDto.builder()
+                .fileId(Long.parseLong(doc.get(LuceneIndex.ID)))
+                .filename(doc.get(LuceneIndex.FILENAME))
+                .contentType(doc.get(LuceneIndex.CONTENT_TYPE))
+                .size(doc.getField(LuceneIndex.SIZE).numericValue().longValue())
+                .uploadedAt(uploadedAt == null ? null
+                        : Instant.ofEpochMilli(uploadedAt.numericValue().longValue()))
+                .ocrConfidence(ocrConfidence == null ? null : ocrConfidence.numericValue().floatValue())
+                .rank((double) score)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package org.ddamme.service.search;
+
+import lombok.RequiredArgsConstructor;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.service.SearchService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * PostgreSQL full-text search (tsvector + GIN, ts_rank_cd, ts_headline), with the result
+ * cache and typo-tolerant fallback of SearchService.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresSearchEngine implements SearchEngine {
+
+    private final SearchService searchService;
+
+    @Override
+    public SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit,
+                                 SnippetMode snippets) {
+        return searchService.searchTextWithPagination(user, query, lastRank, lastId, limit, snippets);
+    }
+
+    @Override
+    public SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit,
+                                 SnippetMode snippets, boolean facets) {
+        return searchService.searchTextWithPagination(user, query, lastRank, lastId, limit, snippets, facets);
+    }
+}
@@ -0,0 +1,41 @@
+package org.ddamme.service.search;
+
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SnippetMode;
+
+/**
+ * Ranked, paginated full-text search over a user's files.
+ *
+ * Selected with search.engine: postgres (default, PostgresSearchEngine) or lucene
+ * (LuceneSearchEngine). Both page with the same (rank, id) keyset cursor; rank values
+ * are only comparable within one engine, so clients must not carry cursors across a switch.
+ */
+public interface SearchEngine {
+
+    /**
+     * @param lastRank rank of the last result of the previous page (null for the first page)
+     * @param lastId   file id of that result (null for the first page)
+     * @param limit    results per page, capped at 100
+     */
+    SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit, SnippetMode snippets);
+
+    /**
+     * As above; with facets set the first page also carries facet counts over all matches.
+     * Engines that cannot count facets return the page without them.
+     */
+    default SearchResponse search(User user, String query, Double lastRank, Long lastId, int limit,
+                                  SnippetMode snippets, boolean facets) {
+        return search(user, query, lastRank, lastId, limit, snippets);
+    }
+
+    /**
+     * As above, continuing on the index snapshot of the previous page (its nextSnapshot), so
+     * that writes between pages cannot shift the ranks the cursor compares against. Engines
+     * whose ranks do not depend on other documents return no snapshot and ignore it.
+     */
+    default SearchResponse search(User user, String query, Double lastRank, Long lastId, Long snapshot, int limit,
+                                  SnippetMode snippets, boolean facets) {
+        return search(user, query, lastRank, lastId, limit, snippets, facets);
+    }
+}
@@ -0,0 +1,78 @@
+package org.ddamme.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ddamme.config.EmbeddingProperties;
+import org.ddamme.database.model.User;
+import org.ddamme.database.repository.EmbeddingRepository;
+import org.ddamme.database.routing.ReplicaReads;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.logging.AuditLogger;
+import org.ddamme.service.ai.embed.EmbeddingProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Semantic search: files whose text is close in meaning to the query, by nearest chunk
+ * embedding (file_embeddings, filled by EmbedJobHandler).
+ *
+ * The query is embedded before the transaction starts, so model time never holds a
+ * connection. Top-k only, no cursor: similarity drops off quickly, and an approximate
+ * index cannot page stably.
+ */
+@Service
+@Slf4j
+public class SemanticSearchService {
+
+    static final int MAX_RESULTS = 50;
+
+    private final EmbeddingProvider embeddingProvider;
+    private final EmbeddingRepository embeddingRepository;
+    private final EmbeddingProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public SemanticSearchService(EmbeddingProvider embeddingProvider,
+                                 EmbeddingRepository embeddingRepository,
+                                 EmbeddingProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.embeddingProvider = embeddingProvider;
+        this.embeddingRepository = embeddingRepository;
+        this.properties = properties;
+        this.readOnlyTransaction = ReplicaReads.readOnlyTemplate(transactionManager);
+    }
+
+    public SearchResponse search(User user, String query, int limit) {
+        List<SearchResultDto> results = nearest(user, query, Math.min(Math.max(limit, 1), MAX_RESULTS));
+
+        log.info("Semantic search returned {} results for query: '{}' (userId={})",
+                results.size(), query, user.getId());
+        AuditLogger.log("SEARCH_SEMANTIC",
+                Map.of("username", user.getUsername(), "query", query, "resultCount", results.size()));
+
+        return SearchResponse.builder()
+                .results(results)
+                .hasMore(false)
+                .count(results.size())
+                .build();
+    }
+
+    /**
+     * The user's limit files nearest to query, most similar first (rank = cosine similarity).
+     */
+    public List<SearchResultDto> nearest(User user, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        float[] vector = embeddingProvider.embed(List.of(query)).get(0);
+        if (EmbeddingProvider.isZero(vector)) {
+            return List.of();
+        }
+        int candidates = limit * properties.getCandidatesPerResult();
+        return readOnlyTransaction.execute(
+                status -> embeddingRepository.nearest(user.getId(), vector, limit, candidates));
+    }
+}
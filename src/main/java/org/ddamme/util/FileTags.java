@@ -0,0 +1,53 @@
+package org.ddamme.util;
+
+import org.ddamme.exception.InvalidRequestException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Canonical form of user-defined tags (file_metadata.tags, see V11): trimmed,
+ * lower-case, unique and sorted, so "Invoice" and " invoice" are one tag and
+ * containment queries match regardless of how the tag was typed.
+ */
+public final class FileTags {
+
+    /** Matches chk_file_metadata_tags_count */
+    public static final int MAX_TAGS_PER_FILE = 50;
+
+    static final int MAX_TAG_LENGTH = 64;
+
+    private FileTags() {
+        // Utility class
+    }
+
+    /**
+     * @return canonical tags; empty for null input
+     * @throws InvalidRequestException for blank, overlong or control-character tags
+     */
+    public static List<String> normalize(Collection<String> raw) {
+        if (raw == null) {
+            return List.of();
+        }
+        TreeSet<String> tags = new TreeSet<>();
+        for (String tag : raw) {
+            String value = tag == null ? "" : tag.strip().toLowerCase(Locale.ROOT);
+            if (value.isEmpty()) {
+                throw new InvalidRequestException("Tags must not be blank");
+            }
+            if (value.length() > MAX_TAG_LENGTH) {
+                throw new InvalidRequestException("Tags must be at most " + MAX_TAG_LENGTH + " characters");
+            }
+            if (value.chars().anyMatch(Character::isISOControl)) {
+                throw new InvalidRequestException("Tags must not contain control characters");
+            }
+            tags.add(value);
+        }
+        if (tags.size() > MAX_TAGS_PER_FILE) {
+            throw new InvalidRequestException("At most " + MAX_TAGS_PER_FILE + " tags per request");
+        }
+        return List.copyOf(tags);
+    }
+}
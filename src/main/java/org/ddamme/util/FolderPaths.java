@@ -0,0 +1,74 @@
+package org.ddamme.util;
+
+import org.ddamme.exception.InvalidRequestException;
+
+/**
+ * Materialized folder paths as stored in file_metadata.folder_path.
+ *
+ * Canonical form: leading and trailing slash, no empty, "." or ".." segments
+ * ("/", "/reports/", "/reports/2025/"). The trailing slash makes "is inside" a plain
+ * prefix test, so "/reports/" never matches "/reports-old/".
+ */
+public final class FolderPaths {
+
+    public static final String ROOT = "/";
+
+    /** Matches the width of original_filename; deep trees beyond this are almost always a client bug */
+    static final int MAX_LENGTH = 1024;
+
+    private FolderPaths() {
+        // Utility class
+    }
+
+    /**
+     * Canonicalizes a client-supplied folder path. Null or blank means the root folder.
+     * Redundant slashes are collapsed; "a/b" and "/a/b/" are the same folder.
+     *
+     * @throws InvalidRequestException for relative segments, control characters or excessive length
+     */
+    public static String normalize(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return ROOT;
+        }
+
+        StringBuilder path = new StringBuilder(ROOT);
+        for (String segment : raw.split("/")) {
+            String name = segment.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.equals(".") || name.equals("..")) {
+                throw new InvalidRequestException("Folder path must not contain '.' or '..' segments");
+            }
+            if (name.chars().anyMatch(Character::isISOControl)) {
+                throw new InvalidRequestException("Folder path must not contain control characters");
+            }
+            path.append(name).append('/');
+        }
+
+        if (path.length() > MAX_LENGTH) {
+            throw new InvalidRequestException("Folder path exceeds " + MAX_LENGTH + " characters");
+        }
+        return path.toString();
+    }
+
+    /** True if path is ancestor itself or lies anywhere below it. Both must be canonical. */
+    public static boolean isWithin(String path, String ancestor) {
+        return path.startsWith(ancestor);
+    }
+
+    /**
+     * LIKE pattern matching path and everything below it. LIKE wildcards in folder
+     * names are escaped; use with {@code ESCAPE '\'}.
+     */
+    public static String subtreePattern(String path) {
+        return path.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    /** Path of a direct child folder of parent. */
+    public static String child(String parent, String name) {
+        return parent + name + "/";
+    }
+}
@@ -0,0 +1,67 @@
+package org.ddamme.util;
+
+import org.ddamme.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the sort key values of the last row of a page,
+ * base64url-encoded so clients pass it back verbatim.
+ *
+ * Values are joined with NUL, which PostgreSQL text cannot contain. Cursors are not
+ * signed: they only carry positions within the caller's own rows, and every query
+ * is still scoped by user_id.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\u0000";
+
+    private KeysetCursor() {
+        // Utility class
+    }
+
+    public static String encode(Object... values) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                joined.append(SEPARATOR);
+            }
+            joined.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode}.
+     *
+     * @return the values, or null for a null/blank cursor (first page)
+     * @throws InvalidRequestException if the cursor is malformed or has the wrong number of values
+     */
+    public static String[] decode(String cursor, int expectedValues) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor", e);
+        }
+        String[] values = joined.split(SEPARATOR, -1);
+        if (values.length != expectedValues) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+        return values;
+    }
+
+    /** Parses a numeric cursor value, rejecting tampered cursors as a 400 rather than a 500. */
+    public static long longValue(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.ddamme.util;
+
+import org.ddamme.dto.SearchResultDto.Highlight;
+import org.ddamme.dto.SnippetMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a ts_headline snippet marked with SnippetMode.MATCH_START/MATCH_END into plain text
+ * plus match offsets.
+ */
+public final class Snippets {
+
+    private Snippets() {
+        // Utility class
+    }
+
+    public record Marked(String text, List<Highlight> highlights) {
+    }
+
+    public static Marked parse(String marked) {
+        StringBuilder text = new StringBuilder(marked.length());
+        List<Highlight> highlights = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < marked.length(); i++) {
+            char c = marked.charAt(i);
+            if (c == SnippetMode.MATCH_START.charAt(0)) {
+                start = text.length();
+            } else if (c == SnippetMode.MATCH_END.charAt(0)) {
+                if (start >= 0 && text.length() > start) {
+                    highlights.add(new Highlight(start, text.length()));
+                }
+                start = -1;
+            } else {
+                text.append(c);
+            }
+        }
+        return new Marked(text.toString(), highlights);
+    }
+}
@@ -0,0 +1,126 @@
+-- V10: Folders as materialized paths
+-- folder_path is the full path of the containing folder with leading and trailing slash
+-- ('/', '/reports/', '/reports/2025/'). COLLATE "C" makes a prefix LIKE ('/reports/%')
+-- an index range scan and keeps a subtree contiguous in index order.
+-- Folders are implied by the files they contain, like S3 prefixes.
+
+ALTER TABLE file_metadata
+    ADD COLUMN IF NOT EXISTS folder_path TEXT COLLATE "C" NOT NULL DEFAULT '/';
+
+ALTER TABLE file_metadata
+    ADD CONSTRAINT chk_file_metadata_folder_path CHECK (folder_path LIKE '/%' AND folder_path LIKE '%/');
+
+-- Folder listing and recursive subtree listing, both keyset-paginated in this order
+CREATE INDEX IF NOT EXISTS idx_files_user_folder_name
+    ON file_metadata (user_id, folder_path, original_filename, id);
+
+-- Per-folder rollups of the files directly in each folder. Subtree totals are a
+-- prefix-range SUM over this (small) table instead of a scan of the files.
+CREATE TABLE IF NOT EXISTS folder_stats
+(
+    user_id     BIGINT         NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    folder_path TEXT COLLATE "C" NOT NULL,
+    file_count  BIGINT         NOT NULL,
+    total_size  BIGINT         NOT NULL,
+    PRIMARY KEY (user_id, folder_path)
+);
+
+INSERT INTO folder_stats (user_id, folder_path, file_count, total_size)
+SELECT user_id, folder_path, COUNT(*), SUM(size)
+FROM file_metadata
+GROUP BY user_id, folder_path;
+
+-- Incremental maintenance: statement-level triggers aggregate the transition table, so a
+-- subtree move of N files costs one upsert per affected folder, not N.
+-- Rows are upserted in key order so concurrent statements lock folder_stats rows in the same order.
+CREATE OR REPLACE FUNCTION folder_stats_after_insert()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO folder_stats AS fs (user_id, folder_path, file_count, total_size)
+    SELECT user_id, folder_path, COUNT(*), SUM(size)
+    FROM new_files
+    GROUP BY user_id, folder_path
+    ORDER BY user_id, folder_path
+    ON CONFLICT (user_id, folder_path) DO UPDATE
+        SET file_count = fs.file_count + EXCLUDED.file_count,
+            total_size = fs.total_size + EXCLUDED.total_size;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION folder_stats_after_delete()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE folder_stats fs
+    SET file_count = fs.file_count - d.file_count,
+        total_size = fs.total_size - d.total_size
+    FROM (SELECT user_id, folder_path, COUNT(*) AS file_count, SUM(size) AS total_size
+          FROM old_files
+          GROUP BY user_id, folder_path
+          ORDER BY user_id, folder_path) d
+    WHERE fs.user_id = d.user_id
+      AND fs.folder_path = d.folder_path;
+
+    DELETE FROM folder_stats fs
+    USING (SELECT DISTINCT user_id, folder_path FROM old_files) d
+    WHERE fs.user_id = d.user_id
+      AND fs.folder_path = d.folder_path
+      AND fs.file_count <= 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION folder_stats_after_update()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    -- Only rows whose folder or size changed; other updates (OCR text, timestamps) are no-ops
+    INSERT INTO folder_stats AS fs (user_id, folder_path, file_count, total_size)
+    SELECT user_id, folder_path, SUM(file_count), SUM(total_size)
+    FROM (SELECT o.user_id, o.folder_path, -1 AS file_count, -o.size AS total_size
+          FROM old_files o
+                   JOIN new_files n ON n.id = o.id
+          WHERE o.folder_path <> n.folder_path OR o.size <> n.size
+          UNION ALL
+          SELECT n.user_id, n.folder_path, 1, n.size
+          FROM old_files o
+                   JOIN new_files n ON n.id = o.id
+          WHERE o.folder_path <> n.folder_path OR o.size <> n.size) delta
+    GROUP BY user_id, folder_path
+    ORDER BY user_id, folder_path
+    ON CONFLICT (user_id, folder_path) DO UPDATE
+        SET file_count = fs.file_count + EXCLUDED.file_count,
+            total_size = fs.total_size + EXCLUDED.total_size;
+
+    DELETE FROM folder_stats fs
+    USING (SELECT DISTINCT user_id, folder_path FROM old_files) d
+    WHERE fs.user_id = d.user_id
+      AND fs.folder_path = d.folder_path
+      AND fs.file_count <= 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One trigger per event: transition tables cannot be shared across events
+CREATE TRIGGER file_metadata_folder_stats_insert
+    AFTER INSERT
+    ON file_metadata
+    REFERENCING NEW TABLE AS new_files
+    FOR EACH STATEMENT
+EXECUTE FUNCTION folder_stats_after_insert();
+
+CREATE TRIGGER file_metadata_folder_stats_delete
+    AFTER DELETE
+    ON file_metadata
+    REFERENCING OLD TABLE AS old_files
+    FOR EACH STATEMENT
+EXECUTE FUNCTION folder_stats_after_delete();
+
+CREATE TRIGGER file_metadata_folder_stats_update
+    AFTER UPDATE
+    ON file_metadata
+    REFERENCING OLD TABLE AS old_files NEW TABLE AS new_files
+    FOR EACH STATEMENT
+EXECUTE FUNCTION folder_stats_after_update();
@@ -0,0 +1,17 @@
+-- V11: User-defined tags
+-- TEXT[] like ai_keywords, normalized by the application (trimmed, lower-case, sorted, unique).
+-- GIN supports containment (tags @> ARRAY['invoice']); within a user's hash partition it is
+-- combined with the user_id indexes via bitmap AND.
+
+ALTER TABLE file_metadata
+    ADD COLUMN IF NOT EXISTS tags TEXT[] NOT NULL DEFAULT '{}';
+
+ALTER TABLE file_metadata
+    ADD CONSTRAINT chk_file_metadata_tags_count CHECK (cardinality(tags) <= 50);
+
+CREATE INDEX IF NOT EXISTS idx_files_tags ON file_metadata USING GIN (tags);
+
+-- Content type and date range filters on the listing
+-- varchar_pattern_ops: serves both "= 'application/pdf'" and the family prefix "LIKE 'image/%'"
+CREATE INDEX IF NOT EXISTS idx_files_user_content_type
+    ON file_metadata (user_id, content_type varchar_pattern_ops, upload_timestamp DESC);
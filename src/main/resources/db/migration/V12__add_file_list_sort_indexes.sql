@@ -0,0 +1,13 @@
+-- V12: Sort orders for the file list
+-- One index per sort order, each ending in id: ORDER BY col, id (either direction, via a
+-- backward scan) and the keyset predicate (col, id) > (?, ?) are both served by it,
+-- so every page is an index range scan regardless of how deep it is.
+
+CREATE INDEX IF NOT EXISTS idx_files_user_name ON file_metadata (user_id, original_filename, id);
+
+CREATE INDEX IF NOT EXISTS idx_files_user_size ON file_metadata (user_id, size, id);
+
+CREATE INDEX IF NOT EXISTS idx_files_user_uploaded_id ON file_metadata (user_id, upload_timestamp, id);
+
+-- Superseded by idx_files_user_uploaded_id (same leading columns plus the tie-breaker)
+DROP INDEX IF EXISTS idx_file_metadata_user_uploaded;
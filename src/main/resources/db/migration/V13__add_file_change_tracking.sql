@@ -0,0 +1,85 @@
+-- V13: Change tracking for delta sync (GET /api/v1/files/changes)
+-- Every insert/update stamps the row with the writing transaction id (xid8) and a sequence
+-- number; deletes leave a tombstone stamped the same way. Clients page through changes in
+-- (change_xid, change_seq) order and only see changes from transactions older than the
+-- snapshot xmin, i.e. transactions that can no longer commit "behind" the cursor. A plain
+-- timestamp or sequence cursor would skip rows from transactions that committed late.
+
+CREATE SEQUENCE IF NOT EXISTS file_change_seq;
+
+ALTER TABLE file_metadata
+    ADD COLUMN IF NOT EXISTS change_xid  xid8,
+    ADD COLUMN IF NOT EXISTS change_seq  BIGINT,
+    ADD COLUMN IF NOT EXISTS created_xid xid8;
+
+UPDATE file_metadata
+SET change_xid  = pg_current_xact_id(),
+    change_seq  = nextval('file_change_seq'),
+    created_xid = pg_current_xact_id();
+
+ALTER TABLE file_metadata
+    ALTER COLUMN change_xid SET NOT NULL,
+    ALTER COLUMN change_seq SET NOT NULL,
+    ALTER COLUMN created_xid SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_files_user_change ON file_metadata (user_id, change_xid, change_seq);
+
+CREATE OR REPLACE FUNCTION stamp_file_change()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.change_xid := pg_current_xact_id();
+    NEW.change_seq := nextval('file_change_seq');
+    IF TG_OP = 'INSERT' THEN
+        NEW.created_xid := NEW.change_xid;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER stamp_file_change
+    BEFORE INSERT OR UPDATE ON file_metadata
+    FOR EACH ROW
+EXECUTE FUNCTION stamp_file_change();
+
+-- Deleted files. No FK to users: tombstones are written while a user's files are deleted,
+-- and are skipped when the user itself is gone (cascade delete).
+CREATE TABLE IF NOT EXISTS file_tombstones
+(
+    user_id    BIGINT      NOT NULL,
+    file_id    BIGINT      NOT NULL,
+    change_xid xid8        NOT NULL,
+    change_seq BIGINT      NOT NULL,
+    deleted_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, change_xid, change_seq)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_tombstones_deleted_at ON file_tombstones (deleted_at);
+
+CREATE OR REPLACE FUNCTION file_tombstones_after_delete()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO file_tombstones (user_id, file_id, change_xid, change_seq)
+    SELECT o.user_id, o.id, pg_current_xact_id(), nextval('file_change_seq')
+    FROM old_files o
+    WHERE EXISTS (SELECT 1 FROM users u WHERE u.id = o.user_id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER file_tombstones_after_delete
+    AFTER DELETE ON file_metadata
+    REFERENCING OLD TABLE AS old_files
+    FOR EACH STATEMENT
+EXECUTE FUNCTION file_tombstones_after_delete();
+
+-- Per-user sync state. epoch changes when the user's rows are re-created elsewhere (shard
+-- move), pruned_xid is the newest pruned tombstone; cursors from another epoch or at or
+-- below pruned_xid cannot be continued and the client must resync from scratch.
+CREATE TABLE IF NOT EXISTS file_sync_state
+(
+    user_id    BIGINT NOT NULL PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    epoch      BIGINT NOT NULL DEFAULT 0,
+    pruned_xid xid8
+);
@@ -0,0 +1,18 @@
+-- V14: User-scoped full-text index
+-- Every search is "user_id = ? AND search_vector @@ query". With only the global GIN index
+-- on search_vector the planner either reads the whole posting list of a term (every
+-- tenant's matches in the partition) and filters by user, or walks all of the user's rows
+-- and evaluates @@ on each. A composite GIN index keys both: the scan intersects the
+-- user's entry with the term's, and GIN fast scan skips posting-list segments of the
+-- common entry that cannot match the rarer one. Cost then tracks the user's own matches,
+-- not what other tenants have uploaded.
+--
+-- btree_gin supplies GIN operator classes for scalar types (user_id). RUM would also
+-- serve rank ordering but is not a contrib module, so it is not available on stock PostgreSQL.
+
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_files_user_search ON file_metadata USING GIN (user_id, search_vector);
+
+-- Superseded: all search queries are scoped to a user
+DROP INDEX IF EXISTS idx_files_search_vector;
@@ -0,0 +1,9 @@
+-- V15: Filename typeahead (GET /api/v1/search/suggest)
+-- Trigrams make substring (ILIKE '%abc%') and fuzzy (word similarity) filename matches
+-- index-backed, which the FTS path cannot do for partial words. user_id is a second GIN
+-- key (btree_gin, V14), so the scan only intersects with the caller's rows.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_files_user_name_trgm
+    ON file_metadata USING GIN (user_id, original_filename gin_trgm_ops);
@@ -0,0 +1,87 @@
+-- V16: Per-user vocabulary for typo-tolerant search
+-- One row per distinct word in a user's filenames and extracted text, with the number of
+-- files containing it. "Did you mean" looks up the closest known words by trigram
+-- similarity (index-backed), instead of running ts_stat over the user's documents per query.
+--
+-- Words come from the 'simple' configuration (lower-cased, unstemmed), so suggestions
+-- are real words; 3-32 characters, digits-only tokens skipped. Kept current by row
+-- triggers; a shard move re-creates the rows on the target, which rebuilds it there.
+
+CREATE TABLE IF NOT EXISTS file_lexemes
+(
+    user_id BIGINT  NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    lexeme  TEXT    NOT NULL,
+    ndoc    INTEGER NOT NULL,
+    PRIMARY KEY (user_id, lexeme)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_lexemes_trgm ON file_lexemes USING GIN (user_id, lexeme gin_trgm_ops);
+
+CREATE OR REPLACE FUNCTION file_lexeme_words(filename TEXT, body TEXT)
+    RETURNS TEXT[] AS
+$$
+SELECT COALESCE(array_agg(w), '{}')
+FROM unnest(tsvector_to_array(to_tsvector('simple', COALESCE(filename, '') || ' ' || COALESCE(body, '')))) AS w
+WHERE char_length(w) BETWEEN 3 AND 32
+  AND w !~ '^[0-9]+$'
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION maintain_file_lexemes()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    owner     BIGINT;
+    old_words TEXT[] := '{}';
+    new_words TEXT[] := '{}';
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        owner := NEW.user_id;
+    ELSE
+        owner := OLD.user_id;
+        -- Cascade from a deleted user: its file_lexemes rows go with it
+        IF TG_OP = 'DELETE' AND NOT EXISTS (SELECT 1 FROM users u WHERE u.id = owner) THEN
+            RETURN NULL;
+        END IF;
+        old_words := file_lexeme_words(OLD.original_filename, OLD.file_text);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        new_words := file_lexeme_words(NEW.original_filename, NEW.file_text);
+    END IF;
+
+    -- One upsert for both directions, in lexeme order so concurrent writers lock alike
+    INSERT INTO file_lexemes AS l (user_id, lexeme, ndoc)
+    SELECT owner, d.w, d.delta
+    FROM (SELECT w, 1 AS delta FROM unnest(new_words) AS w WHERE w <> ALL (old_words)
+          UNION ALL
+          SELECT w, -1 FROM unnest(old_words) AS w WHERE w <> ALL (new_words)) d
+    ORDER BY d.w
+    ON CONFLICT (user_id, lexeme) DO UPDATE SET ndoc = l.ndoc + EXCLUDED.ndoc;
+
+    DELETE FROM file_lexemes
+    WHERE user_id = owner
+      AND lexeme = ANY (old_words)
+      AND ndoc <= 0;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER file_lexemes_insert_delete
+    AFTER INSERT OR DELETE ON file_metadata
+    FOR EACH ROW
+EXECUTE FUNCTION maintain_file_lexemes();
+
+-- Only when the indexed text changes; tag, folder and sync stamp updates skip it
+CREATE TRIGGER file_lexemes_update
+    AFTER UPDATE OF original_filename, file_text ON file_metadata
+    FOR EACH ROW
+    WHEN (OLD.original_filename IS DISTINCT FROM NEW.original_filename
+        OR OLD.file_text IS DISTINCT FROM NEW.file_text)
+EXECUTE FUNCTION maintain_file_lexemes();
+
+INSERT INTO file_lexemes (user_id, lexeme, ndoc)
+SELECT f.user_id, w, COUNT(*)
+FROM file_metadata f
+         CROSS JOIN LATERAL unnest(file_lexeme_words(f.original_filename, f.file_text)) AS w
+GROUP BY f.user_id, w
+ON CONFLICT DO NOTHING;
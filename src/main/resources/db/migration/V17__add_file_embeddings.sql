@@ -0,0 +1,30 @@
+-- V17: Chunk embeddings for semantic search (pgvector)
+-- The EMBED job splits file_text into overlapping chunks and stores one vector per chunk;
+-- the chunk's character range in file_text doubles as its snippet, so text isn't stored twice.
+--
+-- 384 dimensions (all-MiniLM-L6-v2 class models, see EmbeddingProvider). Cosine distance;
+-- vectors are stored unit-length. HNSW index over all users: per-user queries rely on
+-- pgvector 0.8 iterative index scans (hnsw.iterative_scan) to keep filtering until enough
+-- of the user's rows are found; for small accounts the planner prefers the (user_id, ...)
+-- unique index and an exact sort.
+--
+-- Rows belong to their file (FK with ON DELETE CASCADE) and carry user_id, so shard moves
+-- copy them like file_metadata (ids come from a shard-ranged sequence, see ShardingConfig).
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS file_embeddings
+(
+    id           BIGSERIAL   PRIMARY KEY,
+    user_id      BIGINT      NOT NULL,
+    file_id      BIGINT      NOT NULL,
+    chunk_index  INTEGER     NOT NULL,
+    start_offset INTEGER     NOT NULL,
+    end_offset   INTEGER     NOT NULL,
+    embedding    vector(384) NOT NULL,
+    UNIQUE (user_id, file_id, chunk_index),
+    FOREIGN KEY (file_id, user_id) REFERENCES file_metadata (id, user_id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_embeddings_hnsw
+    ON file_embeddings USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
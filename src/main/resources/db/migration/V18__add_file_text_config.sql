@@ -0,0 +1,40 @@
+-- V18: Per-document text search configuration
+-- search_vector was always built with 'english', so other languages got English stop
+-- words and no stemming (larger vectors, missed inflections). The OCR job now detects
+-- the document language and stores its configuration; filename and text are indexed
+-- with it. Rows keep 'english' until OCR (or a re-run) says otherwise.
+--
+-- SET EXPRESSION (PostgreSQL 17) rewrites the table and rebuilds its indexes once.
+
+ALTER TABLE file_metadata
+    ADD COLUMN IF NOT EXISTS text_config REGCONFIG NOT NULL DEFAULT 'english';
+
+ALTER TABLE file_metadata
+    ALTER COLUMN search_vector SET EXPRESSION AS (
+        setweight(to_tsvector(text_config, coalesce(original_filename, '')), 'A') ||
+        setweight(to_tsvector(text_config, coalesce(file_text, '')), 'B')
+        );
+
+-- The query side: the user's query parsed with each configuration in use, OR'ed, so a
+-- document matches when the query matches it as parsed for its own language. Vectors
+-- only hold their own configuration's lexemes, so the other parses rarely hit. One
+-- tsquery keeps "search_vector @@ query" an index condition on idx_files_user_search.
+--
+-- configs: comma-separated configuration names, e.g. 'english,german'
+CREATE OR REPLACE FUNCTION search_query(configs TEXT, query TEXT)
+    RETURNS tsquery AS
+$$
+DECLARE
+    config TEXT;
+    parsed tsquery;
+    result tsquery;
+BEGIN
+    FOREACH config IN ARRAY string_to_array(configs, ',')
+        LOOP
+            parsed := websearch_to_tsquery(config::regconfig, query);
+            result := CASE WHEN result IS NULL THEN parsed ELSE result || parsed END;
+        END LOOP;
+    RETURN result;
+END;
+$$ LANGUAGE plpgsql STABLE
+                    PARALLEL SAFE;
@@ -0,0 +1,8 @@
+-- V19: Cross-user change feed scans
+-- Delta sync reads changes per user (idx_files_user_change). The Lucene indexer's checkpoint
+-- reads every file changed or deleted since a shard-wide bound, which without these would
+-- be a sequential scan of both tables every commit-interval.
+
+CREATE INDEX IF NOT EXISTS idx_files_change_xid ON file_metadata (change_xid);
+
+CREATE INDEX IF NOT EXISTS idx_file_tombstones_change_xid ON file_tombstones (change_xid);
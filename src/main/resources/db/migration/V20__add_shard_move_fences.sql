@@ -0,0 +1,62 @@
+-- V20: Shard move fences and deferred source cleanup (see ShardMover)
+-- Created on every shard like the rest of the schema. Fences live on the shard a user is
+-- leaving; the cleanup queue is read and written on shard 0 next to shard_directory.
+
+-- A user's rows on this shard are being copied away, or have been and await deletion:
+-- writes to them are refused, so nothing written here after the copy can be lost.
+CREATE TABLE IF NOT EXISTS shard_move_fences
+(
+    user_id    BIGINT PRIMARY KEY,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Takes the writer's xid before reading the fence: a transaction that passed the check
+-- still runs with an xid ShardMover sees in progress once the fence is committed, so the
+-- mover can wait for exactly those writers to finish before it copies.
+CREATE OR REPLACE FUNCTION shard_move_fence()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    owner BIGINT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        owner := OLD.user_id;
+    ELSE
+        owner := NEW.user_id;
+    END IF;
+    PERFORM pg_current_xact_id();
+    IF EXISTS (SELECT 1 FROM shard_move_fences f WHERE f.user_id = owner) THEN
+        RAISE EXCEPTION 'User % is being moved to another shard', owner
+            USING ERRCODE = 'object_not_in_prerequisite_state';
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER shard_move_fence
+    BEFORE INSERT OR UPDATE OR DELETE ON file_metadata
+    FOR EACH ROW
+EXECUTE FUNCTION shard_move_fence();
+
+CREATE TRIGGER shard_move_fence
+    BEFORE INSERT OR UPDATE OR DELETE ON file_embeddings
+    FOR EACH ROW
+EXECUTE FUNCTION shard_move_fence();
+
+-- Source rows left behind by a completed move. Deleted (with the fence) once no node can
+-- still route the user there, retried until that succeeds.
+CREATE TABLE IF NOT EXISTS shard_move_cleanups
+(
+    user_id    BIGINT      NOT NULL,
+    shard_id   INT         NOT NULL,
+    not_before TIMESTAMPTZ NOT NULL,
+    attempts   INT         NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, shard_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_shard_move_cleanups_not_before ON shard_move_cleanups (not_before);
@@ -0,0 +1,26 @@
+-- V21: Let bulk job creation claim (file, type) slots before inserting the jobs
+-- OcrReconciler inserts into ai_job_keys first with ON CONFLICT DO NOTHING, so a job created
+-- concurrently for one file no longer fails the whole backfill. The register trigger then
+-- accepts a slot already held by the job being inserted; any other holder is still a
+-- unique violation (23505) from the INSERT INTO ai_jobs, as before.
+
+CREATE OR REPLACE FUNCTION register_ai_job_key()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO ai_job_keys (file_id, job_type, user_id, job_id)
+    VALUES (NEW.file_id, NEW.job_type, NEW.user_id, NEW.id)
+    ON CONFLICT (file_id, job_type) DO NOTHING;
+    IF NOT FOUND AND NOT EXISTS (SELECT 1
+                                 FROM ai_job_keys k
+                                 WHERE k.file_id = NEW.file_id
+                                   AND k.job_type = NEW.job_type
+                                   AND k.job_id = NEW.id) THEN
+        RAISE EXCEPTION 'duplicate key value violates unique constraint "ai_job_keys_pkey"'
+            USING ERRCODE = 'unique_violation',
+                CONSTRAINT = 'ai_job_keys_pkey',
+                DETAIL = format('Key (file_id, job_type)=(%s, %s) already exists.', NEW.file_id, NEW.job_type);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
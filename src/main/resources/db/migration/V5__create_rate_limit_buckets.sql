@@ -0,0 +1,28 @@
+-- V5: Shared token buckets for cluster-wide rate limiting
+-- Used only when security.ratelimit.backend=postgres (Bucket4j select-for-update proxy manager)
+-- Bucket4j owns (id, state); updated_at lets PostgresBucketStore purge idle buckets
+
+CREATE TABLE IF NOT EXISTS rate_limit_buckets
+(
+    id         VARCHAR(512) PRIMARY KEY,                -- route|principal key (e.g. upload|u:alice)
+    state      BYTEA,                                   -- Bucket4j serialized bucket state
+    updated_at TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+-- No index on updated_at: it would block HOT updates on every consumed token.
+-- The purge job runs every few minutes over a table sized to active principals.
+
+CREATE OR REPLACE FUNCTION update_rate_limit_buckets_updated_at()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.updated_at = NOW();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER rate_limit_buckets_updated_at_trigger
+    BEFORE UPDATE
+    ON rate_limit_buckets
+    FOR EACH ROW
+EXECUTE FUNCTION update_rate_limit_buckets_updated_at();
@@ -0,0 +1,22 @@
+-- V6: Outbox for S3 objects that must be deleted
+-- FileService no longer holds a DB transaction during S3 calls, so object/metadata
+-- consistency is kept with durable intents instead:
+--   PENDING_UPLOAD: written before the S3 PUT, removed in the same transaction that inserts
+--                   file_metadata. A row that outlives its grace period is an orphaned object.
+--   DELETED:        written in the transaction that deletes file_metadata; removed once the
+--                   S3 DELETE succeeds (inline, or later by StorageCleanupOutbox.sweep()).
+
+CREATE TABLE IF NOT EXISTS storage_cleanup_outbox
+(
+    id          BIGSERIAL PRIMARY KEY,
+    storage_key VARCHAR(512) NOT NULL,
+    reason      VARCHAR(32)  NOT NULL CHECK (reason IN ('PENDING_UPLOAD', 'DELETED')),
+    not_before  TIMESTAMPTZ  NOT NULL,                  -- earliest time the sweeper may act (grace / retry backoff)
+    attempts    INT          NOT NULL DEFAULT 0,
+    last_error  TEXT,
+    created_at  TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+-- Sweeper claim: WHERE not_before <= NOW() ORDER BY not_before LIMIT n FOR UPDATE SKIP LOCKED
+CREATE INDEX IF NOT EXISTS idx_storage_cleanup_outbox_not_before
+    ON storage_cleanup_outbox (not_before);
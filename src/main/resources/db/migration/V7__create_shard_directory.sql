@@ -0,0 +1,12 @@
+-- V7: Shard directory (user -> shard) for optional per-user sharding
+-- Read and written on shard 0 only; created on every shard so all shards share one schema.
+-- Users without a row are placed on first access (see ShardDirectory).
+
+CREATE TABLE IF NOT EXISTS shard_directory
+(
+    user_id    BIGINT PRIMARY KEY,
+    shard_id   INT         NOT NULL,
+    moving     BOOLEAN     NOT NULL DEFAULT FALSE,  -- requests refused (503) while ShardMover copies rows
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
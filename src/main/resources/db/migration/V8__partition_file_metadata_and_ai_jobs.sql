@@ -0,0 +1,197 @@
+-- V8: Declarative partitioning
+--   file_metadata: HASH (user_id), 8 partitions - per-user queries prune to one partition,
+--                  so per-user and GIN indexes stay small
+--   ai_jobs:       RANGE (created_at), monthly partitions - the claim index only covers recent
+--                  months and retention becomes DETACH/DROP instead of a large DELETE
+--                  (AiJobPartitionMaintainer creates future months and archives old ones)
+--
+-- PostgreSQL requires the partition key in every unique constraint:
+--   file_metadata PK (id, user_id), UNIQUE (storage_key, user_id)
+--   ai_jobs       PK (id, created_at); one-job-per-(file, type) moves to ai_job_keys,
+--                 maintained by triggers, so it also survives archiving the job's partition
+-- The ai_jobs self-reference (depends_on_job_id) is no longer a foreign key; the claim
+-- query already checks the dependency with EXISTS.
+--
+-- Existing rows are copied once; ids and sequences are preserved.
+
+-- 1. Move current tables aside
+ALTER TABLE ai_jobs RENAME TO ai_jobs_legacy;
+ALTER TABLE file_metadata RENAME TO file_metadata_legacy;
+
+-- 2. file_metadata, hash-partitioned by owner
+CREATE TABLE file_metadata
+(
+    id                      BIGINT       NOT NULL DEFAULT nextval('file_metadata_id_seq'),
+    user_id                 BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    original_filename       VARCHAR(1024) NOT NULL,
+    storage_key             VARCHAR(512) NOT NULL,
+    size                    BIGINT       NOT NULL,
+    content_type            VARCHAR(255) NOT NULL,
+    upload_timestamp        TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    update_timestamp        TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    file_text               TEXT,
+    file_structured_json    JSONB,
+    ai_summary              TEXT,
+    ai_keywords             TEXT[],
+    pii_level               VARCHAR(20),
+    ocr_confidence          REAL,
+    ocr_model_version       VARCHAR(50),
+    embedding_model_version VARCHAR(50),
+    search_vector           tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(original_filename, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(file_text, '')), 'B')
+        ) STORED,
+    PRIMARY KEY (id, user_id),
+    UNIQUE (storage_key, user_id)
+) PARTITION BY HASH (user_id);
+
+DO
+$$
+    BEGIN
+        FOR i IN 0..7
+            LOOP
+                EXECUTE format(
+                        'CREATE TABLE file_metadata_p%s PARTITION OF file_metadata FOR VALUES WITH (MODULUS 8, REMAINDER %s)',
+                        i, i);
+            END LOOP;
+    END
+$$;
+
+INSERT INTO file_metadata (id, user_id, original_filename, storage_key, size, content_type,
+                           upload_timestamp, update_timestamp, file_text, file_structured_json,
+                           ai_summary, ai_keywords, pii_level, ocr_confidence, ocr_model_version,
+                           embedding_model_version)
+SELECT id, user_id, original_filename, storage_key, size, content_type,
+       upload_timestamp, update_timestamp, file_text, file_structured_json,
+       ai_summary, ai_keywords, pii_level, ocr_confidence, ocr_model_version,
+       embedding_model_version
+FROM file_metadata_legacy;
+
+-- 3. ai_jobs, range-partitioned by creation month (no DEFAULT partition: it would block
+--    DETACH ... CONCURRENTLY and force a scan on every new partition)
+CREATE TABLE ai_jobs
+(
+    id                BIGINT      NOT NULL DEFAULT nextval('ai_jobs_id_seq'),
+    user_id           BIGINT      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    file_id           BIGINT      NOT NULL,
+    job_type          job_type    NOT NULL,
+    job_status        job_status  NOT NULL DEFAULT 'PENDING',
+    priority          INT         NOT NULL DEFAULT 5,
+    attempts          INT         NOT NULL DEFAULT 0,
+    max_attempts      INT         NOT NULL DEFAULT 3,
+    next_attempt_at   TIMESTAMPTZ,
+    locked_by         VARCHAR(255),
+    locked_at         TIMESTAMPTZ,
+    depends_on_job_id BIGINT,
+    input_params      JSONB,
+    output_data       JSONB,
+    error_message     TEXT,
+    created_at        TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at        TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    completed_at      TIMESTAMPTZ,
+    PRIMARY KEY (id, created_at),
+    FOREIGN KEY (file_id, user_id) REFERENCES file_metadata (id, user_id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+-- Monthly partitions (UTC month boundaries) from the oldest existing job through three months
+-- ahead; same naming and bounds as AiJobPartitionMaintainer, which keeps extending the range
+DO
+$$
+    DECLARE
+        month_start DATE := date_trunc('month',
+                                       COALESCE((SELECT MIN(created_at) FROM ai_jobs_legacy), NOW()) AT TIME ZONE 'UTC')::DATE;
+        last_month  DATE := (date_trunc('month', NOW() AT TIME ZONE 'UTC') + INTERVAL '3 months')::DATE;
+    BEGIN
+        WHILE month_start <= last_month
+            LOOP
+                EXECUTE format(
+                        'CREATE TABLE IF NOT EXISTS %I PARTITION OF ai_jobs FOR VALUES FROM (%L) TO (%L)',
+                        'ai_jobs_' || to_char(month_start, 'YYYY_MM'),
+                        month_start || ' 00:00:00+00',
+                        (month_start + INTERVAL '1 month')::DATE || ' 00:00:00+00');
+                month_start := (month_start + INTERVAL '1 month')::DATE;
+            END LOOP;
+    END
+$$;
+
+INSERT INTO ai_jobs
+SELECT id, user_id, file_id, job_type, job_status, priority, attempts, max_attempts, next_attempt_at,
+       locked_by, locked_at, depends_on_job_id, input_params, output_data, error_message,
+       created_at, updated_at, completed_at
+FROM ai_jobs_legacy;
+
+-- 4. One job per (file, type), across all partitions (and archived ones)
+CREATE TABLE ai_job_keys
+(
+    file_id  BIGINT   NOT NULL,
+    job_type job_type NOT NULL,
+    user_id  BIGINT   NOT NULL,
+    job_id   BIGINT   NOT NULL,
+    PRIMARY KEY (file_id, job_type),
+    FOREIGN KEY (file_id, user_id) REFERENCES file_metadata (id, user_id) ON DELETE CASCADE
+);
+
+INSERT INTO ai_job_keys (file_id, job_type, user_id, job_id)
+SELECT file_id, job_type, user_id, id
+FROM ai_jobs;
+
+-- Unique violation (23505) surfaces from the INSERT INTO ai_jobs, as the old constraint did
+CREATE OR REPLACE FUNCTION register_ai_job_key()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO ai_job_keys (file_id, job_type, user_id, job_id)
+    VALUES (NEW.file_id, NEW.job_type, NEW.user_id, NEW.id);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ai_jobs_register_key_trigger
+    BEFORE INSERT
+    ON ai_jobs
+    FOR EACH ROW
+EXECUTE FUNCTION register_ai_job_key();
+
+-- Deleting a job frees its (file, type) slot, as before; a detached partition keeps its keys
+CREATE OR REPLACE FUNCTION release_ai_job_key()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    DELETE FROM ai_job_keys WHERE file_id = OLD.file_id AND job_type = OLD.job_type AND job_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ai_jobs_release_key_trigger
+    AFTER DELETE
+    ON ai_jobs
+    FOR EACH ROW
+EXECUTE FUNCTION release_ai_job_key();
+
+CREATE TRIGGER ai_jobs_updated_at_trigger
+    BEFORE UPDATE
+    ON ai_jobs
+    FOR EACH ROW
+EXECUTE FUNCTION update_ai_jobs_updated_at();
+
+-- 5. Keep the sequences, drop the old tables
+ALTER SEQUENCE file_metadata_id_seq OWNED BY file_metadata.id;
+ALTER SEQUENCE ai_jobs_id_seq OWNED BY ai_jobs.id;
+
+DROP TABLE ai_jobs_legacy;
+DROP TABLE file_metadata_legacy;
+
+-- 6. Indexes (created on the parent, propagated to every current and future partition)
+CREATE INDEX idx_file_metadata_user_uploaded ON file_metadata (user_id, upload_timestamp DESC);
+CREATE INDEX idx_files_search_vector ON file_metadata USING GIN (search_vector);
+CREATE INDEX idx_files_pii_level ON file_metadata (user_id, pii_level) WHERE pii_level IS NOT NULL;
+CREATE INDEX idx_files_text_exists ON file_metadata (user_id) WHERE file_text IS NOT NULL;
+
+CREATE INDEX idx_ai_jobs_user ON ai_jobs (user_id);
+CREATE INDEX idx_ai_jobs_file_type_status ON ai_jobs (file_id, job_type, job_status);
+CREATE INDEX idx_ai_jobs_id ON ai_jobs (id);  -- findById / dependency EXISTS without the partition key
+CREATE INDEX idx_ai_jobs_locked ON ai_jobs (locked_by, locked_at) WHERE locked_by IS NOT NULL;
+CREATE INDEX idx_ai_jobs_running_locked_at ON ai_jobs (locked_at) WHERE job_status = 'RUNNING';
+CREATE INDEX idx_ai_jobs_claim_v2
+    ON ai_jobs (next_attempt_at, priority, created_at, id)
+    WHERE job_status = 'PENDING';
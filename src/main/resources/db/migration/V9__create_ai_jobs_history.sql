@@ -0,0 +1,54 @@
+-- V9: Cold storage for finished AI jobs
+-- AiJobRetentionMover moves DONE/DLQ jobs older than ai.jobs.retention.min-age out of ai_jobs,
+-- keeping the queue table (claim index, status gauges) at working-set size.
+-- Same columns as ai_jobs plus archived_at; ids are preserved so job ids stay stable.
+
+CREATE TABLE IF NOT EXISTS ai_jobs_history
+(
+    id                BIGINT      PRIMARY KEY,
+    user_id           BIGINT      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    file_id           BIGINT      NOT NULL,
+    job_type          job_type    NOT NULL,
+    job_status        job_status  NOT NULL,
+    priority          INT         NOT NULL,
+    attempts          INT         NOT NULL,
+    max_attempts      INT         NOT NULL,
+    next_attempt_at   TIMESTAMPTZ,
+    locked_by         VARCHAR(255),
+    locked_at         TIMESTAMPTZ,
+    depends_on_job_id BIGINT,
+    input_params      JSONB,
+    output_data       JSONB,
+    error_message     TEXT,
+    created_at        TIMESTAMPTZ NOT NULL,
+    updated_at        TIMESTAMPTZ NOT NULL,
+    completed_at      TIMESTAMPTZ,
+    archived_at       TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    FOREIGN KEY (file_id, user_id) REFERENCES file_metadata (id, user_id) ON DELETE CASCADE,
+    CONSTRAINT chk_ai_jobs_history_final CHECK (job_status IN ('DONE', 'DLQ'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_ai_jobs_history_user_created ON ai_jobs_history (user_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_ai_jobs_history_file_type ON ai_jobs_history (file_id, job_type);
+
+-- Finished jobs selected for the mover, oldest first. updated_at rather than completed_at:
+-- DLQ jobs never get a completed_at, and the final status change is the last update.
+CREATE INDEX IF NOT EXISTS idx_ai_jobs_finished
+    ON ai_jobs (updated_at)
+    WHERE job_status IN ('DONE', 'DLQ');
+
+-- An archived job keeps its (file, type) slot in ai_job_keys: only a real delete releases it.
+-- The mover inserts into ai_jobs_history in the same statement as the delete, and AFTER
+-- triggers see that statement's changes.
+CREATE OR REPLACE FUNCTION release_ai_job_key()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    DELETE FROM ai_job_keys k
+    WHERE k.file_id = OLD.file_id
+      AND k.job_type = OLD.job_type
+      AND k.job_id = OLD.id
+      AND NOT EXISTS (SELECT 1 FROM ai_jobs_history h WHERE h.id = OLD.id);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
@@ -1,24 +1,30 @@
 package org.ddamme.controller;
 
-import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
+import org.ddamme.dto.FileFilter;
+import org.ddamme.dto.FileListResponse;
+import org.ddamme.dto.FileSort;
 import org.ddamme.dto.PagedFileResponse;
+import org.ddamme.exception.InvalidRequestException;
+import org.ddamme.service.FileExportService;
 import org.ddamme.service.FileService;
+import org.ddamme.service.FileSyncService;
 import org.ddamme.service.MetadataService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
@@ -30,22 +36,22 @@ class FileControllerTest {
     void listFiles_returnsPaged() {
         FileService fileService = Mockito.mock(FileService.class);
         MetadataService metadataService = Mockito.mock(MetadataService.class);
-        FileController controller = new FileController(fileService, metadataService);
+        FileController controller = controller(fileService, metadataService, Runnable::run);
 
         User current = User.builder().id(7L).username("alice").email("e").password("p").build();
-        FileMetadata fileMetadata =
-                FileMetadata.builder()
+        FileListResponse file =
+                FileListResponse.builder()
                         .id(1L)
                         .originalFilename("f.txt")
-                        .storageKey("k")
                         .size(3L)
                         .contentType("text/plain")
                         .uploadTimestamp(Instant.now())
                         .build();
-        Page<FileMetadata> page = new PageImpl<>(List.of(fileMetadata), PageRequest.of(0, 20), 1);
-        when(metadataService.findByUser(eq(current), any(Pageable.class))).thenReturn(page);
+        PagedFileResponse page = PagedFileResponse.builder().files(List.of(file)).currentPage(0).build();
+        when(metadataService.listFiles(eq(current), any(), eq(FileSort.DEFAULT), any(), eq(0), eq(20)))
+                .thenReturn(page);
 
-        ResponseEntity<PagedFileResponse> response = controller.getUserFiles(current, 0, 20);
+        ResponseEntity<PagedFileResponse> response = controller.getUserFiles(current, 0, 20, null, null, null, null);
 
         assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
         assertThat(response.getBody()).isNotNull();
@@ -54,24 +60,61 @@ class FileControllerTest {
     }
 
     @Test
-    @DisplayName("size is clamped to 100 and pageable is passed correctly")
+    @DisplayName("size is clamped to 100 and page is passed correctly")
     void clampPageSize_andBeyondLast() {
         FileService fs = Mockito.mock(FileService.class);
         MetadataService ms = Mockito.mock(MetadataService.class);
-        FileController c = new FileController(fs, ms);
+        FileController c = controller(fs, ms, Runnable::run);
 
         User u = User.builder().id(7L).username("alice").email("e").password("p").build();
 
         // empty page for "beyond last"
-        Page<FileMetadata> empty = Page.empty(PageRequest.of(9, 100)); // page index 9, size 100
-        when(ms.findByUser(Mockito.eq(u), Mockito.any(Pageable.class))).thenReturn(empty);
+        when(ms.listFiles(eq(u), any(), any(), any(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(PagedFileResponse.builder().files(List.of()).build());
 
-        c.getUserFiles(u, 9, 1000);
+        c.getUserFiles(u, 9, 1000, new FileFilter(), null, null, null);
 
-        var captor = ArgumentCaptor.forClass(Pageable.class);
-        Mockito.verify(ms).findByUser(Mockito.eq(u), captor.capture());
-        Pageable p = captor.getValue();
-        assertThat(p.getPageSize()).isEqualTo(100);
-        assertThat(p.getPageNumber()).isEqualTo(9);
+        Mockito.verify(ms).listFiles(eq(u), any(), eq(FileSort.DEFAULT), any(), eq(9), eq(100));
+    }
+
+    @Test
+    @DisplayName("sort and direction are parsed; unknown sort fields are rejected")
+    void sortParameters() {
+        FileService fs = Mockito.mock(FileService.class);
+        MetadataService ms = Mockito.mock(MetadataService.class);
+        FileController c = controller(fs, ms, Runnable::run);
+
+        User u = User.builder().id(7L).username("alice").email("e").password("p").build();
+        when(ms.listFiles(eq(u), any(), any(), any(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(PagedFileResponse.builder().files(List.of()).build());
+
+        c.getUserFiles(u, 0, 20, null, "name", null, null);
+        c.getUserFiles(u, 0, 20, null, "SIZE", "asc", null);
+
+        Mockito.verify(ms).listFiles(eq(u), any(), eq(new FileSort(FileSort.Field.NAME, false)), any(), eq(0), eq(20));
+        Mockito.verify(ms).listFiles(eq(u), any(), eq(new FileSort(FileSort.Field.SIZE, false)), any(), eq(0), eq(20));
+        assertThatThrownBy(() -> c.getUserFiles(u, 0, 20, null, "owner", null, null))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    @DisplayName("upload is rejected without touching storage when the upload bulkhead is full")
+    void upload_bulkheadFull_rejected() {
+        FileService fs = Mockito.mock(FileService.class);
+        MetadataService ms = Mockito.mock(MetadataService.class);
+        FileController c = controller(fs, ms, task -> {
+            throw new RejectedExecutionException("upload bulkhead full");
+        });
+
+        User u = User.builder().id(7L).username("alice").email("e").password("p").build();
+        var file = new MockMultipartFile("file", "f.txt", "text/plain", "hi".getBytes());
+
+        assertThatThrownBy(() -> c.uploadFile(file, null, u)).isInstanceOf(RejectedExecutionException.class);
+        Mockito.verifyNoInteractions(fs);
+    }
+
+    private static FileController controller(FileService fs, MetadataService ms, Executor uploadExecutor) {
+        return new FileController(fs, ms, Mockito.mock(FileSyncService.class), Mockito.mock(FileExportService.class),
+                uploadExecutor, new SyncTaskExecutor(), Duration.ofMinutes(30));
     }
 }
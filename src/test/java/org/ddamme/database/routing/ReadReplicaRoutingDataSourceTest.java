@@ -0,0 +1,95 @@
+package org.ddamme.database.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private SimpleMeterRegistry registry;
+    private ReplicaLagMonitor monitor;
+    private ReadReplicaRoutingDataSource routing;
+    private ReplicaReads.Scope scope;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", Mockito.mock(DataSource.class));
+        replicas.put("replica-2", Mockito.mock(DataSource.class));
+        monitor = new ReplicaLagMonitor(replicas, Duration.ofSeconds(2), registry);
+        routing = new ReadReplicaRoutingDataSource(List.of("replica-1", "replica-2"), monitor, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (scope != null) {
+            scope.close();
+        }
+    }
+
+    @Test
+    @DisplayName("read-write work always goes to the primary")
+    void readWrite_routesToPrimary() {
+        monitor.record("replica-1", 0);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    @DisplayName("read-only work outside a replica scope (a bare repository call) goes to the primary")
+    void readOnlyWithoutScope_routesToPrimary() {
+        monitor.record("replica-1", 0);
+        monitor.record("replica-2", 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    @DisplayName("read-only work round-robins across usable replicas")
+    void readOnly_roundRobinsReplicas() {
+        monitor.record("replica-1", 100);
+        monitor.record("replica-2", 0);
+        scope = ReplicaReads.open();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(List.of(routing.determineCurrentLookupKey(), routing.determineCurrentLookupKey()))
+                .containsExactlyInAnyOrder("replica-1", "replica-2");
+    }
+
+    @Test
+    @DisplayName("lagging or unprobed replicas are skipped, falling back to the primary")
+    void readOnly_skipsLaggingReplicas() {
+        scope = ReplicaReads.open();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Not probed yet: nothing usable
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadReplicaRoutingDataSource.PRIMARY);
+
+        monitor.record("replica-1", 5_000);
+        monitor.record("replica-2", 500);
+        for (int i = 0; i < 4; i++) {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-2");
+        }
+
+        monitor.markDown("replica-2");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadReplicaRoutingDataSource.PRIMARY);
+        assertThat(registry.get("db.routing.count")
+                .tag("target", "primary").tag("reason", "replica_unavailable").counter().count())
+                .isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,61 @@
+package org.ddamme.database.shard;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardContextTest {
+
+    @Test
+    @DisplayName("scopes nest and restore the previous binding")
+    void open_restoresPrevious() {
+        assertThat(ShardContext.current()).isEqualTo(ShardContext.DEFAULT_SHARD);
+
+        try (ShardContext.Scope outer = ShardContext.open(2)) {
+            try (ShardContext.Scope inner = ShardContext.open(3)) {
+                assertThat(ShardContext.current()).isEqualTo(3);
+            }
+            assertThat(ShardContext.current()).isEqualTo(2);
+        }
+
+        assertThat(ShardContext.current()).isEqualTo(ShardContext.DEFAULT_SHARD);
+    }
+
+    @Test
+    @DisplayName("wrap carries the submitter's shard onto another thread")
+    void wrap_propagatesBinding() throws Exception {
+        AtomicInteger seen = new AtomicInteger(-1);
+        Runnable task;
+        try (ShardContext.Scope ignored = ShardContext.open(4)) {
+            task = ShardContext.wrap(() -> seen.set(ShardContext.current()));
+        }
+
+        Thread worker = new Thread(task);
+        worker.start();
+        worker.join();
+
+        assertThat(seen.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("unsharded router runs background work once on shard 0")
+    void router_withoutDirectory_isSingleShard() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ShardDirectory> none = Mockito.mock(ObjectProvider.class);
+        ShardRouter router = new ShardRouter(none);
+
+        List<Integer> visited = new ArrayList<>();
+        router.forEachShard("test", shardId -> visited.add(ShardContext.current()));
+
+        assertThat(router.isSharded()).isFalse();
+        assertThat(router.shardFor(42L)).isEqualTo(ShardContext.DEFAULT_SHARD);
+        assertThat(visited).containsExactly(ShardContext.DEFAULT_SHARD);
+    }
+}
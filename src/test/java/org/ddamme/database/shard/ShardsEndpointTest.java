@@ -0,0 +1,64 @@
+package org.ddamme.database.shard;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardsEndpointTest {
+
+    @Test
+    @DisplayName("move returns immediately and its status can be polled until done")
+    void move_runsInBackground() throws Exception {
+        ShardMover mover = mock(ShardMover.class);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mover.move(7L, 2)).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return new ShardMover.MoveResult(7L, 1, 2, 3, 4);
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ShardsEndpoint endpoint = new ShardsEndpoint(mock(ShardDirectory.class), mover, executor);
+
+        ShardsEndpoint.MoveStatus accepted = endpoint.move(7L, 2);
+        assertThat(accepted.state()).isIn(ShardsEndpoint.MoveState.QUEUED, ShardsEndpoint.MoveState.RUNNING);
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(endpoint.moveStatus(accepted.moveId()).state()).isEqualTo(ShardsEndpoint.MoveState.RUNNING);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        ShardsEndpoint.MoveStatus done = endpoint.moveStatus(accepted.moveId());
+        assertThat(done.state()).isEqualTo(ShardsEndpoint.MoveState.DONE);
+        assertThat(done.result().filesMoved()).isEqualTo(3);
+        assertThat(done.finishedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("a failing move is reported with its error")
+    void move_reportsFailure() throws Exception {
+        ShardMover mover = mock(ShardMover.class);
+        when(mover.move(7L, 2)).thenThrow(new IllegalStateException("User 7 is already being moved"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ShardsEndpoint endpoint = new ShardsEndpoint(mock(ShardDirectory.class), mover, executor);
+
+        String moveId = endpoint.move(7L, 2).moveId();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        ShardsEndpoint.MoveStatus failed = endpoint.moveStatus(moveId);
+        assertThat(failed.state()).isEqualTo(ShardsEndpoint.MoveState.FAILED);
+        assertThat(failed.error()).contains("already being moved");
+        assertThat(endpoint.moveStatus("unknown")).isNull();
+    }
+}
@@ -5,12 +5,15 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.ddamme.security.config.RateLimitProperties;
+import org.ddamme.security.ratelimit.InMemoryBucketStore;
+import org.ddamme.security.ratelimit.RateLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
@@ -23,6 +26,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 class RateLimitFilterTest {
 
+    private static final DataSize MAX_REQUEST = DataSize.ofMegabytes(10);
+
     private MockMvc mockMvc;
 
     private RateLimitProperties props;
@@ -45,7 +50,7 @@ class RateLimitFilterTest {
                         .registerModule(new JavaTimeModule())
                         .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
-        var filter = new RateLimitFilter(props, mapper, new SimpleMeterRegistry());
+        var filter = new RateLimitFilter(props, mapper, new SimpleMeterRegistry(), new RateLimiter(props, new InMemoryBucketStore()), MAX_REQUEST);
 
         mockMvc = MockMvcBuilders.standaloneSetup(new TestController()).addFilter(filter).build();
     }
@@ -113,7 +118,7 @@ class RateLimitFilterTest {
     void retryAfter_omittedWhenDisabled() throws Exception {
         // rebuild MockMvc with Retry-After disabled
         props.setSendRetryAfter(false);
-        var filter = new RateLimitFilter(props, mapper, new SimpleMeterRegistry());
+        var filter = new RateLimitFilter(props, mapper, new SimpleMeterRegistry(), new RateLimiter(props, new InMemoryBucketStore()), MAX_REQUEST);
         mockMvc = MockMvcBuilders.standaloneSetup(new TestController()).addFilter(filter).build();
 
         // exhaust the single token
@@ -126,6 +131,23 @@ class RateLimitFilterTest {
                 .andExpect(header().doesNotExist(HttpHeaders.RETRY_AFTER));
     }
 
+    @Test
+    void filtersSharingAStore_shareTheSameBudget() throws Exception {
+        // Two filters over one store behave like two replicas over the shared PostgreSQL backend
+        var store = new InMemoryBucketStore();
+        var nodeA =
+                MockMvcBuilders.standaloneSetup(new TestController())
+                        .addFilter(new RateLimitFilter(props, mapper, new SimpleMeterRegistry(), new RateLimiter(props, store), MAX_REQUEST))
+                        .build();
+        var nodeB =
+                MockMvcBuilders.standaloneSetup(new TestController())
+                        .addFilter(new RateLimitFilter(props, mapper, new SimpleMeterRegistry(), new RateLimiter(props, store), MAX_REQUEST))
+                        .build();
+
+        nodeA.perform(get("/api/v1/files/download/1")).andExpect(status().isOk());
+        nodeB.perform(get("/api/v1/files/download/1")).andExpect(status().isTooManyRequests());
+    }
+
     @RestController
     @RequestMapping("/api/v1/files")
     static class TestController {
@@ -0,0 +1,68 @@
+package org.ddamme.security.ratelimit;
+
+import org.ddamme.security.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long TEN_MS = 10_000_000L;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrencyLimitProperties.ClassLimit settings = new ConcurrencyLimitProperties.ClassLimit();
+        settings.setInitialLimit(10);
+        settings.setMinLimit(2);
+        settings.setMaxLimit(100);
+        limiter = new AdaptiveConcurrencyLimiter(settings);
+    }
+
+    @Test
+    @DisplayName("requests beyond the limit are rejected until a slot is released")
+    void tryAcquire_rejectsAtLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(TEN_MS, false);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("limit grows while latency stays at baseline under load")
+    void stableLatency_increasesLimit() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(TEN_MS, limiter.getLimit(), false);
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    @DisplayName("limit backs off when latency inflates, but never below the minimum")
+    void inflatedLatency_decreasesLimit() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(TEN_MS, limiter.getLimit(), false);
+        }
+        int warmedUp = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(TEN_MS * 10, limiter.getLimit(), false);
+        }
+        assertThat(limiter.getLimit()).isLessThan(warmedUp).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("low utilisation does not move the limit")
+    void appLimited_keepsLimit() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(TEN_MS * 10, 1, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+}
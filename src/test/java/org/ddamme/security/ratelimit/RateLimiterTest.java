@@ -0,0 +1,116 @@
+package org.ddamme.security.ratelimit;
+
+import org.ddamme.security.config.RateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    private static final long MAX_REQUEST_BYTES = 10 * 1024 * 1024;
+
+    private RateLimitProperties props;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        props = new RateLimitProperties();
+        props.setPerMinute(Map.of("upload", 10, "upload-bytes", 4));
+        rateLimiter = new RateLimiter(props, new InMemoryBucketStore());
+    }
+
+    @Test
+    @DisplayName("content-length routes charge one token per bytesPerToken, rounded up")
+    void contentLengthCost_roundsUp() {
+        RateLimitProperties.Route bytes =
+                new RateLimitProperties.Route("upload-bytes", Set.of("POST"), "/api/v1/files/upload");
+        bytes.setCost(RateLimitProperties.Cost.CONTENT_LENGTH);
+        bytes.setBytesPerToken(1024);
+        RateLimitRoutes routes = RateLimitRoutes.compile(List.of(
+                new RateLimitProperties.Route("upload", Set.of("POST"), "/api/v1/files/upload"), bytes),
+                MAX_REQUEST_BYTES);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/files/upload");
+        request.setContent(new byte[2049]);
+
+        assertThat(routes.charges(request)).containsExactly(
+                new RateLimiter.Charge("upload", 1),
+                new RateLimiter.Charge("upload-bytes", 3));
+    }
+
+    @Test
+    @DisplayName("content-length routes charge a body of unknown length as max-request-size")
+    void contentLengthCost_chunkedPaysMaxRequestSize() {
+        RateLimitProperties.Route bytes =
+                new RateLimitProperties.Route("upload-bytes", Set.of("POST"), "/api/v1/files/upload");
+        bytes.setCost(RateLimitProperties.Cost.CONTENT_LENGTH);
+        bytes.setBytesPerToken(64 * 1024);
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/v1/files/upload");
+
+        assertThat(RateLimitRoutes.compile(List.of(bytes), MAX_REQUEST_BYTES).charges(chunked))
+                .containsExactly(new RateLimiter.Charge("upload-bytes", 160));
+        assertThat(RateLimitRoutes.compile(List.of(bytes), -1).charges(chunked))
+                .containsExactly(new RateLimiter.Charge("upload-bytes", Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("refund returns tokens to the budget they were charged from")
+    void refund_restoresCharge() {
+        List<RateLimiter.Charge> charge = List.of(new RateLimiter.Charge("upload-bytes", 4));
+
+        assertThat(rateLimiter.tryConsume("u:alice", null, charge).allowed()).isTrue();
+        assertThat(rateLimiter.tryConsume("u:alice", null, charge).allowed()).isFalse();
+
+        rateLimiter.refund("u:alice", null, charge);
+        assertThat(rateLimiter.tryConsume("u:alice", null, charge).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("patterns only match their configured methods")
+    void patternRoutes_matchByMethod() {
+        RateLimitRoutes routes = RateLimitRoutes.compile(List.of(), MAX_REQUEST_BYTES);
+
+        assertThat(routes.charges(new MockHttpServletRequest("HEAD", "/api/v1/files/download/7")))
+                .extracting(RateLimiter.Charge::routeKey).containsExactly("download");
+        assertThat(routes.charges(new MockHttpServletRequest("DELETE", "/api/v1/files/download/7"))).isEmpty();
+        assertThat(routes.charges(new MockHttpServletRequest("GET", "/api/v1/files"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rejection by a later budget refunds tokens taken from earlier budgets")
+    void rejectedCharge_refundsEarlierBudgets() {
+        List<RateLimiter.Charge> big = List.of(
+                new RateLimiter.Charge("upload", 1), new RateLimiter.Charge("upload-bytes", 4));
+
+        assertThat(rateLimiter.tryConsume("u:alice", null, big).allowed()).isTrue();
+
+        RateLimiter.Decision rejected = rateLimiter.tryConsume("u:alice", null, big);
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.routeKey()).isEqualTo("upload-bytes");
+
+        // 9 upload tokens remain because the rejected attempt was refunded
+        for (int i = 0; i < 9; i++) {
+            assertThat(rateLimiter.tryConsume("u:alice", null,
+                    List.of(new RateLimiter.Charge("upload", 1))).allowed()).isTrue();
+        }
+        assertThat(rateLimiter.tryConsume("u:alice", null,
+                List.of(new RateLimiter.Charge("upload", 1))).allowed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("tier limits override per-minute defaults")
+    void tierLimits_overrideDefaults() {
+        props.setTiers(Map.of("admin", Map.of("upload", 100)));
+
+        assertThat(rateLimiter.limitFor("upload", "admin")).isEqualTo(100);
+        assertThat(rateLimiter.limitFor("upload", "user")).isEqualTo(10);
+        assertThat(rateLimiter.limitFor("search", "admin")).isZero();
+    }
+}
@@ -2,6 +2,7 @@ package org.ddamme.service;
 
 import org.ddamme.database.model.FileMetadata;
 import org.ddamme.database.model.User;
+import org.ddamme.database.repository.FileQueryRepository;
 import org.ddamme.database.repository.MetadataRepository;
 import org.ddamme.exception.ResourceNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,7 +31,7 @@ class MetadataServiceImplTest {
     @BeforeEach
     void setUp() {
         metadataRepository = Mockito.mock(MetadataRepository.class);
-        metadataService = new MetadataServiceImpl(metadataRepository);
+        metadataService = new MetadataServiceImpl(metadataRepository, Mockito.mock(FileQueryRepository.class));
     }
 
     @Test
@@ -0,0 +1,97 @@
+package org.ddamme.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ddamme.config.SearchCacheProperties;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SnippetMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache(new SearchCacheProperties(), meterRegistry);
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private final Supplier<SearchResponse> search = () -> {
+        searches.incrementAndGet();
+        return SearchResponse.builder().results(List.of()).count(0).build();
+    };
+
+    @Test
+    @DisplayName("Same page of the same query is served from cache, ignoring case and spacing")
+    void repeatedSearchIsCached() {
+        cache.get(1L, "Machine  learning", null, null, 20, SnippetMode.HTML, search);
+        cache.get(1L, " machine learning ", null, null, 20, SnippetMode.HTML, search);
+
+        assertThat(searches).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "search.results").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Cursor, limit, snippet mode and user are part of the key")
+    void differentPagesAreSeparateEntries() {
+        cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+        cache.get(1L, "q", 0.5, 10L, 20, SnippetMode.HTML, search);
+        cache.get(1L, "q", null, null, 50, SnippetMode.HTML, search);
+        cache.get(2L, "q", null, null, 20, SnippetMode.HTML, search);
+        cache.get(1L, "q", null, null, 20, SnippetMode.OFFSETS, search);
+
+        assertThat(searches).hasValue(5);
+    }
+
+    @Test
+    @DisplayName("Invalidation drops only that user's entries")
+    void invalidateIsPerUser() {
+        cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+        cache.get(2L, "q", null, null, 20, SnippetMode.HTML, search);
+
+        cache.invalidate(1L);
+        cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+        cache.get(2L, "q", null, null, 20, SnippetMode.HTML, search);
+
+        assertThat(searches).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Inside a transaction, invalidation waits for the commit")
+    void invalidatesAfterCommit() {
+        cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(1L);
+            cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+            assertThat(searches).hasValue(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cache.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+
+        assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Disabled cache always searches")
+    void disabled() {
+        SearchCacheProperties properties = new SearchCacheProperties();
+        properties.setEnabled(false);
+        SearchResultCache disabled = new SearchResultCache(properties, meterRegistry);
+
+        disabled.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+        disabled.get(1L, "q", null, null, 20, SnippetMode.HTML, search);
+
+        assertThat(searches).hasValue(2);
+    }
+}
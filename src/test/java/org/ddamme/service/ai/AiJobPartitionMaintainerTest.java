@@ -0,0 +1,79 @@
+package org.ddamme.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ddamme.database.shard.ShardDirectory;
+import org.ddamme.database.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AiJobPartitionMaintainerTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private AiJobPartitionMaintainer maintainer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<ShardDirectory> noDirectory = Mockito.mock(ObjectProvider.class);
+        maintainer = new AiJobPartitionMaintainer(jdbc, new SimpleMeterRegistry(), new ShardRouter(noDirectory));
+        ReflectionTestUtils.setField(maintainer, "monthsAhead", 2);
+        ReflectionTestUtils.setField(maintainer, "retentionMonths", 6);
+        ReflectionTestUtils.setField(maintainer, "archiveMode", "detach");
+    }
+
+    @Test
+    @DisplayName("partition names and bounds follow the V8 convention")
+    void naming() {
+        YearMonth month = YearMonth.of(2025, 3);
+
+        assertThat(AiJobPartitionMaintainer.partitionName(month)).isEqualTo("ai_jobs_2025_03");
+        assertThat(AiJobPartitionMaintainer.archiveName(month)).isEqualTo("ai_jobs_archive_2025_03");
+        assertThat(AiJobPartitionMaintainer.lowerBound(month)).isEqualTo("2025-03-01 00:00:00+00");
+        assertThat(AiJobPartitionMaintainer.monthOf("ai_jobs_2025_03")).contains(month);
+        assertThat(AiJobPartitionMaintainer.monthOf("ai_jobs_archive_2025_03")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("creates missing future partitions and archives only finished old ones")
+    void maintain_createsAndArchives() {
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        String finished = AiJobPartitionMaintainer.partitionName(now.minusMonths(8));
+        String unfinished = AiJobPartitionMaintainer.partitionName(now.minusMonths(7));
+        String recent = AiJobPartitionMaintainer.partitionName(now.minusMonths(1));
+
+        when(jdbc.queryForObject(eq("SELECT to_regclass(?) IS NULL"), eq(Boolean.class), anyString()))
+                .thenReturn(true);
+        when(jdbc.queryForList(anyString(), eq(String.class))).thenReturn(List.of(finished, unfinished, recent));
+        when(jdbc.queryForObject(contains("FROM " + finished + " "), eq(Boolean.class))).thenReturn(false);
+        when(jdbc.queryForObject(contains("FROM " + unfinished + " "), eq(Boolean.class))).thenReturn(true);
+
+        maintainer.maintainPartitions();
+
+        verify(jdbc).execute(startsWith("CREATE TABLE IF NOT EXISTS " + AiJobPartitionMaintainer.partitionName(now) + " "));
+        verify(jdbc).execute(startsWith("CREATE TABLE IF NOT EXISTS " + AiJobPartitionMaintainer.partitionName(now.plusMonths(2)) + " "));
+        verify(jdbc).execute("ALTER TABLE ai_jobs DETACH PARTITION " + finished + " CONCURRENTLY");
+        verify(jdbc).execute("ALTER TABLE " + finished + " RENAME TO "
+                + AiJobPartitionMaintainer.archiveName(now.minusMonths(8)));
+        verify(jdbc, never()).execute("ALTER TABLE ai_jobs DETACH PARTITION " + unfinished + " CONCURRENTLY");
+        verify(jdbc, never()).execute("ALTER TABLE ai_jobs DETACH PARTITION " + recent + " CONCURRENTLY");
+    }
+}
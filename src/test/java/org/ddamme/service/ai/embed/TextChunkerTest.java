@@ -0,0 +1,70 @@
+package org.ddamme.service.ai.embed;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class TextChunkerTest {
+
+    @Test
+    @DisplayName("Windows overlap and the last one ends at the last word")
+    void overlappingWindows() {
+        List<TextChunker.Chunk> chunks = TextChunker.chunk("a b c d e f g", 3, 1, 100);
+
+        assertThat(chunks).extracting(TextChunker.Chunk::text).containsExactly("a b c", "c d e", "e f g");
+    }
+
+    @Test
+    @DisplayName("Offsets slice the original text, whitespace inside a chunk preserved")
+    void offsetsSliceSource() {
+        String text = "  first\n\nsecond   third  ";
+        TextChunker.Chunk chunk = TextChunker.chunk(text, 10, 0, 100).get(0);
+
+        assertThat(text.substring(chunk.start(), chunk.end())).isEqualTo("first\n\nsecond   third");
+        assertThat(chunk.text()).isEqualTo("first\n\nsecond   third");
+    }
+
+    @Test
+    @DisplayName("Chunk count is capped")
+    void capped() {
+        assertThat(TextChunker.chunk("a b c d e f g h", 2, 0, 2)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Blank text has no chunks")
+    void blank() {
+        assertThat(TextChunker.chunk(" \n ", 5, 1, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Overlap must be smaller than the window")
+    void rejectsOverlapNotBelowWindow() {
+        assertThatThrownBy(() -> TextChunker.chunk("a b", 2, 2, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Hashing provider is deterministic, unit length, and closer for shared words")
+    void hashingProvider() {
+        HashingEmbeddingProvider provider = new HashingEmbeddingProvider();
+        List<float[]> v = provider.embed(List.of("invoice payment due", "invoice payment due", "bake bread", ""));
+
+        assertThat(v.get(0)).containsExactly(v.get(1));
+        assertThat(dot(v.get(0), v.get(0))).isCloseTo(1.0, offset(1e-5));
+        assertThat(dot(v.get(0), provider.embed(List.of("payment due")).get(0)))
+                .isGreaterThan(dot(v.get(0), v.get(2)));
+        assertThat(EmbeddingProvider.isZero(v.get(3))).isTrue();
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
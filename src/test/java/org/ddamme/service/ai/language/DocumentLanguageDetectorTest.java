@@ -0,0 +1,62 @@
+package org.ddamme.service.ai.language;
+
+import org.ddamme.config.LanguageProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentLanguageDetectorTest {
+
+    private static final String GERMAN = "Sehr geehrte Damen und Herren, anbei erhalten Sie die Rechnung für die "
+            + "im letzten Monat gelieferten Waren. Bitte überweisen Sie den Betrag innerhalb von vierzehn Tagen.";
+    private static final String FRENCH = "Madame, Monsieur, veuillez trouver ci-joint la facture correspondant aux "
+            + "marchandises livrées le mois dernier. Merci de régler le montant dans un délai de quinze jours.";
+    private static final String ENGLISH = "Dear Sir or Madam, please find attached the invoice for the goods "
+            + "delivered last month. Kindly pay the amount within fourteen days of receiving this letter.";
+
+    private final DocumentLanguageDetector detector = new DocumentLanguageDetector(new LanguageProperties());
+
+    @Test
+    @DisplayName("Detects the language of a paragraph")
+    void detectsParagraphs() {
+        assertThat(detector.detect(GERMAN)).contains(DocumentLanguage.GERMAN);
+        assertThat(detector.detect(FRENCH)).contains(DocumentLanguage.FRENCH);
+        assertThat(detector.detect(ENGLISH)).contains(DocumentLanguage.ENGLISH);
+    }
+
+    @Test
+    @DisplayName("Too few letters are not detected")
+    void shortTextUndetected() {
+        assertThat(detector.detect("Rechnung 2025-03")).isEmpty();
+        assertThat(detector.detect("12345 67890 ".repeat(20))).isEmpty();
+        assertThat(detector.detect(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Only configured languages are reported; disabled detects nothing")
+    void respectsConfiguration() {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setLanguages(List.of(DocumentLanguage.ENGLISH, DocumentLanguage.GERMAN));
+        assertThat(new DocumentLanguageDetector(properties).detect(FRENCH))
+                .isNotEqualTo(Optional.of(DocumentLanguage.FRENCH));
+
+        properties.setEnabled(false);
+        assertThat(new DocumentLanguageDetector(properties).detect(GERMAN)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Search configs cover every language, whatever is configured now")
+    void searchConfigs() {
+        String all = "english,german,french,spanish,italian,portuguese,dutch,swedish,russian";
+        LanguageProperties properties = new LanguageProperties();
+        properties.setLanguages(List.of(DocumentLanguage.RUSSIAN, DocumentLanguage.GERMAN));
+        assertThat(properties.searchConfigs()).isEqualTo(all);
+
+        properties.setEnabled(false);
+        assertThat(properties.searchConfigs()).isEqualTo(all);
+    }
+}
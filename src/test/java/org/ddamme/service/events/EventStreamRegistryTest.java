@@ -0,0 +1,150 @@
+package org.ddamme.service.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ddamme.config.EventStreamProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventStreamRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EventStreamRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        EventStreamProperties properties = new EventStreamProperties();
+        properties.setMaxConnectionsPerUser(2);
+        registry = new EventStreamRegistry(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.closeAll();
+    }
+
+    @Test
+    @DisplayName("Opening more than the per-user limit closes the oldest connection")
+    void evictsOldestConnection() {
+        registry.subscribe(1L);
+        registry.subscribe(1L);
+        registry.subscribe(1L);
+        registry.subscribe(2L);
+
+        assertThat(registry.connectionCount()).isEqualTo(3);
+        assertThat(meterRegistry.get("events.sse.connections").gauge().value()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("Completed connections are unregistered")
+    void closeAllUnregisters() {
+        registry.subscribe(1L);
+        registry.subscribe(2L);
+
+        registry.closeAll();
+
+        assertThat(registry.connectionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Events are only dispatched to their user's connections")
+    void dispatchSendsPayloadToSubscribers() throws Exception {
+        RecordingEmitter mine = new RecordingEmitter(false);
+        RecordingEmitter other = new RecordingEmitter(false);
+        registry = registryHanding(mine, other);
+        registry.subscribe(1L);
+        registry.subscribe(2L);
+
+        registry.dispatch(FileEvent.uploaded(1L, 42L), "{\"fileId\":42}");
+        registry.dispatch(FileEvent.deleted(3L, 7L), "{}");
+
+        assertThat(mine.events.poll(5, TimeUnit.SECONDS)).contains(":connected");
+        assertThat(mine.events.poll(5, TimeUnit.SECONDS))
+                .contains("event:" + FileEvent.UPLOAD_COMMITTED)
+                .contains("data:{\"fileId\":42}");
+        assertThat(other.events.poll(5, TimeUnit.SECONDS)).contains(":connected");
+        assertThat(other.events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(meterRegistry.get("events.dispatched").tag("type", FileEvent.UPLOAD_COMMITTED).counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.find("events.dispatched").tag("type", FileEvent.FILE_DELETED).counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("A connection whose send fails is unregistered")
+    void failedEmitterIsRemoved() throws Exception {
+        RecordingEmitter broken = new RecordingEmitter(true);
+        RecordingEmitter healthy = new RecordingEmitter(false);
+        registry = registryHanding(broken, healthy);
+        registry.subscribe(1L);
+        registry.subscribe(1L);
+
+        registry.dispatch(FileEvent.uploaded(1L, 42L), "{}");
+
+        assertThat(broken.failed.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.connectionCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.connectionCount()).isEqualTo(1);
+
+        registry.dispatch(FileEvent.uploaded(1L, 43L), "{}");
+        healthy.events.poll(5, TimeUnit.SECONDS);
+        healthy.events.poll(5, TimeUnit.SECONDS);
+        assertThat(healthy.events.poll(5, TimeUnit.SECONDS)).contains("data:{}");
+        assertThat(broken.events).isEmpty();
+    }
+
+    private EventStreamRegistry registryHanding(SseEmitter... emitters) {
+        registry.closeAll();
+        Deque<SseEmitter> pending = new ArrayDeque<>(List.of(emitters));
+        EventStreamProperties properties = new EventStreamProperties();
+        properties.setMaxConnectionsPerUser(2);
+        return new EventStreamRegistry(properties, meterRegistry) {
+            @Override
+            SseEmitter newEmitter() {
+                return pending.removeFirst();
+            }
+        };
+    }
+
+    /**
+     * Captures what the registry writes, rendered as SSE text. A failing emitter accepts the
+     * "connected" comment and then fails like a client that went away.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        final CountDownLatch failed = new CountDownLatch(1);
+        private final boolean failOnEvent;
+
+        RecordingEmitter(boolean failOnEvent) {
+            this.failOnEvent = failOnEvent;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String rendered = builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining());
+            if (failOnEvent && !rendered.startsWith(":")) {
+                failed.countDown();
+                throw new IOException("Broken pipe");
+            }
+            events.add(rendered);
+        }
+    }
+}
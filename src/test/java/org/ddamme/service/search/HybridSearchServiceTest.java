@@ -0,0 +1,148 @@
+package org.ddamme.service.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ddamme.config.HybridSearchProperties;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.ddamme.service.SearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HybridSearchServiceTest {
+
+    private SearchService searchService;
+    private SemanticSearchService semanticSearchService;
+    private HybridSearchProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        searchService = mock(SearchService.class);
+        semanticSearchService = mock(SemanticSearchService.class);
+        properties = new HybridSearchProperties();
+        properties.setLegTimeout(Duration.ofMillis(100));
+        meterRegistry = new SimpleMeterRegistry();
+        user = User.builder().id(1L).username("alice").build();
+    }
+
+    @Test
+    @DisplayName("Files found by both legs outrank files found by one; ties break on id")
+    void fuseRanksAgreementFirst() {
+        List<SearchResultDto> fused = HybridSearchService.fuse(
+                results(10L, 20L, 30L), results(30L, 40L, 10L), 60);
+
+        // 10: 1/61 + 1/63, 30: 1/63 + 1/61, then 20 and 40 both 1/62
+        assertThat(fused).extracting(SearchResultDto::getFileId).containsExactly(10L, 30L, 20L, 40L);
+        assertThat(fused.get(0).getRank()).isEqualTo(1.0 / 61 + 1.0 / 63);
+    }
+
+    @Test
+    @DisplayName("Cursor pages walk the fused list without gaps or repeats")
+    void cursorWalksFusedList() {
+        List<SearchResultDto> fused = HybridSearchService.fuse(results(1L, 2L, 3L), results(4L, 5L, 6L), 60);
+
+        List<Long> seen = new ArrayList<>();
+        Double lastRank = null;
+        Long lastId = null;
+        for (int page = 0; page < 3; page++) {
+            List<SearchResultDto> after = HybridSearchService.after(fused, lastRank, lastId);
+            List<SearchResultDto> slice = after.subList(0, Math.min(2, after.size()));
+            slice.forEach(dto -> seen.add(dto.getFileId()));
+            lastRank = slice.get(slice.size() - 1).getRank();
+            lastId = slice.get(slice.size() - 1).getFileId();
+        }
+
+        assertThat(seen).containsExactly(1L, 4L, 2L, 5L, 3L, 6L);
+        assertThat(HybridSearchService.after(fused, lastRank, lastId)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A failing leg degrades to the other leg's results, without a cursor")
+    void failingLegDegrades() {
+        when(searchService.topMatches(eq(user), eq("q"), anyInt())).thenThrow(new IllegalStateException("db down"));
+        when(semanticSearchService.nearest(eq(user), eq("q"), anyInt())).thenReturn(results(7L, 8L));
+
+        SearchResponse response = service(Runnable::run).search(user, "q", null, null, 1, SnippetMode.NONE);
+
+        assertThat(response.getDegraded()).containsExactly(HybridSearchService.LEXICAL);
+        assertThat(response.getResults()).extracting(SearchResultDto::getFileId).containsExactly(7L);
+        // Scores from one leg can't continue a two-leg ranking
+        assertThat(response.isHasMore()).isFalse();
+        assertThat(response.getNextRank()).isNull();
+        assertThat(response.getNextId()).isNull();
+        assertThat(meterRegistry.counter("search.hybrid.degraded", "leg", "lexical", "reason", "error").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A full page carries the cursor of its last result")
+    void fullPageHasCursor() {
+        when(searchService.topMatches(eq(user), eq("q"), anyInt())).thenReturn(results(1L, 2L));
+        when(semanticSearchService.nearest(eq(user), eq("q"), anyInt())).thenReturn(results(3L, 4L));
+
+        SearchResponse response = service(Runnable::run).search(user, "q", null, null, 2, SnippetMode.NONE);
+
+        assertThat(response.getDegraded()).isEmpty();
+        assertThat(response.isHasMore()).isTrue();
+        assertThat(response.getNextId()).isEqualTo(3L);
+        assertThat(response.getNextRank()).isEqualTo(1.0 / 61);
+    }
+
+    @Test
+    @DisplayName("A leg that never answers is dropped after the leg timeout")
+    void slowLegTimesOut() {
+        when(searchService.topMatches(eq(user), eq("q"), anyInt())).thenReturn(results(3L));
+        // Runs the lexical leg, never the semantic one
+        int[] submitted = {0};
+        Executor executor = task -> {
+            if (submitted[0]++ == 0) {
+                task.run();
+            }
+        };
+
+        SearchResponse response = service(executor).search(user, "q", null, null, 10, SnippetMode.NONE);
+
+        assertThat(response.getDegraded()).containsExactly(HybridSearchService.SEMANTIC);
+        assertThat(response.getResults()).extracting(SearchResultDto::getFileId).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("The request fails only when both legs fail")
+    void bothLegsFailing() {
+        when(searchService.topMatches(any(), any(), anyInt())).thenThrow(new IllegalStateException("db down"));
+        when(semanticSearchService.nearest(any(), any(), anyInt())).thenThrow(new IllegalStateException("db down"));
+
+        assertThatThrownBy(() -> service(Runnable::run).search(user, "q", null, null, 10, SnippetMode.NONE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("db down");
+    }
+
+    private HybridSearchService service(Executor executor) {
+        return new HybridSearchService(searchService, semanticSearchService, properties, executor, meterRegistry);
+    }
+
+    private static List<SearchResultDto> results(Long... ids) {
+        List<SearchResultDto> results = new ArrayList<>();
+        for (Long id : ids) {
+            results.add(SearchResultDto.builder().fileId(id).filename(id + ".pdf").build());
+        }
+        return results;
+    }
+}
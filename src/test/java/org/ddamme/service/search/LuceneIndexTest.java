@@ -0,0 +1,81 @@
+package org.ddamme.service.search;
+
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LuceneIndexTest {
+
+    private static final Map<String, String> COMMITTED = Map.of("complete", "true", "bound.0", "5");
+
+    @TempDir
+    Path path;
+
+    @Test
+    @DisplayName("A failed rebuild is never committed and rolls back to the last commit")
+    void abortedRebuildKeepsLastCommit() throws Exception {
+        LuceneIndex index = new LuceneIndex(FSDirectory.open(path));
+        index.upsert(file(1));
+        index.commit(COMMITTED);
+
+        index.beginRebuild();
+        index.upsert(file(2));
+        index.commit(Map.of("complete", "true", "bound.0", "9"));
+        index.abortRebuild();
+
+        assertThat(index.isRebuilding()).isFalse();
+        assertThat(index.numDocs()).isEqualTo(1);
+        assertThat(index.commitData()).isEqualTo(COMMITTED);
+        index.refresh();
+        assertThat(index.withSearcher(searcher -> searcher.getIndexReader().numDocs())).isEqualTo(1);
+        index.destroy();
+    }
+
+    @Test
+    @DisplayName("Shutting down mid-rebuild keeps the last complete commit on disk")
+    void shutdownDuringRebuildRollsBack() throws Exception {
+        LuceneIndex index = new LuceneIndex(FSDirectory.open(path));
+        index.upsert(file(1));
+        index.commit(COMMITTED);
+        index.beginRebuild();
+        index.upsert(file(2));
+        index.upsert(file(3));
+        index.destroy();
+
+        LuceneIndex reopened = new LuceneIndex(FSDirectory.open(path));
+        assertThat(reopened.numDocs()).isEqualTo(1);
+        assertThat(reopened.commitData()).isEqualTo(COMMITTED);
+        reopened.destroy();
+    }
+
+    @Test
+    @DisplayName("A completed rebuild replaces the index and its commit data")
+    void completedRebuildIsCommitted() throws Exception {
+        LuceneIndex index = new LuceneIndex(FSDirectory.open(path));
+        index.upsert(file(1));
+        index.commit(COMMITTED);
+
+        index.beginRebuild();
+        index.upsert(file(2));
+        index.upsert(file(3));
+        index.endRebuild(Map.of("complete", "true", "bound.0", "9"));
+        index.destroy();
+
+        LuceneIndex reopened = new LuceneIndex(FSDirectory.open(path));
+        assertThat(reopened.numDocs()).isEqualTo(2);
+        assertThat(reopened.commitData()).containsEntry("bound.0", "9");
+        reopened.destroy();
+    }
+
+    private static LuceneIndex.IndexedFile file(long id) {
+        return new LuceneIndex.IndexedFile(id, 1L, "file-" + id + ".txt", "text " + id, "text/plain",
+                10, Instant.now(), null);
+    }
+}
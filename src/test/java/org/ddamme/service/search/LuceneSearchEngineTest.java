@@ -0,0 +1,174 @@
+package org.ddamme.service.search;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.ddamme.database.model.User;
+import org.ddamme.dto.SearchResponse;
+import org.ddamme.dto.SearchResultDto;
+import org.ddamme.dto.SnippetMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LuceneSearchEngineTest {
+
+    private final User alice = User.builder().id(1L).username("alice").email("a@e").password("p").build();
+    private final User bob = User.builder().id(2L).username("bob").email("b@e").password("p").build();
+
+    private LuceneIndex index;
+    private LuceneSearchEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new LuceneIndex(new ByteBuffersDirectory());
+        engine = new LuceneSearchEngine(index);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.destroy();
+    }
+
+    @Test
+    @DisplayName("Only the searching user's files match")
+    void scopedToUser() {
+        file(1, alice, "invoice.pdf", "quarterly invoice from acme");
+        file(2, bob, "invoice.pdf", "another invoice");
+        index.refresh();
+
+        SearchResponse response = engine.search(alice, "invoice", null, null, 20, SnippetMode.NONE);
+
+        assertThat(response.getResults()).extracting(SearchResultDto::getFileId).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("A filename match outranks a text match; stemming matches inflected forms")
+    void filenameWeightedAndStemmed() {
+        file(1, alice, "notes.txt", "we discussed the contracts at length");
+        file(2, alice, "contract.pdf", "signed copy");
+        index.refresh();
+
+        SearchResponse response = engine.search(alice, "contract", null, null, 20, SnippetMode.NONE);
+
+        assertThat(response.getResults()).extracting(SearchResultDto::getFileId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    @DisplayName("Keyset pages visit every match exactly once, ties included")
+    void paginatesWithoutDuplicates() {
+        for (int i = 1; i <= 7; i++) {
+            file(i, alice, "report-" + i + ".txt", "budget");  // identical text: equal scores, ordered by id
+        }
+        index.refresh();
+
+        List<Long> seen = new ArrayList<>();
+        Double lastRank = null;
+        Long lastId = null;
+        SearchResponse page;
+        do {
+            page = engine.search(alice, "budget", lastRank, lastId, 3, SnippetMode.NONE);
+            page.getResults().forEach(r -> seen.add(r.getFileId()));
+            lastRank = page.getNextRank();
+            lastId = page.getNextId();
+        } while (page.isHasMore());
+
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    @DisplayName("Later pages run on the first page's snapshot, so writes in between cannot shift the cursor")
+    void pagesStayOnTheirSnapshot() {
+        for (int i = 1; i <= 6; i++) {
+            file(i, alice, "note-" + i + ".txt", "budget " + "filler ".repeat(i));  // distinct lengths: distinct scores
+        }
+        index.refresh();
+        List<Long> expected = engine.search(alice, "budget", null, null, 20, SnippetMode.NONE)
+                .getResults().stream().map(SearchResultDto::getFileId).toList();
+
+        SearchResponse page = engine.search(alice, "budget", null, null, 2, SnippetMode.NONE);
+        assertThat(page.getNextSnapshot()).isNotNull();
+        List<Long> seen = new ArrayList<>();
+        page.getResults().forEach(r -> seen.add(r.getFileId()));
+        long id = 100;
+        while (page.isHasMore()) {
+            // Other users' documents change BM25 statistics and so every score on the latest view
+            for (int i = 0; i < 20; i++) {
+                file(id++, bob, "b.txt", "budget budget budget");
+            }
+            file(id++, alice, "late.txt", "budget");
+            index.refresh();
+            page = engine.search(alice, "budget", page.getNextRank(), page.getNextId(), page.getNextSnapshot(),
+                    2, SnippetMode.NONE, false);
+            page.getResults().forEach(r -> seen.add(r.getFileId()));
+        }
+
+        assertThat(seen).isEqualTo(expected);
+        assertThat(page.getNextSnapshot()).isNull();
+    }
+
+    @Test
+    @DisplayName("A released snapshot falls back to the latest view")
+    void unknownSnapshotUsesLatestView() {
+        file(1, alice, "a.txt", "budget");
+        file(2, alice, "b.txt", "budget");
+        index.refresh();
+
+        SearchResponse first = engine.search(alice, "budget", null, null, 1, SnippetMode.NONE);
+        SearchResponse second = engine.search(alice, "budget", first.getNextRank(), first.getNextId(), -1L,
+                1, SnippetMode.NONE, false);
+
+        assertThat(second.getResults()).extracting(SearchResultDto::getFileId)
+                .doesNotContainAnyElementsOf(first.getResults().stream().map(SearchResultDto::getFileId).toList())
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Offsets mode returns plain snippets with match positions")
+    void highlightsOffsets() {
+        file(1, alice, "scan.png", "Total amount due on the invoice is 42 dollars.");
+        index.refresh();
+
+        SearchResultDto result = engine.search(alice, "invoice", null, null, 20, SnippetMode.OFFSETS)
+                .getResults().get(0);
+
+        assertThat(result.getSnippet()).doesNotContain("<mark>");
+        assertThat(result.getHighlights()).singleElement().satisfies(h ->
+                assertThat(result.getSnippet().substring(h.start(), h.end())).isEqualTo("invoice"));
+    }
+
+    @Test
+    @DisplayName("Updates replace the document and deletes remove it")
+    void upsertAndDelete() {
+        file(1, alice, "draft.txt", "alpha");
+        index.refresh();
+        file(1, alice, "draft.txt", "beta");
+        index.refresh();
+
+        assertThat(engine.search(alice, "alpha", null, null, 20, SnippetMode.NONE).getCount()).isZero();
+        assertThat(engine.search(alice, "beta", null, null, 20, SnippetMode.NONE).getCount()).isEqualTo(1);
+
+        index.delete(1);
+        index.refresh();
+        assertThat(engine.search(alice, "beta", null, null, 20, SnippetMode.NONE).getCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("A query of only stop words matches nothing")
+    void stopWordsOnly() {
+        file(1, alice, "the.txt", "the and of");
+        index.refresh();
+
+        assertThat(engine.search(alice, "the", null, null, 20, SnippetMode.NONE).getResults()).isEmpty();
+    }
+
+    private void file(long id, User owner, String name, String text) {
+        index.upsert(new LuceneIndex.IndexedFile(id, owner.getId(), name, text, "text/plain", 100,
+                Instant.parse("2025-01-01T00:00:00Z"), null));
+    }
+}
@@ -0,0 +1,49 @@
+package org.ddamme.util;
+
+import org.ddamme.exception.InvalidRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileTagsTest {
+
+    @Test
+    @DisplayName("normalize trims, lower-cases, de-duplicates and sorts")
+    void normalize_canonicalForm() {
+        assertThat(FileTags.normalize(List.of(" Invoice", "2025", "invoice ", "Draft")))
+                .containsExactly("2025", "draft", "invoice");
+    }
+
+    @Test
+    @DisplayName("normalize treats null as no tags")
+    void normalize_null() {
+        assertThat(FileTags.normalize(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("normalize rejects blank, overlong and control-character tags")
+    void normalize_rejectsInvalid() {
+        assertThatThrownBy(() -> FileTags.normalize(List.of("  ")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FileTags.normalize(Arrays.asList("ok", null)))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FileTags.normalize(List.of("x".repeat(FileTags.MAX_TAG_LENGTH + 1))))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FileTags.normalize(List.of("a\tb")))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    @DisplayName("normalize rejects more tags than a file may carry")
+    void normalize_rejectsTooMany() {
+        List<String> tags = IntStream.rangeClosed(0, FileTags.MAX_TAGS_PER_FILE).mapToObj(i -> "t" + i).toList();
+
+        assertThatThrownBy(() -> FileTags.normalize(tags)).isInstanceOf(InvalidRequestException.class);
+    }
+}
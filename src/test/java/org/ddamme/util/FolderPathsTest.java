@@ -0,0 +1,68 @@
+package org.ddamme.util;
+
+import org.ddamme.exception.InvalidRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FolderPathsTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', /",
+            "/, /",
+            "reports, /reports/",
+            "/reports/2025, /reports/2025/",
+            "//reports///2025/, /reports/2025/",
+            "' a / b ', /a/b/"
+    })
+    @DisplayName("normalize produces the canonical slash-delimited form")
+    void normalize_canonicalForm(String raw, String expected) {
+        assertThat(FolderPaths.normalize(raw)).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("normalize treats null as the root folder")
+    void normalize_null() {
+        assertThat(FolderPaths.normalize(null)).isEqualTo(FolderPaths.ROOT);
+    }
+
+    @Test
+    @DisplayName("normalize rejects relative segments and control characters")
+    void normalize_rejectsUnsafe() {
+        assertThatThrownBy(() -> FolderPaths.normalize("/a/../b")).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FolderPaths.normalize("/a/./b")).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FolderPaths.normalize("/a\nb/")).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> FolderPaths.normalize("/" + "x".repeat(FolderPaths.MAX_LENGTH)))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    @DisplayName("isWithin does not confuse sibling folders sharing a name prefix")
+    void isWithin_siblings() {
+        assertThat(FolderPaths.isWithin("/reports/2025/", "/reports/")).isTrue();
+        assertThat(FolderPaths.isWithin("/reports/", "/reports/")).isTrue();
+        assertThat(FolderPaths.isWithin("/reports-old/", "/reports/")).isFalse();
+    }
+
+    @Test
+    @DisplayName("subtreePattern escapes LIKE wildcards in folder names")
+    void subtreePattern_escapes() {
+        assertThat(FolderPaths.subtreePattern("/100%_done/")).isEqualTo("/100\\%\\_done/%");
+    }
+
+    @Test
+    @DisplayName("keyset cursors round-trip and reject tampering")
+    void keysetCursor_roundTrip() {
+        String cursor = KeysetCursor.encode("/a/", "name with spaces", 42L);
+
+        assertThat(KeysetCursor.decode(cursor, 3)).containsExactly("/a/", "name with spaces", "42");
+        assertThat(KeysetCursor.decode(null, 3)).isNull();
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, 2)).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode("%%%", 2)).isInstanceOf(InvalidRequestException.class);
+    }
+}
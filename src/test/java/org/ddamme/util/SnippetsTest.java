@@ -0,0 +1,41 @@
+package org.ddamme.util;
+
+import org.ddamme.dto.SearchResultDto.Highlight;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnippetsTest {
+
+    @Test
+    void stripsMarkersAndReportsOffsets() {
+        Snippets.Marked marked = Snippets.parse("the \u0002invoice\u0003 total for \u0002invoice\u0003 42");
+
+        assertThat(marked.text()).isEqualTo("the invoice total for invoice 42");
+        assertThat(marked.highlights()).containsExactly(new Highlight(4, 11), new Highlight(22, 29));
+        assertThat(marked.text().substring(4, 11)).isEqualTo("invoice");
+    }
+
+    @Test
+    void offsetsAreUtf16Indices() {
+        Snippets.Marked marked = Snippets.parse("📄 \u0002Rechnung\u0003");
+
+        assertThat(marked.highlights()).containsExactly(new Highlight(3, 11));
+    }
+
+    @Test
+    void plainTextHasNoHighlights() {
+        Snippets.Marked marked = Snippets.parse("no match here");
+
+        assertThat(marked.text()).isEqualTo("no match here");
+        assertThat(marked.highlights()).isEmpty();
+    }
+
+    @Test
+    void ignoresEmptyAndUnbalancedMarkers() {
+        Snippets.Marked marked = Snippets.parse("a \u0002\u0003b \u0003c");
+
+        assertThat(marked.text()).isEqualTo("a b c");
+        assertThat(marked.highlights()).isEmpty();
+    }
+}